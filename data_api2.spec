@@ -55,6 +55,60 @@ typedef structure  {
     list<string> protein_domain_locations;
 } Protein_data;
 
+/*
+A page of Feature ids in genomic order. continuation_token is passed to
+the next call to get the following page; it is null on the last page.
+*/
+typedef structure  {
+    list<string> feature_ids;
+    string continuation_token;
+} Feature_id_page;
+
+/*
+A page of Feature data in genomic order, with a continuation_token as in
+Feature_id_page.
+*/
+typedef structure  {
+    list<Feature_data> features;
+    string continuation_token;
+} Feature_data_page;
+
+/*
+The Feature data of one GenomeAnnotation in the result of
+get_features_multi. If the GenomeAnnotation could not be read, features
+is null and error holds the reason.
+*/
+typedef structure  {
+    mapping<string, Feature_data> features;
+    string error;
+} Features_multi_result;
+
+/*
+The Feature type counts of one GenomeAnnotation in the result of
+get_feature_type_counts_multi, with an error as in Features_multi_result.
+*/
+typedef structure  {
+    mapping<string, int> feature_type_counts;
+    string error;
+} Feature_type_counts_multi_result;
+
+/*
+The gene, mRNA and CDS relationships of a GenomeAnnotation, as returned by
+get_feature_relationships. gene_ids, mrna_ids and cds_ids are the sorted ids
+of the Features of each type. mrna_gene holds the position in gene_ids of
+the gene of each mRNA in mrna_ids; cds_mrna and cds_gene hold the positions
+in mrna_ids and gene_ids of the mRNA and gene of each CDS in cds_ids. A
+position of -1 means the Feature has no such parent.
+*/
+typedef structure  {
+    list<string> gene_ids;
+    list<string> mrna_ids;
+    list<string> cds_ids;
+    list<int> mrna_gene;
+    list<int> cds_mrna;
+    list<int> cds_gene;
+} Feature_relationships;
+
     /**
      * Retrieve the Taxon associated with this GenomeAnnotation.
      *
@@ -86,6 +140,16 @@ typedef structure  {
      */
     funcdef get_feature_type_counts(ObjectReference ref, list<string> feature_type_list) returns (mapping<string,int> ) authentication required;
 
+    /**
+     * Retrieve the count of each Feature type in each of several
+     * GenomeAnnotations, as get_feature_type_counts does for one. The
+     * GenomeAnnotations are read concurrently; one that cannot be read
+     * gets an error in its result rather than failing the call.
+     *
+     */
+    funcdef get_feature_type_counts_multi(list<ObjectReference> ref_list,
+                                          list<string> feature_type_list) returns (mapping<ObjectReference, Feature_type_counts_multi_result> ) authentication required;
+
     /**
      * Retrieve Feature ids in this GenomeAnnotation, optionally filtered by type, region, function, alias.
      *
@@ -95,9 +159,43 @@ typedef structure  {
 
     /**
      * Retrieve Feature data available in this GenomeAnnotation.
+     * field_list names the Feature_data fields to return, e.g.
+     * ["feature_type", "feature_locations"]; if it is null or empty, all
+     * fields are returned. It may be left out.
+     *
+     */
+    funcdef get_features(ObjectReference ref,list<string> feature_id_list,
+                         list<string> field_list) returns (mapping<string, Feature_data> ) authentication required;
+
+    /**
+     * Retrieve one page of Feature ids in this GenomeAnnotation, optionally
+     * filtered as for get_feature_ids, in genomic order: by contig and start
+     * of the leftmost location, then by id, with Features without locations
+     * last. Pass a null continuation_token for the first page. A page_size
+     * of 0 means the default of 1000.
+     *
+     */
+    funcdef get_feature_ids_page(ObjectReference ref,Feature_id_filters filters,
+                                 int page_size, string continuation_token) returns (Feature_id_page ) authentication required;
+
+    /**
+     * Retrieve the Feature data of one page of Features, in the order of
+     * get_feature_ids_page. field_list is as for get_features.
+     *
+     */
+    funcdef get_features_page(ObjectReference ref,Feature_id_filters filters,list<string> field_list,
+                              int page_size, string continuation_token) returns (Feature_data_page ) authentication required;
+
+    /**
+     * Retrieve the Feature data of all the Features of each of several
+     * GenomeAnnotations, as get_features does for one with a null
+     * feature_id_list. field_list is as for get_features. The
+     * GenomeAnnotations are read concurrently; one that cannot be read
+     * gets an error in its result rather than failing the call.
      *
      */
-    funcdef get_features(ObjectReference ref,list<string> feature_id_list) returns (mapping<string, Feature_data> ) authentication required;
+    funcdef get_features_multi(list<ObjectReference> ref_list,
+                               list<string> field_list) returns (mapping<ObjectReference, Features_multi_result> ) authentication required;
 
     /**
      * Retrieve Protein data available in this GenomeAnnotation.
@@ -111,6 +209,15 @@ typedef structure  {
      */
     funcdef get_feature_locations(ObjectReference ref,list<string> feature_id_list) returns (mapping<string, list<Region>> ) authentication required;
 
+    /**
+     * Retrieve the Features in this GenomeAnnotation with a location that
+     * overlaps a region, with all the locations of each. A strand of "?"
+     * matches either strand; an empty feature_type_list matches any type.
+     *
+     */
+    funcdef get_features_in_region(ObjectReference ref, Region region,
+                                   list<string> feature_type_list) returns (mapping<string, list<Region>> ) authentication required;
+
     /**
      * Retrieve Feature publications in this GenomeAnnotation.
      *
@@ -176,4 +283,11 @@ typedef structure  {
      *
      */
     funcdef get_mrna_by_gene(ObjectReference ref,list<string> gene_id_list) returns (mapping<string, list<string>> ) authentication required;
+
+    /**
+     * Retrieve all the relationships between the genes, mRNAs and CDSs in
+     * this GenomeAnnotation at once.
+     *
+     */
+    funcdef get_feature_relationships(ObjectReference ref) returns (Feature_relationships) authentication required;
 };
@@ -530,6 +530,101 @@ Retrieve the count of each Feature type in this GenomeAnnotation.
  
 
 
+=head2 get_feature_type_counts_multi
+
+  $return = $obj->get_feature_type_counts_multi($ref_list, $feature_type_list)
+
+=over 4
+
+=item Parameter and return types
+
+=begin html
+
+<pre>
+$ref_list is a reference to a list where each element is a data_api2.ObjectReference
+$feature_type_list is a reference to a list where each element is a string
+$return is a reference to a hash where the key is a data_api2.ObjectReference and the value is a data_api2.Feature_type_counts_multi_result
+ObjectReference is a string
+Feature_type_counts_multi_result is a reference to a hash where the following keys are defined:
+	feature_type_counts has a value which is a reference to a hash where the key is a string and the value is an int
+	error has a value which is a string
+
+</pre>
+
+=end html
+
+=begin text
+
+$ref_list is a reference to a list where each element is a data_api2.ObjectReference
+$feature_type_list is a reference to a list where each element is a string
+$return is a reference to a hash where the key is a data_api2.ObjectReference and the value is a data_api2.Feature_type_counts_multi_result
+ObjectReference is a string
+Feature_type_counts_multi_result is a reference to a hash where the following keys are defined:
+	feature_type_counts has a value which is a reference to a hash where the key is a string and the value is an int
+	error has a value which is a string
+
+
+=end text
+
+=item Description
+
+Retrieve the count of each Feature type in each of several
+GenomeAnnotations, as get_feature_type_counts does for one. The
+GenomeAnnotations are read concurrently; one that cannot be read
+gets an error in its result rather than failing the call.
+
+=back
+
+=cut
+
+ sub get_feature_type_counts_multi
+{
+    my($self, @args) = @_;
+
+# Authentication: required
+
+    if ((my $n = @args) != 2)
+    {
+	Bio::KBase::Exceptions::ArgumentValidationError->throw(error =>
+							       "Invalid argument count for function get_feature_type_counts_multi (received $n, expecting 2)");
+    }
+    {
+	my($ref_list, $feature_type_list) = @args;
+
+	my @_bad_arguments;
+        (ref($ref_list) eq 'ARRAY') or push(@_bad_arguments, "Invalid type for argument 1 \"ref_list\" (value was \"$ref_list\")");
+        (ref($feature_type_list) eq 'ARRAY') or push(@_bad_arguments, "Invalid type for argument 2 \"feature_type_list\" (value was \"$feature_type_list\")");
+        if (@_bad_arguments) {
+	    my $msg = "Invalid arguments passed to get_feature_type_counts_multi:\n" . join("", map { "\t$_\n" } @_bad_arguments);
+	    Bio::KBase::Exceptions::ArgumentValidationError->throw(error => $msg,
+								   method_name => 'get_feature_type_counts_multi');
+	}
+    }
+
+    my $result = $self->{client}->call($self->{url}, $self->{headers}, {
+	method => "data_api2.get_feature_type_counts_multi",
+	params => \@args,
+    });
+    if ($result) {
+	if ($result->is_error) {
+	    Bio::KBase::Exceptions::JSONRPC->throw(error => $result->error_message,
+					       code => $result->content->{error}->{code},
+					       method_name => 'get_feature_type_counts_multi',
+					       data => $result->content->{error}->{error} # JSON::RPC::ReturnObject only supports JSONRPC 1.1 or 1.O
+					      );
+	} else {
+	    return wantarray ? @{$result->result} : $result->result->[0];
+	}
+    } else {
+        Bio::KBase::Exceptions::HTTP->throw(error => "Error invoking method get_feature_type_counts_multi",
+					    status_line => $self->{client}->status_line,
+					    method_name => 'get_feature_type_counts_multi',
+				       );
+    }
+}
+ 
+
+
 =head2 get_feature_ids
 
   $return = $obj->get_feature_ids($ref, $filters, $group_type)
@@ -651,7 +746,7 @@ Retrieve Feature ids in this GenomeAnnotation, optionally filtered by type, regi
 
 =head2 get_features
 
-  $return = $obj->get_features($ref, $feature_id_list)
+  $return = $obj->get_features($ref, $feature_id_list, $field_list)
 
 =over 4
 
@@ -662,6 +757,7 @@ Retrieve Feature ids in this GenomeAnnotation, optionally filtered by type, regi
 <pre>
 $ref is a data_api2.ObjectReference
 $feature_id_list is a reference to a list where each element is a string
+$field_list is a reference to a list where each element is a string
 $return is a reference to a hash where the key is a string and the value is a data_api2.Feature_data
 ObjectReference is a string
 Feature_data is a reference to a hash where the following keys are defined:
@@ -692,6 +788,7 @@ Region is a reference to a hash where the following keys are defined:
 
 $ref is a data_api2.ObjectReference
 $feature_id_list is a reference to a list where each element is a string
+$field_list is a reference to a list where each element is a string
 $return is a reference to a hash where the key is a string and the value is a data_api2.Feature_data
 ObjectReference is a string
 Feature_data is a reference to a hash where the following keys are defined:
@@ -720,6 +817,9 @@ Region is a reference to a hash where the following keys are defined:
 =item Description
 
 Retrieve Feature data available in this GenomeAnnotation.
+field_list names the Feature_data fields to return, e.g.
+["feature_type", "feature_locations"]; if it is null or empty, all
+fields are returned. It may be left out.
 
 =back
 
@@ -731,17 +831,18 @@ Retrieve Feature data available in this GenomeAnnotation.
 
 # Authentication: required
 
-    if ((my $n = @args) != 2)
+    if ((my $n = @args) < 2 or $n > 3)
     {
 	Bio::KBase::Exceptions::ArgumentValidationError->throw(error =>
-							       "Invalid argument count for function get_features (received $n, expecting 2)");
+							       "Invalid argument count for function get_features (received $n, expecting 2 or 3)");
     }
     {
-	my($ref, $feature_id_list) = @args;
+	my($ref, $feature_id_list, $field_list) = @args;
 
 	my @_bad_arguments;
         (!ref($ref)) or push(@_bad_arguments, "Invalid type for argument 1 \"ref\" (value was \"$ref\")");
         (ref($feature_id_list) eq 'ARRAY') or push(@_bad_arguments, "Invalid type for argument 2 \"feature_id_list\" (value was \"$feature_id_list\")");
+        (!defined($field_list) or ref($field_list) eq 'ARRAY') or push(@_bad_arguments, "Invalid type for argument 3 \"field_list\" (value was \"$field_list\")");
         if (@_bad_arguments) {
 	    my $msg = "Invalid arguments passed to get_features:\n" . join("", map { "\t$_\n" } @_bad_arguments);
 	    Bio::KBase::Exceptions::ArgumentValidationError->throw(error => $msg,
@@ -773,6 +874,412 @@ Retrieve Feature data available in this GenomeAnnotation.
  
 
 
+=head2 get_feature_ids_page
+
+  $return = $obj->get_feature_ids_page($ref, $filters, $page_size, $continuation_token)
+
+=over 4
+
+=item Parameter and return types
+
+=begin html
+
+<pre>
+$ref is a data_api2.ObjectReference
+$filters is a data_api2.Feature_id_filters
+$page_size is an int
+$continuation_token is a string
+$return is a data_api2.Feature_id_page
+ObjectReference is a string
+Feature_id_filters is a reference to a hash where the following keys are defined:
+	type_list has a value which is a reference to a list where each element is a string
+	region_list has a value which is a reference to a list where each element is a data_api2.Region
+	function_list has a value which is a reference to a list where each element is a string
+	alias_list has a value which is a reference to a list where each element is a string
+Region is a reference to a hash where the following keys are defined:
+	contig_id has a value which is a string
+	strand has a value which is a string
+	start has a value which is an int
+	length has a value which is an int
+Feature_id_page is a reference to a hash where the following keys are defined:
+	feature_ids has a value which is a reference to a list where each element is a string
+	continuation_token has a value which is a string
+
+</pre>
+
+=end html
+
+=begin text
+
+$ref is a data_api2.ObjectReference
+$filters is a data_api2.Feature_id_filters
+$page_size is an int
+$continuation_token is a string
+$return is a data_api2.Feature_id_page
+ObjectReference is a string
+Feature_id_filters is a reference to a hash where the following keys are defined:
+	type_list has a value which is a reference to a list where each element is a string
+	region_list has a value which is a reference to a list where each element is a data_api2.Region
+	function_list has a value which is a reference to a list where each element is a string
+	alias_list has a value which is a reference to a list where each element is a string
+Region is a reference to a hash where the following keys are defined:
+	contig_id has a value which is a string
+	strand has a value which is a string
+	start has a value which is an int
+	length has a value which is an int
+Feature_id_page is a reference to a hash where the following keys are defined:
+	feature_ids has a value which is a reference to a list where each element is a string
+	continuation_token has a value which is a string
+
+
+=end text
+
+=item Description
+
+Retrieve one page of Feature ids in this GenomeAnnotation, optionally
+filtered as for get_feature_ids, in genomic order: by contig and start
+of the leftmost location, then by id, with Features without locations
+last. Pass a null continuation_token for the first page. A page_size
+of 0 means the default of 1000.
+
+=back
+
+=cut
+
+ sub get_feature_ids_page
+{
+    my($self, @args) = @_;
+
+# Authentication: required
+
+    if ((my $n = @args) != 4)
+    {
+	Bio::KBase::Exceptions::ArgumentValidationError->throw(error =>
+							       "Invalid argument count for function get_feature_ids_page (received $n, expecting 4)");
+    }
+    {
+	my($ref, $filters, $page_size, $continuation_token) = @args;
+
+	my @_bad_arguments;
+        (!ref($ref)) or push(@_bad_arguments, "Invalid type for argument 1 \"ref\" (value was \"$ref\")");
+        (ref($filters) eq 'HASH') or push(@_bad_arguments, "Invalid type for argument 2 \"filters\" (value was \"$filters\")");
+        (!ref($page_size)) or push(@_bad_arguments, "Invalid type for argument 3 \"page_size\" (value was \"$page_size\")");
+        (!ref($continuation_token)) or push(@_bad_arguments, "Invalid type for argument 4 \"continuation_token\" (value was \"$continuation_token\")");
+        if (@_bad_arguments) {
+	    my $msg = "Invalid arguments passed to get_feature_ids_page:\n" . join("", map { "\t$_\n" } @_bad_arguments);
+	    Bio::KBase::Exceptions::ArgumentValidationError->throw(error => $msg,
+								   method_name => 'get_feature_ids_page');
+	}
+    }
+
+    my $result = $self->{client}->call($self->{url}, $self->{headers}, {
+	method => "data_api2.get_feature_ids_page",
+	params => \@args,
+    });
+    if ($result) {
+	if ($result->is_error) {
+	    Bio::KBase::Exceptions::JSONRPC->throw(error => $result->error_message,
+					       code => $result->content->{error}->{code},
+					       method_name => 'get_feature_ids_page',
+					       data => $result->content->{error}->{error} # JSON::RPC::ReturnObject only supports JSONRPC 1.1 or 1.O
+					      );
+	} else {
+	    return wantarray ? @{$result->result} : $result->result->[0];
+	}
+    } else {
+        Bio::KBase::Exceptions::HTTP->throw(error => "Error invoking method get_feature_ids_page",
+					    status_line => $self->{client}->status_line,
+					    method_name => 'get_feature_ids_page',
+				       );
+    }
+}
+ 
+
+
+=head2 get_features_page
+
+  $return = $obj->get_features_page($ref, $filters, $field_list, $page_size, $continuation_token)
+
+=over 4
+
+=item Parameter and return types
+
+=begin html
+
+<pre>
+$ref is a data_api2.ObjectReference
+$filters is a data_api2.Feature_id_filters
+$field_list is a reference to a list where each element is a string
+$page_size is an int
+$continuation_token is a string
+$return is a data_api2.Feature_data_page
+ObjectReference is a string
+Feature_id_filters is a reference to a hash where the following keys are defined:
+	type_list has a value which is a reference to a list where each element is a string
+	region_list has a value which is a reference to a list where each element is a data_api2.Region
+	function_list has a value which is a reference to a list where each element is a string
+	alias_list has a value which is a reference to a list where each element is a string
+Region is a reference to a hash where the following keys are defined:
+	contig_id has a value which is a string
+	strand has a value which is a string
+	start has a value which is an int
+	length has a value which is an int
+Feature_data_page is a reference to a hash where the following keys are defined:
+	features has a value which is a reference to a list where each element is a data_api2.Feature_data
+	continuation_token has a value which is a string
+Feature_data is a reference to a hash where the following keys are defined:
+	feature_id has a value which is a string
+	feature_type has a value which is a string
+	feature_function has a value which is a string
+	feature_aliases has a value which is a reference to a hash where the key is a string and the value is a reference to a list where each element is a string
+	feature_dna_sequence_length has a value which is an int
+	feature_dna_sequence has a value which is a string
+	feature_md5 has a value which is a string
+	feature_locations has a value which is a reference to a list where each element is a data_api2.Region
+	feature_publications has a value which is a reference to a list where each element is a string
+	feature_quality_warnings has a value which is a reference to a list where each element is a string
+	feature_quality_score has a value which is a reference to a list where each element is a string
+	feature_notes has a value which is a reference to a list where each element is a string
+	feature_inference has a value which is a string
+
+</pre>
+
+=end html
+
+=begin text
+
+$ref is a data_api2.ObjectReference
+$filters is a data_api2.Feature_id_filters
+$field_list is a reference to a list where each element is a string
+$page_size is an int
+$continuation_token is a string
+$return is a data_api2.Feature_data_page
+ObjectReference is a string
+Feature_id_filters is a reference to a hash where the following keys are defined:
+	type_list has a value which is a reference to a list where each element is a string
+	region_list has a value which is a reference to a list where each element is a data_api2.Region
+	function_list has a value which is a reference to a list where each element is a string
+	alias_list has a value which is a reference to a list where each element is a string
+Region is a reference to a hash where the following keys are defined:
+	contig_id has a value which is a string
+	strand has a value which is a string
+	start has a value which is an int
+	length has a value which is an int
+Feature_data_page is a reference to a hash where the following keys are defined:
+	features has a value which is a reference to a list where each element is a data_api2.Feature_data
+	continuation_token has a value which is a string
+Feature_data is a reference to a hash where the following keys are defined:
+	feature_id has a value which is a string
+	feature_type has a value which is a string
+	feature_function has a value which is a string
+	feature_aliases has a value which is a reference to a hash where the key is a string and the value is a reference to a list where each element is a string
+	feature_dna_sequence_length has a value which is an int
+	feature_dna_sequence has a value which is a string
+	feature_md5 has a value which is a string
+	feature_locations has a value which is a reference to a list where each element is a data_api2.Region
+	feature_publications has a value which is a reference to a list where each element is a string
+	feature_quality_warnings has a value which is a reference to a list where each element is a string
+	feature_quality_score has a value which is a reference to a list where each element is a string
+	feature_notes has a value which is a reference to a list where each element is a string
+	feature_inference has a value which is a string
+
+
+=end text
+
+=item Description
+
+Retrieve the Feature data of one page of Features, in the order of
+get_feature_ids_page. field_list is as for get_features.
+
+=back
+
+=cut
+
+ sub get_features_page
+{
+    my($self, @args) = @_;
+
+# Authentication: required
+
+    if ((my $n = @args) != 5)
+    {
+	Bio::KBase::Exceptions::ArgumentValidationError->throw(error =>
+							       "Invalid argument count for function get_features_page (received $n, expecting 5)");
+    }
+    {
+	my($ref, $filters, $field_list, $page_size, $continuation_token) = @args;
+
+	my @_bad_arguments;
+        (!ref($ref)) or push(@_bad_arguments, "Invalid type for argument 1 \"ref\" (value was \"$ref\")");
+        (ref($filters) eq 'HASH') or push(@_bad_arguments, "Invalid type for argument 2 \"filters\" (value was \"$filters\")");
+        (!defined($field_list) or ref($field_list) eq 'ARRAY') or push(@_bad_arguments, "Invalid type for argument 3 \"field_list\" (value was \"$field_list\")");
+        (!ref($page_size)) or push(@_bad_arguments, "Invalid type for argument 4 \"page_size\" (value was \"$page_size\")");
+        (!ref($continuation_token)) or push(@_bad_arguments, "Invalid type for argument 5 \"continuation_token\" (value was \"$continuation_token\")");
+        if (@_bad_arguments) {
+	    my $msg = "Invalid arguments passed to get_features_page:\n" . join("", map { "\t$_\n" } @_bad_arguments);
+	    Bio::KBase::Exceptions::ArgumentValidationError->throw(error => $msg,
+								   method_name => 'get_features_page');
+	}
+    }
+
+    my $result = $self->{client}->call($self->{url}, $self->{headers}, {
+	method => "data_api2.get_features_page",
+	params => \@args,
+    });
+    if ($result) {
+	if ($result->is_error) {
+	    Bio::KBase::Exceptions::JSONRPC->throw(error => $result->error_message,
+					       code => $result->content->{error}->{code},
+					       method_name => 'get_features_page',
+					       data => $result->content->{error}->{error} # JSON::RPC::ReturnObject only supports JSONRPC 1.1 or 1.O
+					      );
+	} else {
+	    return wantarray ? @{$result->result} : $result->result->[0];
+	}
+    } else {
+        Bio::KBase::Exceptions::HTTP->throw(error => "Error invoking method get_features_page",
+					    status_line => $self->{client}->status_line,
+					    method_name => 'get_features_page',
+				       );
+    }
+}
+ 
+
+
+=head2 get_features_multi
+
+  $return = $obj->get_features_multi($ref_list, $field_list)
+
+=over 4
+
+=item Parameter and return types
+
+=begin html
+
+<pre>
+$ref_list is a reference to a list where each element is a data_api2.ObjectReference
+$field_list is a reference to a list where each element is a string
+$return is a reference to a hash where the key is a data_api2.ObjectReference and the value is a data_api2.Features_multi_result
+ObjectReference is a string
+Features_multi_result is a reference to a hash where the following keys are defined:
+	features has a value which is a reference to a hash where the key is a string and the value is a data_api2.Feature_data
+	error has a value which is a string
+Feature_data is a reference to a hash where the following keys are defined:
+	feature_id has a value which is a string
+	feature_type has a value which is a string
+	feature_function has a value which is a string
+	feature_aliases has a value which is a reference to a hash where the key is a string and the value is a reference to a list where each element is a string
+	feature_dna_sequence_length has a value which is an int
+	feature_dna_sequence has a value which is a string
+	feature_md5 has a value which is a string
+	feature_locations has a value which is a reference to a list where each element is a data_api2.Region
+	feature_publications has a value which is a reference to a list where each element is a string
+	feature_quality_warnings has a value which is a reference to a list where each element is a string
+	feature_quality_score has a value which is a reference to a list where each element is a string
+	feature_notes has a value which is a reference to a list where each element is a string
+	feature_inference has a value which is a string
+Region is a reference to a hash where the following keys are defined:
+	contig_id has a value which is a string
+	strand has a value which is a string
+	start has a value which is an int
+	length has a value which is an int
+
+</pre>
+
+=end html
+
+=begin text
+
+$ref_list is a reference to a list where each element is a data_api2.ObjectReference
+$field_list is a reference to a list where each element is a string
+$return is a reference to a hash where the key is a data_api2.ObjectReference and the value is a data_api2.Features_multi_result
+ObjectReference is a string
+Features_multi_result is a reference to a hash where the following keys are defined:
+	features has a value which is a reference to a hash where the key is a string and the value is a data_api2.Feature_data
+	error has a value which is a string
+Feature_data is a reference to a hash where the following keys are defined:
+	feature_id has a value which is a string
+	feature_type has a value which is a string
+	feature_function has a value which is a string
+	feature_aliases has a value which is a reference to a hash where the key is a string and the value is a reference to a list where each element is a string
+	feature_dna_sequence_length has a value which is an int
+	feature_dna_sequence has a value which is a string
+	feature_md5 has a value which is a string
+	feature_locations has a value which is a reference to a list where each element is a data_api2.Region
+	feature_publications has a value which is a reference to a list where each element is a string
+	feature_quality_warnings has a value which is a reference to a list where each element is a string
+	feature_quality_score has a value which is a reference to a list where each element is a string
+	feature_notes has a value which is a reference to a list where each element is a string
+	feature_inference has a value which is a string
+Region is a reference to a hash where the following keys are defined:
+	contig_id has a value which is a string
+	strand has a value which is a string
+	start has a value which is an int
+	length has a value which is an int
+
+
+=end text
+
+=item Description
+
+Retrieve the Feature data of all the Features of each of several
+GenomeAnnotations, as get_features does for one with a null
+feature_id_list. field_list is as for get_features. The
+GenomeAnnotations are read concurrently; one that cannot be read
+gets an error in its result rather than failing the call.
+
+=back
+
+=cut
+
+ sub get_features_multi
+{
+    my($self, @args) = @_;
+
+# Authentication: required
+
+    if ((my $n = @args) != 2)
+    {
+	Bio::KBase::Exceptions::ArgumentValidationError->throw(error =>
+							       "Invalid argument count for function get_features_multi (received $n, expecting 2)");
+    }
+    {
+	my($ref_list, $field_list) = @args;
+
+	my @_bad_arguments;
+        (ref($ref_list) eq 'ARRAY') or push(@_bad_arguments, "Invalid type for argument 1 \"ref_list\" (value was \"$ref_list\")");
+        (ref($field_list) eq 'ARRAY') or push(@_bad_arguments, "Invalid type for argument 2 \"field_list\" (value was \"$field_list\")");
+        if (@_bad_arguments) {
+	    my $msg = "Invalid arguments passed to get_features_multi:\n" . join("", map { "\t$_\n" } @_bad_arguments);
+	    Bio::KBase::Exceptions::ArgumentValidationError->throw(error => $msg,
+								   method_name => 'get_features_multi');
+	}
+    }
+
+    my $result = $self->{client}->call($self->{url}, $self->{headers}, {
+	method => "data_api2.get_features_multi",
+	params => \@args,
+    });
+    if ($result) {
+	if ($result->is_error) {
+	    Bio::KBase::Exceptions::JSONRPC->throw(error => $result->error_message,
+					       code => $result->content->{error}->{code},
+					       method_name => 'get_features_multi',
+					       data => $result->content->{error}->{error} # JSON::RPC::ReturnObject only supports JSONRPC 1.1 or 1.O
+					      );
+	} else {
+	    return wantarray ? @{$result->result} : $result->result->[0];
+	}
+    } else {
+        Bio::KBase::Exceptions::HTTP->throw(error => "Error invoking method get_features_multi",
+					    status_line => $self->{client}->status_line,
+					    method_name => 'get_features_multi',
+				       );
+    }
+}
+ 
+
+
 =head2 get_proteins
 
   $return = $obj->get_proteins($ref)
@@ -840,39 +1347,135 @@ Retrieve Protein data available in this GenomeAnnotation.
 	my @_bad_arguments;
         (!ref($ref)) or push(@_bad_arguments, "Invalid type for argument 1 \"ref\" (value was \"$ref\")");
         if (@_bad_arguments) {
-	    my $msg = "Invalid arguments passed to get_proteins:\n" . join("", map { "\t$_\n" } @_bad_arguments);
+	    my $msg = "Invalid arguments passed to get_proteins:\n" . join("", map { "\t$_\n" } @_bad_arguments);
+	    Bio::KBase::Exceptions::ArgumentValidationError->throw(error => $msg,
+								   method_name => 'get_proteins');
+	}
+    }
+
+    my $result = $self->{client}->call($self->{url}, $self->{headers}, {
+	method => "data_api2.get_proteins",
+	params => \@args,
+    });
+    if ($result) {
+	if ($result->is_error) {
+	    Bio::KBase::Exceptions::JSONRPC->throw(error => $result->error_message,
+					       code => $result->content->{error}->{code},
+					       method_name => 'get_proteins',
+					       data => $result->content->{error}->{error} # JSON::RPC::ReturnObject only supports JSONRPC 1.1 or 1.O
+					      );
+	} else {
+	    return wantarray ? @{$result->result} : $result->result->[0];
+	}
+    } else {
+        Bio::KBase::Exceptions::HTTP->throw(error => "Error invoking method get_proteins",
+					    status_line => $self->{client}->status_line,
+					    method_name => 'get_proteins',
+				       );
+    }
+}
+ 
+
+
+=head2 get_feature_locations
+
+  $return = $obj->get_feature_locations($ref, $feature_id_list)
+
+=over 4
+
+=item Parameter and return types
+
+=begin html
+
+<pre>
+$ref is a data_api2.ObjectReference
+$feature_id_list is a reference to a list where each element is a string
+$return is a reference to a hash where the key is a string and the value is a reference to a list where each element is a data_api2.Region
+ObjectReference is a string
+Region is a reference to a hash where the following keys are defined:
+	contig_id has a value which is a string
+	strand has a value which is a string
+	start has a value which is an int
+	length has a value which is an int
+
+</pre>
+
+=end html
+
+=begin text
+
+$ref is a data_api2.ObjectReference
+$feature_id_list is a reference to a list where each element is a string
+$return is a reference to a hash where the key is a string and the value is a reference to a list where each element is a data_api2.Region
+ObjectReference is a string
+Region is a reference to a hash where the following keys are defined:
+	contig_id has a value which is a string
+	strand has a value which is a string
+	start has a value which is an int
+	length has a value which is an int
+
+
+=end text
+
+=item Description
+
+Retrieve Feature locations in this GenomeAnnotation.
+
+=back
+
+=cut
+
+ sub get_feature_locations
+{
+    my($self, @args) = @_;
+
+# Authentication: required
+
+    if ((my $n = @args) != 2)
+    {
+	Bio::KBase::Exceptions::ArgumentValidationError->throw(error =>
+							       "Invalid argument count for function get_feature_locations (received $n, expecting 2)");
+    }
+    {
+	my($ref, $feature_id_list) = @args;
+
+	my @_bad_arguments;
+        (!ref($ref)) or push(@_bad_arguments, "Invalid type for argument 1 \"ref\" (value was \"$ref\")");
+        (ref($feature_id_list) eq 'ARRAY') or push(@_bad_arguments, "Invalid type for argument 2 \"feature_id_list\" (value was \"$feature_id_list\")");
+        if (@_bad_arguments) {
+	    my $msg = "Invalid arguments passed to get_feature_locations:\n" . join("", map { "\t$_\n" } @_bad_arguments);
 	    Bio::KBase::Exceptions::ArgumentValidationError->throw(error => $msg,
-								   method_name => 'get_proteins');
+								   method_name => 'get_feature_locations');
 	}
     }
 
     my $result = $self->{client}->call($self->{url}, $self->{headers}, {
-	method => "data_api2.get_proteins",
+	method => "data_api2.get_feature_locations",
 	params => \@args,
     });
     if ($result) {
 	if ($result->is_error) {
 	    Bio::KBase::Exceptions::JSONRPC->throw(error => $result->error_message,
 					       code => $result->content->{error}->{code},
-					       method_name => 'get_proteins',
+					       method_name => 'get_feature_locations',
 					       data => $result->content->{error}->{error} # JSON::RPC::ReturnObject only supports JSONRPC 1.1 or 1.O
 					      );
 	} else {
 	    return wantarray ? @{$result->result} : $result->result->[0];
 	}
     } else {
-        Bio::KBase::Exceptions::HTTP->throw(error => "Error invoking method get_proteins",
+        Bio::KBase::Exceptions::HTTP->throw(error => "Error invoking method get_feature_locations",
 					    status_line => $self->{client}->status_line,
-					    method_name => 'get_proteins',
+					    method_name => 'get_feature_locations',
 				       );
     }
 }
  
 
 
-=head2 get_feature_locations
+=head2 get_features_in_region
 
-  $return = $obj->get_feature_locations($ref, $feature_id_list)
+  $return = $obj->get_features_in_region($ref, $region, $feature_type_list)
 
 =over 4
 
@@ -882,7 +1485,8 @@ Retrieve Protein data available in this GenomeAnnotation.
 
 <pre>
 $ref is a data_api2.ObjectReference
-$feature_id_list is a reference to a list where each element is a string
+$region is a data_api2.Region
+$feature_type_list is a reference to a list where each element is a string
 $return is a reference to a hash where the key is a string and the value is a reference to a list where each element is a data_api2.Region
 ObjectReference is a string
 Region is a reference to a hash where the following keys are defined:
@@ -898,7 +1502,8 @@ Region is a reference to a hash where the following keys are defined:
 =begin text
 
 $ref is a data_api2.ObjectReference
-$feature_id_list is a reference to a list where each element is a string
+$region is a data_api2.Region
+$feature_type_list is a reference to a list where each element is a string
 $return is a reference to a hash where the key is a string and the value is a reference to a list where each element is a data_api2.Region
 ObjectReference is a string
 Region is a reference to a hash where the following keys are defined:
@@ -912,54 +1517,57 @@ Region is a reference to a hash where the following keys are defined:
 
 =item Description
 
-Retrieve Feature locations in this GenomeAnnotation.
+Retrieve the Features in this GenomeAnnotation with a location that
+overlaps a region, with all the locations of each. A strand of "?"
+matches either strand; an empty feature_type_list matches any type.
 
 =back
 
 =cut
 
- sub get_feature_locations
+ sub get_features_in_region
 {
     my($self, @args) = @_;
 
 # Authentication: required
 
-    if ((my $n = @args) != 2)
+    if ((my $n = @args) != 3)
     {
 	Bio::KBase::Exceptions::ArgumentValidationError->throw(error =>
-							       "Invalid argument count for function get_feature_locations (received $n, expecting 2)");
+							       "Invalid argument count for function get_features_in_region (received $n, expecting 3)");
     }
     {
-	my($ref, $feature_id_list) = @args;
+	my($ref, $region, $feature_type_list) = @args;
 
 	my @_bad_arguments;
         (!ref($ref)) or push(@_bad_arguments, "Invalid type for argument 1 \"ref\" (value was \"$ref\")");
-        (ref($feature_id_list) eq 'ARRAY') or push(@_bad_arguments, "Invalid type for argument 2 \"feature_id_list\" (value was \"$feature_id_list\")");
+        (ref($region) eq 'HASH') or push(@_bad_arguments, "Invalid type for argument 2 \"region\" (value was \"$region\")");
+        (ref($feature_type_list) eq 'ARRAY') or push(@_bad_arguments, "Invalid type for argument 3 \"feature_type_list\" (value was \"$feature_type_list\")");
         if (@_bad_arguments) {
-	    my $msg = "Invalid arguments passed to get_feature_locations:\n" . join("", map { "\t$_\n" } @_bad_arguments);
+	    my $msg = "Invalid arguments passed to get_features_in_region:\n" . join("", map { "\t$_\n" } @_bad_arguments);
 	    Bio::KBase::Exceptions::ArgumentValidationError->throw(error => $msg,
-								   method_name => 'get_feature_locations');
+								   method_name => 'get_features_in_region');
 	}
     }
 
     my $result = $self->{client}->call($self->{url}, $self->{headers}, {
-	method => "data_api2.get_feature_locations",
+	method => "data_api2.get_features_in_region",
 	params => \@args,
     });
     if ($result) {
 	if ($result->is_error) {
 	    Bio::KBase::Exceptions::JSONRPC->throw(error => $result->error_message,
 					       code => $result->content->{error}->{code},
-					       method_name => 'get_feature_locations',
+					       method_name => 'get_features_in_region',
 					       data => $result->content->{error}->{error} # JSON::RPC::ReturnObject only supports JSONRPC 1.1 or 1.O
 					      );
 	} else {
 	    return wantarray ? @{$result->result} : $result->result->[0];
 	}
     } else {
-        Bio::KBase::Exceptions::HTTP->throw(error => "Error invoking method get_feature_locations",
+        Bio::KBase::Exceptions::HTTP->throw(error => "Error invoking method get_features_in_region",
 					    status_line => $self->{client}->status_line,
-					    method_name => 'get_feature_locations',
+					    method_name => 'get_features_in_region',
 				       );
     }
 }
@@ -1824,6 +2432,104 @@ Retrieve the mRNA id for each Gene id in this GenomeAnnotation.
     }
 }
  
+
+
+=head2 get_feature_relationships
+
+  $return = $obj->get_feature_relationships($ref)
+
+=over 4
+
+=item Parameter and return types
+
+=begin html
+
+<pre>
+$ref is a data_api2.ObjectReference
+$return is a data_api2.Feature_relationships
+ObjectReference is a string
+Feature_relationships is a reference to a hash where the following keys are defined:
+	gene_ids has a value which is a reference to a list where each element is a string
+	mrna_ids has a value which is a reference to a list where each element is a string
+	cds_ids has a value which is a reference to a list where each element is a string
+	mrna_gene has a value which is a reference to a list where each element is an int
+	cds_mrna has a value which is a reference to a list where each element is an int
+	cds_gene has a value which is a reference to a list where each element is an int
+
+</pre>
+
+=end html
+
+=begin text
+
+$ref is a data_api2.ObjectReference
+$return is a data_api2.Feature_relationships
+ObjectReference is a string
+Feature_relationships is a reference to a hash where the following keys are defined:
+	gene_ids has a value which is a reference to a list where each element is a string
+	mrna_ids has a value which is a reference to a list where each element is a string
+	cds_ids has a value which is a reference to a list where each element is a string
+	mrna_gene has a value which is a reference to a list where each element is an int
+	cds_mrna has a value which is a reference to a list where each element is an int
+	cds_gene has a value which is a reference to a list where each element is an int
+
+
+=end text
+
+=item Description
+
+Retrieve all the relationships between the genes, mRNAs and CDSs in
+this GenomeAnnotation at once.
+
+=back
+
+=cut
+
+ sub get_feature_relationships
+{
+    my($self, @args) = @_;
+
+# Authentication: required
+
+    if ((my $n = @args) != 1)
+    {
+	Bio::KBase::Exceptions::ArgumentValidationError->throw(error =>
+							       "Invalid argument count for function get_feature_relationships (received $n, expecting 1)");
+    }
+    {
+	my($ref) = @args;
+
+	my @_bad_arguments;
+        (!ref($ref)) or push(@_bad_arguments, "Invalid type for argument 1 \"ref\" (value was \"$ref\")");
+        if (@_bad_arguments) {
+	    my $msg = "Invalid arguments passed to get_feature_relationships:\n" . join("", map { "\t$_\n" } @_bad_arguments);
+	    Bio::KBase::Exceptions::ArgumentValidationError->throw(error => $msg,
+								   method_name => 'get_feature_relationships');
+	}
+    }
+
+    my $result = $self->{client}->call($self->{url}, $self->{headers}, {
+	method => "data_api2.get_feature_relationships",
+	params => \@args,
+    });
+    if ($result) {
+	if ($result->is_error) {
+	    Bio::KBase::Exceptions::JSONRPC->throw(error => $result->error_message,
+					       code => $result->content->{error}->{code},
+					       method_name => 'get_feature_relationships',
+					       data => $result->content->{error}->{error} # JSON::RPC::ReturnObject only supports JSONRPC 1.1 or 1.O
+					      );
+	} else {
+	    return wantarray ? @{$result->result} : $result->result->[0];
+	}
+    } else {
+        Bio::KBase::Exceptions::HTTP->throw(error => "Error invoking method get_feature_relationships",
+					    status_line => $self->{client}->status_line,
+					    method_name => 'get_feature_relationships',
+				       );
+    }
+}
+ 
   
 
 sub version {
@@ -1837,16 +2543,16 @@ sub version {
             Bio::KBase::Exceptions::JSONRPC->throw(
                 error => $result->error_message,
                 code => $result->content->{code},
-                method_name => 'get_mrna_by_gene',
+                method_name => 'get_feature_relationships',
             );
         } else {
             return wantarray ? @{$result->result} : $result->result->[0];
         }
     } else {
         Bio::KBase::Exceptions::HTTP->throw(
-            error => "Error invoking method get_mrna_by_gene",
+            error => "Error invoking method get_feature_relationships",
             status_line => $self->{client}->status_line,
-            method_name => 'get_mrna_by_gene',
+            method_name => 'get_feature_relationships',
         );
     }
 }
@@ -2116,6 +2822,209 @@ protein_domain_locations has a value which is a reference to a list where each e
 
 
 
+=head2 Feature_id_page
+
+=over 4
+
+
+
+=item Description
+
+A page of Feature ids in genomic order. continuation_token is passed to
+the next call to get the following page; it is null on the last page.
+
+
+=item Definition
+
+=begin html
+
+<pre>
+a reference to a hash where the following keys are defined:
+feature_ids has a value which is a reference to a list where each element is a string
+continuation_token has a value which is a string
+
+</pre>
+
+=end html
+
+=begin text
+
+a reference to a hash where the following keys are defined:
+feature_ids has a value which is a reference to a list where each element is a string
+continuation_token has a value which is a string
+
+
+=end text
+
+=back
+
+
+
+=head2 Feature_data_page
+
+=over 4
+
+
+
+=item Description
+
+A page of Feature data in genomic order, with a continuation_token as in
+Feature_id_page.
+
+
+=item Definition
+
+=begin html
+
+<pre>
+a reference to a hash where the following keys are defined:
+features has a value which is a reference to a list where each element is a data_api2.Feature_data
+continuation_token has a value which is a string
+
+</pre>
+
+=end html
+
+=begin text
+
+a reference to a hash where the following keys are defined:
+features has a value which is a reference to a list where each element is a data_api2.Feature_data
+continuation_token has a value which is a string
+
+
+=end text
+
+=back
+
+
+
+=head2 Features_multi_result
+
+=over 4
+
+
+
+=item Description
+
+The Feature data of one GenomeAnnotation in the result of
+get_features_multi. If the GenomeAnnotation could not be read, features
+is null and error holds the reason.
+
+
+=item Definition
+
+=begin html
+
+<pre>
+a reference to a hash where the following keys are defined:
+features has a value which is a reference to a hash where the key is a string and the value is a data_api2.Feature_data
+error has a value which is a string
+
+</pre>
+
+=end html
+
+=begin text
+
+a reference to a hash where the following keys are defined:
+features has a value which is a reference to a hash where the key is a string and the value is a data_api2.Feature_data
+error has a value which is a string
+
+
+=end text
+
+=back
+
+
+
+=head2 Feature_type_counts_multi_result
+
+=over 4
+
+
+
+=item Description
+
+The Feature type counts of one GenomeAnnotation in the result of
+get_feature_type_counts_multi, with an error as in Features_multi_result.
+
+
+=item Definition
+
+=begin html
+
+<pre>
+a reference to a hash where the following keys are defined:
+feature_type_counts has a value which is a reference to a hash where the key is a string and the value is an int
+error has a value which is a string
+
+</pre>
+
+=end html
+
+=begin text
+
+a reference to a hash where the following keys are defined:
+feature_type_counts has a value which is a reference to a hash where the key is a string and the value is an int
+error has a value which is a string
+
+
+=end text
+
+=back
+
+
+
+=head2 Feature_relationships
+
+=over 4
+
+
+
+=item Description
+
+The gene, mRNA and CDS relationships of a GenomeAnnotation, as returned by
+get_feature_relationships. gene_ids, mrna_ids and cds_ids are the sorted ids
+of the Features of each type. mrna_gene holds the position in gene_ids of
+the gene of each mRNA in mrna_ids; cds_mrna and cds_gene hold the positions
+in mrna_ids and gene_ids of the mRNA and gene of each CDS in cds_ids. A
+position of -1 means the Feature has no such parent.
+
+
+=item Definition
+
+=begin html
+
+<pre>
+a reference to a hash where the following keys are defined:
+gene_ids has a value which is a reference to a list where each element is a string
+mrna_ids has a value which is a reference to a list where each element is a string
+cds_ids has a value which is a reference to a list where each element is a string
+mrna_gene has a value which is a reference to a list where each element is an int
+cds_mrna has a value which is a reference to a list where each element is an int
+cds_gene has a value which is a reference to a list where each element is an int
+
+</pre>
+
+=end html
+
+=begin text
+
+a reference to a hash where the following keys are defined:
+gene_ids has a value which is a reference to a list where each element is a string
+mrna_ids has a value which is a reference to a list where each element is a string
+cds_ids has a value which is a reference to a list where each element is a string
+mrna_gene has a value which is a reference to a list where each element is an int
+cds_mrna has a value which is a reference to a list where each element is an int
+cds_gene has a value which is a reference to a list where each element is an int
+
+
+=end text
+
+=back
+
+
+
 =cut
 
 package data_api2::data_api2Client::RpcClient;
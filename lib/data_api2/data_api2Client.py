@@ -206,6 +206,13 @@ class data_api2(object):
                           [ref, feature_type_list], json_rpc_context)
         return resp[0]
   
+    def get_feature_type_counts_multi(self, ref_list, feature_type_list, json_rpc_context = None):
+        if json_rpc_context and type(json_rpc_context) is not dict:
+            raise ValueError('Method get_feature_type_counts_multi: argument json_rpc_context is not type dict as required.')
+        resp = self._call('data_api2.get_feature_type_counts_multi',
+                          [ref_list, feature_type_list], json_rpc_context)
+        return resp[0]
+  
     def get_feature_ids(self, ref, filters, group_type, json_rpc_context = None):
         if json_rpc_context and type(json_rpc_context) is not dict:
             raise ValueError('Method get_feature_ids: argument json_rpc_context is not type dict as required.')
@@ -213,11 +220,32 @@ class data_api2(object):
                           [ref, filters, group_type], json_rpc_context)
         return resp[0]
   
-    def get_features(self, ref, feature_id_list, json_rpc_context = None):
+    def get_features(self, ref, feature_id_list, field_list = None, json_rpc_context = None):
         if json_rpc_context and type(json_rpc_context) is not dict:
             raise ValueError('Method get_features: argument json_rpc_context is not type dict as required.')
         resp = self._call('data_api2.get_features',
-                          [ref, feature_id_list], json_rpc_context)
+                          [ref, feature_id_list, field_list], json_rpc_context)
+        return resp[0]
+  
+    def get_feature_ids_page(self, ref, filters, page_size, continuation_token, json_rpc_context = None):
+        if json_rpc_context and type(json_rpc_context) is not dict:
+            raise ValueError('Method get_feature_ids_page: argument json_rpc_context is not type dict as required.')
+        resp = self._call('data_api2.get_feature_ids_page',
+                          [ref, filters, page_size, continuation_token], json_rpc_context)
+        return resp[0]
+  
+    def get_features_page(self, ref, filters, field_list, page_size, continuation_token, json_rpc_context = None):
+        if json_rpc_context and type(json_rpc_context) is not dict:
+            raise ValueError('Method get_features_page: argument json_rpc_context is not type dict as required.')
+        resp = self._call('data_api2.get_features_page',
+                          [ref, filters, field_list, page_size, continuation_token], json_rpc_context)
+        return resp[0]
+  
+    def get_features_multi(self, ref_list, field_list, json_rpc_context = None):
+        if json_rpc_context and type(json_rpc_context) is not dict:
+            raise ValueError('Method get_features_multi: argument json_rpc_context is not type dict as required.')
+        resp = self._call('data_api2.get_features_multi',
+                          [ref_list, field_list], json_rpc_context)
         return resp[0]
   
     def get_proteins(self, ref, json_rpc_context = None):
@@ -234,6 +262,13 @@ class data_api2(object):
                           [ref, feature_id_list], json_rpc_context)
         return resp[0]
   
+    def get_features_in_region(self, ref, region, feature_type_list, json_rpc_context = None):
+        if json_rpc_context and type(json_rpc_context) is not dict:
+            raise ValueError('Method get_features_in_region: argument json_rpc_context is not type dict as required.')
+        resp = self._call('data_api2.get_features_in_region',
+                          [ref, region, feature_type_list], json_rpc_context)
+        return resp[0]
+  
     def get_feature_publications(self, ref, feature_id_list, json_rpc_context = None):
         if json_rpc_context and type(json_rpc_context) is not dict:
             raise ValueError('Method get_feature_publications: argument json_rpc_context is not type dict as required.')
@@ -303,4 +338,11 @@ class data_api2(object):
         resp = self._call('data_api2.get_mrna_by_gene',
                           [ref, gene_id_list], json_rpc_context)
         return resp[0]
+  
+    def get_feature_relationships(self, ref, json_rpc_context = None):
+        if json_rpc_context and type(json_rpc_context) is not dict:
+            raise ValueError('Method get_feature_relationships: argument json_rpc_context is not type dict as required.')
+        resp = self._call('data_api2.get_feature_relationships',
+                          [ref], json_rpc_context)
+        return resp[0]
  
\ No newline at end of file
@@ -3,6 +3,7 @@ from biokbase.workspace.client import Workspace as workspaceService
 import doekbase.data_api.sequence.assembly.api
 import doekbase.data_api.annotation.genome_annotation.api
 from doekbase.data_api import cache
+from multiprocessing.pool import ThreadPool
 import logging
 #END_HEADER
 
@@ -24,6 +25,57 @@ class data_api2:
     #########################################
     #BEGIN_CLASS_HEADER
     workspaceURL = None
+    # genomes read at once by the *_multi methods, unless configured
+    DEFAULT_MULTI_REF_THREADS = 8
+
+    def _genome_annotation_api(self, ctx, ref):
+        """Get the GenomeAnnotationAPI for `ref`.
+
+        Calls made as part of one JSON-RPC batch share a
+        'genome_annotation_apis' dict in their context, so the genome is
+        looked up once per batch rather than once per call, and the feature
+        containers one call reads are kept for the calls after it.
+        """
+        apis = ctx.get('genome_annotation_apis')
+        if apis is None:
+            return doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        if ref not in apis:
+            apis[ref] = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        return apis[ref]
+
+    def export_features(self, ctx, ref, type_list=None, field_list=None):
+        """Generate the data of every feature of `ref`, one at a time, for
+        the server's streaming feature export.
+        """
+        return self._genome_annotation_api(ctx, ref).iter_features(type_list, field_list)
+
+    def _for_each_ref(self, ref_list, call):
+        """Run call(ref) for each ref in `ref_list`, on up to
+        multi_ref_threads threads at once, for the *_multi methods.
+
+        Returns a mapping from each ref to the dict call returned, or to a
+        dict holding only an 'error' if it raised, so that one genome that
+        cannot be read does not fail the others.
+        """
+        def run(ref):
+            try:
+                return ref, call(ref)
+            except Exception as e:
+                self.logger.warning("Could not read {}: {}".format(ref, e))
+                return ref, {'error': str(e)}
+
+        refs = list()
+        for ref in ref_list:
+            if ref not in refs:
+                refs.append(ref)
+        if not refs:
+            return dict()
+        pool = ThreadPool(min(self.multi_ref_threads, len(refs)))
+        try:
+            return dict(pool.map(run, refs))
+        finally:
+            pool.close()
+            pool.join()
     #END_CLASS_HEADER
 
     # config contains contents of config file in a hash or None if it couldn't
@@ -32,6 +84,7 @@ class data_api2:
         #BEGIN_CONSTRUCTOR
         self.workspaceURL = config['workspace-url']
         self.shockURL = config['shock-url']
+        self.multi_ref_threads = int(config.get('multi_ref_threads') or self.DEFAULT_MULTI_REF_THREADS)
         self.logger = logging.getLogger()
         log_handler = logging.StreamHandler()
         log_handler.setFormatter(logging.Formatter("%(asctime)s [%(levelname)s] %(message)s"))
@@ -70,7 +123,7 @@ class data_api2:
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_taxon
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_taxon(ref_only=True)
         #END get_taxon
 
@@ -85,7 +138,7 @@ class data_api2:
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_assembly
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_assembly(ref_only=True)
         #END get_assembly
 
@@ -100,7 +153,7 @@ class data_api2:
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_feature_types
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_feature_types()
         #END get_feature_types
 
@@ -115,7 +168,7 @@ class data_api2:
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_feature_type_descriptions
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_feature_type_descriptions(feature_type_list)
         #END get_feature_type_descriptions
 
@@ -130,7 +183,7 @@ class data_api2:
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_feature_type_counts
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_feature_type_counts(feature_type_list)
         #END get_feature_type_counts
 
@@ -141,11 +194,28 @@ class data_api2:
         # return the results
         return [returnVal]
 
+    def get_feature_type_counts_multi(self, ctx, ref_list, feature_type_list):
+        # ctx is the context object
+        # return variables are: returnVal
+        #BEGIN get_feature_type_counts_multi
+        def type_counts(ref):
+            genome_annotation_api = self._genome_annotation_api(ctx, ref)
+            return {'feature_type_counts': genome_annotation_api.get_feature_type_counts(feature_type_list)}
+        returnVal = self._for_each_ref(ref_list, type_counts)
+        #END get_feature_type_counts_multi
+
+        # At some point might do deeper type checking...
+        if not isinstance(returnVal, dict):
+            raise ValueError('Method get_feature_type_counts_multi return value ' +
+                             'returnVal is not type dict as required.')
+        # return the results
+        return [returnVal]
+
     def get_feature_ids(self, ctx, ref, filters, group_type):
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_feature_ids
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         if group_type is None:
             returnVal=genome_annotation_api.get_feature_ids(filters)
         else:
@@ -159,12 +229,12 @@ class data_api2:
         # return the results
         return [returnVal]
 
-    def get_features(self, ctx, ref, feature_id_list):
+    def get_features(self, ctx, ref, feature_id_list, field_list=None):
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_features
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
-        returnVal=genome_annotation_api.get_features(feature_id_list)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
+        returnVal=genome_annotation_api.get_features(feature_id_list, field_list)
         #END get_features
 
         # At some point might do deeper type checking...
@@ -174,11 +244,58 @@ class data_api2:
         # return the results
         return [returnVal]
 
+    def get_feature_ids_page(self, ctx, ref, filters, page_size, continuation_token):
+        # ctx is the context object
+        # return variables are: returnVal
+        #BEGIN get_feature_ids_page
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
+        returnVal=genome_annotation_api.get_feature_ids_page(filters, page_size, continuation_token)
+        #END get_feature_ids_page
+
+        # At some point might do deeper type checking...
+        if not isinstance(returnVal, dict):
+            raise ValueError('Method get_feature_ids_page return value ' +
+                             'returnVal is not type dict as required.')
+        # return the results
+        return [returnVal]
+
+    def get_features_page(self, ctx, ref, filters, field_list, page_size, continuation_token):
+        # ctx is the context object
+        # return variables are: returnVal
+        #BEGIN get_features_page
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
+        returnVal=genome_annotation_api.get_features_page(filters, field_list, page_size, continuation_token)
+        #END get_features_page
+
+        # At some point might do deeper type checking...
+        if not isinstance(returnVal, dict):
+            raise ValueError('Method get_features_page return value ' +
+                             'returnVal is not type dict as required.')
+        # return the results
+        return [returnVal]
+
+    def get_features_multi(self, ctx, ref_list, field_list):
+        # ctx is the context object
+        # return variables are: returnVal
+        #BEGIN get_features_multi
+        def features(ref):
+            genome_annotation_api = self._genome_annotation_api(ctx, ref)
+            return {'features': genome_annotation_api.get_features(None, field_list)}
+        returnVal = self._for_each_ref(ref_list, features)
+        #END get_features_multi
+
+        # At some point might do deeper type checking...
+        if not isinstance(returnVal, dict):
+            raise ValueError('Method get_features_multi return value ' +
+                             'returnVal is not type dict as required.')
+        # return the results
+        return [returnVal]
+
     def get_proteins(self, ctx, ref):
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_proteins
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_proteins()
         #END get_proteins
 
@@ -193,7 +310,7 @@ class data_api2:
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_feature_locations
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_feature_locations(feature_id_list)
         #END get_feature_locations
 
@@ -204,11 +321,26 @@ class data_api2:
         # return the results
         return [returnVal]
 
+    def get_features_in_region(self, ctx, ref, region, feature_type_list):
+        # ctx is the context object
+        # return variables are: returnVal
+        #BEGIN get_features_in_region
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
+        returnVal=genome_annotation_api.get_features_in_region(region, feature_type_list)
+        #END get_features_in_region
+
+        # At some point might do deeper type checking...
+        if not isinstance(returnVal, dict):
+            raise ValueError('Method get_features_in_region return value ' +
+                             'returnVal is not type dict as required.')
+        # return the results
+        return [returnVal]
+
     def get_feature_publications(self, ctx, ref, feature_id_list):
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_feature_publications
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_features(feature_id_list)
         #END get_feature_publications
 
@@ -223,7 +355,7 @@ class data_api2:
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_feature_dna
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_feature_dna(feature_id_list)
         #END get_feature_dna
 
@@ -238,7 +370,7 @@ class data_api2:
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_feature_functions
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_feature_functions(feature_id_list)
         #END get_feature_functions
 
@@ -253,7 +385,7 @@ class data_api2:
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_feature_aliases
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_feature_aliases(feature_id_list)
         #END get_feature_aliases
 
@@ -268,7 +400,7 @@ class data_api2:
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_cds_by_gene
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_cds_by_gene(gene_id_list)
         #END get_cds_by_gene
 
@@ -283,7 +415,7 @@ class data_api2:
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_cds_by_mrna
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_cds_by_mrna(mrna_id_list)
         #END get_cds_by_mrna
 
@@ -298,7 +430,7 @@ class data_api2:
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_gene_by_cds
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_gene_by_cds(cds_id_list)
         #END get_gene_by_cds
 
@@ -313,7 +445,7 @@ class data_api2:
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_gene_by_mrna
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_gene_by_mrna(mrna_id_list)
         #END get_gene_by_mrna
 
@@ -328,7 +460,7 @@ class data_api2:
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_mrna_by_cds
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_mrna_by_cds(gene_id_list)
         #END get_mrna_by_cds
 
@@ -343,7 +475,7 @@ class data_api2:
         # ctx is the context object
         # return variables are: returnVal
         #BEGIN get_mrna_by_gene
-        genome_annotation_api = doekbase.data_api.annotation.genome_annotation.api.GenomeAnnotationAPI(self.services, ctx['token'], ref)
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
         returnVal=genome_annotation_api.get_mrna_by_gene(gene_id_list)
         #END get_mrna_by_gene
 
@@ -353,3 +485,18 @@ class data_api2:
                              'returnVal is not type dict as required.')
         # return the results
         return [returnVal]
+
+    def get_feature_relationships(self, ctx, ref):
+        # ctx is the context object
+        # return variables are: returnVal
+        #BEGIN get_feature_relationships
+        genome_annotation_api = self._genome_annotation_api(ctx, ref)
+        returnVal=genome_annotation_api.get_feature_relationships()
+        #END get_feature_relationships
+
+        # At some point might do deeper type checking...
+        if not isinstance(returnVal, dict):
+            raise ValueError('Method get_feature_relationships return value ' +
+                             'returnVal is not type dict as required.')
+        # return the results
+        return [returnVal]
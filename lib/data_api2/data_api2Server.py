@@ -75,18 +75,33 @@ sync_methods['data_api2.get_feature_type_descriptions'] = True
 async_run_methods['data_api2.get_feature_type_counts_async'] = ['data_api2', 'get_feature_type_counts']
 async_check_methods['data_api2.get_feature_type_counts_check'] = ['data_api2', 'get_feature_type_counts']
 sync_methods['data_api2.get_feature_type_counts'] = True
+async_run_methods['data_api2.get_feature_type_counts_multi_async'] = ['data_api2', 'get_feature_type_counts_multi']
+async_check_methods['data_api2.get_feature_type_counts_multi_check'] = ['data_api2', 'get_feature_type_counts_multi']
+sync_methods['data_api2.get_feature_type_counts_multi'] = True
 async_run_methods['data_api2.get_feature_ids_async'] = ['data_api2', 'get_feature_ids']
 async_check_methods['data_api2.get_feature_ids_check'] = ['data_api2', 'get_feature_ids']
 sync_methods['data_api2.get_feature_ids'] = True
 async_run_methods['data_api2.get_features_async'] = ['data_api2', 'get_features']
 async_check_methods['data_api2.get_features_check'] = ['data_api2', 'get_features']
 sync_methods['data_api2.get_features'] = True
+async_run_methods['data_api2.get_feature_ids_page_async'] = ['data_api2', 'get_feature_ids_page']
+async_check_methods['data_api2.get_feature_ids_page_check'] = ['data_api2', 'get_feature_ids_page']
+sync_methods['data_api2.get_feature_ids_page'] = True
+async_run_methods['data_api2.get_features_page_async'] = ['data_api2', 'get_features_page']
+async_check_methods['data_api2.get_features_page_check'] = ['data_api2', 'get_features_page']
+sync_methods['data_api2.get_features_page'] = True
+async_run_methods['data_api2.get_features_multi_async'] = ['data_api2', 'get_features_multi']
+async_check_methods['data_api2.get_features_multi_check'] = ['data_api2', 'get_features_multi']
+sync_methods['data_api2.get_features_multi'] = True
 async_run_methods['data_api2.get_proteins_async'] = ['data_api2', 'get_proteins']
 async_check_methods['data_api2.get_proteins_check'] = ['data_api2', 'get_proteins']
 sync_methods['data_api2.get_proteins'] = True
 async_run_methods['data_api2.get_feature_locations_async'] = ['data_api2', 'get_feature_locations']
 async_check_methods['data_api2.get_feature_locations_check'] = ['data_api2', 'get_feature_locations']
 sync_methods['data_api2.get_feature_locations'] = True
+async_run_methods['data_api2.get_features_in_region_async'] = ['data_api2', 'get_features_in_region']
+async_check_methods['data_api2.get_features_in_region_check'] = ['data_api2', 'get_features_in_region']
+sync_methods['data_api2.get_features_in_region'] = True
 async_run_methods['data_api2.get_feature_publications_async'] = ['data_api2', 'get_feature_publications']
 async_check_methods['data_api2.get_feature_publications_check'] = ['data_api2', 'get_feature_publications']
 sync_methods['data_api2.get_feature_publications'] = True
@@ -117,6 +132,9 @@ sync_methods['data_api2.get_mrna_by_cds'] = True
 async_run_methods['data_api2.get_mrna_by_gene_async'] = ['data_api2', 'get_mrna_by_gene']
 async_check_methods['data_api2.get_mrna_by_gene_check'] = ['data_api2', 'get_mrna_by_gene']
 sync_methods['data_api2.get_mrna_by_gene'] = True
+async_run_methods['data_api2.get_feature_relationships_async'] = ['data_api2', 'get_feature_relationships']
+async_check_methods['data_api2.get_feature_relationships_check'] = ['data_api2', 'get_feature_relationships']
+sync_methods['data_api2.get_feature_relationships'] = True
 
 class AsyncJobServiceClient(object):
 
@@ -408,14 +426,30 @@ class Application(object):
                              name='data_api2.get_feature_type_counts',
                              types=[basestring, list])
         self.method_authentication['data_api2.get_feature_type_counts'] = 'required'
+        self.rpc_service.add(impl_data_api2.get_feature_type_counts_multi,
+                             name='data_api2.get_feature_type_counts_multi',
+                             types=[list, list])
+        self.method_authentication['data_api2.get_feature_type_counts_multi'] = 'required'
         self.rpc_service.add(impl_data_api2.get_feature_ids,
                              name='data_api2.get_feature_ids',
                              types=[basestring, dict, basestring])
         self.method_authentication['data_api2.get_feature_ids'] = 'required'
         self.rpc_service.add(impl_data_api2.get_features,
                              name='data_api2.get_features',
-                             types=[basestring, list])
+                             types=[basestring, list, list])
         self.method_authentication['data_api2.get_features'] = 'required'
+        self.rpc_service.add(impl_data_api2.get_feature_ids_page,
+                             name='data_api2.get_feature_ids_page',
+                             types=[basestring, dict, int, basestring])
+        self.method_authentication['data_api2.get_feature_ids_page'] = 'required'
+        self.rpc_service.add(impl_data_api2.get_features_page,
+                             name='data_api2.get_features_page',
+                             types=[basestring, dict, list, int, basestring])
+        self.method_authentication['data_api2.get_features_page'] = 'required'
+        self.rpc_service.add(impl_data_api2.get_features_multi,
+                             name='data_api2.get_features_multi',
+                             types=[list, list])
+        self.method_authentication['data_api2.get_features_multi'] = 'required'
         self.rpc_service.add(impl_data_api2.get_proteins,
                              name='data_api2.get_proteins',
                              types=[basestring])
@@ -424,6 +458,10 @@ class Application(object):
                              name='data_api2.get_feature_locations',
                              types=[basestring, list])
         self.method_authentication['data_api2.get_feature_locations'] = 'required'
+        self.rpc_service.add(impl_data_api2.get_features_in_region,
+                             name='data_api2.get_features_in_region',
+                             types=[basestring, dict, list])
+        self.method_authentication['data_api2.get_features_in_region'] = 'required'
         self.rpc_service.add(impl_data_api2.get_feature_publications,
                              name='data_api2.get_feature_publications',
                              types=[basestring, list])
@@ -464,6 +502,10 @@ class Application(object):
                              name='data_api2.get_mrna_by_gene',
                              types=[basestring, list])
         self.method_authentication['data_api2.get_mrna_by_gene'] = 'required'
+        self.rpc_service.add(impl_data_api2.get_feature_relationships,
+                             name='data_api2.get_feature_relationships',
+                             types=[basestring])
+        self.method_authentication['data_api2.get_feature_relationships'] = 'required'
         self.auth_client = biokbase.nexus.Client(
             config={'server': 'nexus.api.globusonline.org',
                     'verify_ssl': True,
@@ -0,0 +1,520 @@
+"""
+WSGI entry point of the data_api2 service.
+
+data_api2Server.py is generated by kb-sdk compile and is overwritten
+whenever the spec is recompiled, so the transport features of the service
+live here instead, in a subclass of its Application:
+
+- JSON-RPC batches, where calls sharing a ref share one loaded genome
+- gzip and zstd Content-Encoding of requests and responses
+- MessagePack requests and responses, negotiated with Content-Type and Accept
+- the newline delimited JSON feature export at FEATURE_EXPORT_PATH
+
+Single calls still run through the generated server's __call__; only their
+bodies are decoded before it and encoded after it. uwsgi serves the
+application defined here (see the Makefile's build-startup-script), while
+async jobs still run through data_api2Server.py.
+"""
+import json
+import threading
+import traceback
+import zlib
+from cStringIO import StringIO
+
+from jsonrpcbase import JSONRPCError, ServerError, InvalidParamsError, \
+    InvalidRequestError
+from biokbase import log
+
+from data_api2 import data_api2Server
+from data_api2.data_api2Server import MethodContext, JSONObjectEncoder, \
+    getIPAddress, async_run_methods, async_check_methods, sync_methods, \
+    impl_data_api2
+try:
+    import zstandard as _zstd
+except ImportError:
+    _zstd = None
+try:
+    import msgpack as _msgpack
+except ImportError:
+    _msgpack = None
+
+# responses smaller than this many bytes are not compressed; override with
+# compression_threshold in the config, where a negative value disables
+# compression
+DEFAULT_COMPRESSION_THRESHOLD = 1024
+JSON_CONTENT_TYPE = 'application/json'
+MSGPACK_CONTENT_TYPE = 'application/msgpack'
+NDJSON_CONTENT_TYPE = 'application/x-ndjson'
+# the feature export is served at this path below the service URL
+FEATURE_EXPORT_PATH = '/export/features'
+# bytes of exported features collected before they are written out
+EXPORT_CHUNK_SIZE = 64 * 1024
+
+
+def get_compression_threshold():
+    config = data_api2Server.config
+    value = config.get('compression_threshold') if config else None
+    if not value:
+        return DEFAULT_COMPRESSION_THRESHOLD
+    return int(value)
+
+
+def accepted_values(header):
+    """Returns the set of content codings or media types named in an
+    Accept-Encoding or Accept header, leaving out any the client refuses
+    with q=0."""
+    accepted = set()
+    for coding in (header or '').split(','):
+        parts = [p.strip() for p in coding.split(';')]
+        if not parts[0]:
+            continue
+        refused = False
+        for param in parts[1:]:
+            if param.replace(' ', '') in ('q=0', 'q=0.0', 'q=0.00', 'q=0.000'):
+                refused = True
+        if not refused:
+            accepted.add(parts[0].lower())
+    return accepted
+
+
+def decode_request_body(body, content_encoding):
+    """Decompresses a request body sent with a Content-Encoding. Raises
+    ValueError if the coding is not supported or the body is corrupt."""
+    coding = (content_encoding or 'identity').strip().lower()
+    try:
+        if coding == 'identity':
+            return body
+        if coding == 'gzip':
+            return zlib.decompress(body, 16 + zlib.MAX_WBITS)
+        if coding == 'zstd' and _zstd is not None:
+            return _zstd.ZstdDecompressor().decompressobj().decompress(body)
+    except (zlib.error, getattr(_zstd, 'ZstdError', zlib.error)) as e:
+        raise ValueError('Could not decode ' + coding + ' request body: ' + str(e))
+    raise ValueError('Unsupported request Content-Encoding: ' + coding)
+
+
+def encode_response_body(body, accept_encoding):
+    """Compresses a response body with the best coding the client accepts,
+    unless it is below the compression threshold. Returns the body and
+    its content coding, which is None if the body was not compressed."""
+    threshold = get_compression_threshold()
+    if threshold < 0 or len(body) < threshold:
+        return body, None
+    accepted = accepted_values(accept_encoding)
+    if 'zstd' in accepted and _zstd is not None:
+        return _zstd.ZstdCompressor(level=3).compress(body), 'zstd'
+    if 'gzip' in accepted:
+        compressor = zlib.compressobj(6, zlib.DEFLATED, 16 + zlib.MAX_WBITS)
+        return compressor.compress(body) + compressor.flush(), 'gzip'
+    return body, None
+
+
+def _msgpack_default(obj):
+    if isinstance(obj, (set, frozenset)):
+        return list(obj)
+    if hasattr(obj, 'toJSONable'):
+        return obj.toJSONable()
+    raise TypeError(repr(obj) + ' is not serializable')
+
+
+def json_dumps(obj):
+    return json.dumps(obj, cls=JSONObjectEncoder)
+
+
+def msgpack_dumps(obj):
+    # strings go out in the str format, not bin, so that clients read them
+    # back as text
+    return _msgpack.packb(obj, default=_msgpack_default, use_bin_type=False)
+
+
+def response_format(accept):
+    """Picks the encoding of a response from the request's Accept header:
+    MessagePack if the client asks for it and msgpack is installed, JSON
+    otherwise. Returns the function that serializes a response and its
+    content type."""
+    if _msgpack is not None and MSGPACK_CONTENT_TYPE in accepted_values(accept):
+        return msgpack_dumps, MSGPACK_CONTENT_TYPE
+    return json_dumps, JSON_CONTENT_TYPE
+
+
+def is_msgpack(content_type):
+    media_type = (content_type or '').split(';')[0].strip().lower()
+    return media_type in (MSGPACK_CONTENT_TYPE, 'application/x-msgpack')
+
+
+def loads_request_body(body, content_type):
+    """Parses a JSON or MessagePack request body according to its
+    Content-Type. Raises ValueError if the body cannot be parsed."""
+    if not is_msgpack(content_type):
+        return json.loads(body)
+    if _msgpack is None:
+        raise ValueError('Unsupported request Content-Type: ' +
+                         content_type.split(';')[0].strip().lower())
+    try:
+        if _msgpack.version >= (0, 5, 2):
+            return _msgpack.unpackb(body, raw=False)
+        return _msgpack.unpackb(body, encoding='utf-8')
+    except Exception as e:
+        raise ValueError('Could not decode MessagePack request body: ' + str(e))
+
+
+class Application(data_api2Server.Application):
+    """The generated Application, with batches, compression, MessagePack
+    and the feature export added around its __call__."""
+
+    def __init__(self):
+        super(Application, self).__init__()
+        # the response encoding negotiated for the request being served
+        self._local = threading.local()
+        # the generated server writes results with json.dumps; send them
+        # through encode instead
+        self.rpc_service.call = self._call_service
+
+    def _call_service(self, ctx, jsondata):
+        result = self.rpc_service.call_py(ctx, jsondata)
+        if result is not None:
+            return self.encode(result)
+        return None
+
+    def encode(self, obj):
+        """Serializes a response in the encoding negotiated for the request
+        being served, or as JSON outside of a request."""
+        dumps = getattr(self._local, 'dumps', None)
+        if dumps is None:
+            return json_dumps(obj)
+        self._local.encoded = True
+        return dumps(obj)
+
+    def __call__(self, environ, start_response):
+        if environ['REQUEST_METHOD'] == 'POST' and \
+                environ.get('PATH_INFO', '').rstrip('/').endswith(FEATURE_EXPORT_PATH):
+            ctx = MethodContext(self.userlog)
+            ctx['client_ip'] = getIPAddress(environ)
+            return self.export_features(ctx, environ, start_response)
+
+        dumps, content_type = response_format(environ.get('HTTP_ACCEPT'))
+        self._local.dumps = dumps
+        self._local.encoded = False
+        try:
+            status, response_headers, response_body = self.call_rpc(environ)
+            # the generated server writes some responses, e.g. those of
+            # async jobs, as JSON itself
+            if not self._local.encoded:
+                content_type = JSON_CONTENT_TYPE
+        finally:
+            self._local.dumps = None
+
+        response_body, content_encoding = encode_response_body(
+            response_body, environ.get('HTTP_ACCEPT_ENCODING'))
+        response_headers = [h for h in response_headers
+                            if h[0].lower() not in ('content-type', 'content-length')]
+        response_headers.append(('content-type', content_type))
+        response_headers.append(('content-length', str(len(response_body))))
+        vary = list()
+        if _msgpack is not None:
+            vary.append('Accept')
+        if content_encoding is not None:
+            response_headers.append(('content-encoding', content_encoding))
+            vary.append('Accept-Encoding')
+        if vary:
+            response_headers.append(('vary', ', '.join(vary)))
+        start_response(status, response_headers)
+        return [response_body]
+
+    def call_rpc(self, environ):
+        """Decodes the request body and runs it as a batch if it is a list,
+        or through the generated server as a single call otherwise.
+        Returns the status, headers and body of the response."""
+        if environ['REQUEST_METHOD'] != 'OPTIONS':
+            try:
+                body_size = int(environ.get('CONTENT_LENGTH', 0))
+            except (ValueError):
+                body_size = 0
+            content_type = environ.get('CONTENT_TYPE')
+            try:
+                request_body = decode_request_body(
+                    environ['wsgi.input'].read(body_size),
+                    environ.get('HTTP_CONTENT_ENCODING'))
+                # plain JSON calls go to the generated server as they are
+                if is_msgpack(content_type) or request_body.lstrip()[:1] == '[':
+                    req = loads_request_body(request_body, content_type)
+                    if isinstance(req, list):
+                        ctx = MethodContext(self.userlog)
+                        ctx['client_ip'] = getIPAddress(environ)
+                        # errors are reported per call, so the request as a
+                        # whole succeeds
+                        return '200 OK', self.cors_headers(environ), \
+                            self.process_batch(ctx, environ, req)
+                    request_body = json_dumps(req)
+            except ValueError as ve:
+                ctx = MethodContext(self.userlog)
+                ctx['client_ip'] = getIPAddress(environ)
+                err = {'error': {'code': -32700,
+                                 'name': "Parse error",
+                                 'message': str(ve),
+                                 }
+                       }
+                return '500 Internal Server Error', self.cors_headers(environ), \
+                    self.process_error(err, ctx, {'version': '1.1'})
+            environ = dict(environ)
+            environ['wsgi.input'] = StringIO(request_body)
+            environ['CONTENT_LENGTH'] = str(len(request_body))
+
+        response = list()
+
+        def capture(status, response_headers, exc_info=None):
+            response[:] = [status, response_headers]
+        response_body = ''.join(super(Application, self).__call__(environ, capture))
+        return response[0], response[1], response_body
+
+    def cors_headers(self, environ):
+        return [
+            ('Access-Control-Allow-Origin', '*'),
+            ('Access-Control-Allow-Headers', environ.get(
+                'HTTP_ACCESS_CONTROL_REQUEST_HEADERS', 'authorization'))]
+
+    def process_batch(self, ctx, environ, reqs):
+        """Runs a JSON-RPC batch, i.e. a list of calls sent in one request.
+
+        Every call gets its own context and its own entry in the returned
+        list, so one failing call does not fail the rest of the batch.
+        All calls share a cache of GenomeAnnotationAPI objects, so a genome
+        referenced by several calls in the batch is only loaded once.
+        Async methods cannot be batched. The list is serialized with encode.
+        """
+        token = environ.get('HTTP_AUTHORIZATION')
+        genome_annotation_apis = dict()
+        responses = list()
+        for req in reqs:
+            call_ctx = MethodContext(self.userlog)
+            call_ctx['client_ip'] = ctx['client_ip']
+            call_ctx['genome_annotation_apis'] = genome_annotation_apis
+            if not isinstance(req, dict):
+                err = {'error': {'code': -32600,
+                                 'name': 'Invalid Request',
+                                 'message': 'Batch elements must be objects',
+                                 }
+                       }
+                responses.append(self.format_error(err, call_ctx, {'version': '1.1'}))
+                continue
+            try:
+                method_name = req['method']
+                call_ctx['module'], call_ctx['method'] = method_name.split('.')
+                call_ctx['call_id'] = req.get('id')
+                call_ctx['rpc_context'] = {'call_stack': [{'time':self.now_in_utc(), 'method': method_name}]}
+                prov_action = {'service': call_ctx['module'], 'method': call_ctx['method'],
+                               'method_params': req.get('params')}
+                call_ctx['provenance'] = [prov_action]
+                if method_name in async_run_methods or method_name in async_check_methods or \
+                        (method_name not in sync_methods and (method_name + '_async') in async_run_methods):
+                    err = ServerError()
+                    err.data = 'Method ' + method_name + ' cannot be run in a batch'
+                    raise err
+                auth_req = self.method_authentication.get(method_name, "none")
+                if auth_req != "none":
+                    if token is None and auth_req == 'required':
+                        err = ServerError()
+                        err.data = "Authentication required for " + \
+                            "data_api2 but no authentication header was passed"
+                        raise err
+                    elif token is not None:
+                        try:
+                            call_ctx['user_id'] = token.split('=')[1]
+                            call_ctx['authenticated'] = 1
+                            call_ctx['token'] = token
+                        except Exception, e:
+                            if auth_req == 'required':
+                                err = ServerError()
+                                err.data = "Token validation failed: %s" % e
+                                raise err
+                self.log(log.INFO, call_ctx, 'start method')
+                resp = self.rpc_service.call_py(call_ctx, req)
+                self.log(log.INFO, call_ctx, 'end method')
+            except JSONRPCError as jre:
+                err = {'error': {'code': jre.code,
+                                 'name': jre.message,
+                                 'message': jre.data
+                                 }
+                       }
+                trace = jre.trace if hasattr(jre, 'trace') else None
+                resp = self.format_error(err, call_ctx, req, trace)
+            except Exception, e:
+                err = {'error': {'code': 0,
+                                 'name': 'Unexpected Server Error',
+                                 'message': 'An unexpected server error ' +
+                                            'occurred',
+                                 }
+                       }
+                resp = self.format_error(err, call_ctx, req,
+                                         traceback.format_exc())
+            # notifications (calls without an id) get no response
+            if resp is not None:
+                responses.append(resp)
+        return self.encode(responses)
+
+    def export_features(self, ctx, environ, start_response):
+        """Streams the data of every feature of a genome as newline
+        delimited JSON, one Feature_data record per line, written out while
+        the features are still being read.
+
+        The request body is a JSON object holding the genome's ref and,
+        optionally, a type_list and a field_list as for get_features;
+        feature_id is always included. Errors raised before the first
+        record fail the request with a JSON-RPC error response. Later ones
+        end the stream with a line holding the error instead of a record.
+        """
+        ctx['module'], ctx['method'] = 'data_api2', 'export_features'
+        request = {'version': '1.1'}
+        try:
+            try:
+                body_size = int(environ.get('CONTENT_LENGTH', 0))
+            except (ValueError):
+                body_size = 0
+            try:
+                params = json.loads(decode_request_body(
+                    environ['wsgi.input'].read(body_size),
+                    environ.get('HTTP_CONTENT_ENCODING')))
+            except ValueError as ve:
+                err = InvalidRequestError()
+                err.data = str(ve)
+                raise err
+            if not isinstance(params, dict) or \
+                    not isinstance(params.get('ref'), basestring):
+                err = InvalidParamsError()
+                err.data = 'The request body must be an object with a ref'
+                raise err
+            ctx['provenance'] = [{'service': ctx['module'],
+                                  'method': ctx['method'],
+                                  'method_params': [params]}]
+            token = environ.get('HTTP_AUTHORIZATION')
+            if token is None:
+                err = ServerError()
+                err.data = "Authentication required for " + \
+                    "data_api2 but no authentication header was passed"
+                raise err
+            try:
+                ctx['user_id'] = token.split('=')[1]
+                ctx['authenticated'] = 1
+                ctx['token'] = token
+            except Exception, e:
+                err = ServerError()
+                err.data = "Token validation failed: %s" % e
+                raise err
+            self.log(log.INFO, ctx, 'start method')
+            try:
+                records = impl_data_api2.export_features(
+                    ctx, params['ref'], params.get('type_list'),
+                    params.get('field_list'))
+                # read the first record here so that a bad ref or field
+                # list fails the request as a whole
+                first = next(records, None)
+            except JSONRPCError:
+                raise
+            except Exception as e:
+                newerr = ServerError()
+                newerr.trace = traceback.format_exc()
+                newerr.data = e.__str__()
+                raise newerr
+        except JSONRPCError as jre:
+            err = {'error': {'code': jre.code,
+                             'name': jre.message,
+                             'message': jre.data
+                             }
+                   }
+            trace = jre.trace if hasattr(jre, 'trace') else None
+            response_body = self.process_error(err, ctx, request, trace)
+            start_response('500 Internal Server Error', [
+                ('Access-Control-Allow-Origin', '*'),
+                ('content-type', JSON_CONTENT_TYPE),
+                ('content-length', str(len(response_body)))])
+            return [response_body]
+
+        # a stream is compressed as it is written, flushing the compressor
+        # with every chunk so the client can decode what it has received
+        threshold = get_compression_threshold()
+        compressor = None
+        if threshold >= 0 and 'gzip' in accepted_values(environ.get('HTTP_ACCEPT_ENCODING')):
+            compressor = zlib.compressobj(6, zlib.DEFLATED, 16 + zlib.MAX_WBITS)
+        response_headers = [
+            ('Access-Control-Allow-Origin', '*'),
+            ('content-type', NDJSON_CONTENT_TYPE),
+            ('vary', 'Accept-Encoding')]
+        if compressor is not None:
+            response_headers.append(('content-encoding', 'gzip'))
+        start_response('200 OK', response_headers)
+
+        def encode(chunk):
+            if compressor is None:
+                return chunk
+            return compressor.compress(chunk) + compressor.flush(zlib.Z_SYNC_FLUSH)
+
+        def stream():
+            if first is None:
+                self.log(log.INFO, ctx, 'end method')
+                if compressor is not None:
+                    yield compressor.flush()
+                return
+            # the first record goes out on its own, so the client does not
+            # wait for a whole chunk to start
+            yield encode(json_dumps(first) + '\n')
+            chunk = list()
+            size = 0
+            try:
+                for record in records:
+                    line = json_dumps(record) + '\n'
+                    chunk.append(line)
+                    size += len(line)
+                    if size >= EXPORT_CHUNK_SIZE:
+                        yield encode(''.join(chunk))
+                        chunk = list()
+                        size = 0
+                self.log(log.INFO, ctx, 'end method')
+            except Exception, e:
+                err = {'error': {'code': -32000,
+                                 'name': 'Server error',
+                                 'message': e.__str__()
+                                 }
+                       }
+                chunk.append(json_dumps(self.format_error(
+                    err, ctx, request, traceback.format_exc())) + '\n')
+            if chunk:
+                yield encode(''.join(chunk))
+            if compressor is not None:
+                yield compressor.flush()
+
+        return stream()
+
+    def process_error(self, error, context, request, trace=None):
+        return self.encode(self.format_error(error, context, request, trace))
+
+    def format_error(self, error, context, request, trace=None):
+        """Builds an error response as the generated process_error does,
+        without serializing it."""
+        if trace:
+            self.log(log.ERR, context, trace.split('\n')[0:-1])
+        if 'id' in request:
+            error['id'] = request['id']
+        if 'version' in request:
+            error['version'] = request['version']
+            if 'error' not in error['error'] or error['error']['error'] is None:
+                error['error']['error'] = trace
+        elif 'jsonrpc' in request:
+            error['jsonrpc'] = request['jsonrpc']
+            error['error']['data'] = trace
+        else:
+            error['version'] = '1.0'
+            error['error']['error'] = trace
+        return error
+
+application = Application()
+
+# importing data_api2Server mounted its own application; uwsgi serves
+# whatever is mounted last
+try:
+    import uwsgi
+    uwsgi.applications = {
+        '': application
+        }
+except ImportError:
+    # Not available outside of wsgi, ignore
+    pass
@@ -14,6 +14,8 @@ import blist
 from doekbase.data_api.core import ObjectAPI
 from doekbase.data_api.util import get_logger, logged
 from doekbase.data_api import exceptions
+from doekbase.data_api.annotation.genome_annotation import intervals
+from doekbase.data_api.annotation.genome_annotation import function_index
 import doekbase.data_api.annotation.genome_annotation.service.ttypes as ttypes
 
 _GENOME_TYPES = ['KBaseGenomes.Genome']
@@ -48,8 +50,191 @@ FEATURE_DESCRIPTIONS = {
     "trnspn": "Transposon"    
 }
 
+#: Mapping of the fields of the feature data returned by
+#: :meth:`GenomeAnnotationInterface.get_features` to the keys they are read
+#: from in a GenomeAnnotation feature container. The keys of this mapping
+#: are the possible values of its `field_list`.
+FEATURE_DATA_FIELDS = {
+    "feature_id": "feature_id",
+    "feature_type": "type",
+    "feature_function": "function",
+    "feature_aliases": "aliases",
+    "feature_dna_sequence_length": "dna_sequence_length",
+    "feature_dna_sequence": "dna_sequence",
+    "feature_md5": "md5",
+    "feature_locations": "locations",
+    "feature_publications": "publications",
+    "feature_quality_warnings": "quality_warnings",
+    "feature_quality_score": "quality",
+    "feature_notes": "notes",
+    "feature_inference": "inference"
+}
+
 _log = get_logger("GenomeAnnotationAPI")
 
+#: Most features of a KBaseGenomes.Genome read by position rather than by
+#: loading the whole object; past this, one full read is cheaper.
+MAX_FEATURE_SUBSET = 1000
+
+
+def _feature_fields(field_list):
+    """Check the field list of a get_features call. Returns the set of
+    fields to return, or None for all of them."""
+    if not field_list:
+        return None
+    unknown = [x for x in field_list if x not in FEATURE_DATA_FIELDS]
+    if unknown:
+        raise ValueError("Unknown feature data fields: " + ", ".join(unknown))
+    return set(field_list)
+
+
+def _container_key_paths(fields):
+    """Get the paths, relative to a feature, of the keys to read from a
+    GenomeAnnotation feature container for a set of fields."""
+    if fields is None:
+        return [""]
+    # feature_id is always read so that features lacking all of the
+    # fields still show up
+    return ["/" + FEATURE_DATA_FIELDS[k] for k in sorted(fields | {"feature_id"})]
+
+
+def _genome_feature_data(x, fields):
+    """Get the feature data of a KBaseGenomes.Genome feature, limited to
+    `fields` unless it is None."""
+    f = dict()
+    f["feature_id"] = x['id']
+    f["feature_type"] = x['type']
+    f["feature_function"] = x['function']
+    f["feature_locations"] = x['location']
+
+
+    if 'dna_sequence' in x:
+        f["feature_dna_sequence"] = x['dna_sequence']
+
+        if 'md5' in x:
+            f["feature_md5"] = x['md5']
+        elif fields is None or "feature_md5" in fields:
+            f["feature_md5"] = hashlib.md5(x["dna_sequence"].upper()).hexdigest()
+    else:
+        f["feature_dna_sequence"] = ""
+        f["feature_md5"] = ""
+
+    if 'dna_sequence_length' in x:
+        f["feature_dna_sequence_length"] = x['dna_sequence_length']
+    else:
+        f["feature_dna_sequence_length"] = -1
+
+    if 'publications' in x:
+        f["feature_publications"] = x['publications']
+    else:
+        f["feature_publications"] = []
+
+    if 'aliases' in x:
+        f["feature_aliases"] = {k: list() for k in x['aliases']}
+    else:
+        f["feature_aliases"] = {}
+
+    f["feature_notes"] = []
+    f["feature_inference"] = ""
+
+    if "feature_quality_score" in x:
+        f["feature_quality_score"] = str(x['quality'])
+    else:
+        f["feature_quality_score"] = ""
+
+    f["feature_quality_warnings"] = []
+
+    if fields is not None:
+        return {k: f[k] for k in fields}
+    return f
+
+
+def _annotation_feature_data(x, fields):
+    """Get the feature data of a feature from a GenomeAnnotation feature
+    container, limited to `fields` unless it is None."""
+    f = dict()
+    f["feature_id"] = x.get('feature_id')
+    f["feature_type"] = x.get('type')
+    f["feature_md5"] = x.get('md5')
+    f["feature_dna_sequence"] = x.get('dna_sequence')
+    f["feature_dna_sequence_length"] = x.get('dna_sequence_length')
+    f["feature_locations"] = x.get('locations')
+
+    if 'function' in x:
+        f["feature_function"] = x['function']
+    else:
+        f["feature_function"] = "Unknown"
+
+    if 'publications' in x:
+        f["feature_publications"] = x['publications']
+    else:
+        f["feature_publications"] = []
+
+    if 'aliases' in x:
+        f["feature_aliases"] = x['aliases']
+    else:
+        f["feature_aliases"] = {}
+
+    if 'notes' in x:
+        f["feature_notes"] = x['notes']
+    else:
+        f["feature_notes"] = []
+
+    if 'inference' in x:
+        f["feature_inference"] = x['inference']
+    else:
+        f["feature_inference"] = "Unknown"
+
+    if 'quality' in x:
+        f["feature_quality_score"] = x['quality']
+    else:
+        f["feature_quality_score"] = []
+
+    if 'quality_warnings' in x:
+        f["feature_quality_warnings"] = x['quality_warnings']
+    else:
+        f["feature_quality_warnings"] = []
+
+    if fields is not None:
+        return {k: f[k] for k in fields}
+    return f
+
+
+def _iter_fields(field_list):
+    """Check the field list of an iter_features call, which always
+    includes feature_id."""
+    fields = _feature_fields(field_list)
+    if fields is None:
+        return None
+    return fields | {"feature_id"}
+
+
+#: Number of features on a page when no page size is given
+DEFAULT_PAGE_SIZE = 1000
+
+
+def _feature_ids_page(api, filters, page_size, continuation_token):
+    """Page through feature IDs in genomic order using the interval index
+    of a genome annotation API implementation."""
+    selected = None
+    if filters and any(v is not None for v in filters.values()):
+        selected = set()
+        for ids in api.get_feature_ids(filters, group_by="type")["by_type"].values():
+            selected.update(ids)
+    ids, token = intervals.genomic_page(api._get_interval_index(), page_size or DEFAULT_PAGE_SIZE,
+                                        continuation_token, selected)
+    return {"feature_ids": ids, "continuation_token": token}
+
+
+def _features_page(api, filters, field_list, page_size, continuation_token):
+    """Get the data of one page of features from
+    :func:`_feature_ids_page`."""
+    page = _feature_ids_page(api, filters, page_size, continuation_token)
+    ids = page["feature_ids"]
+    features = api.get_features(set(ids), field_list) if ids else dict()
+    return {"features": [features[x] for x in ids],
+            "continuation_token": page["continuation_token"]}
+
 
 class GenomeAnnotationInterface(object):
     __metaclass__ = abc.ABCMeta
@@ -154,12 +339,16 @@ class GenomeAnnotationInterface(object):
         pass  # TODO: add examples in docs for function_list and alias_list
 
     @abc.abstractmethod
-    def get_features(self, feature_id_list=None):
+    def get_features(self, feature_id_list=None, field_list=None):
         """Retrieves all the available data for Genome Features.
 
         Args:
           feature_id_list (list<str>): List of features to retrieve.
             If None, returns all feature functions.
+          field_list (list<str>): Fields of the feature data to return,
+            from the keys of :data:`FEATURE_DATA_FIELDS`. If None or empty,
+            returns all fields. Data for fields that are not asked for
+            is not read where the storage layout allows it.
 
         Returns:
           dict<str,dict<str,list>>: Mapping from feature IDs to dicts
@@ -167,6 +356,65 @@ class GenomeAnnotationInterface(object):
         """
         pass
 
+    @abc.abstractmethod
+    def iter_features(self, type_list=None, field_list=None):
+        """Generates the data of every feature of the genome, one feature
+        at a time, without collecting them into a single result. Suited to
+        exporting whole genomes; the order is that of the underlying
+        storage.
+
+        Args:
+          type_list (list<str>): Feature types to include; if None, all.
+          field_list (list<str>): Fields of the feature data to return, as
+            for :meth:`get_features`. feature_id is always included.
+
+        Returns:
+          generator of dict: The feature data dicts.
+        """
+        pass
+
+    @abc.abstractmethod
+    def get_feature_ids_page(self, filters=None, page_size=None, continuation_token=None):
+        """Retrieves one page of feature ids in genomic order: by contig and
+        start of the leftmost location, then by id, with features without
+        locations last.
+
+        Args:
+          filters: Optional dictionary of filters, as for
+            :meth:`get_feature_ids`.
+          page_size (int): Largest number of ids on the page; if None,
+            :data:`DEFAULT_PAGE_SIZE`.
+          continuation_token (str): The token returned with the previous
+            page, or None for the first page.
+
+        Returns:
+          dict: feature_ids, the list of ids on the page, and
+          continuation_token, an opaque string to pass for the next page,
+          or None if this is the last one.
+        """
+        pass
+
+    @abc.abstractmethod
+    def get_features_page(self, filters=None, field_list=None, page_size=None, continuation_token=None):
+        """Retrieves the data of one page of features, in the order of
+        :meth:`get_feature_ids_page`.
+
+        Args:
+          filters: Optional dictionary of filters, as for
+            :meth:`get_feature_ids`.
+          field_list (list<str>): Fields of the feature data to return, as
+            for :meth:`get_features`.
+          page_size (int): Largest number of features on the page; if None,
+            :data:`DEFAULT_PAGE_SIZE`.
+          continuation_token (str): The token returned with the previous
+            page, or None for the first page.
+
+        Returns:
+          dict: features, the list of feature data dicts on the page, and
+          continuation_token as for :meth:`get_feature_ids_page`.
+        """
+        pass
+
     @abc.abstractmethod
     def get_proteins(self):
         """Retrieves all the available proteins for genome features.
@@ -197,6 +445,26 @@ class GenomeAnnotationInterface(object):
               The length of the contig
         """
         pass
+
+    @abc.abstractmethod
+    def get_features_in_region(self, region, type_list=None):
+        """Retrieves the features that overlap a region of a contig.
+
+        The locations of the features are indexed per contig the first time
+        this is called for an object version, and the index is kept in the
+        object cache.
+
+        Args:
+          region (dict): The region to search,
+            e.g. {"contig_id": str, "strand": "+"|"-"|"?", "start": int, "length": int}
+            A strand of "?" matches features on either strand.
+          type_list (list<str>): If not empty, only return features of these types.
+
+        Returns:
+          dict: Mapping from feature IDs to all location information for each,
+          as returned by :meth:`get_feature_locations`.
+        """
+        pass
     
     @abc.abstractmethod
     def get_feature_dna(self, feature_id_list=None):
@@ -325,6 +593,21 @@ class GenomeAnnotationInterface(object):
         """
         pass
 
+    @abc.abstractmethod
+    def get_feature_relationships(self):
+        """Retrieves all the parent/child relationships between the gene,
+        mRNA and CDS features at once, in place of the six get_*_by_*
+        methods.
+
+        Returns:
+          dict: gene_ids, mrna_ids and cds_ids, the sorted ids of the
+          features of each type; and mrna_gene, cds_mrna and cds_gene,
+          lists parallel to mrna_ids or cds_ids holding the position of
+          each feature's gene or mRNA in gene_ids or mrna_ids, or -1 if it
+          has none.
+        """
+        pass
+
 
 
 class GenomeAnnotationAPI(ObjectAPI, GenomeAnnotationInterface):
@@ -368,6 +651,9 @@ class GenomeAnnotationAPI(ObjectAPI, GenomeAnnotationInterface):
 
     def get_feature_locations(self, feature_id_list=None):
         return self.proxy.get_feature_locations(feature_id_list)
+
+    def get_features_in_region(self, region, type_list=None):
+        return self.proxy.get_features_in_region(region, type_list)
     
     def get_feature_dna(self, feature_id_list=None):
         return self.proxy.get_feature_dna(feature_id_list)
@@ -381,8 +667,17 @@ class GenomeAnnotationAPI(ObjectAPI, GenomeAnnotationInterface):
     def get_feature_publications(self, feature_id_list=None):
         return self.proxy.get_feature_publications(feature_id_list)
 
-    def get_features(self, feature_id_list=None):
-        return self.proxy.get_features(feature_id_list)
+    def get_features(self, feature_id_list=None, field_list=None):
+        return self.proxy.get_features(feature_id_list, field_list)
+
+    def iter_features(self, type_list=None, field_list=None):
+        return self.proxy.iter_features(type_list, field_list)
+
+    def get_feature_ids_page(self, filters=None, page_size=None, continuation_token=None):
+        return self.proxy.get_feature_ids_page(filters, page_size, continuation_token)
+
+    def get_features_page(self, filters=None, field_list=None, page_size=None, continuation_token=None):
+        return self.proxy.get_features_page(filters, field_list, page_size, continuation_token)
 
     def get_proteins(self):
         return self.proxy.get_proteins()
@@ -404,12 +699,18 @@ class GenomeAnnotationAPI(ObjectAPI, GenomeAnnotationInterface):
     
     def get_mrna_by_gene(self, gene_feature_id_list=None):
         return self.proxy.get_mrna_by_gene(gene_feature_id_list)
+
+    def get_feature_relationships(self):
+        return self.proxy.get_feature_relationships()
     
 
 class _KBaseGenomes_Genome(ObjectAPI, GenomeAnnotationInterface):
     def __init__(self, services, token, ref):
         super(_KBaseGenomes_Genome, self).__init__(services, token, ref)
         self._data_features_blist = None  # see self._get_features()
+        self._feature_positions = None  # see self._get_features_by_id()
+        self._interval_index = None  # see self._get_interval_index()
+        self._function_index = None  # see self._get_function_index()
 
     def get_taxon(self, ref_only=False):
         from doekbase.data_api.taxonomy.taxon.api import TaxonAPI
@@ -501,19 +802,12 @@ class _KBaseGenomes_Genome(ObjectAPI, GenomeAnnotationInterface):
             elif len(filters["function_list"]) == 0:
                 raise TypeError("A list of feature function strings is required, received an empty list.")
 
+            found = function_index.find_features(self._get_function_index(), filters["function_list"])
+
             remove_features = list()
             for i in xrange(len(features)):
-                if "function" not in features[i]:
+                if features[i]["id"] not in found:
                     remove_features.append(i)
-                else:
-                    found = False
-                    for f in filters["function_list"]:
-                        if features[i]["function"].find(f) >= 0:
-                            found = True
-                            break
-
-                    if not found:
-                        remove_features.append(i)
             if len(remove_features) > 0:
                 for i in reversed(remove_features):
                     del features[i]
@@ -626,10 +920,9 @@ class _KBaseGenomes_Genome(ObjectAPI, GenomeAnnotationInterface):
 
     def get_feature_locations(self, feature_id_list=None):
         locations = dict()
-        features = self._get_features()
 
         if feature_id_list is None:
-            for x in features:
+            for x in self._get_features():
                 locations[x['id']] = list()
                 if 'location' in x:
                     for loc in x['location']:
@@ -648,27 +941,56 @@ class _KBaseGenomes_Genome(ObjectAPI, GenomeAnnotationInterface):
             except AssertionError:
                 raise TypeError("A list of strings indicating feature identifiers is required, received an empty list.")
 
-            for x in features:
-                if x['id'] in feature_id_list:
-                    locations[x['id']] = list()
-
-                    if 'location' in x:
-                        for loc in x['location']:
-                            locations[x['id']].append({
-                                "contig_id": loc[0],
-                                "strand": loc[2],
-                                "start": loc[1],
-                                "length": loc[3]
-                            })
+            for x in self._get_features_by_id(feature_id_list):
+                locations[x['id']] = list()
+
+                if 'location' in x:
+                    for loc in x['location']:
+                        locations[x['id']].append({
+                            "contig_id": loc[0],
+                            "strand": loc[2],
+                            "start": loc[1],
+                            "length": loc[3]
+                        })
 
         return locations
 
+    def get_features_in_region(self, region, type_list=None):
+        return intervals.features_in_region(self._get_interval_index(), region, type_list)
+
+    def get_feature_ids_page(self, filters=None, page_size=None, continuation_token=None):
+        return _feature_ids_page(self, filters, page_size, continuation_token)
+
+    def get_features_page(self, filters=None, field_list=None, page_size=None, continuation_token=None):
+        return _features_page(self, filters, field_list, page_size, continuation_token)
+
+    def _get_interval_index(self):
+        if self._interval_index is None:
+            # v2 indexes also hold the genomic order of the features
+            self._interval_index = self._cache.get_derived_data(self._build_interval_index,
+                                                                'feature_interval_index_v2')
+        return self._interval_index
+
+    def _build_interval_index(self):
+        return intervals.build_index((x['id'], x['type'], x.get('location', list()))
+                                     for x in self.get_data()['features'])
+
+    def _get_function_index(self):
+        if self._function_index is None:
+            self._function_index = self._cache.get_derived_data(self._build_function_index,
+                                                                'feature_function_index')
+        return self._function_index
+
+    def _build_function_index(self):
+        return function_index.build_index((x['id'], x['function'])
+                                          for x in self.get_data()['features']
+                                          if x.get('function') is not None)
+
     def get_feature_dna(self, feature_id_list=None):
         sequences = dict()
-        features = self._get_features()
 
         if feature_id_list is None:
-            for x in features:
+            for x in self._get_features():
                 if "sequence" in x:
                     sequences[x['id']] = x["sequence"]
                 else:
@@ -682,21 +1004,19 @@ class _KBaseGenomes_Genome(ObjectAPI, GenomeAnnotationInterface):
             except AssertionError:
                 raise TypeError("A list of strings indicating feature identifiers is required, received an empty list.")
 
-            for x in features:
-                if x['id'] in feature_id_list:
-                    if "sequence" in x:
-                        sequences[x['id']] = x["sequence"]
-                    else:
-                        sequences[x['id']] = ""
+            for x in self._get_features_by_id(feature_id_list):
+                if "sequence" in x:
+                    sequences[x['id']] = x["sequence"]
+                else:
+                    sequences[x['id']] = ""
 
         return sequences
 
     def get_feature_functions(self, feature_id_list=None):
         functions = dict()
-        features = self._get_features()
 
         if feature_id_list is None:
-            for x in features:
+            for x in self._get_features():
                 if "function" in x:
                     functions[x['id']] = x["function"]
                 else:
@@ -710,21 +1030,19 @@ class _KBaseGenomes_Genome(ObjectAPI, GenomeAnnotationInterface):
             except AssertionError:
                 raise TypeError("A list of strings indicating feature identifiers is required, received an empty list.")
 
-            for x in features:
-                if x['id'] in feature_id_list:
-                    if "function" in x:
-                        functions[x['id']] = x["function"]
-                    else:
-                        functions[x['id']] = "Unknown"
+            for x in self._get_features_by_id(feature_id_list):
+                if "function" in x:
+                    functions[x['id']] = x["function"]
+                else:
+                    functions[x['id']] = "Unknown"
 
         return functions
 
     def get_feature_aliases(self, feature_id_list=None):
         aliases = dict()
-        features = self._get_features()
 
         if feature_id_list is None:
-            for x in features:
+            for x in self._get_features():
                 if "aliases" in x:
                     aliases[x['id']] = x["aliases"]
                 else:
@@ -738,21 +1056,19 @@ class _KBaseGenomes_Genome(ObjectAPI, GenomeAnnotationInterface):
             except AssertionError:
                 raise TypeError("A list of strings indicating feature identifiers is required, received an empty list.")
 
-            for x in features:
-                if x['id'] in feature_id_list:
-                    if "aliases" in x:
-                        aliases[x['id']] = x["aliases"]
-                    else:
-                        aliases[x['id']] = list()
+            for x in self._get_features_by_id(feature_id_list):
+                if "aliases" in x:
+                    aliases[x['id']] = x["aliases"]
+                else:
+                    aliases[x['id']] = list()
 
         return aliases
     
     def get_feature_publications(self, feature_id_list=None):
         publications = dict()
-        features = self._get_features()
 
         if feature_id_list is None:
-            for x in features:
+            for x in self._get_features():
                 if "publications" in x:
                     publications[x['id']] = x["publications"]
                 else:
@@ -766,68 +1082,22 @@ class _KBaseGenomes_Genome(ObjectAPI, GenomeAnnotationInterface):
             except AssertionError:
                 raise TypeError("A list of strings indicating feature identifiers is required, received an empty list.")
 
-            for x in features:
-                if x['id'] in feature_id_list:
-                    if "publications" in x:
-                        publications[x['id']] = x["publications"]
-                    else:
-                        publications[x['id']] = list()
+            for x in self._get_features_by_id(feature_id_list):
+                if "publications" in x:
+                    publications[x['id']] = x["publications"]
+                else:
+                    publications[x['id']] = list()
 
         return publications
 
-    def get_features(self, feature_id_list=None):
+    def get_features(self, feature_id_list=None, field_list=None):
         out_features = dict()
-        features = self._get_features()
-
-        def fill_out_feature(x):
-            f = dict()
-            f["feature_id"] = x['id']
-            f["feature_type"] = x['type']
-            f["feature_function"] = x['function']
-            f["feature_locations"] = x['location']
-
-
-            if 'dna_sequence' in x:
-                f["feature_dna_sequence"] = x['dna_sequence']
-
-                if 'md5' in x:
-                    f["feature_md5"] = x['md5']
-                else:
-                    f["feature_md5"] = hashlib.md5(x["dna_sequence"].upper()).hexdigest()
-            else:
-                f["feature_dna_sequence"] = ""
-                f["feature_md5"] = ""
-
-            if 'dna_sequence_length' in x:
-                f["feature_dna_sequence_length"] = x['dna_sequence_length']
-            else:
-                f["feature_dna_sequence_length"] = -1
-
-            if 'publications' in x:
-                f["feature_publications"] = x['publications']
-            else:
-                f["feature_publications"] = []
-
-            if 'aliases' in x:
-                f["feature_aliases"] = {k: list() for k in x['aliases']}
-            else:
-                f["feature_aliases"] = {}
-
-            f["feature_notes"] = []
-            f["feature_inference"] = ""
-
-            if "feature_quality_score" in x:
-                f["feature_quality_score"] = str(x['quality'])
-            else:
-                f["feature_quality_score"] = ""
-
-            f["feature_quality_warnings"] = []
-
-            return f
+        # each feature is read whole, so a field list only trims the output
+        fields = _feature_fields(field_list)
 
         if feature_id_list is None:
-            for x in features:
-                out_features[x['id']] = fill_out_feature(x)
+            for x in self._get_features():
+                out_features[x['id']] = _genome_feature_data(x, fields)
         else:
             try:
                 feature_refs = ["features/" + x for x in feature_id_list]
@@ -837,12 +1107,17 @@ class _KBaseGenomes_Genome(ObjectAPI, GenomeAnnotationInterface):
             except AssertionError:
                 raise TypeError("A list of strings indicating feature identifiers is required, received an empty list.")
 
-            for x in features:
-                if x['id'] in feature_id_list:
-                    out_features[x['id']] = fill_out_feature(x)
+            for x in self._get_features_by_id(feature_id_list):
+                out_features[x['id']] = _genome_feature_data(x, fields)
 
         return out_features
 
+    def iter_features(self, type_list=None, field_list=None):
+        fields = _iter_fields(field_list)
+        for x in self._get_features():
+            if type_list is None or x['type'] in type_list:
+                yield _genome_feature_data(x, fields)
+
     def get_proteins(self):
         proteins = dict()
         features = self._get_features()
@@ -928,6 +1203,19 @@ class _KBaseGenomes_Genome(ObjectAPI, GenomeAnnotationInterface):
  
         return {}
 
+    def get_feature_relationships(self):
+        # Genome objects do not record relationships between features
+        ids = {"gene": list(), "mRNA": list(), "CDS": list()}
+        for x in self._get_features():
+            if x.get("type") in ids:
+                ids[x["type"]].append(x["id"])
+        return {"gene_ids": sorted(ids["gene"]),
+                "mrna_ids": sorted(ids["mRNA"]),
+                "cds_ids": sorted(ids["CDS"]),
+                "mrna_gene": [-1] * len(ids["mRNA"]),
+                "cds_mrna": [-1] * len(ids["CDS"]),
+                "cds_gene": [-1] * len(ids["CDS"])}
+
     def _get_features(self):
         """Get a *copy* of the features.
         The original list of features should not be modified anywhere.
@@ -938,16 +1226,63 @@ class _KBaseGenomes_Genome(ObjectAPI, GenomeAnnotationInterface):
         # return a copy of the underlying list
         return self._data_features_blist[:]
 
+    def _get_features_by_id(self, feature_id_list):
+        """Get the features with the given ids, in genome order, skipping
+        ids that are not present.
+
+        Unless the whole object is already loaded, only the requested
+        features are read from the workspace, found by their position in
+        the features list.
+        """
+        if self._data_features_blist is None:
+            if self._feature_positions is None:
+                self._feature_positions = self._cache.get_derived_data(
+                    self._build_feature_positions, 'feature_positions')
+            positions = sorted(set(self._feature_positions[x] for x in feature_id_list
+                                   if x in self._feature_positions))
+            if len(positions) == 0:
+                return list()
+            if len(positions) <= MAX_FEATURE_SUBSET:
+                features = self._get_features_subset(["features/{:d}".format(i) for i in positions])
+                if features is not None and len(features) == len(positions):
+                    return features
+
+        ids = set(feature_id_list)
+        return [x for x in self._get_features() if x['id'] in ids]
+
+    def _build_feature_positions(self):
+        features = self._get_features_subset(["features/*/id"])
+        if features is None:
+            features = self.get_data()['features']
+        return {x['id']: i for i, x in enumerate(features)}
+
+    def _get_features_subset(self, path_list):
+        """Get the features list of a subset of the object, or None if the
+        workspace cannot select elements of a list (as the file-based one
+        cannot), in which case the caller falls back to the whole object.
+        """
+        try:
+            features = self.get_data_subset(path_list=path_list)["features"]
+        except KeyError:
+            return None
+        return features if isinstance(features, list) else None
+
 
 class _GenomeAnnotation(ObjectAPI, GenomeAnnotationInterface):
     def __init__(self, services, token, ref):
         super(_GenomeAnnotation, self).__init__(services, token, ref)
+        self._interval_index = None  # see self._get_interval_index()
+        self._function_index = None  # see self._get_function_index()
+        self._feature_lookup = None  # see self._get_feature_containers()
+        self._containers = dict()  # see self._get_container_features()
 
     def _get_feature_containers(self, feature_id_list=None):
         if feature_id_list is None:
             feature_containers = self.get_data_subset(["feature_container_references"])["feature_container_references"].values()
         else:
-            feature_lookup = self.get_data_subset(path_list=["feature_lookup"])["feature_lookup"]
+            if self._feature_lookup is None:
+                self._feature_lookup = self.get_data_subset(path_list=["feature_lookup"])["feature_lookup"]
+            feature_lookup = self._feature_lookup
             feature_containers = dict()
 
             try:
@@ -966,6 +1301,28 @@ class _GenomeAnnotation(ObjectAPI, GenomeAnnotationInterface):
 
         return feature_containers
 
+    def _get_container_features(self, ref, feature_id_list=None):
+        """Get the features of the feature container `ref`, all of them or
+        only those in `feature_id_list`.
+
+        Features read are kept on this object, which the calls of one
+        JSON-RPC batch share, so a batch reads each container once rather
+        than once per call.
+        """
+        if ref not in self._containers:
+            self._containers[ref] = [ObjectAPI(self.services, self._token, ref), dict(), False]
+        container, features, complete = self._containers[ref]
+        if complete:
+            return features
+        if feature_id_list is None:
+            features = container.get_data()["features"]
+            self._containers[ref] = [container, features, True]
+            return features
+        missing = ["features/" + x for x in feature_id_list if x not in features]
+        if missing:
+            features.update(container.get_data_subset(path_list=missing)["features"])
+        return features
+
     def get_taxon(self, ref_only=False):
         from doekbase.data_api.taxonomy.taxon.api import TaxonAPI
 
@@ -1008,12 +1365,12 @@ class _GenomeAnnotation(ObjectAPI, GenomeAnnotationInterface):
             # only pull data for features that are in the type_list
             for f in feature_container_references:
                 if f in filters["type_list"]:
-                    container_data = ObjectAPI(self.services, self._token, feature_container_references[f]).get_data()["features"]
+                    container_data = self._get_container_features(feature_container_references[f])
                     features.update(container_data)
         else:
             # pull down all features
             for f in feature_container_references:
-                container_data = ObjectAPI(self.services, self._token, feature_container_references[f]).get_data()["features"]
+                container_data = self._get_container_features(feature_container_references[f])
                 features.update(container_data)
 
         if "region_list" in filters and filters["region_list"] is not None:
@@ -1051,19 +1408,13 @@ class _GenomeAnnotation(ObjectAPI, GenomeAnnotationInterface):
             elif len(filters["function_list"]) == 0:
                 raise TypeError("A list of feature function strings is required, received an empty list.")
 
+            found = function_index.find_features(self._get_function_index(), filters["function_list"])
+
             remove_features = list()
 
             for f in features:
-                if "function" not in features[f]:
+                if features[f]["feature_id"] not in found:
                     remove_features.append(f)
-                else:
-                    found = False
-                    for func in filters["function_list"]:
-                        if features[f]["function"].find(func) >= 0:
-                            found = True
-
-                    if not found:
-                        remove_features.append(f)
 
             for f in remove_features:
                 del features[f]
@@ -1161,12 +1512,10 @@ class _GenomeAnnotation(ObjectAPI, GenomeAnnotationInterface):
 
         for ref in feature_containers:
             # Get list of feature IDs
+            features = self._get_container_features(ref, feature_id_list)
             if feature_id_list is None:
-                features = ObjectAPI(self.services, self._token, ref).get_data()["features"]
                 working_list = features
             else:
-                container = ObjectAPI(self.services, self._token, ref)
-                features = container.get_data_subset(path_list=feature_refs)["features"]
                 working_list = feature_id_list
             # Pull out either aliases or locations from each feature
             if data == "aliases":
@@ -1206,84 +1555,113 @@ class _GenomeAnnotation(ObjectAPI, GenomeAnnotationInterface):
     def get_feature_locations(self, feature_id_list=None):
         return self._get_feature_data("locations", feature_id_list)
 
-    def get_feature_dna(self, feature_id_list=None):
-        return self._get_feature_data("dna", feature_id_list)
+    def get_features_in_region(self, region, type_list=None):
+        return intervals.features_in_region(self._get_interval_index(), region, type_list)
 
-    def get_feature_functions(self, feature_id_list=None):
-        return self._get_feature_data("functions", feature_id_list)
+    def get_feature_ids_page(self, filters=None, page_size=None, continuation_token=None):
+        return _feature_ids_page(self, filters, page_size, continuation_token)
 
-    def get_feature_aliases(self, feature_id_list=None):
-        return self._get_feature_data("aliases", feature_id_list)
+    def get_features_page(self, filters=None, field_list=None, page_size=None, continuation_token=None):
+        return _features_page(self, filters, field_list, page_size, continuation_token)
 
-    def get_feature_publications(self, feature_id_list=None):
-        return self._get_feature_data("publications", feature_id_list)
+    def _get_interval_index(self):
+        if self._interval_index is None:
+            # v2 indexes also hold the genomic order of the features
+            self._interval_index = self._cache.get_derived_data(self._build_interval_index,
+                                                                'feature_interval_index_v2')
+        return self._interval_index
 
-    def get_features(self, feature_id_list=None):
-        out_features = dict()
-        feature_containers = self._get_feature_containers(feature_id_list)
+    def _build_interval_index(self):
+        feature_container_references = self.get_data_subset(
+            path_list=["feature_container_references"])["feature_container_references"]
 
-        def fill_out_feature(x):
-            f = dict()
-            f["feature_id"] = x['feature_id']
-            f["feature_type"] = x['type']
-            f["feature_md5"] = x['md5']
-            f["feature_dna_sequence"] = x['dna_sequence']
-            f["feature_dna_sequence_length"] = x['dna_sequence_length']
-            f["feature_locations"] = x['locations']
+        def container_features():
+            for feature_type in feature_container_references:
+                features = ObjectAPI(self.services, self._token,
+                                     feature_container_references[feature_type]).get_data()["features"]
+                for feature_id in features:
+                    yield feature_id, feature_type, features[feature_id]["locations"]
 
-            if 'function' in x:
-                f["feature_function"] = x['function']
-            else:
-                f["feature_function"] = "Unknown"
+        return intervals.build_index(container_features())
 
-            if 'publications' in x:
-                f["feature_publications"] = x['publications']
-            else:
-                f["feature_publications"] = []
+    def _get_function_index(self):
+        if self._function_index is None:
+            self._function_index = self._cache.get_derived_data(self._build_function_index,
+                                                                'feature_function_index')
+        return self._function_index
 
-            if 'aliases' in x:
-                f["feature_aliases"] = x['aliases']
-            else:
-                f["feature_aliases"] = {}
+    def _build_function_index(self):
+        feature_container_references = self.get_data_subset(
+            path_list=["feature_container_references"])["feature_container_references"]
 
-            if 'notes' in x:
-                f["feature_notes"] = x['notes']
-            else:
-                f["feature_notes"] = []
+        def container_functions():
+            for feature_type in feature_container_references:
+                features = ObjectAPI(self.services, self._token,
+                                     feature_container_references[feature_type]).get_data_subset(
+                    path_list=["features/*/feature_id", "features/*/function"])["features"]
+                for x in features.values():
+                    if x.get("function") is not None:
+                        yield x["feature_id"], x["function"]
 
-            if 'inference' in x:
-                f["feature_inference"] = x['inference']
-            else:
-                f["feature_inference"] = "Unknown"
+        return function_index.build_index(container_functions())
 
-            if 'quality' in x:
-                f["feature_quality_score"] = x['quality']
-            else:
-                f["feature_quality_score"] = []
+    def get_feature_dna(self, feature_id_list=None):
+        return self._get_feature_data("dna", feature_id_list)
 
-            if 'quality_warnings' in x:
-                f["feature_quality_warnings"] = x['quality_warnings']
-            else:
-                f["feature_quality_warnings"] = []
+    def get_feature_functions(self, feature_id_list=None):
+        return self._get_feature_data("functions", feature_id_list)
 
-            return f
+    def get_feature_aliases(self, feature_id_list=None):
+        return self._get_feature_data("aliases", feature_id_list)
+
+    def get_feature_publications(self, feature_id_list=None):
+        return self._get_feature_data("publications", feature_id_list)
 
+    def get_features(self, feature_id_list=None, field_list=None):
+        out_features = dict()
+        feature_containers = self._get_feature_containers(feature_id_list)
+        fields = _feature_fields(field_list)
+        # only read the requested keys of each feature
+        key_paths = _container_key_paths(fields)
 
         for ref in feature_containers:
             container = ObjectAPI(self.services, self._token, ref)
             if feature_id_list is None:
-                features = container.get_data()["features"]
+                if fields is None:
+                    features = container.get_data()["features"]
+                else:
+                    features = container.get_data_subset(
+                        path_list=["features/*" + p for p in key_paths])["features"]
                 working_list = features
             else:
                 features = container.get_data_subset(
-                    path_list=["features/" + x for x in feature_containers[ref]])["features"]
+                    path_list=["features/" + x + p for x in feature_containers[ref] for p in key_paths])["features"]
                 working_list = feature_containers[ref]
             
             for x in working_list:
-                out_features[x] = fill_out_feature(features[x])
+                out_features[x] = _annotation_feature_data(features[x], fields)
 
         return out_features
 
+    def iter_features(self, type_list=None, field_list=None):
+        fields = _iter_fields(field_list)
+        key_paths = _container_key_paths(fields)
+        feature_container_references = self.get_data_subset(
+            path_list=["feature_container_references"])["feature_container_references"]
+
+        # one container is held at a time
+        for feature_type in sorted(feature_container_references):
+            if type_list is not None and feature_type not in type_list:
+                continue
+            container = ObjectAPI(self.services, self._token, feature_container_references[feature_type])
+            if fields is None:
+                features = container.get_data()["features"]
+            else:
+                features = container.get_data_subset(
+                    path_list=["features/*" + p for p in key_paths])["features"]
+            for x in features:
+                yield _annotation_feature_data(features[x], fields)
+
     def get_proteins(self):
         protein_container = ObjectAPI(self.services, self._token, self.get_data()["protein_container_ref"])
         result = protein_container.get_data()["proteins"]
@@ -1430,6 +1808,68 @@ class _GenomeAnnotation(ObjectAPI, GenomeAnnotationInterface):
     def get_mrna_by_gene(self, gene_feature_id_list=None):
         return self._get_by_gene("mrna", gene_feature_id_list)
 
+    def get_feature_relationships(self):
+        return self._cache.get_derived_data(self._build_feature_relationships,
+                                            'feature_relationships')
+
+    def _build_feature_relationships(self):
+        feature_container_references = self.get_data_subset(
+            path_list=["feature_container_references"])["feature_container_references"]
+
+        def read(feature_type, properties):
+            if feature_type not in feature_container_references:
+                return dict()
+            container = ObjectAPI(self.services, self._token, feature_container_references[feature_type])
+            return container.get_data_subset(
+                path_list=["features/*/feature_id", "features/*/" + properties])["features"]
+
+        genes = read("gene", "gene_properties")
+        mrnas = read("mRNA", "mRNA_properties")
+        cdss = read("CDS", "CDS_properties")
+        gene_ids = sorted(genes)
+        mrna_ids = sorted(mrnas)
+        cds_ids = sorted(cdss)
+        gene_index = {x: i for i, x in enumerate(gene_ids)}
+        mrna_index = {x: i for i, x in enumerate(mrna_ids)}
+        cds_index = {x: i for i, x in enumerate(cds_ids)}
+        mrna_gene = [-1] * len(mrna_ids)
+        cds_mrna = [-1] * len(cds_ids)
+        cds_gene = [-1] * len(cds_ids)
+
+        # each relationship may be recorded on either of its features; the
+        # child's record wins where both have one
+        for i, x in enumerate(cds_ids):
+            properties = cdss[x].get("CDS_properties", {})
+            if "associated_mRNA" in properties:
+                cds_mrna[i] = mrna_index.get(properties["associated_mRNA"][1], -1)
+            if "parent_gene" in properties:
+                cds_gene[i] = gene_index.get(properties["parent_gene"][1], -1)
+        for i, x in enumerate(mrna_ids):
+            properties = mrnas[x].get("mRNA_properties", {})
+            if "parent_gene" in properties:
+                mrna_gene[i] = gene_index.get(properties["parent_gene"][1], -1)
+            if "associated_CDS" in properties:
+                c = cds_index.get(properties["associated_CDS"][1])
+                if c is not None and cds_mrna[c] == -1:
+                    cds_mrna[c] = i
+        for i, x in enumerate(gene_ids):
+            properties = genes[x].get("gene_properties", {})
+            for child in properties.get("children_mRNA", []):
+                m = mrna_index.get(child[1])
+                if m is not None and mrna_gene[m] == -1:
+                    mrna_gene[m] = i
+            for child in properties.get("children_CDS", []):
+                c = cds_index.get(child[1])
+                if c is not None and cds_gene[c] == -1:
+                    cds_gene[c] = i
+
+        return {"gene_ids": gene_ids,
+                "mrna_ids": mrna_ids,
+                "cds_ids": cds_ids,
+                "mrna_gene": mrna_gene,
+                "cds_mrna": cds_mrna,
+                "cds_gene": cds_gene}
+
 
 _ga_log = get_logger('GenomeAnnotationClientAPI')
 
@@ -1531,7 +1971,9 @@ class GenomeAnnotationClientAPI(GenomeAnnotationInterface):
 
     @logged(_ga_log)
     @client_method
-    def get_features(self, feature_id_list=None):
+    def get_features(self, feature_id_list=None, field_list=None):
+        # the thrift service returns whole features; trim them here
+        fields = _feature_fields(field_list)
         result = self.client.get_features(self._token, self.ref, feature_id_list)
 
         output = dict()
@@ -1539,7 +1981,8 @@ class GenomeAnnotationClientAPI(GenomeAnnotationInterface):
             output[x] = dict()
 
             for k in result[x].__dict__:
-                output[x][k] = result[x].__dict__[k]
+                if fields is None or k in fields:
+                    output[x][k] = result[x].__dict__[k]
 
         return output
 
@@ -1571,6 +2014,22 @@ class GenomeAnnotationClientAPI(GenomeAnnotationInterface):
 
         return output
 
+    def get_features_in_region(self, region, type_list=None):
+        # not offered by the genome annotation thrift service
+        raise NotImplementedError
+
+    def iter_features(self, type_list=None, field_list=None):
+        # not offered by the genome annotation thrift service
+        raise NotImplementedError
+
+    def get_feature_ids_page(self, filters=None, page_size=None, continuation_token=None):
+        # not offered by the genome annotation thrift service
+        raise NotImplementedError
+
+    def get_features_page(self, filters=None, field_list=None, page_size=None, continuation_token=None):
+        # not offered by the genome annotation thrift service
+        raise NotImplementedError
+
     @logged(_ga_log)
     @client_method
     def get_feature_dna(self, feature_id_list=None):
@@ -1620,3 +2079,7 @@ class GenomeAnnotationClientAPI(GenomeAnnotationInterface):
     @client_method
     def get_mrna_by_gene(self, gene_feature_id_list=None):
         return self.client.get_mrna_by_gene(self._token, self.ref, gene_feature_id_list)
+
+    def get_feature_relationships(self):
+        # not offered by the genome annotation thrift service
+        raise NotImplementedError
@@ -0,0 +1,94 @@
+"""
+Trigram index over genome feature function strings.
+
+Each distinct function string is numbered, and every trigram (run of three
+characters) found in any of them maps to the sorted list of the numbers of
+the strings containing it. A substring query of three or more characters
+intersects the lists of its trigrams, starting from the shortest, and only
+the few strings left are checked with an actual substring test, so finding
+e.g. every "kinase" costs about as much as the rarest of its trigrams
+rather than a scan of every feature. Shorter queries scan the distinct
+strings, of which there are usually far fewer than features.
+
+An index holds only dicts, lists and strings, so it can be pickled into an
+:class:`doekbase.data_api.cache.ObjectCache`.
+"""
+
+_N = 3
+
+
+def _trigrams(s):
+    return set(s[i:i + _N] for i in xrange(len(s) - _N + 1))
+
+
+def build_index(features):
+    """Build a function index.
+
+    Args:
+      features: iterable of (feature_id, function); features without a
+        function should be left out.
+    Returns:
+      dict: the index, for :func:`find_features`.
+    """
+    numbers = dict()
+    functions = list()
+    feature_ids = list()
+    postings = dict()
+
+    for feature_id, function in features:
+        if function not in numbers:
+            n = len(functions)
+            numbers[function] = n
+            functions.append(function)
+            feature_ids.append(list())
+            # strings are numbered in order, so each list stays sorted
+            for t in _trigrams(function):
+                if t not in postings:
+                    postings[t] = list()
+                postings[t].append(n)
+        feature_ids[numbers[function]].append(feature_id)
+
+    return {"functions": functions, "feature_ids": feature_ids, "postings": postings}
+
+
+def _matching_functions(index, term):
+    """Get the numbers of the function strings that contain `term`."""
+    functions = index["functions"]
+    if len(term) < _N:
+        return [n for n in xrange(len(functions)) if term in functions[n]]
+
+    postings = index["postings"]
+    lists = list()
+    for t in _trigrams(term):
+        if t not in postings:
+            return list()
+        lists.append(postings[t])
+    lists.sort(key=len)
+
+    candidates = set(lists[0])
+    for x in lists[1:]:
+        candidates.intersection_update(x)
+        if not candidates:
+            return list()
+    # every trigram is present, but not necessarily in the right order
+    return [n for n in candidates if term in functions[n]]
+
+
+def find_features(index, function_list):
+    """Find the features whose function contains any of the strings in
+    `function_list`, as ``function.find(f) >= 0`` would.
+
+    Args:
+      index (dict): from :func:`build_index`.
+      function_list (list): substrings to look for.
+    Returns:
+      set: the matching feature ids.
+    """
+    matches = set()
+    for term in function_list:
+        matches.update(_matching_functions(index, term))
+
+    feature_ids = set()
+    for n in matches:
+        feature_ids.update(index["feature_ids"][n])
+    return feature_ids
@@ -0,0 +1,247 @@
+"""
+Per-contig interval index over genome feature locations.
+
+The locations on each contig are kept in parallel lists sorted by start and
+laid out as an implicit augmented interval tree: the element at the middle
+of every run of 2**k elements is the root of that run's subtree and records
+the largest end found in it. An overlap query walks down from the root and
+skips every subtree that ends before the query begins, so it costs
+O(log n + hits) rather than a scan of every feature.
+
+The index also lists all features in genomic order, for paging through
+them with :func:`genomic_page`.
+
+An index holds only dicts, lists, tuples, ints and strings, so it can be
+pickled into an :class:`doekbase.data_api.cache.ObjectCache`.
+"""
+
+import base64
+import bisect
+import json
+
+# Subtrees with at most 2**(_SCAN_LEVEL+1) elements are scanned linearly
+_SCAN_LEVEL = 3
+
+
+def location_span(start, strand, length):
+    """Get the forward-strand half-open interval [lo, hi) covered by a
+    location.
+
+    A location on the "-" strand starts at its rightmost base and extends
+    `length` bases to the left; any other strand extends to the right.
+    """
+    if strand == "-":
+        return start - length + 1, start + 1
+    return start, start + length
+
+
+def build_index(features):
+    """Build an interval index.
+
+    Args:
+      features: iterable of (feature_id, feature_type, locations) where
+        locations is a list of [contig_id, start, strand, length].
+    Returns:
+      dict: the index, for :func:`features_in_region` and
+      :func:`genomic_page`.
+    """
+    by_contig = dict()
+    locations = dict()
+    types = dict()
+
+    for feature_id, feature_type, feature_locations in features:
+        locations[feature_id] = feature_locations
+        types[feature_id] = feature_type
+        for loc in feature_locations:
+            lo, hi = location_span(loc[1], loc[2], loc[3])
+            if loc[0] not in by_contig:
+                by_contig[loc[0]] = list()
+            by_contig[loc[0]].append((lo, hi, loc[2], feature_id))
+
+    contigs = dict()
+    for contig_id in by_contig:
+        intervals = sorted(by_contig[contig_id])
+        ends = [x[1] for x in intervals]
+        max_ends, root_level = _augment(ends)
+        contigs[contig_id] = {
+            "starts": [x[0] for x in intervals],
+            "ends": ends,
+            "max_ends": max_ends,
+            "root_level": root_level,
+            "strands": [x[2] for x in intervals],
+            "feature_ids": [x[3] for x in intervals]
+        }
+
+    order = sorted(_order_key(feature_id, locations[feature_id]) for feature_id in locations)
+
+    return {"contigs": contigs, "locations": locations, "types": types, "order": order}
+
+
+def _order_key(feature_id, feature_locations):
+    """Get the sort key of a feature in genomic order: by contig and start
+    of its leftmost location, then by ID. Features without locations come
+    last."""
+    if not feature_locations:
+        return (1, "", 0, feature_id)
+    contig_id, lo = min((loc[0], location_span(loc[1], loc[2], loc[3])[0])
+                        for loc in feature_locations)
+    return (0, contig_id, lo, feature_id)
+
+
+def _augment(ends):
+    """Compute the largest end in the subtree rooted at each element, and
+    the level of the root.
+    """
+    n = len(ends)
+    max_ends = list(ends)
+    if n == 0:
+        return max_ends, -1
+
+    # leaves are the even positions; track the largest end of the rightmost
+    # (possibly incomplete) subtree at each level, standing in for right
+    # children past the end of the list
+    last_i = 0
+    for i in xrange(0, n, 2):
+        last_i = i
+    last = max_ends[last_i]
+
+    k = 1
+    while (1 << k) <= n:
+        x = 1 << (k - 1)
+        for i in xrange((x << 1) - 1, n, x << 2):
+            left = max_ends[i - x]
+            right = max_ends[i + x] if i + x < n else last
+            max_ends[i] = max(ends[i], left, right)
+        last_i = last_i - x if (last_i >> k) & 1 else last_i + x
+        if last_i < n and max_ends[last_i] > last:
+            last = max_ends[last_i]
+        k += 1
+
+    return max_ends, k - 1
+
+
+def overlapping(contig, lo, hi):
+    """Get the positions of the intervals on one indexed contig that overlap
+    [lo, hi), in order of start.
+    """
+    starts = contig["starts"]
+    ends = contig["ends"]
+    max_ends = contig["max_ends"]
+    n = len(starts)
+    out = list()
+    if n == 0 or lo >= hi:
+        return out
+
+    root = contig["root_level"]
+    # (level, position, left subtree done)
+    stack = [(root, (1 << root) - 1, False)]
+    while stack:
+        k, x, left_done = stack.pop()
+        if k <= _SCAN_LEVEL:
+            i = x >> k << k
+            stop = min(i + (1 << (k + 1)) - 1, n)
+            while i < stop and starts[i] < hi:
+                if lo < ends[i]:
+                    out.append(i)
+                i += 1
+        elif not left_done:
+            stack.append((k, x, True))
+            y = x - (1 << (k - 1))
+            if y >= n or max_ends[y] > lo:
+                stack.append((k - 1, y, False))
+        elif x < n and starts[x] < hi:
+            if lo < ends[x]:
+                out.append(x)
+            stack.append((k - 1, x + (1 << (k - 1)), False))
+    return out
+
+
+def features_in_region(index, region, type_list=None):
+    """Find the features with at least one location overlapping a region.
+
+    Args:
+      index (dict): from :func:`build_index`.
+      region (dict): contig_id, strand, start and length of the region.
+        A strand of "?" (or none) matches features on either strand.
+      type_list (list<str>): If not empty, only return features of these
+        types.
+    Returns:
+      dict: Mapping from feature IDs to all locations of each feature, as
+      contig_id, strand, start, length dicts.
+    """
+    contig = index["contigs"].get(region["contig_id"])
+    if contig is None:
+        return dict()
+
+    strand = region.get("strand")
+    if strand == "?":
+        strand = None
+    lo, hi = location_span(region["start"], strand, region["length"])
+
+    types = index["types"]
+    out = dict()
+    for i in overlapping(contig, lo, hi):
+        feature_id = contig["feature_ids"][i]
+        if feature_id in out:
+            continue
+        if strand and contig["strands"][i] != strand:
+            continue
+        if type_list and types[feature_id] not in type_list:
+            continue
+        out[feature_id] = [{"contig_id": loc[0],
+                            "strand": loc[2],
+                            "start": loc[1],
+                            "length": loc[3]}
+                           for loc in index["locations"][feature_id]]
+    return out
+
+
+def genomic_page(index, page_size, continuation_token=None, selected=None):
+    """Get one page of feature IDs in genomic order.
+
+    A continuation token records the sort key of the last feature on its
+    page, so paging stays consistent for a given object version and picks
+    up after the same feature however the page size changes.
+
+    Args:
+      index (dict): from :func:`build_index`.
+      page_size (int): Largest number of IDs to return.
+      continuation_token (str): From the previous page; None for the first.
+      selected (set<str>): If not None, skip features not in this set.
+    Returns:
+      tuple: list of feature IDs, and the token for the next page or None
+      if this is the last one.
+    """
+    if page_size < 1:
+        raise ValueError("A page size of at least 1 is required.")
+    keys = index["order"]
+    n = len(keys)
+    i = 0
+    if continuation_token:
+        i = bisect.bisect_right(keys, _decode_token(continuation_token))
+
+    out = list()
+    while i < n and len(out) < page_size:
+        if selected is None or keys[i][3] in selected:
+            out.append(keys[i][3])
+        i += 1
+    # only hand out a token if another selected feature follows
+    if selected is not None:
+        while i < n and keys[i][3] not in selected:
+            i += 1
+    if i >= n:
+        return out, None
+    return out, _encode_token(keys[i - 1])
+
+
+def _encode_token(key):
+    return base64.urlsafe_b64encode(json.dumps(list(key)))
+
+
+def _decode_token(token):
+    try:
+        key = json.loads(base64.urlsafe_b64decode(str(token)))
+        assert isinstance(key, list) and len(key) == 4
+        return tuple(key)
+    except (TypeError, ValueError, AssertionError):
+        raise ValueError("Invalid continuation token: " + token)
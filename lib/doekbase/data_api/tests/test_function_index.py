@@ -0,0 +1,82 @@
+"""
+Test the trigram index over feature functions.
+"""
+
+# stdlib
+import random
+import unittest
+# local
+from doekbase.data_api.annotation.genome_annotation import function_index
+
+
+FEATURES = [
+    ("f1", "Serine/threonine protein kinase"),
+    ("f2", "Histidine kinase"),
+    ("f3", "hypothetical protein"),
+    ("f4", "Histidine kinase"),
+    ("f5", "DNA polymerase III subunit alpha"),
+    ("f6", "kinase-associated protein B"),
+]
+
+
+def scan(features, function_list):
+    """Find features the way get_feature_ids did before the index."""
+    return set(feature_id for feature_id, function in features
+               if any(function.find(f) >= 0 for f in function_list))
+
+
+class TestFunctionIndex(unittest.TestCase):
+
+    def setUp(self):
+        self.index = function_index.build_index(FEATURES)
+
+    def test_distinct_functions_are_indexed_once(self):
+        self.assertEqual(len(self.index["functions"]), 5)
+        n = self.index["functions"].index("Histidine kinase")
+        self.assertEqual(self.index["feature_ids"][n], ["f2", "f4"])
+
+    def test_substring(self):
+        self.assertEqual(function_index.find_features(self.index, ["kinase"]),
+                         set(["f1", "f2", "f4", "f6"]))
+        self.assertEqual(function_index.find_features(self.index, ["protein"]),
+                         set(["f1", "f3", "f6"]))
+
+    def test_case_sensitive(self):
+        self.assertEqual(function_index.find_features(self.index, ["dna"]), set())
+        self.assertEqual(function_index.find_features(self.index, ["DNA"]), set(["f5"]))
+
+    def test_any_of_several_terms(self):
+        self.assertEqual(function_index.find_features(self.index, ["polymerase", "hypothetical"]),
+                         set(["f3", "f5"]))
+
+    def test_trigrams_present_but_not_substring(self):
+        # every trigram of "Histidinase" is in "Histidine kinase"
+        self.assertEqual(function_index.find_features(self.index, ["Histidinase"]), set())
+
+    def test_unknown_trigram(self):
+        self.assertEqual(function_index.find_features(self.index, ["xyz"]), set())
+
+    def test_short_terms_scan(self):
+        self.assertEqual(function_index.find_features(self.index, ["B"]), set(["f6"]))
+        self.assertEqual(function_index.find_features(self.index, ["II"]), set(["f5"]))
+        self.assertEqual(function_index.find_features(self.index, [""]),
+                         set(x[0] for x in FEATURES))
+
+    def test_empty(self):
+        index = function_index.build_index([])
+        self.assertEqual(function_index.find_features(index, ["kinase"]), set())
+        self.assertEqual(function_index.find_features(self.index, []), set())
+
+    def test_matches_scan(self):
+        rnd = random.Random(7)
+        features = [("f%d" % i, "".join(rnd.choice("abcd ") for _ in range(rnd.randint(0, 12))))
+                    for i in range(500)]
+        index = function_index.build_index(features)
+        for _ in range(200):
+            terms = ["".join(rnd.choice("abcd ") for _ in range(rnd.randint(1, 5)))
+                     for _ in range(rnd.randint(1, 3))]
+            self.assertEqual(function_index.find_features(index, terms), scan(features, terms))
+
+
+if __name__ == '__main__':
+    unittest.main()
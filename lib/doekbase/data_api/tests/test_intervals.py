@@ -0,0 +1,112 @@
+"""
+Test the per-contig interval index over feature locations.
+"""
+
+# stdlib
+import random
+import unittest
+# local
+from doekbase.data_api.annotation.genome_annotation import intervals
+
+
+# locations are [contig_id, start, strand, length]; "-" strand locations
+# start at their rightmost base
+FEATURES = [
+    ("gene1", "gene", [["c1", 100, "+", 100]]),            # [100, 200)
+    ("cds1", "CDS", [["c1", 120, "+", 30],                 # [120, 150)
+                     ["c1", 170, "+", 20]]),               # [170, 190)
+    ("gene2", "gene", [["c1", 399, "-", 100]]),            # [300, 400)
+    ("gene3", "gene", [["c2", 1, "+", 1000]]),             # [1, 1001)
+    ("orphan", "gene", []),
+]
+
+
+def region(contig_id, start, length, strand="?"):
+    return {"contig_id": contig_id, "strand": strand, "start": start, "length": length}
+
+
+class TestIntervals(unittest.TestCase):
+
+    def setUp(self):
+        self.index = intervals.build_index(FEATURES)
+
+    def found(self, r, type_list=None):
+        return set(intervals.features_in_region(self.index, r, type_list).keys())
+
+    def test_location_span(self):
+        self.assertEqual(intervals.location_span(100, "+", 10), (100, 110))
+        self.assertEqual(intervals.location_span(109, "-", 10), (100, 110))
+
+    def test_overlap(self):
+        self.assertEqual(self.found(region("c1", 190, 20)), set(["gene1"]))
+        self.assertEqual(self.found(region("c1", 140, 200)), set(["gene1", "cds1", "gene2"]))
+
+    def test_within(self):
+        # the region lies inside gene1 and in the gap between cds1's exons
+        self.assertEqual(self.found(region("c1", 155, 10)), set(["gene1"]))
+        self.assertEqual(self.found(region("c1", 125, 5)), set(["gene1", "cds1"]))
+
+    def test_enclosing(self):
+        self.assertEqual(self.found(region("c1", 0, 1000)), set(["gene1", "cds1", "gene2"]))
+        # a "-" strand region also starts at its rightmost base
+        self.assertEqual(self.found(region("c1", 999, 1000, "-")), set(["gene2"]))
+
+    def test_edges_are_half_open(self):
+        self.assertEqual(self.found(region("c1", 200, 100)), set())
+        self.assertEqual(self.found(region("c1", 199, 1)), set(["gene1"]))
+        self.assertEqual(self.found(region("c1", 99, 1)), set())
+
+    def test_strand_and_type(self):
+        self.assertEqual(self.found(region("c1", 450, 200, "-")), set(["gene2"]))
+        self.assertEqual(self.found(region("c1", 0, 1000, "+")), set(["gene1", "cds1"]))
+        self.assertEqual(self.found(region("c1", 0, 1000), ["CDS"]), set(["cds1"]))
+
+    def test_unknown_contig(self):
+        self.assertEqual(self.found(region("c3", 0, 1000)), set())
+
+    def test_all_locations_returned(self):
+        ret = intervals.features_in_region(self.index, region("c1", 175, 1))
+        self.assertEqual(ret["cds1"], [
+            {"contig_id": "c1", "strand": "+", "start": 120, "length": 30},
+            {"contig_id": "c1", "strand": "+", "start": 170, "length": 20}])
+
+    def test_overlapping_matches_scan(self):
+        rnd = random.Random(11)
+        for n in [0, 1, 2, 3, 15, 16, 17, 100, 1000]:
+            features = list()
+            for i in range(n):
+                start = rnd.randint(0, 10000)
+                # mostly short intervals with a few long ones that enclose many
+                length = rnd.randint(1, 50) if rnd.random() < 0.9 else rnd.randint(1, 5000)
+                features.append(("f%d" % i, "gene", [["c", start, "+", length]]))
+            contig = intervals.build_index(features)["contigs"].get("c")
+            for _ in range(100):
+                lo = rnd.randint(-100, 10100)
+                hi = lo + rnd.randint(1, 1000)
+                expected = set(f[0] for f in features
+                               if f[2][0][1] < hi and lo < f[2][0][1] + f[2][0][3])
+                got = set() if contig is None else \
+                    set(contig["feature_ids"][i] for i in intervals.overlapping(contig, lo, hi))
+                self.assertEqual(got, expected)
+
+    def test_genomic_page(self):
+        ids, token = intervals.genomic_page(self.index, 2)
+        self.assertEqual(ids, ["gene1", "cds1"])
+        ids, token = intervals.genomic_page(self.index, 2, token)
+        self.assertEqual(ids, ["gene2", "gene3"])
+        ids, token = intervals.genomic_page(self.index, 2, token)
+        self.assertEqual((ids, token), (["orphan"], None))
+
+    def test_genomic_page_selected(self):
+        ids, token = intervals.genomic_page(self.index, 1, None, set(["cds1", "gene3"]))
+        self.assertEqual(ids, ["cds1"])
+        ids, token = intervals.genomic_page(self.index, 1, token, set(["cds1", "gene3"]))
+        self.assertEqual((ids, token), (["gene3"], None))
+
+    def test_genomic_page_errors(self):
+        self.assertRaises(ValueError, intervals.genomic_page, self.index, 0)
+        self.assertRaises(ValueError, intervals.genomic_page, self.index, 1, "not a token")
+
+
+if __name__ == '__main__':
+    unittest.main()
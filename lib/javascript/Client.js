@@ -85,6 +85,21 @@ function data_api2(url, auth, auth_cb, timeout, async_job_check_time_ms) {
         return json_call_ajax("data_api2.get_feature_type_counts",
             [ref, feature_type_list], 1, _callback, _errorCallback);
     };
+
+     this.get_feature_type_counts_multi = function (ref_list, feature_type_list, _callback, _errorCallback) {
+        if (typeof ref_list === 'function')
+            throw 'Argument ref_list can not be a function';
+        if (typeof feature_type_list === 'function')
+            throw 'Argument feature_type_list can not be a function';
+        if (_callback && typeof _callback !== 'function')
+            throw 'Argument _callback must be a function if defined';
+        if (_errorCallback && typeof _errorCallback !== 'function')
+            throw 'Argument _errorCallback must be a function if defined';
+        if (typeof arguments === 'function' && arguments.length > 2+2)
+            throw 'Too many arguments ('+arguments.length+' instead of '+(2+2)+')';
+        return json_call_ajax("data_api2.get_feature_type_counts_multi",
+            [ref_list, feature_type_list], 1, _callback, _errorCallback);
+    };
  
      this.get_feature_ids = function (ref, filters, group_type, _callback, _errorCallback) {
         if (typeof ref === 'function')
@@ -103,19 +118,76 @@ function data_api2(url, auth, auth_cb, timeout, async_job_check_time_ms) {
             [ref, filters, group_type], 1, _callback, _errorCallback);
     };
  
-     this.get_features = function (ref, feature_id_list, _callback, _errorCallback) {
+     this.get_features = function (ref, feature_id_list, field_list, _callback, _errorCallback) {
         if (typeof ref === 'function')
             throw 'Argument ref can not be a function';
         if (typeof feature_id_list === 'function')
             throw 'Argument feature_id_list can not be a function';
+        if (typeof field_list === 'function')
+            throw 'Argument field_list can not be a function';
+        if (_callback && typeof _callback !== 'function')
+            throw 'Argument _callback must be a function if defined';
+        if (_errorCallback && typeof _errorCallback !== 'function')
+            throw 'Argument _errorCallback must be a function if defined';
+        if (typeof arguments === 'function' && arguments.length > 3+2)
+            throw 'Too many arguments ('+arguments.length+' instead of '+(3+2)+')';
+        return json_call_ajax("data_api2.get_features",
+            [ref, feature_id_list, field_list], 1, _callback, _errorCallback);
+    };
+ 
+     this.get_feature_ids_page = function (ref, filters, page_size, continuation_token, _callback, _errorCallback) {
+        if (typeof ref === 'function')
+            throw 'Argument ref can not be a function';
+        if (typeof filters === 'function')
+            throw 'Argument filters can not be a function';
+        if (typeof page_size === 'function')
+            throw 'Argument page_size can not be a function';
+        if (typeof continuation_token === 'function')
+            throw 'Argument continuation_token can not be a function';
+        if (_callback && typeof _callback !== 'function')
+            throw 'Argument _callback must be a function if defined';
+        if (_errorCallback && typeof _errorCallback !== 'function')
+            throw 'Argument _errorCallback must be a function if defined';
+        if (typeof arguments === 'function' && arguments.length > 4+2)
+            throw 'Too many arguments ('+arguments.length+' instead of '+(4+2)+')';
+        return json_call_ajax("data_api2.get_feature_ids_page",
+            [ref, filters, page_size, continuation_token], 1, _callback, _errorCallback);
+    };
+ 
+     this.get_features_page = function (ref, filters, field_list, page_size, continuation_token, _callback, _errorCallback) {
+        if (typeof ref === 'function')
+            throw 'Argument ref can not be a function';
+        if (typeof filters === 'function')
+            throw 'Argument filters can not be a function';
+        if (typeof field_list === 'function')
+            throw 'Argument field_list can not be a function';
+        if (typeof page_size === 'function')
+            throw 'Argument page_size can not be a function';
+        if (typeof continuation_token === 'function')
+            throw 'Argument continuation_token can not be a function';
+        if (_callback && typeof _callback !== 'function')
+            throw 'Argument _callback must be a function if defined';
+        if (_errorCallback && typeof _errorCallback !== 'function')
+            throw 'Argument _errorCallback must be a function if defined';
+        if (typeof arguments === 'function' && arguments.length > 5+2)
+            throw 'Too many arguments ('+arguments.length+' instead of '+(5+2)+')';
+        return json_call_ajax("data_api2.get_features_page",
+            [ref, filters, field_list, page_size, continuation_token], 1, _callback, _errorCallback);
+    };
+
+     this.get_features_multi = function (ref_list, field_list, _callback, _errorCallback) {
+        if (typeof ref_list === 'function')
+            throw 'Argument ref_list can not be a function';
+        if (typeof field_list === 'function')
+            throw 'Argument field_list can not be a function';
         if (_callback && typeof _callback !== 'function')
             throw 'Argument _callback must be a function if defined';
         if (_errorCallback && typeof _errorCallback !== 'function')
             throw 'Argument _errorCallback must be a function if defined';
         if (typeof arguments === 'function' && arguments.length > 2+2)
             throw 'Too many arguments ('+arguments.length+' instead of '+(2+2)+')';
-        return json_call_ajax("data_api2.get_features",
-            [ref, feature_id_list], 1, _callback, _errorCallback);
+        return json_call_ajax("data_api2.get_features_multi",
+            [ref_list, field_list], 1, _callback, _errorCallback);
     };
  
      this.get_proteins = function (ref, _callback, _errorCallback) {
@@ -146,6 +218,23 @@ function data_api2(url, auth, auth_cb, timeout, async_job_check_time_ms) {
             [ref, feature_id_list], 1, _callback, _errorCallback);
     };
  
+     this.get_features_in_region = function (ref, region, feature_type_list, _callback, _errorCallback) {
+        if (typeof ref === 'function')
+            throw 'Argument ref can not be a function';
+        if (typeof region === 'function')
+            throw 'Argument region can not be a function';
+        if (typeof feature_type_list === 'function')
+            throw 'Argument feature_type_list can not be a function';
+        if (_callback && typeof _callback !== 'function')
+            throw 'Argument _callback must be a function if defined';
+        if (_errorCallback && typeof _errorCallback !== 'function')
+            throw 'Argument _errorCallback must be a function if defined';
+        if (typeof arguments === 'function' && arguments.length > 3+2)
+            throw 'Too many arguments ('+arguments.length+' instead of '+(3+2)+')';
+        return json_call_ajax("data_api2.get_features_in_region",
+            [ref, region, feature_type_list], 1, _callback, _errorCallback);
+    };
+ 
      this.get_feature_publications = function (ref, feature_id_list, _callback, _errorCallback) {
         if (typeof ref === 'function')
             throw 'Argument ref can not be a function';
@@ -295,6 +384,19 @@ function data_api2(url, auth, auth_cb, timeout, async_job_check_time_ms) {
         return json_call_ajax("data_api2.get_mrna_by_gene",
             [ref, gene_id_list], 1, _callback, _errorCallback);
     };
+ 
+     this.get_feature_relationships = function (ref, _callback, _errorCallback) {
+        if (typeof ref === 'function')
+            throw 'Argument ref can not be a function';
+        if (_callback && typeof _callback !== 'function')
+            throw 'Argument _callback must be a function if defined';
+        if (_errorCallback && typeof _errorCallback !== 'function')
+            throw 'Argument _errorCallback must be a function if defined';
+        if (typeof arguments === 'function' && arguments.length > 1+2)
+            throw 'Too many arguments ('+arguments.length+' instead of '+(1+2)+')';
+        return json_call_ajax("data_api2.get_feature_relationships",
+            [ref], 1, _callback, _errorCallback);
+    };
   
 
     /*
@@ -0,0 +1,87 @@
+package us.kbase.dataapi2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * HTTP content codings understood by the client. gzip is always
+ * available; zstd is used when the zstd-jni library
+ * (com.github.luben:zstd-jni) is on the class path.
+ */
+final class ContentCoding {
+    static final String GZIP = "gzip";
+    static final String ZSTD = "zstd";
+
+    private static final Constructor<? extends InputStream> ZSTD_IN;
+    private static final Constructor<? extends OutputStream> ZSTD_OUT;
+    static {
+        Constructor<? extends InputStream> in = null;
+        Constructor<? extends OutputStream> out = null;
+        try {
+            in = Class.forName("com.github.luben.zstd.ZstdInputStream").asSubclass(InputStream.class)
+                    .getConstructor(InputStream.class);
+            out = Class.forName("com.github.luben.zstd.ZstdOutputStream").asSubclass(OutputStream.class)
+                    .getConstructor(OutputStream.class);
+        } catch (ReflectiveOperationException e) {
+            in = null;
+            out = null;
+        } catch (LinkageError e) {
+            // the native library could not be loaded
+            in = null;
+            out = null;
+        }
+        ZSTD_IN = in;
+        ZSTD_OUT = out;
+    }
+
+    private ContentCoding() {
+    }
+
+    static boolean isZstdAvailable() {
+        return ZSTD_IN != null;
+    }
+
+    /** The Accept-Encoding header value, fastest coding first. */
+    static String acceptEncoding() {
+        return isZstdAvailable() ? ZSTD + ", " + GZIP : GZIP;
+    }
+
+    /** Wraps a response body in a decoder for its Content-Encoding. */
+    static InputStream decode(InputStream is, String encoding) throws IOException {
+        if (is == null || encoding == null || encoding.isEmpty() || encoding.equalsIgnoreCase("identity")) {
+            return is;
+        }
+        if (encoding.equalsIgnoreCase(GZIP)) {
+            return new GZIPInputStream(is);
+        }
+        if (encoding.equalsIgnoreCase(ZSTD) && ZSTD_IN != null) {
+            return newStream(ZSTD_IN, is);
+        }
+        throw new IOException("Unsupported response Content-Encoding: " + encoding);
+    }
+
+    /** Compresses a request body with the given coding. */
+    static byte[] encode(byte[] body, String encoding) throws IOException {
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(body.length / 4 + 64);
+        OutputStream os = encoding.equals(ZSTD) ? newStream(ZSTD_OUT, buf) : new GZIPOutputStream(buf);
+        try {
+            os.write(body);
+        } finally {
+            os.close();
+        }
+        return buf.toByteArray();
+    }
+
+    private static <T> T newStream(Constructor<T> ctor, Object wrapped) throws IOException {
+        try {
+            return ctor.newInstance(wrapped);
+        } catch (ReflectiveOperationException e) {
+            throw new IOException("Could not set up zstd coding: " + e.getMessage(), e);
+        }
+    }
+}
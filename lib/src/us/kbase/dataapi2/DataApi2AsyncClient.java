@@ -0,0 +1,343 @@
+package us.kbase.dataapi2;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import us.kbase.auth.AuthToken;
+import us.kbase.common.service.JsonClientException;
+import us.kbase.common.service.RpcContext;
+import us.kbase.common.service.UnauthorizedException;
+
+/**
+ * <p>Asynchronous variant of {@link DataApi2Client}.</p>
+ * <pre>
+ * Every data_api2 funcdef is exposed as a method returning a
+ * CompletableFuture. Calls are run on the executor given at construction
+ * time, so independent lookups against the same genome (locations,
+ * functions, aliases, DNA, ...) overlap instead of running back to back.
+ * Any executor may be used; on Java 21 and later
+ * Executors.newVirtualThreadPerTaskExecutor() runs each call on its own
+ * virtual thread.
+ * A failed call completes its future exceptionally with the IOException or
+ * JsonClientException thrown by the underlying synchronous client.
+ * </pre>
+ */
+public class DataApi2AsyncClient {
+    private final DataApi2Client client;
+    private final Executor executor;
+
+    /** Constructs an asynchronous client over an existing synchronous
+     * client.
+     * @param client the client used to make the calls.
+     * @param executor the executor the calls are run on.
+     */
+    public DataApi2AsyncClient(DataApi2Client client, Executor executor) {
+        if (client == null) {
+            throw new NullPointerException("client");
+        }
+        if (executor == null) {
+            throw new NullPointerException("executor");
+        }
+        this.client = client;
+        this.executor = executor;
+    }
+
+    /** Constructs a client with a custom URL and no user credentials.
+     * @param url the URL of the service.
+     * @param executor the executor the calls are run on.
+     */
+    public DataApi2AsyncClient(URL url, Executor executor) {
+        this(new DataApi2Client(url), executor);
+    }
+
+    /** Constructs a client with a custom URL.
+     * @param url the URL of the service.
+     * @param token the user's authorization token.
+     * @param executor the executor the calls are run on.
+     * @throws UnauthorizedException if the token is not valid.
+     * @throws IOException if an IOException occurs when checking the token's
+     * validity.
+     */
+    public DataApi2AsyncClient(URL url, AuthToken token, Executor executor) throws UnauthorizedException, IOException {
+        this(new DataApi2Client(url, token), executor);
+    }
+
+    /** Get the synchronous client this client delegates to. Connection
+     * settings such as timeouts are configured there.
+     * @return the synchronous client.
+     */
+    public DataApi2Client getClient() {
+        return client;
+    }
+
+    /** Get the executor calls are run on.
+     * @return the executor.
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * <p>Original spec-file function name: get_taxon</p>
+     * @see DataApi2Client#getTaxon(String, RpcContext...)
+     */
+    public CompletableFuture<String> getTaxon(final String ref, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getTaxon(ref, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_assembly</p>
+     * @see DataApi2Client#getAssembly(String, RpcContext...)
+     */
+    public CompletableFuture<String> getAssembly(final String ref, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getAssembly(ref, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_types</p>
+     * @see DataApi2Client#getFeatureTypes(String, RpcContext...)
+     */
+    public CompletableFuture<List<String>> getFeatureTypes(final String ref, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeatureTypes(ref, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_type_descriptions</p>
+     * @see DataApi2Client#getFeatureTypeDescriptions(String, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,String>> getFeatureTypeDescriptions(final String ref, final List<String> featureTypeList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeatureTypeDescriptions(ref, featureTypeList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_type_counts</p>
+     * @see DataApi2Client#getFeatureTypeCounts(String, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,Long>> getFeatureTypeCounts(final String ref, final List<String> featureTypeList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeatureTypeCounts(ref, featureTypeList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_type_counts_multi</p>
+     * @see DataApi2Client#getFeatureTypeCountsMulti(List, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,FeatureTypeCountsMultiResult>> getFeatureTypeCountsMulti(final List<String> refList, final List<String> featureTypeList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeatureTypeCountsMulti(refList, featureTypeList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_ids</p>
+     * @see DataApi2Client#getFeatureIds(String, FeatureIdFilters, String, RpcContext...)
+     */
+    public CompletableFuture<FeatureIdMapping> getFeatureIds(final String ref, final FeatureIdFilters filters, final String groupType, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeatureIds(ref, filters, groupType, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_features</p>
+     * @see DataApi2Client#getFeatures(String, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,FeatureData>> getFeatures(final String ref, final List<String> featureIdList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeatures(ref, featureIdList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_features</p>
+     * @see DataApi2Client#getFeatures(String, List, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,FeatureData>> getFeatures(final String ref, final List<String> featureIdList, final List<String> fieldList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeatures(ref, featureIdList, fieldList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_ids_page</p>
+     * @see DataApi2Client#getFeatureIdsPage(String, FeatureIdFilters, Long, String, RpcContext...)
+     */
+    public CompletableFuture<FeatureIdPage> getFeatureIdsPage(final String ref, final FeatureIdFilters filters, final Long pageSize, final String continuationToken, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeatureIdsPage(ref, filters, pageSize, continuationToken, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_features_page</p>
+     * @see DataApi2Client#getFeaturesPage(String, FeatureIdFilters, List, Long, String, RpcContext...)
+     */
+    public CompletableFuture<FeatureDataPage> getFeaturesPage(final String ref, final FeatureIdFilters filters, final List<String> fieldList, final Long pageSize, final String continuationToken, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeaturesPage(ref, filters, fieldList, pageSize, continuationToken, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_features_multi</p>
+     * @see DataApi2Client#getFeaturesMulti(List, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,FeaturesMultiResult>> getFeaturesMulti(final List<String> refList, final List<String> fieldList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeaturesMulti(refList, fieldList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_proteins</p>
+     * @see DataApi2Client#getProteins(String, RpcContext...)
+     */
+    public CompletableFuture<Map<String,ProteinData>> getProteins(final String ref, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getProteins(ref, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_locations</p>
+     * @see DataApi2Client#getFeatureLocations(String, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,List<Region>>> getFeatureLocations(final String ref, final List<String> featureIdList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeatureLocations(ref, featureIdList, jsonRpcContext));
+    }
+
+    /**
+     * @see DataApi2Client#getFeatureLocationArray(String, List, RpcContext...)
+     */
+    public CompletableFuture<RegionArray> getFeatureLocationArray(final String ref, final List<String> featureIdList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeatureLocationArray(ref, featureIdList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_features_in_region</p>
+     * @see DataApi2Client#getFeaturesInRegion(String, Region, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,List<Region>>> getFeaturesInRegion(final String ref, final Region region, final List<String> featureTypeList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeaturesInRegion(ref, region, featureTypeList, jsonRpcContext));
+    }
+
+    /**
+     * @see DataApi2Client#getFeaturesInRegionArray(String, Region, List, RpcContext...)
+     */
+    public CompletableFuture<RegionArray> getFeaturesInRegionArray(final String ref, final Region region, final List<String> featureTypeList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeaturesInRegionArray(ref, region, featureTypeList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_publications</p>
+     * @see DataApi2Client#getFeaturePublications(String, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,List<String>>> getFeaturePublications(final String ref, final List<String> featureIdList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeaturePublications(ref, featureIdList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_dna</p>
+     * @see DataApi2Client#getFeatureDna(String, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,String>> getFeatureDna(final String ref, final List<String> featureIdList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeatureDna(ref, featureIdList, jsonRpcContext));
+    }
+
+    /**
+     * @see DataApi2Client#getFeatureDnaSequences(String, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,NucleotideSequence>> getFeatureDnaSequences(final String ref, final List<String> featureIdList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeatureDnaSequences(ref, featureIdList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_functions</p>
+     * @see DataApi2Client#getFeatureFunctions(String, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,String>> getFeatureFunctions(final String ref, final List<String> featureIdList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeatureFunctions(ref, featureIdList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_aliases</p>
+     * @see DataApi2Client#getFeatureAliases(String, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,List<String>>> getFeatureAliases(final String ref, final List<String> featureIdList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeatureAliases(ref, featureIdList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_cds_by_gene</p>
+     * @see DataApi2Client#getCdsByGene(String, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,List<String>>> getCdsByGene(final String ref, final List<String> geneIdList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getCdsByGene(ref, geneIdList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_cds_by_mrna</p>
+     * @see DataApi2Client#getCdsByMrna(String, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,String>> getCdsByMrna(final String ref, final List<String> mrnaIdList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getCdsByMrna(ref, mrnaIdList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_gene_by_cds</p>
+     * @see DataApi2Client#getGeneByCds(String, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,String>> getGeneByCds(final String ref, final List<String> cdsIdList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getGeneByCds(ref, cdsIdList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_gene_by_mrna</p>
+     * @see DataApi2Client#getGeneByMrna(String, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,String>> getGeneByMrna(final String ref, final List<String> mrnaIdList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getGeneByMrna(ref, mrnaIdList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_mrna_by_cds</p>
+     * @see DataApi2Client#getMrnaByCds(String, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,String>> getMrnaByCds(final String ref, final List<String> geneIdList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getMrnaByCds(ref, geneIdList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_mrna_by_gene</p>
+     * @see DataApi2Client#getMrnaByGene(String, List, RpcContext...)
+     */
+    public CompletableFuture<Map<String,List<String>>> getMrnaByGene(final String ref, final List<String> geneIdList, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getMrnaByGene(ref, geneIdList, jsonRpcContext));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_relationships</p>
+     * @see DataApi2Client#getFeatureRelationships(String, RpcContext...)
+     */
+    public CompletableFuture<FeatureRelationships> getFeatureRelationships(final String ref, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getFeatureRelationships(ref, jsonRpcContext));
+    }
+
+    /**
+     * @see DataApi2Client#getGeneModelGraph(String, RpcContext...)
+     */
+    public CompletableFuture<GeneModelGraph> getGeneModelGraph(final String ref, final RpcContext... jsonRpcContext) {
+        return submit(() -> client.getGeneModelGraph(ref, jsonRpcContext));
+    }
+
+    private <T> CompletableFuture<T> submit(final RpcCall<T> call) {
+        final CompletableFuture<T> future = new CompletableFuture<T>();
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    // cancelled before it got a thread
+                    return;
+                }
+                try {
+                    future.complete(call.call());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RuntimeException e) {
+            // e.g. RejectedExecutionException from a shut down executor
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private interface RpcCall<T> {
+        T call() throws IOException, JsonClientException;
+    }
+}
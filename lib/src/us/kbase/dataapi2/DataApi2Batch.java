@@ -0,0 +1,434 @@
+package us.kbase.dataapi2;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import us.kbase.common.service.JsonClientException;
+import us.kbase.common.service.RpcContext;
+import us.kbase.common.service.ServerException;
+
+/**
+ * <p>A JSON-RPC batch of data_api2 calls.</p>
+ * <pre>
+ * Calls queued on a batch are sent to the server as a single JSON array in
+ * one HTTP request when {@link #execute()} is called. The server answers
+ * with one response per call; calls in the batch that share an object
+ * reference reuse the genome loaded for the first of them.
+ *
+ *     DataApi2Batch batch = client.newBatch();
+ *     DataApi2Batch.Result&lt;Map&lt;String,List&lt;Region&gt;&gt;&gt; locs = batch.getFeatureLocations(ref, ids);
+ *     DataApi2Batch.Result&lt;Map&lt;String,String&gt;&gt; dna = batch.getFeatureDna(ref, ids);
+ *     batch.execute();
+ *     locs.get(); dna.get();
+ *
+ * A call that fails on the server only fails its own Result.
+ * A batch can be executed once.
+ * </pre>
+ */
+public class DataApi2Batch {
+    private final RpcHttpChannel channel;
+    private final Map<String, Result<?>> calls = new LinkedHashMap<String, Result<?>>();
+    private boolean executed = false;
+
+    DataApi2Batch(RpcHttpChannel channel) {
+        this.channel = channel;
+    }
+
+    /** The outcome of one call in a batch. */
+    public static class Result<T> {
+        private final String method;
+        private final List<Object> args;
+        private final TypeReference<List<T>> retType;
+        private final RpcContext[] context;
+        private boolean done = false;
+        private T value = null;
+        private JsonClientException error = null;
+
+        private Result(String method, List<Object> args, TypeReference<List<T>> retType, RpcContext[] context) {
+            this.method = method;
+            this.args = args;
+            this.retType = retType;
+            this.context = context;
+        }
+
+        /** Get the value returned by the server for this call.
+         * @return the call's return value.
+         * @throws JsonClientException if the server reported an error for
+         * this call.
+         * @throws IllegalStateException if the batch has not been executed.
+         */
+        public T get() throws JsonClientException {
+            if (!done) {
+                throw new IllegalStateException("The batch containing " + method + " has not been executed");
+            }
+            if (error != null) {
+                throw error;
+            }
+            return value;
+        }
+
+        /** Returns true if the server reported an error for this call.
+         * @return true if the call failed.
+         */
+        public boolean isError() {
+            return done && error != null;
+        }
+
+        /** Get the name of the method this call invokes.
+         * @return the fully qualified method name.
+         */
+        public String getMethod() {
+            return method;
+        }
+    }
+
+    /** Get the number of calls queued on this batch.
+     * @return the number of calls.
+     */
+    public int size() {
+        return calls.size();
+    }
+
+    /** Sends all queued calls to the server in one request and fills in
+     * their results.
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if the batch as a whole was rejected by
+     * the server
+     */
+    public void execute() throws IOException, JsonClientException {
+        if (executed) {
+            throw new IllegalStateException("This batch has already been executed");
+        }
+        executed = true;
+        if (calls.isEmpty()) {
+            return;
+        }
+        TransportResponse response = channel.post(new TransportRequest.BodyWriter() {
+            @Override
+            public void writeTo(OutputStream os) throws IOException {
+                JsonGenerator g = RpcHttpChannel.mapper().getFactory().createGenerator(os);
+                g.writeStartArray();
+                for (Map.Entry<String, Result<?>> call : calls.entrySet()) {
+                    Result<?> r = call.getValue();
+                    RpcHttpChannel.writeCall(g, r.method, r.args, call.getKey(), r.context);
+                }
+                g.writeEndArray();
+                g.flush();
+            }
+        }, WireFormat.JSON, true, true);
+        InputStream is = channel.responseStream(response);
+        try {
+            ObjectMapper mapper = RpcHttpChannel.responseMapper(response);
+            JsonParser jp = mapper.getFactory().createParser(is);
+            JsonToken first = jp.nextToken();
+            if (first == JsonToken.START_OBJECT) {
+                // the server rejected the whole batch
+                RpcHttpChannel.checkError(jp.readValueAsTree());
+                throw new ServerException("Expected an array of responses for a batch request", 0,
+                        "Unknown", null);
+            }
+            if (first != JsonToken.START_ARRAY) {
+                throw new JsonClientException("Unexpected token in batch response: " + first);
+            }
+            while (jp.nextToken() == JsonToken.START_OBJECT) {
+                JsonNode resp = jp.readValueAsTree();
+                Result<?> r = calls.get(resp.path("id").asText());
+                if (r != null) {
+                    complete(mapper, r, resp);
+                }
+            }
+        } finally {
+            is.close();
+        }
+        for (Result<?> r : calls.values()) {
+            if (!r.done) {
+                r.error = new JsonClientException("No response was received for " + r.method);
+                r.done = true;
+            }
+        }
+    }
+
+    private static <T> void complete(ObjectMapper mapper, Result<T> r, JsonNode resp) {
+        try {
+            RpcHttpChannel.checkError(resp);
+            JsonNode result = resp.get("result");
+            if (result == null || !result.isArray() || result.size() == 0) {
+                throw new JsonClientException("No result was returned for " + r.method);
+            }
+            List<T> res = mapper.readValue(mapper.treeAsTokens(result), r.retType);
+            r.value = res.get(0);
+        } catch (JsonClientException e) {
+            r.error = e;
+        } catch (IOException e) {
+            r.error = new JsonClientException("Could not parse the result of " + r.method + ": " + e.getMessage(), e);
+        }
+        r.done = true;
+    }
+
+    private <T> Result<T> add(String method, List<Object> args, TypeReference<List<T>> retType, RpcContext... jsonRpcContext) {
+        if (executed) {
+            throw new IllegalStateException("This batch has already been executed");
+        }
+        Result<T> r = new Result<T>(method, args, retType, jsonRpcContext);
+        String id = RpcHttpChannel.newCallId();
+        while (calls.containsKey(id)) {
+            id = RpcHttpChannel.newCallId();
+        }
+        calls.put(id, r);
+        return r;
+    }
+
+    private static List<Object> args(Object... values) {
+        List<Object> args = new ArrayList<Object>();
+        for (Object v : values) {
+            args.add(v);
+        }
+        return args;
+    }
+
+    /**
+     * <p>Original spec-file function name: get_taxon</p>
+     * @see DataApi2Client#getTaxon(String, RpcContext...)
+     */
+    public Result<String> getTaxon(String ref, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_taxon", args(ref), new TypeReference<List<String>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_assembly</p>
+     * @see DataApi2Client#getAssembly(String, RpcContext...)
+     */
+    public Result<String> getAssembly(String ref, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_assembly", args(ref), new TypeReference<List<String>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_types</p>
+     * @see DataApi2Client#getFeatureTypes(String, RpcContext...)
+     */
+    public Result<List<String>> getFeatureTypes(String ref, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_feature_types", args(ref), new TypeReference<List<List<String>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_type_descriptions</p>
+     * @see DataApi2Client#getFeatureTypeDescriptions(String, List, RpcContext...)
+     */
+    public Result<Map<String,String>> getFeatureTypeDescriptions(String ref, List<String> featureTypeList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_feature_type_descriptions", args(ref, featureTypeList), new TypeReference<List<Map<String,String>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_type_counts</p>
+     * @see DataApi2Client#getFeatureTypeCounts(String, List, RpcContext...)
+     */
+    public Result<Map<String,Long>> getFeatureTypeCounts(String ref, List<String> featureTypeList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_feature_type_counts", args(ref, featureTypeList), new TypeReference<List<Map<String,Long>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_type_counts_multi</p>
+     * @see DataApi2Client#getFeatureTypeCountsMulti(List, List, RpcContext...)
+     */
+    public Result<Map<String,FeatureTypeCountsMultiResult>> getFeatureTypeCountsMulti(List<String> refList, List<String> featureTypeList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_feature_type_counts_multi", args(refList, featureTypeList), new TypeReference<List<Map<String,FeatureTypeCountsMultiResult>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_ids</p>
+     * @see DataApi2Client#getFeatureIds(String, FeatureIdFilters, String, RpcContext...)
+     */
+    public Result<FeatureIdMapping> getFeatureIds(String ref, FeatureIdFilters filters, String groupType, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_feature_ids", args(ref, filters, groupType), new TypeReference<List<FeatureIdMapping>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_features</p>
+     * @see DataApi2Client#getFeatures(String, List, RpcContext...)
+     */
+    public Result<Map<String,FeatureData>> getFeatures(String ref, List<String> featureIdList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_features", args(ref, featureIdList), new TypeReference<List<Map<String,FeatureData>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_features</p>
+     * @see DataApi2Client#getFeatures(String, List, List, RpcContext...)
+     */
+    public Result<Map<String,FeatureData>> getFeatures(String ref, List<String> featureIdList, List<String> fieldList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_features", args(ref, featureIdList, fieldList), new TypeReference<List<Map<String,FeatureData>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_ids_page</p>
+     * @see DataApi2Client#getFeatureIdsPage(String, FeatureIdFilters, Long, String, RpcContext...)
+     */
+    public Result<FeatureIdPage> getFeatureIdsPage(String ref, FeatureIdFilters filters, Long pageSize, String continuationToken, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_feature_ids_page", args(ref, filters, pageSize, continuationToken), new TypeReference<List<FeatureIdPage>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_features_page</p>
+     * @see DataApi2Client#getFeaturesPage(String, FeatureIdFilters, List, Long, String, RpcContext...)
+     */
+    public Result<FeatureDataPage> getFeaturesPage(String ref, FeatureIdFilters filters, List<String> fieldList, Long pageSize, String continuationToken, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_features_page", args(ref, filters, fieldList, pageSize, continuationToken), new TypeReference<List<FeatureDataPage>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_features_multi</p>
+     * @see DataApi2Client#getFeaturesMulti(List, List, RpcContext...)
+     */
+    public Result<Map<String,FeaturesMultiResult>> getFeaturesMulti(List<String> refList, List<String> fieldList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_features_multi", args(refList, fieldList), new TypeReference<List<Map<String,FeaturesMultiResult>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_proteins</p>
+     * @see DataApi2Client#getProteins(String, RpcContext...)
+     */
+    public Result<Map<String,ProteinData>> getProteins(String ref, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_proteins", args(ref), new TypeReference<List<Map<String,ProteinData>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_locations</p>
+     * @see DataApi2Client#getFeatureLocations(String, List, RpcContext...)
+     */
+    public Result<Map<String,List<Region>>> getFeatureLocations(String ref, List<String> featureIdList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_feature_locations", args(ref, featureIdList), new TypeReference<List<Map<String,List<Region>>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * @see DataApi2Client#getFeatureLocationArray(String, List, RpcContext...)
+     */
+    public Result<RegionArray> getFeatureLocationArray(String ref, List<String> featureIdList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_feature_locations", args(ref, featureIdList), new TypeReference<List<RegionArray>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_features_in_region</p>
+     * @see DataApi2Client#getFeaturesInRegion(String, Region, List, RpcContext...)
+     */
+    public Result<Map<String,List<Region>>> getFeaturesInRegion(String ref, Region region, List<String> featureTypeList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_features_in_region", args(ref, region, featureTypeList), new TypeReference<List<Map<String,List<Region>>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * @see DataApi2Client#getFeaturesInRegionArray(String, Region, List, RpcContext...)
+     */
+    public Result<RegionArray> getFeaturesInRegionArray(String ref, Region region, List<String> featureTypeList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_features_in_region", args(ref, region, featureTypeList), new TypeReference<List<RegionArray>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_publications</p>
+     * @see DataApi2Client#getFeaturePublications(String, List, RpcContext...)
+     */
+    public Result<Map<String,List<String>>> getFeaturePublications(String ref, List<String> featureIdList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_feature_publications", args(ref, featureIdList), new TypeReference<List<Map<String,List<String>>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_dna</p>
+     * @see DataApi2Client#getFeatureDna(String, List, RpcContext...)
+     */
+    public Result<Map<String,String>> getFeatureDna(String ref, List<String> featureIdList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_feature_dna", args(ref, featureIdList), new TypeReference<List<Map<String,String>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * @see DataApi2Client#getFeatureDnaSequences(String, List, RpcContext...)
+     */
+    public Result<Map<String,NucleotideSequence>> getFeatureDnaSequences(String ref, List<String> featureIdList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_feature_dna", args(ref, featureIdList), new TypeReference<List<Map<String,NucleotideSequence>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_functions</p>
+     * @see DataApi2Client#getFeatureFunctions(String, List, RpcContext...)
+     */
+    public Result<Map<String,String>> getFeatureFunctions(String ref, List<String> featureIdList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_feature_functions", args(ref, featureIdList), new TypeReference<List<Map<String,String>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_aliases</p>
+     * @see DataApi2Client#getFeatureAliases(String, List, RpcContext...)
+     */
+    public Result<Map<String,List<String>>> getFeatureAliases(String ref, List<String> featureIdList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_feature_aliases", args(ref, featureIdList), new TypeReference<List<Map<String,List<String>>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_cds_by_gene</p>
+     * @see DataApi2Client#getCdsByGene(String, List, RpcContext...)
+     */
+    public Result<Map<String,List<String>>> getCdsByGene(String ref, List<String> geneIdList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_cds_by_gene", args(ref, geneIdList), new TypeReference<List<Map<String,List<String>>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_cds_by_mrna</p>
+     * @see DataApi2Client#getCdsByMrna(String, List, RpcContext...)
+     */
+    public Result<Map<String,String>> getCdsByMrna(String ref, List<String> mrnaIdList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_cds_by_mrna", args(ref, mrnaIdList), new TypeReference<List<Map<String,String>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_gene_by_cds</p>
+     * @see DataApi2Client#getGeneByCds(String, List, RpcContext...)
+     */
+    public Result<Map<String,String>> getGeneByCds(String ref, List<String> cdsIdList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_gene_by_cds", args(ref, cdsIdList), new TypeReference<List<Map<String,String>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_gene_by_mrna</p>
+     * @see DataApi2Client#getGeneByMrna(String, List, RpcContext...)
+     */
+    public Result<Map<String,String>> getGeneByMrna(String ref, List<String> mrnaIdList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_gene_by_mrna", args(ref, mrnaIdList), new TypeReference<List<Map<String,String>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_mrna_by_cds</p>
+     * @see DataApi2Client#getMrnaByCds(String, List, RpcContext...)
+     */
+    public Result<Map<String,String>> getMrnaByCds(String ref, List<String> geneIdList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_mrna_by_cds", args(ref, geneIdList), new TypeReference<List<Map<String,String>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_mrna_by_gene</p>
+     * @see DataApi2Client#getMrnaByGene(String, List, RpcContext...)
+     */
+    public Result<Map<String,List<String>>> getMrnaByGene(String ref, List<String> geneIdList, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_mrna_by_gene", args(ref, geneIdList), new TypeReference<List<Map<String,List<String>>>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_relationships</p>
+     * @see DataApi2Client#getFeatureRelationships(String, RpcContext...)
+     */
+    public Result<FeatureRelationships> getFeatureRelationships(String ref, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_feature_relationships", args(ref), new TypeReference<List<FeatureRelationships>>() {}, jsonRpcContext);
+    }
+
+    /**
+     * @see DataApi2Client#getGeneModelGraph(String, RpcContext...)
+     */
+    public Result<GeneModelGraph> getGeneModelGraph(String ref, RpcContext... jsonRpcContext) {
+        return add("data_api2.get_feature_relationships", args(ref), new TypeReference<List<GeneModelGraph>>() {}, jsonRpcContext);
+    }
+}
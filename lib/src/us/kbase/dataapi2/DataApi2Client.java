@@ -5,8 +5,14 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import us.kbase.auth.AuthToken;
 import us.kbase.common.service.JsonClientCaller;
 import us.kbase.common.service.JsonClientException;
@@ -18,9 +24,36 @@ import us.kbase.common.service.UnauthorizedException;
  * <pre>
  * A KBase module: data_api2
  * </pre>
+ * <p>This client was generated by kb-sdk and has since been extended by
+ * hand with client settings, batches, streaming and paging methods and
+ * the methods that have no spec function, so it must not be regenerated
+ * with kb-sdk compile. Calls are routed through caches, chunking and
+ * transports by RpcCallRouter, outside this file.</p>
  */
 public class DataApi2Client {
+    /** Default size in bytes from which request bodies are compressed. */
+    public static final int DEFAULT_REQUEST_COMPRESSION_THRESHOLD = 8 * 1024;
+    /** Default number of genomes sent in one request by the streaming
+     * multi-genome methods. */
+    public static final int DEFAULT_MULTI_REF_CHUNK_SIZE = 25;
+    /** Path of the streaming feature export below the service URL. */
+    private static final String FEATURE_EXPORT_PATH = "/export/features";
+
     private JsonClientCaller caller;
+    private final RpcHttpChannel channel = new RpcHttpChannel(this);
+    private Integer connectionReadTimeOut = null;
+    private final FeatureIdChunker chunker = new FeatureIdChunker();
+    private final RpcCallRouter router = new RpcCallRouter(this, channel, chunker);
+    private volatile VersionedRefCache responseCache = null;
+    private volatile MappedResponseStore responseStore = null;
+    private volatile VersionedRefCache featureCache = null;
+    private volatile long responseSpillThreshold = 0;
+    private volatile File spillDirectory = null;
+    private volatile boolean compressionEnabled = false;
+    private volatile int requestCompressionThreshold = DEFAULT_REQUEST_COMPRESSION_THRESHOLD;
+    private volatile boolean messagePackEnabled = false;
+    private volatile DataApi2Transport transport = null;
+    private volatile int multiRefChunkSize = DEFAULT_MULTI_REF_CHUNK_SIZE;
 
 
     /** Constructs a client with a custom URL and no user credentials.
@@ -73,6 +106,15 @@ public class DataApi2Client {
      */
     public void setConnectionReadTimeOut(Integer milliseconds) {
         this.caller.setConnectionReadTimeOut(milliseconds);
+        this.connectionReadTimeOut = milliseconds;
+    }
+
+    /** Get the timeout between establishing a connection to a server and
+     * receiving a response.
+     * @return the read timeout in milliseconds, or null if none has been set.
+     */
+    public Integer getConnectionReadTimeOut() {
+        return this.connectionReadTimeOut;
     }
 
     /** Check if this client allows insecure http (vs https) connections.
@@ -137,6 +179,261 @@ public class DataApi2Client {
 
     public void _setFileForNextRpcResponse(File f) {
         caller.setFileForNextRpcResponse(f);
+        router.setFileForNextRpcResponse(f != null);
+    }
+
+    /** Starts a new JSON-RPC batch. Calls queued on the batch are sent to
+     * the server together in a single HTTP request when the batch is
+     * executed.
+     * @return a new, empty batch.
+     */
+    public DataApi2Batch newBatch() {
+        return new DataApi2Batch(channel);
+    }
+
+    /** Set the maximum number of IDs sent in one request by the methods
+     * that take a list of feature, gene, mRNA or CDS IDs. Longer lists are
+     * split into chunks of this size, the chunks are fetched concurrently
+     * and the results are merged. Default 5000.
+     * @param chunkSize the maximum number of IDs per request. Zero or less
+     * disables chunking.
+     */
+    public void setFeatureIdChunkSize(int chunkSize) {
+        chunker.setChunkSize(chunkSize);
+    }
+
+    /** Get the maximum number of IDs sent in one request.
+     * @return the chunk size, zero or less if chunking is disabled.
+     */
+    public int getFeatureIdChunkSize() {
+        return chunker.getChunkSize();
+    }
+
+    /** Set the maximum number of chunks of one call that may be in flight
+     * at the same time. Default 4.
+     * @param maxParallelChunks the maximum number of concurrent requests
+     * per call, at least 1.
+     */
+    public void setMaxParallelChunks(int maxParallelChunks) {
+        chunker.setMaxParallelChunks(maxParallelChunks);
+    }
+
+    /** Get the maximum number of chunks of one call that may be in flight
+     * at the same time.
+     * @return the maximum number of concurrent requests per call.
+     */
+    public int getMaxParallelChunks() {
+        return chunker.getMaxParallelChunks();
+    }
+
+    /** Set the number of genomes sent in one request by the streaming
+     * multi-genome methods, such as
+     * {@link #streamFeaturesMulti(List, List, BiConsumer, RpcContext...)}.
+     * Each request's results are handed on as soon as it completes, so
+     * smaller chunks deliver the first results sooner at the cost of more
+     * requests. Default {@link #DEFAULT_MULTI_REF_CHUNK_SIZE}.
+     * @param chunkSize the number of genomes per request, at least 1.
+     */
+    public void setMultiRefChunkSize(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("At least one genome must be sent per request");
+        }
+        multiRefChunkSize = chunkSize;
+    }
+
+    /** Get the number of genomes sent in one request by the streaming
+     * multi-genome methods.
+     * @return the number of genomes per request.
+     */
+    public int getMultiRefChunkSize() {
+        return multiRefChunkSize;
+    }
+
+    /** Set the executor used to fetch chunks concurrently. By default a
+     * shared pool of daemon threads is used.
+     * @param executor the executor, or null to use the default.
+     */
+    public void setExecutor(Executor executor) {
+        chunker.setExecutor(executor);
+    }
+
+    /** Set a cache for responses about versioned object references
+     * (ws_id/obj_id/version). Such objects never change, so a cached
+     * response is returned without contacting the server. The cache may be
+     * shared between clients: responses are cached per user, so a client
+     * is never answered with one fetched under another user's token.
+     * Default none.
+     * @param cache the cache, or null to disable caching.
+     */
+    public void setResponseCache(VersionedRefCache cache) {
+        this.responseCache = cache;
+    }
+
+    /** Get the cache for responses about versioned object references.
+     * @return the cache, or null if caching is disabled.
+     */
+    public VersionedRefCache getResponseCache() {
+        return responseCache;
+    }
+
+    /** Set a persistent on-disk store for responses about versioned object
+     * references, consulted after the response cache. Responses fetched
+     * from the server are added to both, keyed per user as in the cache.
+     * Default none.
+     * @param store the store, or null to disable it.
+     */
+    public void setResponseStore(MappedResponseStore store) {
+        this.responseStore = store;
+    }
+
+    /** Get the persistent store for responses about versioned object
+     * references.
+     * @return the store, or null if it is disabled.
+     */
+    public MappedResponseStore getResponseStore() {
+        return responseStore;
+    }
+
+    /** Set a cache of individual features for versioned object references,
+     * used by getFeatures, getFeatureLocations, getFeatureDna,
+     * getFeatureFunctions and getFeatureAliases. Only the feature IDs not
+     * already cached are requested from the server. Features are cached
+     * per user, so the cache may be shared between clients. Default none.
+     * @param cache the cache, or null to disable per-feature caching.
+     */
+    public void setFeatureCache(VersionedRefCache cache) {
+        this.featureCache = cache;
+    }
+
+    /** Get the cache of individual features for versioned object references.
+     * @return the cache, or null if per-feature caching is disabled.
+     */
+    public VersionedRefCache getFeatureCache() {
+        return featureCache;
+    }
+
+    /** Spill responses larger than the given size to a temporary file
+     * instead of parsing them on the heap. Applies to the methods that
+     * return a mapping from IDs to data; such a response is returned as a
+     * {@link SpilledResultMap} whose values are decoded from the mapped file
+     * when accessed. Spilled responses are not added to the response
+     * cache, response store or feature cache, which would have to hold
+     * them on the heap; features found in the feature cache are merged
+     * into the spilled map still serialized. Default 0 (disabled).
+     * @param bytes the size above which responses are spilled, or 0 to
+     * disable spilling.
+     */
+    public void setResponseSpillThreshold(long bytes) {
+        this.responseSpillThreshold = bytes;
+    }
+
+    /** Get the size above which responses are spilled to disk.
+     * @return the threshold in bytes, or 0 if spilling is disabled.
+     */
+    public long getResponseSpillThreshold() {
+        return responseSpillThreshold;
+    }
+
+    /** Set the directory for spilled responses.
+     * @param dir the directory, or null for the default temporary-file
+     * directory.
+     */
+    public void setSpillDirectory(File dir) {
+        this.spillDirectory = dir;
+    }
+
+    /** Get the directory for spilled responses.
+     * @return the directory, or null for the default temporary-file
+     * directory.
+     */
+    public File getSpillDirectory() {
+        return spillDirectory;
+    }
+
+    /** Enable compressed transfer. Responses are requested with
+     * Accept-Encoding gzip, plus zstd when zstd-jni is on the class path, and
+     * request bodies of at least the request compression threshold are sent
+     * gzip (or zstd, once the server has shown it supports it) compressed.
+     * The server decides from what size to compress responses. Default
+     * false.
+     * @param enabled true to enable compression.
+     */
+    public void setCompressionEnabled(boolean enabled) {
+        this.compressionEnabled = enabled;
+    }
+
+    /** Returns true if compressed transfer is enabled.
+     * @return true if compression is enabled.
+     */
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    /** Set the size from which request bodies are compressed when
+     * compression is enabled. Default
+     * {@link #DEFAULT_REQUEST_COMPRESSION_THRESHOLD}.
+     * @param bytes the minimum size of a compressed request body.
+     */
+    public void setRequestCompressionThreshold(int bytes) {
+        this.requestCompressionThreshold = bytes;
+    }
+
+    /** Get the size from which request bodies are compressed.
+     * @return the threshold in bytes.
+     */
+    public int getRequestCompressionThreshold() {
+        return requestCompressionThreshold;
+    }
+
+    /** Enable MessagePack encoded calls. Single calls and batches ask for
+     * MessagePack responses, and once the server has answered in
+     * MessagePack single calls are sent that way too; a server that does not
+     * support it keeps answering in JSON. Takes effect only when
+     * jackson-dataformat-msgpack (org.msgpack:jackson-dataformat-msgpack) is
+     * on the class path. Spilled and streamed responses are always JSON.
+     * Default false.
+     * @param enabled true to enable MessagePack.
+     */
+    public void setMessagePackEnabled(boolean enabled) {
+        this.messagePackEnabled = enabled;
+    }
+
+    /** Returns true if MessagePack encoded calls are enabled.
+     * @return true if MessagePack is enabled.
+     */
+    public boolean isMessagePackEnabled() {
+        return messagePackEnabled;
+    }
+
+    /** Set the transport that carries calls to the service, e.g.
+     * {@link HttpClientTransport#getShared()} to multiplex calls from many
+     * clients over pooled HTTP/2 connections, or an
+     * {@link InMemoryTransport} in tests. By default ordinary calls are
+     * made through JsonClientCaller, and batches, streamed, spilled,
+     * compressed and MessagePack calls through {@link UrlConnectionTransport}.
+     * @param transport the transport, or null for the default.
+     */
+    public void setTransport(DataApi2Transport transport) {
+        this.transport = transport;
+    }
+
+    /** Get the transport that carries batches, streamed, spilled,
+     * compressed and MessagePack calls, and all calls if one was set.
+     * @return the transport.
+     */
+    public DataApi2Transport getTransport() {
+        DataApi2Transport t = transport;
+        return t == null ? UrlConnectionTransport.getInstance() : t;
+    }
+
+    /** Returns true if a transport was set, so all calls go through it. */
+    boolean isTransportSet() {
+        return transport != null;
+    }
+
+    private <RET> List<RET> jsonrpcCall(String method, List<Object> args, TypeReference<List<RET>> retType,
+            boolean ret, boolean authRequired, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        return router.call(caller, method, args, retType, ret, authRequired, jsonRpcContext);
     }
 
     /**
@@ -155,7 +452,7 @@ public class DataApi2Client {
         List<Object> args = new ArrayList<Object>();
         args.add(ref);
         TypeReference<List<String>> retType = new TypeReference<List<String>>() {};
-        List<String> res = caller.jsonrpcCall("data_api2.get_taxon", args, retType, true, true, jsonRpcContext);
+        List<String> res = jsonrpcCall("data_api2.get_taxon", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
@@ -175,7 +472,7 @@ public class DataApi2Client {
         List<Object> args = new ArrayList<Object>();
         args.add(ref);
         TypeReference<List<String>> retType = new TypeReference<List<String>>() {};
-        List<String> res = caller.jsonrpcCall("data_api2.get_assembly", args, retType, true, true, jsonRpcContext);
+        List<String> res = jsonrpcCall("data_api2.get_assembly", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
@@ -195,7 +492,7 @@ public class DataApi2Client {
         List<Object> args = new ArrayList<Object>();
         args.add(ref);
         TypeReference<List<List<String>>> retType = new TypeReference<List<List<String>>>() {};
-        List<List<String>> res = caller.jsonrpcCall("data_api2.get_feature_types", args, retType, true, true, jsonRpcContext);
+        List<List<String>> res = jsonrpcCall("data_api2.get_feature_types", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
@@ -217,7 +514,7 @@ public class DataApi2Client {
         args.add(ref);
         args.add(featureTypeList);
         TypeReference<List<Map<String,String>>> retType = new TypeReference<List<Map<String,String>>>() {};
-        List<Map<String,String>> res = caller.jsonrpcCall("data_api2.get_feature_type_descriptions", args, retType, true, true, jsonRpcContext);
+        List<Map<String,String>> res = jsonrpcCall("data_api2.get_feature_type_descriptions", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
@@ -239,10 +536,48 @@ public class DataApi2Client {
         args.add(ref);
         args.add(featureTypeList);
         TypeReference<List<Map<String,Long>>> retType = new TypeReference<List<Map<String,Long>>>() {};
-        List<Map<String,Long>> res = caller.jsonrpcCall("data_api2.get_feature_type_counts", args, retType, true, true, jsonRpcContext);
+        List<Map<String,Long>> res = jsonrpcCall("data_api2.get_feature_type_counts", args, retType, true, true, jsonRpcContext);
+        return res.get(0);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_type_counts_multi</p>
+     * <pre>
+     * *
+     * * Retrieve the count of each Feature type in each of several
+     * * GenomeAnnotations, as get_feature_type_counts does for one. The
+     * * GenomeAnnotations are read concurrently; one that cannot be read
+     * * gets an error in its result rather than failing the call.
+     * *
+     * </pre>
+     * @param   refList   instance of list of original type "ObjectReference" (A string representing a reference id.)
+     * @param   featureTypeList   instance of list of String
+     * @return   instance of mapping from original type "ObjectReference" (A string representing a reference id.) to type {@link us.kbase.dataapi2.FeatureTypeCountsMultiResult FeatureTypeCountsMultiResult} (original type "Feature_type_counts_multi_result")
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public Map<String,FeatureTypeCountsMultiResult> getFeatureTypeCountsMulti(List<String> refList, List<String> featureTypeList, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        List<Object> args = new ArrayList<Object>();
+        args.add(refList);
+        args.add(featureTypeList);
+        TypeReference<List<Map<String,FeatureTypeCountsMultiResult>>> retType = new TypeReference<List<Map<String,FeatureTypeCountsMultiResult>>>() {};
+        List<Map<String,FeatureTypeCountsMultiResult>> res = jsonrpcCall("data_api2.get_feature_type_counts_multi", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
+    /** Streams the results of getFeatureTypeCountsMulti to a consumer,
+     * genome by genome, as they complete; see
+     * {@link #streamFeaturesMulti(List, List, BiConsumer, RpcContext...)}.
+     * @param   refList   instance of list of original type "ObjectReference" (A string representing a reference id.)
+     * @param   featureTypeList   instance of list of String
+     * @param   consumer   receives each genome's reference and result
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public void streamFeatureTypeCountsMulti(List<String> refList, List<String> featureTypeList, BiConsumer<String, FeatureTypeCountsMultiResult> consumer, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        streamMulti(refList, refs -> getFeatureTypeCountsMulti(refs, featureTypeList, jsonRpcContext), consumer);
+    }
+
     /**
      * <p>Original spec-file function name: get_feature_ids</p>
      * <pre>
@@ -263,10 +598,24 @@ public class DataApi2Client {
         args.add(filters);
         args.add(groupType);
         TypeReference<List<FeatureIdMapping>> retType = new TypeReference<List<FeatureIdMapping>>() {};
-        List<FeatureIdMapping> res = caller.jsonrpcCall("data_api2.get_feature_ids", args, retType, true, true, jsonRpcContext);
+        List<FeatureIdMapping> res = jsonrpcCall("data_api2.get_feature_ids", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
+    /** Loads one version of a GenomeAnnotation with
+     * {@link #getGenomeSnapshot} and builds a {@link FeatureFilterEngine}
+     * on it, which then answers getFeatureIds for any filters without
+     * further calls.
+     * @param   ref   instance of original type "ObjectReference", which must be versioned (ws_id/obj_id/version).
+     * @return   the engine.
+     * @throws IllegalArgumentException if the reference is not versioned.
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public FeatureFilterEngine getFeatureFilterEngine(String ref, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        return FeatureFilterEngine.of(getGenomeSnapshot(ref, jsonRpcContext));
+    }
+
     /**
      * <p>Original spec-file function name: get_features</p>
      * <pre>
@@ -281,14 +630,329 @@ public class DataApi2Client {
      * @throws JsonClientException if a JSON RPC exception occurs
      */
     public Map<String,FeatureData> getFeatures(String ref, List<String> featureIdList, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        return getFeatures(ref, featureIdList, null, jsonRpcContext);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_features</p>
+     * <pre>
+     * *
+     * * Retrieve Feature data available in this GenomeAnnotation.
+     * * field_list names the Feature_data fields to return, e.g.
+     * * ["feature_type", "feature_locations"]; if it is null or empty, all
+     * * fields are returned. It may be left out.
+     * *
+     * </pre>
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @param   featureIdList   instance of list of String
+     * @param   fieldList   instance of list of String, or null for all fields
+     * @return   instance of mapping from String to type {@link us.kbase.dataapi2.FeatureData FeatureData} (original type "Feature_data")
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public Map<String,FeatureData> getFeatures(String ref, List<String> featureIdList, List<String> fieldList, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
         List<Object> args = new ArrayList<Object>();
         args.add(ref);
         args.add(featureIdList);
+        if (fieldList != null) {
+            // whole features are cached per feature; projected ones are not
+            args.add(fieldList);
+        }
         TypeReference<List<Map<String,FeatureData>>> retType = new TypeReference<List<Map<String,FeatureData>>>() {};
-        List<Map<String,FeatureData>> res = caller.jsonrpcCall("data_api2.get_features", args, retType, true, true, jsonRpcContext);
+        List<Map<String,FeatureData>> res = jsonrpcCall("data_api2.get_features", args, retType, true, true, jsonRpcContext);
+        return res.get(0);
+    }
+
+    /** Streams the features of getFeatures to a consumer as the response is
+     * read, without holding the whole result in memory. A long ID list is
+     * fetched in sequential requests of at most the feature ID chunk size.
+     * The response caches are not used.
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @param   featureIdList   instance of list of String, or null for all features
+     * @param   consumer   receives each feature in turn
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public void streamFeatures(String ref, List<String> featureIdList, Consumer<FeatureData> consumer, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        streamFeatures(ref, featureIdList, null, consumer, jsonRpcContext);
+    }
+
+    /** Streams the given fields of the features of getFeatures to a
+     * consumer; see {@link #streamFeatures(String, List, Consumer, RpcContext...)}.
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @param   featureIdList   instance of list of String, or null for all features
+     * @param   fieldList   instance of list of String, or null for all fields
+     * @param   consumer   receives each feature in turn
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public void streamFeatures(String ref, List<String> featureIdList, List<String> fieldList, Consumer<FeatureData> consumer, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        ResultIterator<FeatureData> it = iterateFeatures(ref, featureIdList, fieldList, jsonRpcContext);
+        try {
+            while (it.hasNext()) {
+                consumer.accept(it.next());
+            }
+        } catch (ResultIterator.StreamException e) {
+            if (e.getCause() instanceof JsonClientException) {
+                throw (JsonClientException) e.getCause();
+            }
+            throw (IOException) e.getCause();
+        } finally {
+            it.close();
+        }
+    }
+
+    /** Returns an iterator over the features of getFeatures that parses the
+     * response as it is read; see {@link #streamFeatures}. Requests are sent
+     * as the iterator advances.
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @param   featureIdList   instance of list of String, or null for all features
+     * @return   an iterator over the features; close it if it is not read to the end
+     */
+    public ResultIterator<FeatureData> iterateFeatures(String ref, List<String> featureIdList, RpcContext... jsonRpcContext) {
+        return iterateFeatures(ref, featureIdList, null, jsonRpcContext);
+    }
+
+    /** Returns an iterator over the given fields of the features of
+     * getFeatures; see {@link #iterateFeatures(String, List, RpcContext...)}.
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @param   featureIdList   instance of list of String, or null for all features
+     * @param   fieldList   instance of list of String, or null for all fields
+     * @return   an iterator over the features; close it if it is not read to the end
+     */
+    public ResultIterator<FeatureData> iterateFeatures(String ref, List<String> featureIdList, List<String> fieldList, RpcContext... jsonRpcContext) {
+        List<Object> args = new ArrayList<Object>();
+        args.add(ref);
+        args.add(featureIdList);
+        if (fieldList != null) {
+            args.add(fieldList);
+        }
+        return new ResultIterator<FeatureData>(RpcHttpChannel.mapper(), FeatureData.class,
+                callArgs -> channel.call("data_api2.get_features", callArgs, true, jsonRpcContext),
+                chunker.split(args));
+    }
+
+    /** Exports the features of a genome to a consumer as the server reads
+     * them, through the service's streaming feature export rather than
+     * JSON-RPC. The first feature arrives as soon as the server has read
+     * it, and neither side holds the whole genome's features at once.
+     * The features come in the order they are stored, not genomic order.
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @param   typeList   instance of list of String, or null for all feature types
+     * @param   fieldList   instance of list of String, or null for all fields; feature_id is always included
+     * @param   consumer   receives each feature in turn
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public void exportFeatures(String ref, List<String> typeList, List<String> fieldList, Consumer<FeatureData> consumer) throws IOException, JsonClientException {
+        RecordIterator<FeatureData> it = openFeatureExport(ref, typeList, fieldList);
+        try {
+            while (it.hasNext()) {
+                consumer.accept(it.next());
+            }
+        } catch (ResultIterator.StreamException e) {
+            if (e.getCause() instanceof JsonClientException) {
+                throw (JsonClientException) e.getCause();
+            }
+            throw (IOException) e.getCause();
+        } finally {
+            it.close();
+        }
+    }
+
+    /** Starts a streaming feature export and returns an iterator over the
+     * features as they arrive; see {@link #exportFeatures}. Errors raised
+     * before the first feature are thrown here.
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @param   typeList   instance of list of String, or null for all feature types
+     * @param   fieldList   instance of list of String, or null for all fields; feature_id is always included
+     * @return   an iterator over the features; close it if it is not read to the end
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public RecordIterator<FeatureData> openFeatureExport(String ref, List<String> typeList, List<String> fieldList) throws IOException, JsonClientException {
+        Map<String, Object> params = new LinkedHashMap<String, Object>();
+        params.put("ref", ref);
+        if (typeList != null) {
+            params.put("type_list", typeList);
+        }
+        if (fieldList != null) {
+            params.put("field_list", fieldList);
+        }
+        return new RecordIterator<FeatureData>(RpcHttpChannel.mapper(), FeatureData.class,
+                channel.postJson(FEATURE_EXPORT_PATH, params, true));
+    }
+
+    /**
+     * <p>Original spec-file function name: get_feature_ids_page</p>
+     * <pre>
+     * *
+     * * Retrieve one page of Feature ids in this GenomeAnnotation, optionally
+     * * filtered as for get_feature_ids, in genomic order: by contig and start
+     * * of the leftmost location, then by id, with Features without locations
+     * * last. Pass a null continuation_token for the first page. A page_size
+     * * of 0 means the default of 1000.
+     * *
+     * </pre>
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @param   filters   instance of type {@link us.kbase.dataapi2.FeatureIdFilters FeatureIdFilters} (original type "Feature_id_filters")
+     * @param   pageSize   instance of Long
+     * @param   continuationToken   instance of String
+     * @return   instance of type {@link us.kbase.dataapi2.FeatureIdPage FeatureIdPage} (original type "Feature_id_page")
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public FeatureIdPage getFeatureIdsPage(String ref, FeatureIdFilters filters, Long pageSize, String continuationToken, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        List<Object> args = new ArrayList<Object>();
+        args.add(ref);
+        args.add(filters);
+        args.add(pageSize);
+        args.add(continuationToken);
+        TypeReference<List<FeatureIdPage>> retType = new TypeReference<List<FeatureIdPage>>() {};
+        List<FeatureIdPage> res = jsonrpcCall("data_api2.get_feature_ids_page", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
+    /**
+     * <p>Original spec-file function name: get_features_page</p>
+     * <pre>
+     * *
+     * * Retrieve the Feature data of one page of Features, in the order of
+     * * get_feature_ids_page. field_list is as for get_features.
+     * *
+     * </pre>
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @param   filters   instance of type {@link us.kbase.dataapi2.FeatureIdFilters FeatureIdFilters} (original type "Feature_id_filters")
+     * @param   fieldList   instance of list of String
+     * @param   pageSize   instance of Long
+     * @param   continuationToken   instance of String
+     * @return   instance of type {@link us.kbase.dataapi2.FeatureDataPage FeatureDataPage} (original type "Feature_data_page")
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public FeatureDataPage getFeaturesPage(String ref, FeatureIdFilters filters, List<String> fieldList, Long pageSize, String continuationToken, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        List<Object> args = new ArrayList<Object>();
+        args.add(ref);
+        args.add(filters);
+        args.add(fieldList);
+        args.add(pageSize);
+        args.add(continuationToken);
+        TypeReference<List<FeatureDataPage>> retType = new TypeReference<List<FeatureDataPage>>() {};
+        List<FeatureDataPage> res = jsonrpcCall("data_api2.get_features_page", args, retType, true, true, jsonRpcContext);
+        return res.get(0);
+    }
+
+    /** Returns all Feature ids of getFeatureIdsPage, in genomic order,
+     * fetching the next page on the client's executor while the current
+     * one is read; see {@link PageIterable}.
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @param   filters   instance of type {@link us.kbase.dataapi2.FeatureIdFilters FeatureIdFilters}, or null for all features
+     * @param   pageSize   number of ids per request, or 0 for the server's default
+     * @return   the ids, fetched as they are iterated over
+     */
+    public PageIterable<String> pageFeatureIds(final String ref, final FeatureIdFilters filters, final long pageSize, final RpcContext... jsonRpcContext) {
+        return new PageIterable<String>(token -> {
+            FeatureIdPage page = getFeatureIdsPage(ref, filters, pageSize, token, jsonRpcContext);
+            return new PageIterable.Page<String>(page.getFeatureIds(), page.getContinuationToken());
+        }, chunker.getExecutor());
+    }
+
+    /** Returns the Feature data of getFeaturesPage for all features, in
+     * genomic order, fetching the next page on the client's executor while
+     * the current one is read; see {@link PageIterable}.
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @param   filters   instance of type {@link us.kbase.dataapi2.FeatureIdFilters FeatureIdFilters}, or null for all features
+     * @param   fieldList   instance of list of String, or null for all fields
+     * @param   pageSize   number of features per request, or 0 for the server's default
+     * @return   the features, fetched as they are iterated over
+     */
+    public PageIterable<FeatureData> pageFeatures(final String ref, final FeatureIdFilters filters, final List<String> fieldList, final long pageSize, final RpcContext... jsonRpcContext) {
+        return new PageIterable<FeatureData>(token -> {
+            FeatureDataPage page = getFeaturesPage(ref, filters, fieldList, pageSize, token, jsonRpcContext);
+            return new PageIterable.Page<FeatureData>(page.getFeatures(), page.getContinuationToken());
+        }, chunker.getExecutor());
+    }
+
+    /** Publishes the Feature data of getFeaturesPage for all features, in
+     * genomic order, to subscribers that signal their demand. Pages are
+     * requested only as the subscriber's demand calls for them, at most one
+     * page ahead of the item being delivered, so no more than two pages
+     * are held for a subscriber that falls behind. Items are delivered on
+     * the client's executor.
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @param   filters   instance of type {@link us.kbase.dataapi2.FeatureIdFilters FeatureIdFilters}, or null for all features
+     * @param   fieldList   instance of list of String, or null for all fields
+     * @param   pageSize   number of features per request, or 0 for the server's default
+     * @return   a publisher that pages through the features for each subscriber
+     */
+    public Flow.Publisher<FeatureData> publishFeatures(final String ref, final FeatureIdFilters filters, final List<String> fieldList, final long pageSize, final RpcContext... jsonRpcContext) {
+        final PageIterable<FeatureData> pages = pageFeatures(ref, filters, fieldList, pageSize, jsonRpcContext);
+        return new IteratorPublisher<FeatureData>(() -> pages.iterator(), chunker.getExecutor());
+    }
+
+    /**
+     * <p>Original spec-file function name: get_features_multi</p>
+     * <pre>
+     * *
+     * * Retrieve the Feature data of all the Features of each of several
+     * * GenomeAnnotations, as get_features does for one with a null
+     * * feature_id_list. field_list is as for get_features. The
+     * * GenomeAnnotations are read concurrently; one that cannot be read
+     * * gets an error in its result rather than failing the call.
+     * *
+     * </pre>
+     * @param   refList   instance of list of original type "ObjectReference" (A string representing a reference id.)
+     * @param   fieldList   instance of list of String
+     * @return   instance of mapping from original type "ObjectReference" (A string representing a reference id.) to type {@link us.kbase.dataapi2.FeaturesMultiResult FeaturesMultiResult} (original type "Features_multi_result")
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public Map<String,FeaturesMultiResult> getFeaturesMulti(List<String> refList, List<String> fieldList, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        List<Object> args = new ArrayList<Object>();
+        args.add(refList);
+        args.add(fieldList);
+        TypeReference<List<Map<String,FeaturesMultiResult>>> retType = new TypeReference<List<Map<String,FeaturesMultiResult>>>() {};
+        List<Map<String,FeaturesMultiResult>> res = jsonrpcCall("data_api2.get_features_multi", args, retType, true, true, jsonRpcContext);
+        return res.get(0);
+    }
+
+    /** Streams the results of getFeaturesMulti to a consumer, genome by
+     * genome, as they complete. The genomes are sent in requests of the
+     * multi-genome chunk size, with up to the maximum number of parallel
+     * chunks in flight, and the results of each request are handed to the
+     * consumer as soon as it completes. A genome that cannot be read is
+     * handed over with its error; a request that fails as a whole stops
+     * the call and is thrown. The consumer is called by one thread at a
+     * time.
+     * @param   refList   instance of list of original type "ObjectReference" (A string representing a reference id.)
+     * @param   fieldList   instance of list of String
+     * @param   consumer   receives each genome's reference and result
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public void streamFeaturesMulti(List<String> refList, List<String> fieldList, BiConsumer<String, FeaturesMultiResult> consumer, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        streamMulti(refList, refs -> getFeaturesMulti(refs, fieldList, jsonRpcContext), consumer);
+    }
+
+    /** Calls a multi-genome method for one chunk of genomes. */
+    private interface MultiRefCall<V> {
+        Map<String,V> call(List<String> refList) throws IOException, JsonClientException;
+    }
+
+    private <V> void streamMulti(List<String> refList, final MultiRefCall<V> call,
+            final BiConsumer<String, V> consumer) throws IOException, JsonClientException {
+        if (refList.isEmpty()) {
+            return;
+        }
+        List<Object> args = new ArrayList<Object>();
+        args.add(refList);
+        chunker.callEach(FeatureIdChunker.split(args, 0, multiRefChunkSize), callArgs -> {
+            @SuppressWarnings("unchecked")
+            List<String> refs = (List<String>) callArgs.get(0);
+            return Collections.singletonList(call.call(refs));
+        }, (chunk, result) -> result.get(0).forEach(consumer));
+    }
+
     /**
      * <p>Original spec-file function name: get_proteins</p>
      * <pre>
@@ -305,10 +969,26 @@ public class DataApi2Client {
         List<Object> args = new ArrayList<Object>();
         args.add(ref);
         TypeReference<List<Map<String,ProteinData>>> retType = new TypeReference<List<Map<String,ProteinData>>>() {};
-        List<Map<String,ProteinData>> res = caller.jsonrpcCall("data_api2.get_proteins", args, retType, true, true, jsonRpcContext);
+        List<Map<String,ProteinData>> res = jsonrpcCall("data_api2.get_proteins", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
+    /** Publishes the Protein data of getProteins to subscribers that signal
+     * their demand. The response is parsed as items are requested, so a
+     * subscriber that falls behind stops the response from being read and
+     * no more than the connection's buffers is held. Items are delivered on
+     * the client's executor.
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @return   a publisher that sends one getProteins request for each subscriber
+     */
+    public Flow.Publisher<ProteinData> publishProteins(String ref, RpcContext... jsonRpcContext) {
+        final List<Object> args = new ArrayList<Object>();
+        args.add(ref);
+        return new IteratorPublisher<ProteinData>(() -> new ResultIterator<ProteinData>(RpcHttpChannel.mapper(),
+                ProteinData.class, callArgs -> channel.call("data_api2.get_proteins", callArgs, true, jsonRpcContext),
+                Collections.<List<Object>>singletonList(args)), chunker.getExecutor());
+    }
+
     /**
      * <p>Original spec-file function name: get_feature_locations</p>
      * <pre>
@@ -327,7 +1007,76 @@ public class DataApi2Client {
         args.add(ref);
         args.add(featureIdList);
         TypeReference<List<Map<String,List<Region>>>> retType = new TypeReference<List<Map<String,List<Region>>>>() {};
-        List<Map<String,List<Region>>> res = caller.jsonrpcCall("data_api2.get_feature_locations", args, retType, true, true, jsonRpcContext);
+        List<Map<String,List<Region>>> res = jsonrpcCall("data_api2.get_feature_locations", args, retType, true, true, jsonRpcContext);
+        return res.get(0);
+    }
+
+    /**
+     * Same as {@link #getFeatureLocations(String, List, RpcContext...)}, but
+     * the locations are read straight into one columnar {@link RegionArray}
+     * grouped by feature, without a Region object per location. The array
+     * keeps every value of the regions, so responses can be shared with
+     * getFeatureLocations through the response cache and store; the
+     * per-feature cache is not used.
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @param   featureIdList   instance of list of String
+     * @return   the locations of each feature.
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public RegionArray getFeatureLocationArray(String ref, List<String> featureIdList, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        List<Object> args = new ArrayList<Object>();
+        args.add(ref);
+        args.add(featureIdList);
+        TypeReference<List<RegionArray>> retType = new TypeReference<List<RegionArray>>() {};
+        List<RegionArray> res = jsonrpcCall("data_api2.get_feature_locations", args, retType, true, true, jsonRpcContext);
+        return res.get(0);
+    }
+
+    /**
+     * <p>Original spec-file function name: get_features_in_region</p>
+     * <pre>
+     * *
+     * * Retrieve the Features in this GenomeAnnotation with a location that
+     * * overlaps a region, with all the locations of each. A strand of "?"
+     * * matches either strand; an empty feature_type_list matches any type.
+     * *
+     * </pre>
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @param   region   instance of type {@link us.kbase.dataapi2.Region Region}
+     * @param   featureTypeList   instance of list of String
+     * @return   instance of mapping from String to list of type {@link us.kbase.dataapi2.Region Region}
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public Map<String,List<Region>> getFeaturesInRegion(String ref, Region region, List<String> featureTypeList, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        List<Object> args = new ArrayList<Object>();
+        args.add(ref);
+        args.add(region);
+        args.add(featureTypeList);
+        TypeReference<List<Map<String,List<Region>>>> retType = new TypeReference<List<Map<String,List<Region>>>>() {};
+        List<Map<String,List<Region>>> res = jsonrpcCall("data_api2.get_features_in_region", args, retType, true, true, jsonRpcContext);
+        return res.get(0);
+    }
+
+    /**
+     * Same as {@link #getFeaturesInRegion(String, Region, List, RpcContext...)},
+     * but the locations are read straight into one columnar
+     * {@link RegionArray} grouped by feature.
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @param   region   instance of type {@link us.kbase.dataapi2.Region Region}
+     * @param   featureTypeList   instance of list of String
+     * @return   the locations of each feature in the region.
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public RegionArray getFeaturesInRegionArray(String ref, Region region, List<String> featureTypeList, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        List<Object> args = new ArrayList<Object>();
+        args.add(ref);
+        args.add(region);
+        args.add(featureTypeList);
+        TypeReference<List<RegionArray>> retType = new TypeReference<List<RegionArray>>() {};
+        List<RegionArray> res = jsonrpcCall("data_api2.get_features_in_region", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
@@ -349,7 +1098,7 @@ public class DataApi2Client {
         args.add(ref);
         args.add(featureIdList);
         TypeReference<List<Map<String,List<String>>>> retType = new TypeReference<List<Map<String,List<String>>>>() {};
-        List<Map<String,List<String>>> res = caller.jsonrpcCall("data_api2.get_feature_publications", args, retType, true, true, jsonRpcContext);
+        List<Map<String,List<String>>> res = jsonrpcCall("data_api2.get_feature_publications", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
@@ -371,7 +1120,27 @@ public class DataApi2Client {
         args.add(ref);
         args.add(featureIdList);
         TypeReference<List<Map<String,String>>> retType = new TypeReference<List<Map<String,String>>>() {};
-        List<Map<String,String>> res = caller.jsonrpcCall("data_api2.get_feature_dna", args, retType, true, true, jsonRpcContext);
+        List<Map<String,String>> res = jsonrpcCall("data_api2.get_feature_dna", args, retType, true, true, jsonRpcContext);
+        return res.get(0);
+    }
+
+    /**
+     * Same as {@link #getFeatureDna(String, List, RpcContext...)}, but each
+     * sequence is packed into a {@link NucleotideSequence} as it is parsed,
+     * without creating a String for it. Works with the response and
+     * per-feature caches, chunking and response spilling like getFeatureDna.
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @param   featureIdList   instance of list of String
+     * @return   the DNA sequence of each feature.
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public Map<String,NucleotideSequence> getFeatureDnaSequences(String ref, List<String> featureIdList, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        List<Object> args = new ArrayList<Object>();
+        args.add(ref);
+        args.add(featureIdList);
+        TypeReference<List<Map<String,NucleotideSequence>>> retType = new TypeReference<List<Map<String,NucleotideSequence>>>() {};
+        List<Map<String,NucleotideSequence>> res = jsonrpcCall("data_api2.get_feature_dna", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
@@ -393,7 +1162,7 @@ public class DataApi2Client {
         args.add(ref);
         args.add(featureIdList);
         TypeReference<List<Map<String,String>>> retType = new TypeReference<List<Map<String,String>>>() {};
-        List<Map<String,String>> res = caller.jsonrpcCall("data_api2.get_feature_functions", args, retType, true, true, jsonRpcContext);
+        List<Map<String,String>> res = jsonrpcCall("data_api2.get_feature_functions", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
@@ -415,7 +1184,7 @@ public class DataApi2Client {
         args.add(ref);
         args.add(featureIdList);
         TypeReference<List<Map<String,List<String>>>> retType = new TypeReference<List<Map<String,List<String>>>>() {};
-        List<Map<String,List<String>>> res = caller.jsonrpcCall("data_api2.get_feature_aliases", args, retType, true, true, jsonRpcContext);
+        List<Map<String,List<String>>> res = jsonrpcCall("data_api2.get_feature_aliases", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
@@ -437,7 +1206,7 @@ public class DataApi2Client {
         args.add(ref);
         args.add(geneIdList);
         TypeReference<List<Map<String,List<String>>>> retType = new TypeReference<List<Map<String,List<String>>>>() {};
-        List<Map<String,List<String>>> res = caller.jsonrpcCall("data_api2.get_cds_by_gene", args, retType, true, true, jsonRpcContext);
+        List<Map<String,List<String>>> res = jsonrpcCall("data_api2.get_cds_by_gene", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
@@ -459,7 +1228,7 @@ public class DataApi2Client {
         args.add(ref);
         args.add(mrnaIdList);
         TypeReference<List<Map<String,String>>> retType = new TypeReference<List<Map<String,String>>>() {};
-        List<Map<String,String>> res = caller.jsonrpcCall("data_api2.get_cds_by_mrna", args, retType, true, true, jsonRpcContext);
+        List<Map<String,String>> res = jsonrpcCall("data_api2.get_cds_by_mrna", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
@@ -481,7 +1250,7 @@ public class DataApi2Client {
         args.add(ref);
         args.add(cdsIdList);
         TypeReference<List<Map<String,String>>> retType = new TypeReference<List<Map<String,String>>>() {};
-        List<Map<String,String>> res = caller.jsonrpcCall("data_api2.get_gene_by_cds", args, retType, true, true, jsonRpcContext);
+        List<Map<String,String>> res = jsonrpcCall("data_api2.get_gene_by_cds", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
@@ -503,7 +1272,7 @@ public class DataApi2Client {
         args.add(ref);
         args.add(mrnaIdList);
         TypeReference<List<Map<String,String>>> retType = new TypeReference<List<Map<String,String>>>() {};
-        List<Map<String,String>> res = caller.jsonrpcCall("data_api2.get_gene_by_mrna", args, retType, true, true, jsonRpcContext);
+        List<Map<String,String>> res = jsonrpcCall("data_api2.get_gene_by_mrna", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
@@ -525,7 +1294,7 @@ public class DataApi2Client {
         args.add(ref);
         args.add(geneIdList);
         TypeReference<List<Map<String,String>>> retType = new TypeReference<List<Map<String,String>>>() {};
-        List<Map<String,String>> res = caller.jsonrpcCall("data_api2.get_mrna_by_cds", args, retType, true, true, jsonRpcContext);
+        List<Map<String,String>> res = jsonrpcCall("data_api2.get_mrna_by_cds", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
 
@@ -547,7 +1316,65 @@ public class DataApi2Client {
         args.add(ref);
         args.add(geneIdList);
         TypeReference<List<Map<String,List<String>>>> retType = new TypeReference<List<Map<String,List<String>>>>() {};
-        List<Map<String,List<String>>> res = caller.jsonrpcCall("data_api2.get_mrna_by_gene", args, retType, true, true, jsonRpcContext);
+        List<Map<String,List<String>>> res = jsonrpcCall("data_api2.get_mrna_by_gene", args, retType, true, true, jsonRpcContext);
         return res.get(0);
     }
+
+    /**
+     * <p>Original spec-file function name: get_feature_relationships</p>
+     * <pre>
+     * *
+     * * Retrieve all the relationships between the genes, mRNAs and CDSs in
+     * * this GenomeAnnotation at once.
+     * *
+     * </pre>
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @return   instance of type {@link us.kbase.dataapi2.FeatureRelationships FeatureRelationships}
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public FeatureRelationships getFeatureRelationships(String ref, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        List<Object> args = new ArrayList<Object>();
+        args.add(ref);
+        TypeReference<List<FeatureRelationships>> retType = new TypeReference<List<FeatureRelationships>>() {};
+        List<FeatureRelationships> res = jsonrpcCall("data_api2.get_feature_relationships", args, retType, true, true, jsonRpcContext);
+        return res.get(0);
+    }
+
+    /**
+     * Same as {@link #getFeatureRelationships(String, RpcContext...)}, but
+     * the relationships are read straight into a {@link GeneModelGraph}, so
+     * one call answers any number of gene, mRNA and CDS lookups.
+     * @param   ref   instance of original type "ObjectReference" (A string representing a reference id.)
+     * @return   the relationships of the GenomeAnnotation.
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public GeneModelGraph getGeneModelGraph(String ref, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        List<Object> args = new ArrayList<Object>();
+        args.add(ref);
+        TypeReference<List<GeneModelGraph>> retType = new TypeReference<List<GeneModelGraph>>() {};
+        List<GeneModelGraph> res = jsonrpcCall("data_api2.get_feature_relationships", args, retType, true, true, jsonRpcContext);
+        return res.get(0);
+    }
+
+    /** Loads the features and relationships of one version of a
+     * GenomeAnnotation into a {@link GenomeSnapshot}. The features are
+     * streamed into the snapshot as the response is read, so the whole
+     * result is never held as FeatureData objects.
+     * @param   ref   instance of original type "ObjectReference", which must be versioned (ws_id/obj_id/version).
+     * @return   the snapshot.
+     * @throws IllegalArgumentException if the reference is not versioned.
+     * @throws IOException if an IO exception occurs
+     * @throws JsonClientException if a JSON RPC exception occurs
+     */
+    public GenomeSnapshot getGenomeSnapshot(String ref, RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        String versionedRef = VersionedRefCache.canonicalRef(ref);
+        if (versionedRef == null) {
+            throw new IllegalArgumentException("A genome snapshot requires a versioned reference, ws_id/obj_id/version: " + ref);
+        }
+        GenomeSnapshot.Builder b = new GenomeSnapshot.Builder(versionedRef);
+        streamFeatures(versionedRef, null, GenomeSnapshot.FIELDS, b::add, jsonRpcContext);
+        return b.build(getGeneModelGraph(versionedRef, jsonRpcContext));
+    }
 }
@@ -0,0 +1,28 @@
+package us.kbase.dataapi2;
+
+import java.io.IOException;
+
+/**
+ * <p>Carries data_api2 JSON-RPC requests to a service and returns its
+ * responses.</p>
+ * <pre>
+ * A client uses {@link UrlConnectionTransport} unless it is given another
+ * transport with {@link DataApi2Client#setTransport(DataApi2Transport)}.
+ * {@link HttpClientTransport} shares pooled HTTP/2 connections across
+ * clients; {@link InMemoryTransport} answers requests in-process for tests.
+ *
+ * The client builds the complete request, including the JSON-RPC body and
+ * the Authorization, Content-Type and Content-Encoding headers, and
+ * interprets the status code and body of the response; a transport only
+ * moves the bytes. Transports must be safe for concurrent use.
+ * </pre>
+ */
+public interface DataApi2Transport {
+    /** Sends a POST request.
+     * @param request the request.
+     * @return the response, whatever its status code. The caller closes it.
+     * @throws IOException if the request could not be sent or no response
+     * was received.
+     */
+    TransportResponse send(TransportRequest request) throws IOException;
+}
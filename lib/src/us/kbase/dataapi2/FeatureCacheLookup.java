@@ -0,0 +1,116 @@
+package us.kbase.dataapi2;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import us.kbase.common.service.JsonClientException;
+
+/**
+ * Answers the per-feature data_api2 methods one feature at a time from a
+ * {@link VersionedRefCache}: only the feature IDs not already cached are
+ * requested from the server, and the cached and fresh entries are stitched
+ * into one mapping in the order the IDs were asked for. Features of a
+ * response that was spilled to disk are not cached, and the result stays
+ * a {@link SpilledResultMap}.
+ * Entries are cached per (user, method, versioned reference, feature ID),
+ * so a cache shared by clients of different users never answers one with
+ * another's features of a private object.
+ */
+final class FeatureCacheLookup {
+    /** Methods that take (ref, feature_id_list) and return a mapping from
+     * feature ID to data about that feature alone.
+     */
+    static final Set<String> PER_FEATURE_METHODS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+            "data_api2.get_features",
+            "data_api2.get_feature_locations",
+            "data_api2.get_feature_dna",
+            "data_api2.get_feature_functions",
+            "data_api2.get_feature_aliases")));
+
+    private FeatureCacheLookup() {
+    }
+
+    /** Returns the canonical reference if the call can be answered per
+     * feature, or null.
+     */
+    static String refFor(String method, List<Object> args) {
+        if (!PER_FEATURE_METHODS.contains(method) || args.size() != 2 || !(args.get(0) instanceof String) ||
+                !(args.get(1) instanceof List)) {
+            return null;
+        }
+        return VersionedRefCache.canonicalRef((String) args.get(0));
+    }
+
+    @SuppressWarnings("unchecked")
+    static <RET> List<RET> call(VersionedRefCache cache, ObjectMapper mapper, String user, String method,
+            String ref, List<Object> args, TypeReference<List<RET>> retType, FeatureIdChunker.ChunkCall<RET> fetch)
+            throws IOException, JsonClientException {
+        JavaType valueType = mapper.getTypeFactory().constructType(retType).getContentType().getContentType();
+        List<?> ids = (List<?>) args.get(1);
+        String prefix = VersionedRefCache.keyPrefix(user, method, ref);
+        Map<Object, byte[]> cached = new LinkedHashMap<Object, byte[]>();
+        List<Object> missing = new ArrayList<Object>();
+        Set<Object> seen = new HashSet<Object>();
+        for (Object id : ids) {
+            if (!seen.add(id)) {
+                continue;
+            }
+            byte[] value = id instanceof String ? cache.get(prefix + id) : null;
+            if (value == null) {
+                missing.add(id);
+            } else {
+                cached.put(id, value);
+            }
+        }
+        Map<Object, Object> fresh = Collections.emptyMap();
+        if (!missing.isEmpty()) {
+            List<Object> missingArgs = new ArrayList<Object>(args);
+            missingArgs.set(1, missing);
+            List<RET> res = fetch.call(missingArgs);
+            if (res != null && !res.isEmpty() && res.get(0) instanceof SpilledResultMap) {
+                // caching would decode every value of the spilled response
+                // onto the heap, so it is left on disk and only merged
+                if (cached.isEmpty()) {
+                    return res;
+                }
+                List<RET> ret = new ArrayList<RET>(1);
+                ret.add((RET) ((SpilledResultMap<Object>) res.get(0)).withSerialized(cached, ids));
+                return ret;
+            }
+            if (res != null && !res.isEmpty() && res.get(0) != null) {
+                fresh = (Map<Object, Object>) res.get(0);
+                for (Map.Entry<Object, Object> e : fresh.entrySet()) {
+                    if (e.getKey() instanceof String) {
+                        cache.put(prefix + e.getKey(), mapper.writeValueAsBytes(e.getValue()));
+                    }
+                }
+            }
+        }
+        Map<Object, Object> merged = new LinkedHashMap<Object, Object>();
+        for (Object id : ids) {
+            if (cached.containsKey(id)) {
+                merged.put(id, mapper.readValue(cached.get(id), valueType));
+            } else if (fresh.containsKey(id)) {
+                merged.put(id, fresh.get(id));
+            }
+        }
+        // keep anything the server returned under a key we did not ask for
+        for (Map.Entry<Object, Object> e : fresh.entrySet()) {
+            if (!merged.containsKey(e.getKey())) {
+                merged.put(e.getKey(), e.getValue());
+            }
+        }
+        List<RET> ret = new ArrayList<RET>(1);
+        ret.add((RET) merged);
+        return ret;
+    }
+}
@@ -0,0 +1,320 @@
+package us.kbase.dataapi2;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * <p>Evaluates {@link FeatureIdFilters} against a {@link GenomeSnapshot}
+ * held by the client, answering get_feature_ids without a call to the
+ * server.</p>
+ * <pre>
+ * Build an engine once per genome, e.g. with
+ * {@link DataApi2Client#getFeatureFilterEngine}, and filter it as often
+ * as needed:
+ *
+ *     FeatureFilterEngine engine = client.getFeatureFilterEngine(ref);
+ *     FeatureIdMapping kinases = engine.getFeatureIds(
+ *             new FeatureIdFilters().withFunctionList(Arrays.asList("kinase")), "function");
+ *
+ * Filters have the server's semantics: a feature must pass every filter
+ * that is not null, and passes a filter if it matches any of its values.
+ * A type or alias matches exactly, a function by substring, and a region
+ * as in the server's region test, comparing strands as strings. Empty
+ * filter lists are rejected as the server rejects them.
+ *
+ * Each filter yields a BitSet of snapshot rows and the results are
+ * intersected. The engine reads the snapshot's columns and adds only a
+ * precomputed BitSet for each type, alias and distinct function string,
+ * so those filters cost a union of sets; the region filter and the
+ * function substring test run as parallel streams on genomes of at least
+ * PARALLEL_THRESHOLD features. An engine is immutable and may be shared
+ * by any number of threads.
+ * </pre>
+ */
+public final class FeatureFilterEngine {
+    /** The number of features or distinct functions from which filters
+     * are evaluated in parallel.
+     */
+    public static final int PARALLEL_THRESHOLD = 10000;
+
+    private final GenomeSnapshot genome;
+    private final int size;
+    private final BitSet[] typeMembers;
+    private final BitSet[] functionMembers;
+    private final Map<String, BitSet> aliasMembers;
+    private final Map<String, Integer> typeCodes;
+    private final RegionArray locations;
+
+    private FeatureFilterEngine(GenomeSnapshot genome) {
+        this.genome = genome;
+        this.size = genome.size();
+        this.locations = genome.getLocations();
+        this.typeCodes = new HashMap<String, Integer>();
+        this.typeMembers = new BitSet[genome.getTypeCount()];
+        for (int c = 0; c < typeMembers.length; c++) {
+            typeCodes.put(genome.getTypeName(c), c);
+            typeMembers[c] = new BitSet(size);
+        }
+        this.functionMembers = new BitSet[genome.getFunctionCount()];
+        for (int c = 0; c < functionMembers.length; c++) {
+            functionMembers[c] = new BitSet(size);
+        }
+        this.aliasMembers = new HashMap<String, BitSet>();
+        for (int f = 0; f < size; f++) {
+            typeMembers[genome.getTypeCode(f)].set(f);
+            if (genome.getFunctionCode(f) >= 0) {
+                functionMembers[genome.getFunctionCode(f)].set(f);
+            }
+            for (int i = 0; i < genome.getAliasCount(f); i++) {
+                BitSet m = aliasMembers.get(genome.getAlias(f, i));
+                if (m == null) {
+                    m = new BitSet(size);
+                    aliasMembers.put(genome.getAlias(f, i), m);
+                }
+                m.set(f);
+            }
+        }
+    }
+
+    /** Builds an engine over the features of a snapshot.
+     * @param genome the snapshot.
+     * @return the engine.
+     */
+    public static FeatureFilterEngine of(GenomeSnapshot genome) {
+        return new FeatureFilterEngine(genome);
+    }
+
+    /** Get the snapshot the engine filters.
+     * @return the snapshot.
+     */
+    public GenomeSnapshot getGenome() {
+        return genome;
+    }
+
+    /** Get the number of features.
+     * @return the feature count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /** Get the ID of a feature.
+     * @param f the feature's row in the snapshot.
+     * @return the feature ID.
+     */
+    public String getFeatureId(int f) {
+        return genome.getFeatureId(f);
+    }
+
+    /** Get the features that pass some filters.
+     * @param filters the filters, or null for none.
+     * @return the positions of the features that pass.
+     * @throws IllegalArgumentException if a filter list is empty or a
+     * region is incomplete.
+     */
+    public BitSet select(FeatureIdFilters filters) {
+        BitSet selected = new BitSet(size);
+        selected.set(0, size);
+        if (filters == null) {
+            return selected;
+        }
+        // checked in the server's order, so the same error is raised first
+        if (filters.getTypeList() != null) {
+            check(filters.getTypeList(), "A list of strings indicating feature types is required");
+            BitSet types = new BitSet(size);
+            for (String type : filters.getTypeList()) {
+                Integer c = typeCodes.get(type);
+                if (c != null) {
+                    types.or(typeMembers[c]);
+                }
+            }
+            selected.and(types);
+        }
+        if (filters.getRegionList() != null) {
+            check(filters.getRegionList(), "A list of region dictionaries is required");
+            selected.and(inRegions(selected, filters.getRegionList()));
+        }
+        if (filters.getFunctionList() != null) {
+            check(filters.getFunctionList(), "A list of feature function strings is required");
+            selected.and(withFunctions(filters.getFunctionList()));
+        }
+        if (filters.getAliasList() != null) {
+            check(filters.getAliasList(), "A list of feature alias strings is required");
+            BitSet aliases = new BitSet(size);
+            for (String alias : filters.getAliasList()) {
+                BitSet m = aliasMembers.get(alias);
+                if (m != null) {
+                    aliases.or(m);
+                }
+            }
+            selected.and(aliases);
+        }
+        return selected;
+    }
+
+    private static void check(List<?> values, String message) {
+        if (values.isEmpty()) {
+            throw new IllegalArgumentException(message + ", received an empty list.");
+        }
+    }
+
+    private BitSet withFunctions(final List<String> terms) {
+        return stream(functionMembers.length)
+                .filter(c -> {
+                    for (String term : terms) {
+                        if (genome.getFunctionName(c).contains(term)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                })
+                .collect(() -> new BitSet(size), (b, c) -> b.or(functionMembers[c]), BitSet::or);
+    }
+
+    private BitSet inRegions(final BitSet candidates, List<Region> regionList) {
+        final Query[] regions = new Query[regionList.size()];
+        for (int i = 0; i < regions.length; i++) {
+            regions[i] = new Query(regionList.get(i));
+        }
+        // only reads are shared between threads; each keeps its own cursor
+        return stream(size)
+                .filter(candidates::get)
+                .filter(f -> inRegions(locations.cursor().selectFeature(f), regions))
+                .collect(BitSet::new, BitSet::set, BitSet::or);
+    }
+
+    private static boolean inRegions(RegionArray.Cursor c, Query[] regions) {
+        while (c.next()) {
+            long start = c.getStart();
+            long length = c.getLength();
+            // strands other than one ASCII character read as '?'
+            byte strand = c.getStrand();
+            for (Query r : regions) {
+                if (!r.contigId.equals(c.getContigId()) || !r.matches(c)) {
+                    continue;
+                }
+                // as the server tests them, ends included
+                if (strand == '+' && Math.max(start, r.start) <= Math.min(start + length, r.start + r.length)) {
+                    return true;
+                }
+                if (strand == '-' && Math.max(start + length, r.start) <= Math.min(start, r.start)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static IntStream stream(int n) {
+        IntStream s = IntStream.range(0, n);
+        return n >= PARALLEL_THRESHOLD ? s.parallel() : s;
+    }
+
+    /** Get the IDs of the features that pass some filters, grouped as
+     * get_feature_ids groups them.
+     * @param filters the filters, or null for none.
+     * @param groupType "type", "region", "function" or "alias"; null for
+     * "type". Any other value gives an empty mapping, as from the server.
+     * @return the grouped feature IDs.
+     * @throws IllegalArgumentException if a filter list is empty or a
+     * region is incomplete.
+     */
+    public FeatureIdMapping getFeatureIds(FeatureIdFilters filters, String groupType) {
+        BitSet selected = select(filters);
+        FeatureIdMapping ret = new FeatureIdMapping();
+        if (groupType == null || groupType.equals("type")) {
+            Map<String, List<String>> byType = new LinkedHashMap<String, List<String>>();
+            for (int f = selected.nextSetBit(0); f >= 0; f = selected.nextSetBit(f + 1)) {
+                group(byType, String.valueOf(genome.getType(f))).add(genome.getFeatureId(f));
+            }
+            ret.setByType(byType);
+        } else if (groupType.equals("region")) {
+            Map<String, Map<String, Map<String, List<String>>>> byRegion =
+                    new LinkedHashMap<String, Map<String, Map<String, List<String>>>>();
+            RegionArray.Cursor c = locations.cursor();
+            for (int f = selected.nextSetBit(0); f >= 0; f = selected.nextSetBit(f + 1)) {
+                c.selectFeature(f);
+                while (c.next()) {
+                    Map<String, Map<String, List<String>>> byStrand = byRegion.get(c.getContigId());
+                    if (byStrand == null) {
+                        byStrand = new LinkedHashMap<String, Map<String, List<String>>>();
+                        byRegion.put(c.getContigId(), byStrand);
+                    }
+                    // the server formats a missing strand as null
+                    String strand = String.valueOf(c.getStrandString());
+                    Map<String, List<String>> byRange = byStrand.get(strand);
+                    if (byRange == null) {
+                        byRange = new LinkedHashMap<String, List<String>>();
+                        byStrand.put(strand, byRange);
+                    }
+                    group(byRange, c.getStart() + "-" + (c.getStart() + c.getLength())).add(genome.getFeatureId(f));
+                }
+            }
+            ret.setByRegion(byRegion);
+        } else if (groupType.equals("function")) {
+            Map<String, List<String>> byFunction = new LinkedHashMap<String, List<String>>();
+            for (int f = selected.nextSetBit(0); f >= 0; f = selected.nextSetBit(f + 1)) {
+                // the server groups features without a function under null
+                group(byFunction, String.valueOf(genome.getFunction(f))).add(genome.getFeatureId(f));
+            }
+            ret.setByFunction(byFunction);
+        } else if (groupType.equals("alias")) {
+            Map<String, List<String>> byAlias = new LinkedHashMap<String, List<String>>();
+            for (int f = selected.nextSetBit(0); f >= 0; f = selected.nextSetBit(f + 1)) {
+                for (int i = 0; i < genome.getAliasCount(f); i++) {
+                    group(byAlias, genome.getAlias(f, i)).add(genome.getFeatureId(f));
+                }
+            }
+            ret.setByAlias(byAlias);
+        }
+        return ret;
+    }
+
+    private static List<String> group(Map<String, List<String>> map, String key) {
+        List<String> ret = map.get(key);
+        if (ret == null) {
+            ret = new ArrayList<String>();
+            map.put(key, ret);
+        }
+        return ret;
+    }
+
+    /** A region of a region filter, checked once. */
+    private static final class Query {
+        final String contigId;
+        final String strand;
+        final boolean anyStrand;
+        // one ASCII character, or null, compared as a strand byte
+        final boolean byteStrand;
+        final byte strandByte;
+        final long start;
+        final long length;
+
+        Query(Region r) {
+            if (r == null || r.getContigId() == null || r.getStart() == null || r.getLength() == null) {
+                throw new IllegalArgumentException("A region requires a contig_id, start and length.");
+            }
+            this.contigId = r.getContigId();
+            this.strand = r.getStrand();
+            this.anyStrand = "?".equals(strand);
+            this.byteStrand = strand == null || RegionArray.isByteStrand(strand);
+            this.strandByte = RegionArray.strandByte(strand);
+            this.start = r.getStart();
+            this.length = r.getLength();
+        }
+
+        /** Tests a location's strand as the server does, by equality. */
+        boolean matches(RegionArray.Cursor c) {
+            if (anyStrand) {
+                return true;
+            }
+            // a location strand reading as some other byte cannot equal it
+            return byteStrand ? c.getStrand() == strandByte : strand.equals(c.getStrandString());
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package us.kbase.dataapi2;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import us.kbase.common.service.JsonClientException;
+
+/**
+ * Splits the ID list argument of the data_api2 methods that take one into
+ * fixed size chunks, runs the chunks concurrently with a bounded number of
+ * calls in flight and merges the per-chunk mappings into one result, or
+ * hands each on as it completes.
+ * The calling thread always works on chunks itself, so a call completes
+ * even if the executor never runs any of the helper tasks.
+ */
+final class FeatureIdChunker {
+    /** Methods whose second argument is a list of IDs and whose result is a
+     * mapping keyed by those IDs.
+     */
+    static final Set<String> ID_LIST_METHODS = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList(
+            "data_api2.get_features",
+            "data_api2.get_feature_locations",
+            "data_api2.get_feature_publications",
+            "data_api2.get_feature_dna",
+            "data_api2.get_feature_functions",
+            "data_api2.get_feature_aliases",
+            "data_api2.get_cds_by_gene",
+            "data_api2.get_cds_by_mrna",
+            "data_api2.get_gene_by_cds",
+            "data_api2.get_gene_by_mrna",
+            "data_api2.get_mrna_by_cds",
+            "data_api2.get_mrna_by_gene")));
+
+    static final int DEFAULT_CHUNK_SIZE = 5000;
+    static final int DEFAULT_MAX_PARALLEL_CHUNKS = 4;
+
+    private static ExecutorService defaultExecutor = null;
+
+    private volatile int chunkSize = DEFAULT_CHUNK_SIZE;
+    private volatile int maxParallelChunks = DEFAULT_MAX_PARALLEL_CHUNKS;
+    private volatile Executor executor = null;
+
+    interface ChunkCall<RET> {
+        List<RET> call(List<Object> args) throws IOException, JsonClientException;
+    }
+
+    /** Receives the result of one chunk. */
+    interface ChunkHandler<RET> {
+        void handle(int chunk, List<RET> result);
+    }
+
+    int getChunkSize() {
+        return chunkSize;
+    }
+
+    void setChunkSize(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    int getMaxParallelChunks() {
+        return maxParallelChunks;
+    }
+
+    void setMaxParallelChunks(int maxParallelChunks) {
+        if (maxParallelChunks < 1) {
+            throw new IllegalArgumentException("At least one chunk must be allowed in flight");
+        }
+        this.maxParallelChunks = maxParallelChunks;
+    }
+
+    Executor getExecutor() {
+        Executor e = executor;
+        return e == null ? getDefaultExecutor() : e;
+    }
+
+    void setExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /** Returns true if the call's ID list is large enough to be split. */
+    boolean isChunked(String method, List<Object> args) {
+        int size = chunkSize;
+        return size > 0 && ID_LIST_METHODS.contains(method) && args.size() > 1 &&
+                args.get(1) instanceof List && ((List<?>) args.get(1)).size() > size;
+    }
+
+    /** Splits a call's arguments into one argument list per chunk of IDs,
+     * or returns the arguments unchanged if the ID list is not too large
+     * (or absent).
+     */
+    List<List<Object>> split(List<Object> args) {
+        int size = chunkSize;
+        if (size <= 0 || args.size() < 2 || !(args.get(1) instanceof List) ||
+                ((List<?>) args.get(1)).size() <= size) {
+            return Collections.singletonList(args);
+        }
+        return split(args, 1, size);
+    }
+
+    /** Splits call arguments into one argument list per chunk of at most
+     * size elements of the list argument at index.
+     */
+    static List<List<Object>> split(List<Object> args, int index, int size) {
+        List<?> ids = (List<?>) args.get(index);
+        int chunks = (ids.size() + size - 1) / size;
+        List<List<Object>> chunkArgs = new ArrayList<List<Object>>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            List<Object> a = new ArrayList<Object>(args);
+            a.set(index, new ArrayList<Object>(ids.subList(i * size, Math.min(ids.size(), (i + 1) * size))));
+            chunkArgs.add(a);
+        }
+        return chunkArgs;
+    }
+
+    <RET> List<RET> call(List<Object> args, final ChunkCall<RET> call) throws IOException, JsonClientException {
+        List<List<Object>> chunkArgs = split(args);
+        final List<List<RET>> results = new ArrayList<List<RET>>(
+                Collections.<List<RET>>nCopies(chunkArgs.size(), null));
+        run(chunkArgs, call, new ChunkHandler<RET>() {
+            @Override
+            public void handle(int chunk, List<RET> result) {
+                synchronized (results) {
+                    results.set(chunk, result);
+                }
+            }
+        });
+        synchronized (results) {
+            return merge(results);
+        }
+    }
+
+    /** Runs a call once per chunk of arguments in the same way as
+     * {@link #call}, but hands each chunk's result to a handler as soon as
+     * the chunk completes rather than merging them. The handler is called
+     * by one thread at a time, in the order the chunks complete.
+     */
+    <RET> void callEach(List<List<Object>> chunkArgs, ChunkCall<RET> call, final ChunkHandler<RET> handler)
+            throws IOException, JsonClientException {
+        run(chunkArgs, call, new ChunkHandler<RET>() {
+            @Override
+            public void handle(int chunk, List<RET> result) {
+                synchronized (this) {
+                    handler.handle(chunk, result);
+                }
+            }
+        });
+    }
+
+    private <RET> void run(final List<List<Object>> chunkArgs, final ChunkCall<RET> call,
+            final ChunkHandler<RET> handler) throws IOException, JsonClientException {
+        final int chunks = chunkArgs.size();
+        final AtomicInteger next = new AtomicInteger(0);
+        final CountDownLatch done = new CountDownLatch(chunks);
+        final Throwable[] failure = new Throwable[1];
+        Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = next.getAndIncrement(); i < chunks; i = next.getAndIncrement()) {
+                    try {
+                        boolean failed;
+                        synchronized (failure) {
+                            failed = failure[0] != null;
+                        }
+                        if (!failed) {
+                            handler.handle(i, call.call(chunkArgs.get(i)));
+                        }
+                    } catch (Throwable t) {
+                        synchronized (failure) {
+                            if (failure[0] == null) {
+                                failure[0] = t;
+                            }
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }
+        };
+        Executor exec = getExecutor();
+        for (int i = 1; i < Math.min(maxParallelChunks, chunks); i++) {
+            try {
+                exec.execute(worker);
+            } catch (RuntimeException e) {
+                // executor is saturated or shut down; the calling thread
+                // picks up the remaining chunks
+                break;
+            }
+        }
+        worker.run();
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for feature ID chunks");
+        }
+        Throwable t;
+        synchronized (failure) {
+            t = failure[0];
+        }
+        if (t != null) {
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            if (t instanceof JsonClientException) {
+                throw (JsonClientException) t;
+            }
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw new JsonClientException(t.getMessage(), t);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <RET> List<RET> merge(List<List<RET>> parts) {
+        List<SpilledResultMap<Object>> spilled = new ArrayList<SpilledResultMap<Object>>();
+        for (List<RET> part : parts) {
+            if (part != null && !part.isEmpty() && part.get(0) instanceof SpilledResultMap) {
+                spilled.add((SpilledResultMap<Object>) part.get(0));
+            }
+        }
+        if (!spilled.isEmpty() && spilled.size() == parts.size()) {
+            // keep the values on disk rather than decoding them into a copy
+            List<RET> ret = new ArrayList<RET>(1);
+            ret.add((RET) SpilledResultMap.concat(spilled));
+            return ret;
+        }
+        // chunks with a null result are skipped, as for an ordinary merge
+        List<RegionArray> arrays = new ArrayList<RegionArray>();
+        for (List<RET> part : parts) {
+            if (part != null && !part.isEmpty() && part.get(0) instanceof RegionArray) {
+                arrays.add((RegionArray) part.get(0));
+            }
+        }
+        if (!arrays.isEmpty()) {
+            List<RET> ret = new ArrayList<RET>(1);
+            ret.add((RET) RegionArray.concat(arrays));
+            return ret;
+        }
+        Map<Object, Object> merged = new LinkedHashMap<Object, Object>();
+        for (List<RET> part : parts) {
+            if (part != null && !part.isEmpty() && part.get(0) != null) {
+                merged.putAll((Map<Object, Object>) part.get(0));
+            }
+        }
+        List<RET> ret = new ArrayList<RET>(1);
+        ret.add((RET) merged);
+        return ret;
+    }
+
+    private static synchronized Executor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            defaultExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                private final AtomicInteger count = new AtomicInteger(0);
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "data_api2-chunk-" + count.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return defaultExecutor;
+    }
+}
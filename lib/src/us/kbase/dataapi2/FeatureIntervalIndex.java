@@ -0,0 +1,428 @@
+package us.kbase.dataapi2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Immutable in-memory index of feature locations for answering overlap,
+ * containment and point queries without a call to the server.</p>
+ * <pre>
+ * Build it from the result of getFeatureLocations:
+ *
+ *     FeatureIntervalIndex index = FeatureIntervalIndex.build(client.getFeatureLocations(ref, ids));
+ *     int[] hits = new int[64];
+ *     int n = index.findAt("contig_1", 12345, FeatureIntervalIndex.ANY_STRAND, hits);
+ *     for (int i = 0; i &lt; Math.min(n, hits.length); i++) {
+ *         String featureId = index.getFeatureId(index.getLocationFeature(hits[i]));
+ *     }
+ *
+ * Every location is stored as a half-open interval [start, end) on the
+ * forward strand: a "-" strand location starts at its rightmost base and
+ * extends length bases to the left, any other strand extends to the
+ * right. Contig and feature IDs are stored once each and referred to by
+ * number; the locations of each contig are kept in int and byte arrays
+ * sorted by start and laid out as an implicit augmented interval tree, so a
+ * query costs O(log n + hits).
+ *
+ * Queries write location numbers into a caller-supplied array and return
+ * the number of matches, which may exceed the array's length; the array then
+ * holds the first matches in order of start. Queries allocate nothing and
+ * an index may be shared by any number of threads.
+ * </pre>
+ */
+public final class FeatureIntervalIndex {
+    /** Strand code of a location on the forward strand. */
+    public static final byte PLUS_STRAND = '+';
+    /** Strand code of a location on the reverse strand. */
+    public static final byte MINUS_STRAND = '-';
+    /** Strand code of a location with an unknown strand; as a query strand,
+     * matches locations on any strand.
+     */
+    public static final byte ANY_STRAND = '?';
+
+    /** Subtrees with at most 2^(SCAN_LEVEL+1) locations are scanned. */
+    private static final int SCAN_LEVEL = 3;
+
+    // query modes
+    private static final int OVERLAPPING = 0;
+    private static final int WITHIN = 1;
+    private static final int ENCLOSING = 2;
+
+    private final String[] contigIds;
+    private final Map<String, Integer> contigNumbers;
+    private final int[] contigOffsets;
+    private final int[] contigRootLevels;
+    private final String[] featureIds;
+    // per location, contigs one after another, each sorted by start
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] maxEnds;
+    private final byte[] strands;
+    private final int[] locationFeatures;
+
+    private FeatureIntervalIndex(String[] contigIds, int[] contigOffsets, int[] contigRootLevels,
+            String[] featureIds, int[] starts, int[] ends, int[] maxEnds, byte[] strands, int[] locationFeatures) {
+        this.contigIds = contigIds;
+        this.contigNumbers = new HashMap<String, Integer>();
+        for (int c = 0; c < contigIds.length; c++) {
+            contigNumbers.put(contigIds[c], c);
+        }
+        this.contigOffsets = contigOffsets;
+        this.contigRootLevels = contigRootLevels;
+        this.featureIds = featureIds;
+        this.starts = starts;
+        this.ends = ends;
+        this.maxEnds = maxEnds;
+        this.strands = strands;
+        this.locationFeatures = locationFeatures;
+    }
+
+    /** Builds an index of feature locations. Locations missing a contig,
+     * start or length are left out.
+     * @param locations mapping from feature ID to the feature's locations,
+     * as returned by getFeatureLocations.
+     * @return the index.
+     */
+    public static FeatureIntervalIndex build(Map<String, List<Region>> locations) {
+        String[] featureIds = new String[locations.size()];
+        Map<String, Integer> contigNumbers = new HashMap<String, Integer>();
+        List<String> contigIds = new ArrayList<String>();
+        int[] perContigCount = new int[16];
+        // pass 1: number features and contigs, and count locations per contig
+        int feature = 0;
+        for (Map.Entry<String, List<Region>> e : locations.entrySet()) {
+            featureIds[feature++] = e.getKey();
+            if (e.getValue() == null) {
+                continue;
+            }
+            for (Region r : e.getValue()) {
+                if (!usable(r)) {
+                    continue;
+                }
+                Integer c = contigNumbers.get(r.getContigId());
+                if (c == null) {
+                    c = contigIds.size();
+                    contigNumbers.put(r.getContigId(), c);
+                    contigIds.add(r.getContigId());
+                    if (c == perContigCount.length) {
+                        perContigCount = Arrays.copyOf(perContigCount, c * 2);
+                    }
+                }
+                perContigCount[c]++;
+            }
+        }
+        int contigs = contigIds.size();
+        int[] contigOffsets = new int[contigs + 1];
+        for (int c = 0; c < contigs; c++) {
+            contigOffsets[c + 1] = contigOffsets[c] + perContigCount[c];
+        }
+        int total = contigOffsets[contigs];
+        int[] rawStarts = new int[total];
+        int[] rawEnds = new int[total];
+        byte[] rawStrands = new byte[total];
+        int[] rawFeatures = new int[total];
+        int[] fill = Arrays.copyOf(contigOffsets, contigs);
+        // pass 2: place each location in its contig's slice
+        feature = 0;
+        for (Map.Entry<String, List<Region>> e : locations.entrySet()) {
+            int f = feature++;
+            if (e.getValue() == null) {
+                continue;
+            }
+            for (Region r : e.getValue()) {
+                if (!usable(r)) {
+                    continue;
+                }
+                int i = fill[contigNumbers.get(r.getContigId())]++;
+                byte strand = strandCode(r.getStrand());
+                int start = toInt(r.getStart());
+                int length = toInt(r.getLength());
+                if (strand == MINUS_STRAND) {
+                    rawStarts[i] = start - length + 1;
+                    rawEnds[i] = start + 1;
+                } else {
+                    rawStarts[i] = start;
+                    rawEnds[i] = start + length;
+                }
+                rawStrands[i] = strand;
+                rawFeatures[i] = f;
+            }
+        }
+        // sort each contig's slice by start, then build its tree
+        int[] starts = new int[total];
+        int[] ends = new int[total];
+        int[] maxEnds = new int[total];
+        byte[] strands = new byte[total];
+        int[] locationFeatures = new int[total];
+        int[] rootLevels = new int[contigs];
+        for (int c = 0; c < contigs; c++) {
+            int from = contigOffsets[c];
+            int n = contigOffsets[c + 1] - from;
+            long[] order = new long[n];
+            for (int i = 0; i < n; i++) {
+                // start in the high bits, position in the slice in the low
+                order[i] = ((long) rawStarts[from + i] << 32) | i;
+            }
+            Arrays.sort(order);
+            for (int i = 0; i < n; i++) {
+                int src = from + (int) order[i];
+                starts[from + i] = rawStarts[src];
+                ends[from + i] = rawEnds[src];
+                strands[from + i] = rawStrands[src];
+                locationFeatures[from + i] = rawFeatures[src];
+            }
+            rootLevels[c] = augment(ends, maxEnds, from, n);
+        }
+        return new FeatureIntervalIndex(contigIds.toArray(new String[contigs]),
+                contigOffsets, rootLevels, featureIds, starts, ends, maxEnds, strands, locationFeatures);
+    }
+
+    private static boolean usable(Region r) {
+        return r != null && r.getContigId() != null && r.getStart() != null && r.getLength() != null;
+    }
+
+    private static int toInt(Long value) {
+        long v = value;
+        if (v < Integer.MIN_VALUE || v > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Location coordinate out of range: " + v);
+        }
+        return (int) v;
+    }
+
+    /** Get the strand code for a strand string.
+     * @param strand "+", "-", or anything else for an unknown strand.
+     * @return {@link #PLUS_STRAND}, {@link #MINUS_STRAND} or
+     * {@link #ANY_STRAND}.
+     */
+    public static byte strandCode(String strand) {
+        if ("+".equals(strand)) {
+            return PLUS_STRAND;
+        }
+        if ("-".equals(strand)) {
+            return MINUS_STRAND;
+        }
+        return ANY_STRAND;
+    }
+
+    /** Records in maxEnds the largest end in the subtree rooted at each
+     * location of a slice, and returns the level of the slice's root.
+     */
+    private static int augment(int[] ends, int[] maxEnds, int from, int n) {
+        if (n == 0) {
+            return -1;
+        }
+        System.arraycopy(ends, from, maxEnds, from, n);
+        // leaves are the even positions; last is the largest end of the
+        // rightmost (possibly incomplete) subtree at the current level,
+        // standing in for right children past the end of the slice
+        int lastI = (n - 1) & ~1;
+        int last = maxEnds[from + lastI];
+        int k = 1;
+        for (; (1L << k) <= n; k++) {
+            int x = 1 << (k - 1);
+            for (long i = (2L * x) - 1; i < n; i += 4L * x) {
+                int at = from + (int) i;
+                int left = maxEnds[at - x];
+                int right = i + x < n ? maxEnds[at + x] : last;
+                maxEnds[at] = Math.max(ends[at], Math.max(left, right));
+            }
+            lastI = ((lastI >> k) & 1) != 0 ? lastI - x : lastI + x;
+            if (lastI < n && maxEnds[from + lastI] > last) {
+                last = maxEnds[from + lastI];
+            }
+        }
+        return k - 1;
+    }
+
+    /** Finds the locations that overlap [start, end) on a contig.
+     * @param contigId the contig.
+     * @param start the first position of the query interval.
+     * @param end the position after the last one of the query interval.
+     * @param strand the strand to match, or {@link #ANY_STRAND}.
+     * @param out receives the matching location numbers in order of start;
+     * pass an empty array to just count matches.
+     * @return the number of matching locations.
+     */
+    public int findOverlapping(String contigId, int start, int end, byte strand, int[] out) {
+        return find(contigId, start, end, strand, OVERLAPPING, out);
+    }
+
+    /** Finds the locations that lie entirely within [start, end) on a
+     * contig.
+     * @param contigId the contig.
+     * @param start the first position of the query interval.
+     * @param end the position after the last one of the query interval.
+     * @param strand the strand to match, or {@link #ANY_STRAND}.
+     * @param out receives the matching location numbers in order of start;
+     * pass an empty array to just count matches.
+     * @return the number of matching locations.
+     */
+    public int findWithin(String contigId, int start, int end, byte strand, int[] out) {
+        return find(contigId, start, end, strand, WITHIN, out);
+    }
+
+    /** Finds the locations that entirely cover [start, end) on a contig.
+     * @param contigId the contig.
+     * @param start the first position of the query interval.
+     * @param end the position after the last one of the query interval.
+     * @param strand the strand to match, or {@link #ANY_STRAND}.
+     * @param out receives the matching location numbers in order of start;
+     * pass an empty array to just count matches.
+     * @return the number of matching locations.
+     */
+    public int findEnclosing(String contigId, int start, int end, byte strand, int[] out) {
+        return find(contigId, start, end, strand, ENCLOSING, out);
+    }
+
+    /** Finds the locations that cover a position on a contig.
+     * @param contigId the contig.
+     * @param position the position.
+     * @param strand the strand to match, or {@link #ANY_STRAND}.
+     * @param out receives the matching location numbers in order of start;
+     * pass an empty array to just count matches.
+     * @return the number of matching locations.
+     */
+    public int findAt(String contigId, int position, byte strand, int[] out) {
+        return find(contigId, position, position + 1, strand, OVERLAPPING, out);
+    }
+
+    private int find(String contigId, int start, int end, byte strand, int mode, int[] out) {
+        Integer c = contigNumbers.get(contigId);
+        if (c == null || start >= end) {
+            return 0;
+        }
+        int from = contigOffsets[c];
+        int n = contigOffsets[c + 1] - from;
+        if (n == 0) {
+            return 0;
+        }
+        int root = contigRootLevels[c];
+        return visit(from, n, root, (1 << root) - 1, start, end, strand, mode, out, 0);
+    }
+
+    /** Walks the subtree of level k rooted at slice position x, adding
+     * matches to out after the count found so far.
+     */
+    private int visit(int from, int n, int k, int x, int start, int end, byte strand, int mode,
+            int[] out, int count) {
+        if (k <= SCAN_LEVEL) {
+            int i = x >> k << k;
+            int stop = (int) Math.min((long) i + (1L << (k + 1)) - 1, n);
+            for (; i < stop && starts[from + i] < end; i++) {
+                count = consider(from + i, start, end, strand, mode, out, count);
+            }
+            return count;
+        }
+        int half = 1 << (k - 1);
+        int left = x - half;
+        if (left >= n || maxEnds[from + left] > start) {
+            count = visit(from, n, k - 1, left, start, end, strand, mode, out, count);
+        }
+        if (x < n && starts[from + x] < end) {
+            count = consider(from + x, start, end, strand, mode, out, count);
+            count = visit(from, n, k - 1, x + half, start, end, strand, mode, out, count);
+        }
+        return count;
+    }
+
+    private int consider(int loc, int start, int end, byte strand, int mode, int[] out, int count) {
+        // the walk only reaches locations that start before end
+        int s = starts[loc];
+        int e = ends[loc];
+        if (e <= start || (strand != ANY_STRAND && strands[loc] != strand)) {
+            return count;
+        }
+        if ((mode == WITHIN && (s < start || e > end)) || (mode == ENCLOSING && (s > start || e < end))) {
+            return count;
+        }
+        if (count < out.length) {
+            out[count] = loc;
+        }
+        return count + 1;
+    }
+
+    /** Get the number of indexed features.
+     * @return the feature count.
+     */
+    public int getFeatureCount() {
+        return featureIds.length;
+    }
+
+    /** Get the number of indexed locations.
+     * @return the location count.
+     */
+    public int getLocationCount() {
+        return starts.length;
+    }
+
+    /** Get the IDs of the indexed contigs.
+     * @return the contig IDs.
+     */
+    public List<String> getContigIds() {
+        return Arrays.asList(contigIds.clone());
+    }
+
+    /** Get the ID of a feature.
+     * @param feature the feature number.
+     * @return the feature ID.
+     */
+    public String getFeatureId(int feature) {
+        return featureIds[feature];
+    }
+
+    /** Get the feature a location belongs to.
+     * @param location the location number.
+     * @return the feature number.
+     */
+    public int getLocationFeature(int location) {
+        return locationFeatures[location];
+    }
+
+    /** Get the contig of a location.
+     * @param location the location number.
+     * @return the contig ID.
+     */
+    public String getLocationContigId(int location) {
+        int lo = 0;
+        int hi = contigIds.length - 1;
+        // the last contig whose slice starts at or before the location
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (contigOffsets[mid] <= location) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return contigIds[lo];
+    }
+
+    /** Get the first forward-strand position of a location.
+     * @param location the location number.
+     * @return the start of the location's interval.
+     */
+    public int getLocationStart(int location) {
+        return starts[location];
+    }
+
+    /** Get the position after the last forward-strand position of a
+     * location.
+     * @param location the location number.
+     * @return the end of the location's interval.
+     */
+    public int getLocationEnd(int location) {
+        return ends[location];
+    }
+
+    /** Get the strand of a location.
+     * @param location the location number.
+     * @return {@link #PLUS_STRAND}, {@link #MINUS_STRAND} or
+     * {@link #ANY_STRAND}.
+     */
+    public byte getLocationStrand(int location) {
+        return strands[location];
+    }
+}
@@ -0,0 +1,599 @@
+package us.kbase.dataapi2;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Immutable graph of the gene, mRNA and CDS relationships of a
+ * GenomeAnnotation, as returned by get_feature_relationships.</p>
+ * <pre>
+ * Genes, mRNAs and CDSs are numbered by their position in the sorted
+ * feature IDs of each type. Each child holds the number of its parent, or
+ * -1, and the children of each parent are kept in compressed sparse row
+ * form: the mRNAs of gene g are getGeneMrna(i) for i from
+ * getGeneMrnaFrom(g) to getGeneMrnaTo(g) - 1, and likewise for the CDSs
+ * of a gene and of an mRNA. Walking the whole genome touches only int
+ * arrays, with no maps or lists per feature.
+ *
+ *     for (int g = 0; g &lt; graph.getGeneCount(); g++) {
+ *         for (int i = graph.getGeneMrnaFrom(g); i &lt; graph.getGeneMrnaTo(g); i++) {
+ *             int m = graph.getGeneMrna(i);
+ *             for (int j = graph.getMrnaCdsFrom(m); j &lt; graph.getMrnaCdsTo(m); j++) {
+ *                 ...
+ *
+ * A GeneModelGraph reads and writes the same JSON as Feature_relationships,
+ * so {@link DataApi2Client#getGeneModelGraph} parses straight into one.
+ *
+ * The getXByY methods return results shaped like those of the service
+ * methods of the same names, but derive them from the parent links of
+ * get_feature_relationships. The server builds each link from whichever
+ * of the two features records it, preferring the child's record, and
+ * drops links to features that are not present. The service methods
+ * instead read a single record each: get_cds_by_mrna the mRNA's
+ * associated_CDS, get_mrna_by_gene and get_cds_by_gene the gene's
+ * children, and the others the child's parent. The answers therefore
+ * match only for genomes whose records agree.
+ * </pre>
+ */
+@JsonSerialize(using = GeneModelGraph.Serializer.class)
+@JsonDeserialize(using = GeneModelGraph.Deserializer.class)
+public final class GeneModelGraph {
+    private static final String[] NO_IDS = new String[0];
+
+    private final String[] geneIds;
+    private final String[] mrnaIds;
+    private final String[] cdsIds;
+    private final int[] mrnaGene;
+    private final int[] cdsMrna;
+    private final int[] cdsGene;
+    private final int[] geneMrnaOffsets;
+    private final int[] geneMrnas;
+    private final int[] geneCdsOffsets;
+    private final int[] geneCdss;
+    private final int[] mrnaCdsOffsets;
+    private final int[] mrnaCdss;
+    private volatile Map<String, Integer> geneNumbers = null;
+    private volatile Map<String, Integer> mrnaNumbers = null;
+    private volatile Map<String, Integer> cdsNumbers = null;
+
+    private GeneModelGraph(String[] geneIds, String[] mrnaIds, String[] cdsIds,
+            int[] mrnaGene, int[] cdsMrna, int[] cdsGene) {
+        this.geneIds = geneIds;
+        this.mrnaIds = mrnaIds;
+        this.cdsIds = cdsIds;
+        this.mrnaGene = parents("mrna_gene", mrnaGene, mrnaIds.length, geneIds.length);
+        this.cdsMrna = parents("cds_mrna", cdsMrna, cdsIds.length, mrnaIds.length);
+        this.cdsGene = parents("cds_gene", cdsGene, cdsIds.length, geneIds.length);
+        this.geneMrnaOffsets = offsets(this.mrnaGene, geneIds.length);
+        this.geneMrnas = children(this.mrnaGene, geneMrnaOffsets);
+        this.geneCdsOffsets = offsets(this.cdsGene, geneIds.length);
+        this.geneCdss = children(this.cdsGene, geneCdsOffsets);
+        this.mrnaCdsOffsets = offsets(this.cdsMrna, mrnaIds.length);
+        this.mrnaCdss = children(this.cdsMrna, mrnaCdsOffsets);
+    }
+
+    /** Builds a graph from the result of get_feature_relationships.
+     * @param relationships the relationships.
+     * @return the graph.
+     * @throws IllegalArgumentException if a parent list does not match its
+     * feature IDs or refers to a feature that is not present.
+     */
+    public static GeneModelGraph from(FeatureRelationships relationships) {
+        return new GeneModelGraph(ids(relationships.getGeneIds()), ids(relationships.getMrnaIds()),
+                ids(relationships.getCdsIds()), ints(relationships.getMrnaGene()),
+                ints(relationships.getCdsMrna()), ints(relationships.getCdsGene()));
+    }
+
+    private static String[] ids(List<String> ids) {
+        return ids == null ? NO_IDS : ids.toArray(new String[ids.size()]);
+    }
+
+    private static int[] ints(List<Long> values) {
+        if (values == null) {
+            return null;
+        }
+        int[] ret = new int[values.size()];
+        for (int i = 0; i < ret.length; i++) {
+            Long v = values.get(i);
+            ret[i] = v == null ? -1 : v.intValue();
+        }
+        return ret;
+    }
+
+    private static int[] parents(String name, int[] parents, int childCount, int parentCount) {
+        if (parents == null) {
+            // a missing list means no relationships of that kind
+            parents = new int[childCount];
+            Arrays.fill(parents, -1);
+            return parents;
+        }
+        if (parents.length != childCount) {
+            throw new IllegalArgumentException(name + " has " + parents.length +
+                    " entries for " + childCount + " features");
+        }
+        for (int p : parents) {
+            if (p < -1 || p >= parentCount) {
+                throw new IllegalArgumentException(name + " refers to feature " + p + " of " + parentCount);
+            }
+        }
+        return parents;
+    }
+
+    private static int[] offsets(int[] parents, int parentCount) {
+        int[] offsets = new int[parentCount + 1];
+        for (int p : parents) {
+            if (p >= 0) {
+                offsets[p + 1]++;
+            }
+        }
+        for (int p = 0; p < parentCount; p++) {
+            offsets[p + 1] += offsets[p];
+        }
+        return offsets;
+    }
+
+    private static int[] children(int[] parents, int[] offsets) {
+        int[] children = new int[offsets[offsets.length - 1]];
+        int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+        // children are visited in order, so each parent's are sorted
+        for (int c = 0; c < parents.length; c++) {
+            if (parents[c] >= 0) {
+                children[next[parents[c]]++] = c;
+            }
+        }
+        return children;
+    }
+
+    /** Get the number of genes.
+     * @return the gene count.
+     */
+    public int getGeneCount() {
+        return geneIds.length;
+    }
+
+    /** Get the number of mRNAs.
+     * @return the mRNA count.
+     */
+    public int getMrnaCount() {
+        return mrnaIds.length;
+    }
+
+    /** Get the number of CDSs.
+     * @return the CDS count.
+     */
+    public int getCdsCount() {
+        return cdsIds.length;
+    }
+
+    /** Get the ID of a gene.
+     * @param g the gene number.
+     * @return the feature ID.
+     */
+    public String getGeneId(int g) {
+        return geneIds[g];
+    }
+
+    /** Get the ID of an mRNA.
+     * @param m the mRNA number.
+     * @return the feature ID.
+     */
+    public String getMrnaId(int m) {
+        return mrnaIds[m];
+    }
+
+    /** Get the ID of a CDS.
+     * @param c the CDS number.
+     * @return the feature ID.
+     */
+    public String getCdsId(int c) {
+        return cdsIds[c];
+    }
+
+    /** Get the number of a gene.
+     * @param featureId the feature ID.
+     * @return the gene number, or -1 if the gene is not present.
+     */
+    public int getGeneNumber(String featureId) {
+        Map<String, Integer> numbers = geneNumbers;
+        if (numbers == null) {
+            // built on first use; racing threads build equal maps
+            numbers = geneNumbers = numbers(geneIds);
+        }
+        return number(numbers, featureId);
+    }
+
+    /** Get the number of an mRNA.
+     * @param featureId the feature ID.
+     * @return the mRNA number, or -1 if the mRNA is not present.
+     */
+    public int getMrnaNumber(String featureId) {
+        Map<String, Integer> numbers = mrnaNumbers;
+        if (numbers == null) {
+            numbers = mrnaNumbers = numbers(mrnaIds);
+        }
+        return number(numbers, featureId);
+    }
+
+    /** Get the number of a CDS.
+     * @param featureId the feature ID.
+     * @return the CDS number, or -1 if the CDS is not present.
+     */
+    public int getCdsNumber(String featureId) {
+        Map<String, Integer> numbers = cdsNumbers;
+        if (numbers == null) {
+            numbers = cdsNumbers = numbers(cdsIds);
+        }
+        return number(numbers, featureId);
+    }
+
+    private static Map<String, Integer> numbers(String[] ids) {
+        Map<String, Integer> numbers = new HashMap<String, Integer>();
+        for (int i = 0; i < ids.length; i++) {
+            numbers.put(ids[i], i);
+        }
+        return numbers;
+    }
+
+    private static int number(Map<String, Integer> numbers, String featureId) {
+        Integer i = numbers.get(featureId);
+        return i == null ? -1 : i;
+    }
+
+    /** Get the gene of an mRNA.
+     * @param m the mRNA number.
+     * @return the gene number, or -1 if the mRNA has no gene.
+     */
+    public int getGeneOfMrna(int m) {
+        return mrnaGene[m];
+    }
+
+    /** Get the mRNA of a CDS.
+     * @param c the CDS number.
+     * @return the mRNA number, or -1 if the CDS has no mRNA.
+     */
+    public int getMrnaOfCds(int c) {
+        return cdsMrna[c];
+    }
+
+    /** Get the gene of a CDS.
+     * @param c the CDS number.
+     * @return the gene number, or -1 if the CDS has no gene.
+     */
+    public int getGeneOfCds(int c) {
+        return cdsGene[c];
+    }
+
+    /** Get the position of the first mRNA of a gene.
+     * @param g the gene number.
+     * @return the position, for {@link #getGeneMrna}.
+     */
+    public int getGeneMrnaFrom(int g) {
+        return from(geneMrnaOffsets, g);
+    }
+
+    /** Get the position after the last mRNA of a gene.
+     * @param g the gene number.
+     * @return the position, for {@link #getGeneMrna}.
+     */
+    public int getGeneMrnaTo(int g) {
+        return to(geneMrnaOffsets, g);
+    }
+
+    /** Get an mRNA of a gene.
+     * @param i the position, from getGeneMrnaFrom(g) to getGeneMrnaTo(g) - 1.
+     * @return the mRNA number.
+     */
+    public int getGeneMrna(int i) {
+        return geneMrnas[i];
+    }
+
+    /** Get the position of the first CDS of a gene.
+     * @param g the gene number.
+     * @return the position, for {@link #getGeneCds}.
+     */
+    public int getGeneCdsFrom(int g) {
+        return from(geneCdsOffsets, g);
+    }
+
+    /** Get the position after the last CDS of a gene.
+     * @param g the gene number.
+     * @return the position, for {@link #getGeneCds}.
+     */
+    public int getGeneCdsTo(int g) {
+        return to(geneCdsOffsets, g);
+    }
+
+    /** Get a CDS of a gene.
+     * @param i the position, from getGeneCdsFrom(g) to getGeneCdsTo(g) - 1.
+     * @return the CDS number.
+     */
+    public int getGeneCds(int i) {
+        return geneCdss[i];
+    }
+
+    /** Get the position of the first CDS of an mRNA.
+     * @param m the mRNA number.
+     * @return the position, for {@link #getMrnaCds}.
+     */
+    public int getMrnaCdsFrom(int m) {
+        return from(mrnaCdsOffsets, m);
+    }
+
+    /** Get the position after the last CDS of an mRNA.
+     * @param m the mRNA number.
+     * @return the position, for {@link #getMrnaCds}.
+     */
+    public int getMrnaCdsTo(int m) {
+        return to(mrnaCdsOffsets, m);
+    }
+
+    /** Get a CDS of an mRNA.
+     * @param i the position, from getMrnaCdsFrom(m) to getMrnaCdsTo(m) - 1.
+     * @return the CDS number.
+     */
+    public int getMrnaCds(int i) {
+        return mrnaCdss[i];
+    }
+
+    private static int from(int[] offsets, int p) {
+        if (p < 0 || p >= offsets.length - 1) {
+            throw new IndexOutOfBoundsException("Feature " + p + " of " + (offsets.length - 1));
+        }
+        return offsets[p];
+    }
+
+    private static int to(int[] offsets, int p) {
+        if (p < 0 || p >= offsets.length - 1) {
+            throw new IndexOutOfBoundsException("Feature " + p + " of " + (offsets.length - 1));
+        }
+        return offsets[p + 1];
+    }
+
+    /** Get the mRNA IDs of each of some genes, from the parent links of
+     * the mRNAs; see the class notes on get_mrna_by_gene. Genes that are
+     * not present are left out.
+     * @param geneIdList the gene IDs.
+     * @return the mRNA IDs of each gene.
+     */
+    public Map<String, List<String>> getMrnaByGene(List<String> geneIdList) {
+        Map<String, List<String>> ret = new LinkedHashMap<String, List<String>>();
+        for (String id : geneIdList) {
+            int g = getGeneNumber(id);
+            if (g >= 0) {
+                ret.put(id, childIds(geneMrnaOffsets, geneMrnas, mrnaIds, g));
+            }
+        }
+        return ret;
+    }
+
+    /** Get the CDS IDs of each of some genes, from the gene links of the
+     * CDSs; see the class notes on get_cds_by_gene. Genes that are not
+     * present are left out.
+     * @param geneIdList the gene IDs.
+     * @return the CDS IDs of each gene.
+     */
+    public Map<String, List<String>> getCdsByGene(List<String> geneIdList) {
+        Map<String, List<String>> ret = new LinkedHashMap<String, List<String>>();
+        for (String id : geneIdList) {
+            int g = getGeneNumber(id);
+            if (g >= 0) {
+                ret.put(id, childIds(geneCdsOffsets, geneCdss, cdsIds, g));
+            }
+        }
+        return ret;
+    }
+
+    /** Get the CDS ID of each of some mRNAs, from the mRNA links of the
+     * CDSs: the first if an mRNA has several, null if it has none; see the
+     * class notes on get_cds_by_mrna. mRNAs that are not present are left
+     * out.
+     * @param mrnaIdList the mRNA IDs.
+     * @return the CDS ID of each mRNA.
+     */
+    public Map<String, String> getCdsByMrna(List<String> mrnaIdList) {
+        Map<String, String> ret = new LinkedHashMap<String, String>();
+        for (String id : mrnaIdList) {
+            int m = getMrnaNumber(id);
+            if (m >= 0) {
+                int from = mrnaCdsOffsets[m];
+                ret.put(id, from == mrnaCdsOffsets[m + 1] ? null : cdsIds[mrnaCdss[from]]);
+            }
+        }
+        return ret;
+    }
+
+    /** Get the gene ID of each of some CDSs from their gene links, shaped
+     * as get_gene_by_cds. CDSs that are not present are left out.
+     * @param cdsIdList the CDS IDs.
+     * @return the gene ID of each CDS, or null if it has none.
+     */
+    public Map<String, String> getGeneByCds(List<String> cdsIdList) {
+        Map<String, String> ret = new LinkedHashMap<String, String>();
+        for (String id : cdsIdList) {
+            int c = getCdsNumber(id);
+            if (c >= 0) {
+                ret.put(id, parentId(cdsGene, geneIds, c));
+            }
+        }
+        return ret;
+    }
+
+    /** Get the gene ID of each of some mRNAs from their gene links, shaped
+     * as get_gene_by_mrna. mRNAs that are not present are left out.
+     * @param mrnaIdList the mRNA IDs.
+     * @return the gene ID of each mRNA, or null if it has none.
+     */
+    public Map<String, String> getGeneByMrna(List<String> mrnaIdList) {
+        Map<String, String> ret = new LinkedHashMap<String, String>();
+        for (String id : mrnaIdList) {
+            int m = getMrnaNumber(id);
+            if (m >= 0) {
+                ret.put(id, parentId(mrnaGene, geneIds, m));
+            }
+        }
+        return ret;
+    }
+
+    /** Get the mRNA ID of each of some CDSs from their mRNA links, shaped
+     * as get_mrna_by_cds. CDSs that are not present are left out.
+     * @param cdsIdList the CDS IDs.
+     * @return the mRNA ID of each CDS, or null if it has none.
+     */
+    public Map<String, String> getMrnaByCds(List<String> cdsIdList) {
+        Map<String, String> ret = new LinkedHashMap<String, String>();
+        for (String id : cdsIdList) {
+            int c = getCdsNumber(id);
+            if (c >= 0) {
+                ret.put(id, parentId(cdsMrna, mrnaIds, c));
+            }
+        }
+        return ret;
+    }
+
+    private static List<String> childIds(int[] offsets, int[] children, String[] ids, int p) {
+        List<String> ret = new ArrayList<String>(offsets[p + 1] - offsets[p]);
+        for (int i = offsets[p]; i < offsets[p + 1]; i++) {
+            ret.add(ids[children[i]]);
+        }
+        return ret;
+    }
+
+    private static String parentId(int[] parents, String[] ids, int c) {
+        return parents[c] < 0 ? null : ids[parents[c]];
+    }
+
+    /** Copies the graph into a Feature_relationships structure.
+     * @return the relationships.
+     */
+    public FeatureRelationships toFeatureRelationships() {
+        return new FeatureRelationships().withGeneIds(Arrays.asList(geneIds.clone()))
+                .withMrnaIds(Arrays.asList(mrnaIds.clone())).withCdsIds(Arrays.asList(cdsIds.clone()))
+                .withMrnaGene(longs(mrnaGene)).withCdsMrna(longs(cdsMrna)).withCdsGene(longs(cdsGene));
+    }
+
+    private static List<Long> longs(int[] values) {
+        List<Long> ret = new ArrayList<Long>(values.length);
+        for (int v : values) {
+            ret.add((long) v);
+        }
+        return ret;
+    }
+
+    /** Writes Feature_relationships. */
+    static final class Serializer extends JsonSerializer<GeneModelGraph> {
+        @Override
+        public void serialize(GeneModelGraph value, JsonGenerator g, SerializerProvider provider) throws IOException {
+            g.writeStartObject();
+            writeIds("gene_ids", value.geneIds, g);
+            writeIds("mrna_ids", value.mrnaIds, g);
+            writeIds("cds_ids", value.cdsIds, g);
+            writeInts("mrna_gene", value.mrnaGene, g);
+            writeInts("cds_mrna", value.cdsMrna, g);
+            writeInts("cds_gene", value.cdsGene, g);
+            g.writeEndObject();
+        }
+
+        private static void writeIds(String field, String[] ids, JsonGenerator g) throws IOException {
+            g.writeArrayFieldStart(field);
+            for (String id : ids) {
+                g.writeString(id);
+            }
+            g.writeEndArray();
+        }
+
+        private static void writeInts(String field, int[] values, JsonGenerator g) throws IOException {
+            g.writeArrayFieldStart(field);
+            for (int v : values) {
+                g.writeNumber(v);
+            }
+            g.writeEndArray();
+        }
+    }
+
+    /** Reads Feature_relationships straight into int arrays. */
+    static final class Deserializer extends JsonDeserializer<GeneModelGraph> {
+        @Override
+        public GeneModelGraph deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            if (jp.getCurrentToken() != JsonToken.START_OBJECT) {
+                throw JsonMappingException.from(jp, "Expected a Feature_relationships object");
+            }
+            String[] geneIds = NO_IDS;
+            String[] mrnaIds = NO_IDS;
+            String[] cdsIds = NO_IDS;
+            int[] mrnaGene = null;
+            int[] cdsMrna = null;
+            int[] cdsGene = null;
+            while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                String field = jp.getCurrentName();
+                jp.nextToken();
+                if (field.equals("gene_ids")) {
+                    geneIds = readIds(jp);
+                } else if (field.equals("mrna_ids")) {
+                    mrnaIds = readIds(jp);
+                } else if (field.equals("cds_ids")) {
+                    cdsIds = readIds(jp);
+                } else if (field.equals("mrna_gene")) {
+                    mrnaGene = readInts(jp);
+                } else if (field.equals("cds_mrna")) {
+                    cdsMrna = readInts(jp);
+                } else if (field.equals("cds_gene")) {
+                    cdsGene = readInts(jp);
+                } else {
+                    jp.skipChildren();
+                }
+            }
+            try {
+                return new GeneModelGraph(geneIds, mrnaIds, cdsIds, mrnaGene, cdsMrna, cdsGene);
+            } catch (IllegalArgumentException e) {
+                throw JsonMappingException.from(jp, e.getMessage());
+            }
+        }
+
+        private static String[] readIds(JsonParser jp) throws IOException {
+            if (jp.getCurrentToken() == JsonToken.VALUE_NULL) {
+                return NO_IDS;
+            }
+            if (jp.getCurrentToken() != JsonToken.START_ARRAY) {
+                throw JsonMappingException.from(jp, "Expected a list of feature IDs");
+            }
+            List<String> ids = new ArrayList<String>();
+            while (jp.nextToken() != JsonToken.END_ARRAY) {
+                ids.add(jp.getText());
+            }
+            return ids.toArray(new String[ids.size()]);
+        }
+
+        private static int[] readInts(JsonParser jp) throws IOException {
+            if (jp.getCurrentToken() == JsonToken.VALUE_NULL) {
+                return null;
+            }
+            if (jp.getCurrentToken() != JsonToken.START_ARRAY) {
+                throw JsonMappingException.from(jp, "Expected a list of feature positions");
+            }
+            int[] values = new int[16];
+            int n = 0;
+            while (jp.nextToken() != JsonToken.END_ARRAY) {
+                if (n == values.length) {
+                    values = Arrays.copyOf(values, n * 2);
+                }
+                values[n++] = jp.getCurrentToken() == JsonToken.VALUE_NULL ? -1 : jp.getIntValue();
+            }
+            return n == values.length ? values : Arrays.copyOf(values, n);
+        }
+    }
+}
@@ -0,0 +1,394 @@
+package us.kbase.dataapi2;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>Immutable, column-oriented copy of the features of one version of a
+ * GenomeAnnotation, for holding whole genomes in memory.</p>
+ * <pre>
+ * Each feature is a row. Types, functions, aliases, alias sources and
+ * contig IDs are stored once each in string dictionaries and referred to
+ * by int codes; the aliases of all features are kept in one compressed
+ * sparse row array and the locations in a {@link RegionArray}, so a
+ * feature costs a few ints and its share of the location columns rather
+ * than a FeatureData with its maps, lists and boxed numbers. The gene,
+ * mRNA and CDS relationships are held as a {@link GeneModelGraph}.
+ *
+ * Load one with {@link DataApi2Client#getGenomeSnapshot}, which requires
+ * a versioned reference so the snapshot can never go stale. Rows are
+ * found by feature ID in O(1) through an open addressing table:
+ *
+ *     GenomeSnapshot genome = client.getGenomeSnapshot("1837/57/1");
+ *     int row = genome.getRow("kb|g.140057.CDS.2901");
+ *     String function = genome.getFunction(row);
+ *     FeatureData view = genome.getFeature(row);
+ *
+ * getFeature builds a new FeatureData with the fields in FIELDS on each
+ * call, for code written against get_features; the accessors read the
+ * columns without allocating. A {@link FeatureFilterEngine} built on a
+ * snapshot answers get_feature_ids filters over it. A snapshot may be
+ * shared by any number of threads.
+ * </pre>
+ */
+public final class GenomeSnapshot {
+    /** The Feature_data fields a snapshot holds. */
+    public static final List<String> FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "feature_id", "feature_type", "feature_function", "feature_aliases", "feature_locations"));
+
+    private final String ref;
+    private final int size;
+    private final String[] featureIds;
+    // row + 1 of each feature ID, 0 for an empty slot
+    private final int[] slots;
+    private final String[] types;
+    private final int[] typeCodes;
+    private final String[] functions;
+    // -1 for a feature without a function
+    private final int[] functionCodes;
+    private final String[] aliases;
+    private final int[] aliasOffsets;
+    private final int[] aliasCodes;
+    private final String[] sources;
+    private final int[] sourceOffsets;
+    private final int[] sourceCodes;
+    private final RegionArray locations;
+    private final GeneModelGraph relationships;
+
+    private GenomeSnapshot(Builder b, GeneModelGraph relationships) {
+        this.ref = b.ref;
+        this.size = b.featureIds.size();
+        this.featureIds = b.featureIds.toArray(new String[size]);
+        this.types = b.types.values.toArray(new String[b.types.values.size()]);
+        this.typeCodes = Arrays.copyOf(b.typeCodes, size);
+        this.functions = b.functions.values.toArray(new String[b.functions.values.size()]);
+        this.functionCodes = Arrays.copyOf(b.functionCodes, size);
+        this.aliases = b.aliases.values.toArray(new String[b.aliases.values.size()]);
+        this.aliasOffsets = Arrays.copyOf(b.aliasOffsets, size + 1);
+        this.aliasOffsets[size] = b.aliasCount;
+        this.aliasCodes = Arrays.copyOf(b.aliasCodes, b.aliasCount);
+        this.sources = b.sources.values.toArray(new String[b.sources.values.size()]);
+        this.sourceOffsets = Arrays.copyOf(b.sourceOffsets, b.aliasCount + 1);
+        this.sourceOffsets[b.aliasCount] = b.sourceCount;
+        this.sourceCodes = Arrays.copyOf(b.sourceCodes, b.sourceCount);
+        this.locations = b.locations.build();
+        this.relationships = relationships;
+
+        int capacity = Integer.highestOneBit(Math.max(size, 1) * 2 + 1) << 1;
+        this.slots = new int[capacity];
+        for (int row = 0; row < size; row++) {
+            int s = slot(featureIds[row]);
+            // a repeated ID keeps its first row, as a mapping would keep one
+            if (slots[s] == 0) {
+                slots[s] = row + 1;
+            }
+        }
+    }
+
+    private int slot(String featureId) {
+        int mask = slots.length - 1;
+        int h = featureId.hashCode();
+        int s = (h ^ (h >>> 16)) & mask;
+        while (slots[s] != 0 && !featureIds[slots[s] - 1].equals(featureId)) {
+            s = (s + 1) & mask;
+        }
+        return s;
+    }
+
+    /** Get the versioned reference the snapshot was loaded from.
+     * @return the reference, ws_id/obj_id/version.
+     */
+    public String getRef() {
+        return ref;
+    }
+
+    /** Get the number of features.
+     * @return the row count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /** Get the row of a feature.
+     * @param featureId the feature ID.
+     * @return the row, or -1 if the feature is not present.
+     */
+    public int getRow(String featureId) {
+        return slots[slot(featureId)] - 1;
+    }
+
+    /** Get the ID of a feature.
+     * @param row the feature's row.
+     * @return the feature ID.
+     */
+    public String getFeatureId(int row) {
+        return featureIds[row];
+    }
+
+    /** Get the number of distinct feature types.
+     * @return the size of the type dictionary.
+     */
+    public int getTypeCount() {
+        return types.length;
+    }
+
+    /** Get a feature type from the dictionary.
+     * @param code the type code.
+     * @return the feature type.
+     */
+    public String getTypeName(int code) {
+        return types[code];
+    }
+
+    /** Get the type code of a feature.
+     * @param row the feature's row.
+     * @return the code of the feature's type.
+     */
+    public int getTypeCode(int row) {
+        check(row);
+        return typeCodes[row];
+    }
+
+    /** Get the type of a feature.
+     * @param row the feature's row.
+     * @return the feature type.
+     */
+    public String getType(int row) {
+        check(row);
+        return types[typeCodes[row]];
+    }
+
+    /** Get the number of distinct functions.
+     * @return the size of the function dictionary.
+     */
+    public int getFunctionCount() {
+        return functions.length;
+    }
+
+    /** Get a function from the dictionary.
+     * @param code the function code.
+     * @return the function.
+     */
+    public String getFunctionName(int code) {
+        return functions[code];
+    }
+
+    /** Get the function code of a feature.
+     * @param row the feature's row.
+     * @return the code of the feature's function, or -1 if it has none.
+     */
+    public int getFunctionCode(int row) {
+        check(row);
+        return functionCodes[row];
+    }
+
+    /** Get the function of a feature.
+     * @param row the feature's row.
+     * @return the function, or null if the feature has none.
+     */
+    public String getFunction(int row) {
+        check(row);
+        return functionCodes[row] < 0 ? null : functions[functionCodes[row]];
+    }
+
+    /** Get the number of aliases of a feature.
+     * @param row the feature's row.
+     * @return the alias count.
+     */
+    public int getAliasCount(int row) {
+        check(row);
+        return aliasOffsets[row + 1] - aliasOffsets[row];
+    }
+
+    /** Get an alias of a feature.
+     * @param row the feature's row.
+     * @param i the alias number, from 0 to getAliasCount(row) - 1.
+     * @return the alias.
+     */
+    public String getAlias(int row, int i) {
+        return aliases[aliasCodes[alias(row, i)]];
+    }
+
+    /** Get the sources of an alias of a feature.
+     * @param row the feature's row.
+     * @param i the alias number, from 0 to getAliasCount(row) - 1.
+     * @return the sources of the alias.
+     */
+    public List<String> getAliasSources(int row, int i) {
+        int a = alias(row, i);
+        List<String> ret = new ArrayList<String>(sourceOffsets[a + 1] - sourceOffsets[a]);
+        for (int j = sourceOffsets[a]; j < sourceOffsets[a + 1]; j++) {
+            ret.add(sources[sourceCodes[j]]);
+        }
+        return ret;
+    }
+
+    private int alias(int row, int i) {
+        if (i < 0 || i >= getAliasCount(row)) {
+            throw new IndexOutOfBoundsException("Alias " + i + " of " + getAliasCount(row));
+        }
+        return aliasOffsets[row] + i;
+    }
+
+    /** Get the locations of all features, grouped by feature in row order:
+     * the locations of a feature are the positions
+     * getLocations().getFeatureFrom(row) to getFeatureTo(row) - 1.
+     * @return the locations.
+     */
+    public RegionArray getLocations() {
+        return locations;
+    }
+
+    /** Get the gene, mRNA and CDS relationships between the features.
+     * @return the relationships.
+     */
+    public GeneModelGraph getRelationships() {
+        return relationships;
+    }
+
+    /** Get a feature as a new FeatureData holding the fields in
+     * {@link #FIELDS}.
+     * @param row the feature's row.
+     * @return the feature.
+     */
+    public FeatureData getFeature(int row) {
+        check(row);
+        Map<String, List<String>> featureAliases = new LinkedHashMap<String, List<String>>();
+        for (int i = 0; i < getAliasCount(row); i++) {
+            featureAliases.put(getAlias(row, i), getAliasSources(row, i));
+        }
+        List<Region> featureLocations = new ArrayList<Region>(locations.getFeatureTo(row) - locations.getFeatureFrom(row));
+        for (int i = locations.getFeatureFrom(row); i < locations.getFeatureTo(row); i++) {
+            featureLocations.add(locations.get(i));
+        }
+        return new FeatureData().withFeatureId(featureIds[row]).withFeatureType(getType(row))
+                .withFeatureFunction(getFunction(row)).withFeatureAliases(featureAliases)
+                .withFeatureLocations(featureLocations);
+    }
+
+    /** Get a feature as a new FeatureData; see {@link #getFeature(int)}.
+     * @param featureId the feature ID.
+     * @return the feature, or null if it is not present.
+     */
+    public FeatureData getFeature(String featureId) {
+        int row = getRow(featureId);
+        return row < 0 ? null : getFeature(row);
+    }
+
+    private void check(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+    }
+
+    /** A string dictionary under construction. */
+    private static final class Dictionary {
+        final List<String> values = new ArrayList<String>();
+        final Map<String, Integer> codes = new HashMap<String, Integer>();
+
+        int code(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+    }
+
+    /**
+     * Builds a GenomeSnapshot one feature at a time, so it can be fed from a
+     * stream of features without holding them all.
+     */
+    public static final class Builder {
+        private final String ref;
+        private final List<String> featureIds = new ArrayList<String>();
+        private final Dictionary types = new Dictionary();
+        private final Dictionary functions = new Dictionary();
+        private final Dictionary aliases = new Dictionary();
+        private final Dictionary sources = new Dictionary();
+        private int[] typeCodes = new int[16];
+        private int[] functionCodes = new int[16];
+        private int[] aliasOffsets = new int[16];
+        private int aliasCount = 0;
+        private int[] aliasCodes = new int[16];
+        private int[] sourceOffsets = new int[16];
+        private int sourceCount = 0;
+        private int[] sourceCodes = new int[16];
+        private final RegionArray.Builder locations = new RegionArray.Builder();
+
+        /** Constructs a builder.
+         * @param ref the versioned reference the features are read from.
+         */
+        public Builder(String ref) {
+            this.ref = ref;
+        }
+
+        /** Adds a feature.
+         * @param feature the feature, with at least the fields in
+         * {@link GenomeSnapshot#FIELDS}.
+         * @return this builder.
+         */
+        public Builder add(FeatureData feature) {
+            if (feature.getFeatureId() == null) {
+                throw new IllegalArgumentException("A feature requires a feature_id");
+            }
+            int row = featureIds.size();
+            if (row == typeCodes.length) {
+                typeCodes = Arrays.copyOf(typeCodes, row * 2);
+                functionCodes = Arrays.copyOf(functionCodes, row * 2);
+                aliasOffsets = Arrays.copyOf(aliasOffsets, row * 2);
+            }
+            featureIds.add(feature.getFeatureId());
+            typeCodes[row] = types.code(feature.getFeatureType());
+            functionCodes[row] = feature.getFeatureFunction() == null ? -1 :
+                    functions.code(feature.getFeatureFunction());
+            aliasOffsets[row] = aliasCount;
+            if (feature.getFeatureAliases() != null) {
+                for (Map.Entry<String, List<String>> e : feature.getFeatureAliases().entrySet()) {
+                    addAlias(e.getKey(), e.getValue());
+                }
+            }
+            locations.startFeature(feature.getFeatureId());
+            if (feature.getFeatureLocations() != null) {
+                for (Region r : feature.getFeatureLocations()) {
+                    locations.add(r);
+                }
+            }
+            return this;
+        }
+
+        private void addAlias(String alias, List<String> aliasSources) {
+            if (aliasCount + 1 >= sourceOffsets.length) {
+                aliasCodes = Arrays.copyOf(aliasCodes, aliasCount * 2 + 2);
+                sourceOffsets = Arrays.copyOf(sourceOffsets, aliasCount * 2 + 2);
+            }
+            aliasCodes[aliasCount] = aliases.code(alias);
+            sourceOffsets[aliasCount] = sourceCount;
+            aliasCount++;
+            if (aliasSources != null) {
+                for (String source : aliasSources) {
+                    if (sourceCount == sourceCodes.length) {
+                        sourceCodes = Arrays.copyOf(sourceCodes, sourceCount * 2);
+                    }
+                    sourceCodes[sourceCount++] = sources.code(source);
+                }
+            }
+        }
+
+        /** Builds the snapshot. The builder should not be used afterwards.
+         * @param relationships the relationships between the features, as
+         * from getGeneModelGraph.
+         * @return the snapshot.
+         */
+        public GenomeSnapshot build(GeneModelGraph relationships) {
+            return new GenomeSnapshot(this, relationships);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package us.kbase.dataapi2;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * <p>A {@link DataApi2Transport} built on java.net.http.HttpClient.</p>
+ * <pre>
+ * Requests are sent over HTTP/2 where the server supports it, so many
+ * concurrent calls are multiplexed over a few pooled connections. The
+ * instance returned by {@link #getShared()} shares its pool between all
+ * clients that use it:
+ *
+ *     client.setTransport(HttpClientTransport.getShared());
+ *
+ * Use the constructor taking an HttpClient to control the executor,
+ * connect timeout, proxy or HTTP version.
+ * Request bodies are always buffered, so streaming mode has no effect.
+ * When a client trusts all SSL certificates, requests go through a
+ * second HttpClient that does so; the JDK offers no per-client way to
+ * turn off host name verification, so that is still performed.
+ * </pre>
+ */
+public class HttpClientTransport implements DataApi2Transport {
+    private static HttpClientTransport shared = null;
+
+    private final HttpClient client;
+    private HttpClient trustAllClient = null;
+
+    /** Constructs a transport with its own HTTP/2 connection pool. */
+    public HttpClientTransport() {
+        this(HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build());
+    }
+
+    /** Constructs a transport that sends requests with the given client.
+     * @param client the HTTP client.
+     */
+    public HttpClientTransport(HttpClient client) {
+        this.client = client;
+    }
+
+    /** Get the transport instance whose connection pool is shared by all
+     * clients that use it.
+     * @return the shared transport.
+     */
+    public static synchronized HttpClientTransport getShared() {
+        if (shared == null) {
+            shared = new HttpClientTransport();
+        }
+        return shared;
+    }
+
+    /** Get the HTTP client requests are sent with.
+     * @return the HTTP client.
+     */
+    public HttpClient getHttpClient() {
+        return client;
+    }
+
+    private synchronized HttpClient getTrustAllClient() throws IOException {
+        if (trustAllClient == null) {
+            HttpClient.Builder b = HttpClient.newBuilder().version(client.version())
+                    .sslContext(UrlConnectionTransport.getTrustAllContext());
+            if (client.connectTimeout().isPresent()) {
+                b.connectTimeout(client.connectTimeout().get());
+            }
+            if (client.executor().isPresent()) {
+                b.executor(client.executor().get());
+            }
+            trustAllClient = b.build();
+        }
+        return trustAllClient;
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+        HttpRequest.Builder b;
+        try {
+            b = HttpRequest.newBuilder(request.getUrl().toURI());
+        } catch (URISyntaxException e) {
+            throw new IOException("Invalid service URL " + request.getUrl(), e);
+        }
+        b.POST(HttpRequest.BodyPublishers.ofByteArray(request.getBody()));
+        for (Map.Entry<String, String> h : request.getHeaders().entrySet()) {
+            b.header(h.getKey(), h.getValue());
+        }
+        if (request.getReadTimeout() != null && request.getReadTimeout() > 0) {
+            b.timeout(Duration.ofMillis(request.getReadTimeout()));
+        }
+        HttpClient c = request.isAllCertificatesTrusted() && request.getUrl().getProtocol().equals("https") ?
+                getTrustAllClient() : client;
+        final HttpResponse<InputStream> resp;
+        try {
+            resp = c.send(b.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + request.getUrl());
+        }
+        return new TransportResponse() {
+            @Override
+            public int getStatusCode() {
+                return resp.statusCode();
+            }
+
+            @Override
+            public String getStatusMessage() {
+                return null;
+            }
+
+            @Override
+            public String getHeader(String name) {
+                return resp.headers().firstValue(name).orElse(null);
+            }
+
+            @Override
+            public InputStream getBody() {
+                return resp.body();
+            }
+
+            @Override
+            public void close() throws IOException {
+                resp.body().close();
+            }
+        };
+    }
+}
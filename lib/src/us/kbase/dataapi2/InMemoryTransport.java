@@ -0,0 +1,171 @@
+package us.kbase.dataapi2;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>A {@link DataApi2Transport} that answers requests in-process, for
+ * testing code that uses {@link DataApi2Client} without a running
+ * service.</p>
+ * <pre>
+ * Register a handler for every method the code under test calls:
+ *
+ *     InMemoryTransport transport = new InMemoryTransport()
+ *         .register("data_api2.get_feature_types", params -&gt; Arrays.asList("gene", "CDS"));
+ *     client.setTransport(transport);
+ *
+ * A handler's return value becomes the method's single return value.
+ * An exception thrown by a handler, or a call to an unregistered method,
+ * is answered with a JSON-RPC error the way the service reports one.
+ * Batches, compressed request bodies and MessagePack (when
+ * jackson-dataformat-msgpack is on the class path) are supported.
+ * </pre>
+ */
+public class InMemoryTransport implements DataApi2Transport {
+    /** Answers calls to one method. */
+    public interface Handler {
+        /** Computes the return value of a call.
+         * @param params the call's parameters.
+         * @return the return value, serializable by Jackson.
+         * @throws Exception to make the call fail.
+         */
+        Object call(List<JsonNode> params) throws Exception;
+    }
+
+    private final Map<String, Handler> handlers = new ConcurrentHashMap<String, Handler>();
+    private final AtomicInteger requests = new AtomicInteger(0);
+    private final AtomicInteger calls = new AtomicInteger(0);
+
+    /** Registers the handler for a method.
+     * @param method the full method name, e.g. "data_api2.get_features".
+     * @param handler the handler.
+     * @return this transport.
+     */
+    public InMemoryTransport register(String method, Handler handler) {
+        handlers.put(method, handler);
+        return this;
+    }
+
+    /** Get the number of requests received; a batch counts once.
+     * @return the request count.
+     */
+    public int getRequestCount() {
+        return requests.get();
+    }
+
+    /** Get the number of calls received, counting each call in a batch.
+     * @return the call count.
+     */
+    public int getCallCount() {
+        return calls.get();
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+        requests.incrementAndGet();
+        ObjectMapper mapper = RpcHttpChannel.mapper();
+        String accept = request.getHeaders().get("Accept");
+        String contentType = accept != null && accept.contains(WireFormat.MESSAGEPACK) &&
+                WireFormat.isMessagePackAvailable() ? WireFormat.MESSAGEPACK : WireFormat.JSON;
+        JsonNode req;
+        try {
+            InputStream body = ContentCoding.decode(new ByteArrayInputStream(request.getBody()),
+                    request.getHeaders().get("Content-Encoding"));
+            req = WireFormat.mapperFor(request.getHeaders().get("Content-Type")).readTree(body);
+        } catch (IOException e) {
+            return response(500, error(mapper, null, -32700, "Parse error", e.getMessage()), contentType);
+        }
+        if (req.isArray()) {
+            ArrayNode resps = mapper.createArrayNode();
+            for (Iterator<JsonNode> it = req.elements(); it.hasNext();) {
+                resps.add(handle(mapper, it.next()));
+            }
+            return response(200, resps, contentType);
+        }
+        ObjectNode resp = handle(mapper, req);
+        return response(resp.has("error") ? 500 : 200, resp, contentType);
+    }
+
+    private ObjectNode handle(ObjectMapper mapper, JsonNode req) {
+        calls.incrementAndGet();
+        JsonNode id = req.get("id");
+        Handler h = handlers.get(req.path("method").asText());
+        if (h == null) {
+            return error(mapper, id, -32601, "Method not found", "No handler for " + req.path("method").asText());
+        }
+        List<JsonNode> params = new ArrayList<JsonNode>();
+        for (Iterator<JsonNode> it = req.path("params").elements(); it.hasNext();) {
+            params.add(it.next());
+        }
+        try {
+            ArrayNode result = mapper.createArrayNode();
+            result.add(mapper.valueToTree(h.call(params)));
+            ObjectNode resp = mapper.createObjectNode();
+            resp.put("version", "1.1");
+            resp.set("result", result);
+            resp.set("id", id);
+            return resp;
+        } catch (Exception e) {
+            return error(mapper, id, -32500, "JSONRPCError", String.valueOf(e.getMessage()));
+        }
+    }
+
+    private static ObjectNode error(ObjectMapper mapper, JsonNode id, int code, String name, String message) {
+        ObjectNode err = mapper.createObjectNode();
+        err.put("name", name);
+        err.put("code", code);
+        err.put("message", message);
+        ObjectNode resp = mapper.createObjectNode();
+        resp.put("version", "1.1");
+        resp.set("error", err);
+        resp.set("id", id);
+        return resp;
+    }
+
+    private static TransportResponse response(final int code, JsonNode body, final String contentType)
+            throws IOException {
+        final byte[] bytes = WireFormat.mapperFor(contentType).writeValueAsBytes(body);
+        return new TransportResponse() {
+            @Override
+            public int getStatusCode() {
+                return code;
+            }
+
+            @Override
+            public String getStatusMessage() {
+                return code == 200 ? "OK" : "Internal Server Error";
+            }
+
+            @Override
+            public String getHeader(String name) {
+                if (name.equalsIgnoreCase("Content-Type")) {
+                    return contentType;
+                }
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    return Integer.toString(bytes.length);
+                }
+                return null;
+            }
+
+            @Override
+            public InputStream getBody() {
+                return new ByteArrayInputStream(bytes);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,162 @@
+package us.kbase.dataapi2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A {@link Flow.Publisher} of the items of an iterator that fetches them
+ * from the service as it advances, such as those of {@link PageIterable}
+ * and {@link ResultIterator}.
+ * <pre>
+ * Each subscriber gets its own iterator, opened when it first requests an
+ * item. Items are taken from the iterator only while the subscriber has
+ * outstanding demand, so fetching pauses when the subscriber falls behind
+ * and no more is buffered than the iterator itself holds. Signals are
+ * sent from the client's executor, one at a time.
+ *
+ * Errors raised by the iterator are signalled with onError, unwrapped from
+ * {@link ResultIterator.StreamException}.
+ * </pre>
+ */
+final class IteratorPublisher<T> implements Flow.Publisher<T> {
+    private final Supplier<Iterator<T>> source;
+    private final Executor executor;
+
+    IteratorPublisher(Supplier<Iterator<T>> source, Executor executor) {
+        this.source = source;
+        this.executor = executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        subscriber.onSubscribe(new IteratorSubscription(subscriber));
+    }
+
+    private final class IteratorSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        // counts the signals still to be handled by run()
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile boolean cancelled = false;
+        private volatile Throwable badRequest = null;
+        // only touched by run()
+        private Iterator<T> it = null;
+        private boolean done = false;
+
+        IteratorSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = new IllegalArgumentException("Requested " + n + " items; the number must be positive");
+            } else {
+                long d;
+                do {
+                    d = demand.get();
+                } while (!demand.compareAndSet(d, d + n < 0 ? Long.MAX_VALUE : d + n));
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    run();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                try {
+                    drain();
+                } catch (RuntimeException e) {
+                    // thrown by the subscriber; the subscription is over
+                    finish();
+                    throw e;
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            if (done) {
+                return;
+            }
+            if (cancelled) {
+                finish();
+                return;
+            }
+            if (badRequest != null) {
+                finish();
+                subscriber.onError(badRequest);
+                return;
+            }
+            while (demand.get() > 0 && !cancelled) {
+                T item;
+                try {
+                    if (it == null) {
+                        it = source.get();
+                    }
+                    if (!it.hasNext()) {
+                        finish();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    item = it.next();
+                } catch (ResultIterator.StreamException e) {
+                    finish();
+                    subscriber.onError(e.getCause());
+                    return;
+                } catch (RuntimeException e) {
+                    finish();
+                    subscriber.onError(e);
+                    return;
+                }
+                if (demand.get() != Long.MAX_VALUE) {
+                    demand.decrementAndGet();
+                }
+                subscriber.onNext(item);
+            }
+            if (cancelled) {
+                finish();
+            }
+        }
+
+        private void finish() {
+            if (done) {
+                return;
+            }
+            done = true;
+            if (it instanceof Closeable) {
+                try {
+                    ((Closeable) it).close();
+                } catch (IOException e) {
+                    // nothing more will be read
+                }
+            }
+            it = null;
+        }
+    }
+}
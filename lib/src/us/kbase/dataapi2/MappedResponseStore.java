@@ -0,0 +1,296 @@
+package us.kbase.dataapi2;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * <p>Persistent, memory-mapped store of data_api2 responses for versioned
+ * object references.</p>
+ * <pre>
+ * Responses are appended to a data file and located through an append-only
+ * index file, both kept in one directory. A restarted process reopens the
+ * directory and serves stored responses straight from the mapped data file
+ * without copying them onto the heap first.
+ *
+ * Any number of processes on a node may open the same directory with
+ * {@link #openReadOnly(File)}; they pick up responses appended by a writer
+ * the next time they miss. Writers take an exclusive file lock while
+ * appending, so several writing processes are also safe, but open at most
+ * one store per directory in each JVM.
+ *
+ * Nothing is ever evicted: once the data file reaches the configured size
+ * new responses are no longer stored. Delete the directory to reclaim the
+ * space.
+ * </pre>
+ */
+public class MappedResponseStore implements Closeable {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String DATA_FILE = "responses.dat";
+    private static final String INDEX_FILE = "responses.idx";
+    /** An index record is the key length, the key, then the response's
+     * offset and length in the data file and a CRC of all of these.
+     */
+    private static final int INDEX_HEADER = 4;
+    private static final int INDEX_TRAILER = 8 + 4 + 8;
+
+    private final boolean readOnly;
+    private final long maxBytes;
+    private final FileChannel data;
+    private final FileChannel index;
+    private final Map<String, long[]> entries = new HashMap<String, long[]>();
+    private long indexReadPos = 0;
+    private MappedByteBuffer window = null;
+    private long hits = 0;
+    private long misses = 0;
+
+    private MappedResponseStore(File dir, boolean readOnly, long maxBytes) throws IOException {
+        this.readOnly = readOnly;
+        this.maxBytes = maxBytes;
+        if (readOnly) {
+            data = FileChannel.open(new File(dir, DATA_FILE).toPath(), StandardOpenOption.READ);
+            index = FileChannel.open(new File(dir, INDEX_FILE).toPath(), StandardOpenOption.READ);
+        } else {
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Could not create cache directory " + dir);
+            }
+            data = FileChannel.open(new File(dir, DATA_FILE).toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            index = FileChannel.open(new File(dir, INDEX_FILE).toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        readNewIndexEntries();
+    }
+
+    /** Opens, creating if necessary, a store that both reads and appends
+     * responses.
+     * @param dir the directory holding the store.
+     * @param maxBytes the size of the data file after which no more
+     * responses are stored.
+     * @return the store.
+     * @throws IOException if the store could not be opened.
+     */
+    public static MappedResponseStore open(File dir, long maxBytes) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        return new MappedResponseStore(dir, false, maxBytes);
+    }
+
+    /** Opens an existing store for reading only, e.g. to share a store
+     * filled by another process.
+     * @param dir the directory holding the store.
+     * @return the store.
+     * @throws IOException if the store does not exist or could not be
+     * opened.
+     */
+    public static MappedResponseStore openReadOnly(File dir) throws IOException {
+        return new MappedResponseStore(dir, true, 0);
+    }
+
+    /** Returns true if this store never appends responses.
+     * @return true for a read-only store.
+     */
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /** Get a stored response as a read-only view of the mapped data file,
+     * or null if the response is not stored.
+     */
+    synchronized ByteBuffer get(String key) throws IOException {
+        long[] loc = entries.get(key);
+        if (loc == null) {
+            readNewIndexEntries();
+            loc = entries.get(key);
+        }
+        if (loc == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        long offset = loc[0];
+        int length = (int) loc[1];
+        if (offset + length > Integer.MAX_VALUE) {
+            // beyond what one mapping can address; map just this response
+            return data.map(FileChannel.MapMode.READ_ONLY, offset, length).asReadOnlyBuffer();
+        }
+        if (window == null || window.capacity() < offset + length) {
+            window = data.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(data.size(), Integer.MAX_VALUE));
+        }
+        ByteBuffer view = window.duplicate();
+        view.position((int) offset);
+        view.limit((int) offset + length);
+        return view.slice().asReadOnlyBuffer();
+    }
+
+    /** Appends a response unless it is already stored, the store is read
+     * only or full.
+     */
+    synchronized void put(String key, byte[] value) throws IOException {
+        if (readOnly || entries.containsKey(key)) {
+            return;
+        }
+        FileLock lock = data.lock();
+        try {
+            readNewIndexEntries();
+            if (index.size() > indexReadPos) {
+                // no other writer can be mid-append while we hold the lock,
+                // so this is what a crashed writer left behind
+                index.truncate(indexReadPos);
+            }
+            if (entries.containsKey(key) || data.size() + value.length > maxBytes) {
+                return;
+            }
+            long offset = data.size();
+            writeFully(data, ByteBuffer.wrap(value), offset);
+            data.force(false);
+            byte[] k = key.getBytes(UTF8);
+            ByteBuffer rec = ByteBuffer.allocate(INDEX_HEADER + k.length + INDEX_TRAILER);
+            rec.putInt(k.length).put(k).putLong(offset).putInt(value.length);
+            rec.putLong(crc(k, offset, value.length));
+            rec.flip();
+            long indexEnd = index.size();
+            writeFully(index, rec, indexEnd);
+            index.force(false);
+            if (indexReadPos == indexEnd) {
+                indexReadPos = indexEnd + rec.capacity();
+            }
+            entries.put(key, new long[] {offset, value.length});
+        } finally {
+            lock.release();
+        }
+    }
+
+    /** Reads index records appended since the last read, by this or any
+     * other process. A partially written trailing record is left for a
+     * later read.
+     */
+    private void readNewIndexEntries() throws IOException {
+        long size = index.size();
+        if (size <= indexReadPos) {
+            return;
+        }
+        ByteBuffer buf = ByteBuffer.allocate((int) Math.min(size - indexReadPos, Integer.MAX_VALUE));
+        readFully(index, buf, indexReadPos);
+        buf.flip();
+        long dataSize = data.size();
+        while (buf.remaining() >= INDEX_HEADER) {
+            int start = buf.position();
+            int keyLen = buf.getInt();
+            if (keyLen < 0 || buf.remaining() < keyLen + INDEX_TRAILER) {
+                buf.position(start);
+                break;
+            }
+            byte[] k = new byte[keyLen];
+            buf.get(k);
+            long offset = buf.getLong();
+            int length = buf.getInt();
+            long crc = buf.getLong();
+            if (crc != crc(k, offset, length) || offset + length > dataSize) {
+                // torn write; the record is not usable
+                buf.position(start);
+                break;
+            }
+            entries.put(new String(k, UTF8), new long[] {offset, length});
+        }
+        indexReadPos += buf.position();
+    }
+
+    private static long crc(byte[] key, long offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(key);
+        crc.update(ByteBuffer.allocate(12).putLong(offset).putInt(length).array());
+        return crc.getValue();
+    }
+
+    private static void writeFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            pos += ch.write(buf, pos);
+        }
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, pos);
+            if (n < 0) {
+                break;
+            }
+            pos += n;
+        }
+    }
+
+    /** Get the number of stored responses known to this process.
+     * @return the number of entries.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Get the size of the data file.
+     * @return the number of bytes of stored responses.
+     * @throws IOException if the size could not be read.
+     */
+    public long getDataBytes() throws IOException {
+        return data.size();
+    }
+
+    /** Get the number of lookups that found a stored response.
+     * @return the hit count.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /** Get the number of lookups that found nothing.
+     * @return the miss count.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        window = null;
+        try {
+            data.close();
+        } finally {
+            index.close();
+        }
+    }
+
+    /** Streams a mapped response without copying it. */
+    static InputStream asInputStream(final ByteBuffer buf) {
+        return new InputStream() {
+            @Override
+            public int read() {
+                return buf.hasRemaining() ? buf.get() & 0xff : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (!buf.hasRemaining()) {
+                    return -1;
+                }
+                int n = Math.min(len, buf.remaining());
+                buf.get(b, off, n);
+                return n;
+            }
+
+            @Override
+            public int available() {
+                return buf.remaining();
+            }
+        };
+    }
+}
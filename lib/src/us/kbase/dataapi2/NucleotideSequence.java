@@ -0,0 +1,381 @@
+package us.kbase.dataapi2;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * <p>Immutable DNA sequence packed at 2 bits per base.</p>
+ * <pre>
+ * A, C, G and T are stored in 2 bits each, 32 bases to a long. Any other
+ * character (N, IUPAC ambiguity codes, lower case bases, ...) is kept in a
+ * list of runs of one repeated character, so a sequence with a few runs of
+ * N costs little more than a quarter of a byte per base. A sequence that is
+ * mostly lower case or ambiguous is stored correctly but not compactly.
+ *
+ * The sequence is a CharSequence and reads and writes JSON as a string, so
+ * it can stand in for a String DNA value when a result is parsed (see
+ * {@link DataApi2Client#getFeatureDnaSequences}); the parser's text buffer
+ * is packed directly without creating a String.
+ * </pre>
+ */
+@JsonSerialize(using = NucleotideSequence.Serializer.class)
+@JsonDeserialize(using = NucleotideSequence.Deserializer.class)
+public final class NucleotideSequence implements CharSequence {
+    private static final char[] BASES = {'A', 'C', 'G', 'T'};
+    private static final int[] NO_RUNS = new int[0];
+    private static final char[] NO_RUN_CHARS = new char[0];
+    /** 2-bit code of each character, or -1 for characters kept in runs. */
+    private static final byte[] CODES = new byte[128];
+    /** Complement of each character, for those that have one. */
+    private static final char[] COMPLEMENTS = new char[128];
+    static {
+        Arrays.fill(CODES, (byte) -1);
+        for (int i = 0; i < BASES.length; i++) {
+            CODES[BASES[i]] = (byte) i;
+        }
+        for (int c = 0; c < 128; c++) {
+            COMPLEMENTS[c] = (char) c;
+        }
+        String pairs = "ATCGRYKMBVDHatcgrykmbvdh";
+        for (int i = 0; i < pairs.length(); i += 2) {
+            COMPLEMENTS[pairs.charAt(i)] = pairs.charAt(i + 1);
+            COMPLEMENTS[pairs.charAt(i + 1)] = pairs.charAt(i);
+        }
+        COMPLEMENTS['U'] = 'A';
+        COMPLEMENTS['u'] = 'a';
+    }
+
+    private final int length;
+    /** Base i is at bits 2*(i%32) of word i/32; 0 for run positions. */
+    private final long[] words;
+    /** Runs of other characters: [runStarts[r], runEnds[r]) hold runChars[r]. */
+    private final int[] runStarts;
+    private final int[] runEnds;
+    private final char[] runChars;
+    private int hash = 0;
+
+    private NucleotideSequence(int length, long[] words, int[] runStarts, int[] runEnds, char[] runChars) {
+        this.length = length;
+        this.words = words;
+        this.runStarts = runStarts;
+        this.runEnds = runEnds;
+        this.runChars = runChars;
+    }
+
+    /** Packs a sequence.
+     * @param seq the sequence.
+     * @return the packed sequence.
+     */
+    public static NucleotideSequence of(CharSequence seq) {
+        if (seq instanceof NucleotideSequence) {
+            return (NucleotideSequence) seq;
+        }
+        Packer p = new Packer(seq.length());
+        for (int i = 0; i < seq.length(); i++) {
+            p.add(seq.charAt(i));
+        }
+        return p.finish();
+    }
+
+    /** Packs a sequence from part of a char array.
+     * @param chars the characters.
+     * @param offset the first character of the sequence.
+     * @param len the length of the sequence.
+     * @return the packed sequence.
+     */
+    public static NucleotideSequence of(char[] chars, int offset, int len) {
+        Packer p = new Packer(len);
+        for (int i = offset; i < offset + len; i++) {
+            p.add(chars[i]);
+        }
+        return p.finish();
+    }
+
+    /** Accumulates characters into words and runs. */
+    private static final class Packer {
+        private final int capacity;
+        private final long[] words;
+        private int n = 0;
+        private int runCount = 0;
+        private int[] runStarts = NO_RUNS;
+        private int[] runEnds = NO_RUNS;
+        private char[] runChars = NO_RUN_CHARS;
+
+        Packer(int capacity) {
+            this.capacity = capacity;
+            this.words = new long[(capacity + 31) >>> 5];
+        }
+
+        void add(char c) {
+            int code = c < 128 ? CODES[c] : -1;
+            if (code >= 0) {
+                words[n >>> 5] |= (long) code << ((n & 31) << 1);
+            } else if (runCount > 0 && runEnds[runCount - 1] == n && runChars[runCount - 1] == c) {
+                runEnds[runCount - 1]++;
+            } else {
+                addRun(n, n + 1, c);
+            }
+            n++;
+        }
+
+        void addRun(int start, int end, char c) {
+            if (runCount == runStarts.length) {
+                int cap = Math.max(4, runCount * 2);
+                runStarts = Arrays.copyOf(runStarts, cap);
+                runEnds = Arrays.copyOf(runEnds, cap);
+                runChars = Arrays.copyOf(runChars, cap);
+            }
+            runStarts[runCount] = start;
+            runEnds[runCount] = end;
+            runChars[runCount] = c;
+            runCount++;
+        }
+
+        NucleotideSequence finish() {
+            if (n != capacity) {
+                throw new IllegalStateException("Packed " + n + " of " + capacity + " bases");
+            }
+            return new NucleotideSequence(n, words, Arrays.copyOf(runStarts, runCount),
+                    Arrays.copyOf(runEnds, runCount), Arrays.copyOf(runChars, runCount));
+        }
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " of " + length);
+        }
+        if (runStarts.length > 0) {
+            int r = runAt(index);
+            if (r >= 0) {
+                return runChars[r];
+            }
+        }
+        return BASES[(int) (words[index >>> 5] >>> ((index & 31) << 1)) & 3];
+    }
+
+    /** Returns the run holding a position, or -1. */
+    private int runAt(int index) {
+        int lo = 0;
+        int hi = runStarts.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (runEnds[mid] <= index) {
+                lo = mid + 1;
+            } else if (runStarts[mid] > index) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /** Get the number of runs of characters other than A, C, G and T.
+     * @return the run count.
+     */
+    public int getExceptionRunCount() {
+        return runStarts.length;
+    }
+
+    /** Returns the 32 bases from a position, which may lie partly outside
+     * the sequence, packed into a word; positions outside read as 0.
+     */
+    private long wordAt(long pos) {
+        if (pos < 0) {
+            return pos <= -32 ? 0 : wordAt(0) << ((-pos) << 1);
+        }
+        int w = (int) (pos >>> 5);
+        if (w >= words.length) {
+            return 0;
+        }
+        int shift = (int) (pos & 31) << 1;
+        long lo = words[w] >>> shift;
+        if (shift == 0 || w + 1 >= words.length) {
+            return lo;
+        }
+        return lo | (words[w + 1] << (64 - shift));
+    }
+
+    /** Clears the bits past the end of a sequence of the given length. */
+    private static void clearTail(long[] words, int length) {
+        int bits = (length & 31) << 1;
+        if (bits != 0) {
+            words[words.length - 1] &= (1L << bits) - 1;
+        }
+    }
+
+    @Override
+    public NucleotideSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") of " + length);
+        }
+        if (start == 0 && end == length) {
+            return this;
+        }
+        int n = end - start;
+        long[] out = new long[(n + 31) >>> 5];
+        for (int w = 0; w < out.length; w++) {
+            out[w] = wordAt(start + ((long) w << 5));
+        }
+        clearTail(out, n);
+        // runs overlapping the range, clipped to it
+        int first = 0;
+        while (first < runStarts.length && runEnds[first] <= start) {
+            first++;
+        }
+        int last = first;
+        while (last < runStarts.length && runStarts[last] < end) {
+            last++;
+        }
+        int count = n == 0 ? 0 : last - first;
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        char[] chars = new char[count];
+        for (int r = 0; r < count; r++) {
+            starts[r] = Math.max(runStarts[first + r], start) - start;
+            ends[r] = Math.min(runEnds[first + r], end) - start;
+            chars[r] = runChars[first + r];
+        }
+        return new NucleotideSequence(n, out, starts, ends, chars);
+    }
+
+    /** Get the reverse complement of this sequence. IUPAC ambiguity codes
+     * are complemented; other characters are kept as they are.
+     * @return the reverse complement.
+     */
+    public NucleotideSequence reverseComplement() {
+        long[] out = new long[words.length];
+        for (int w = 0; w < out.length; w++) {
+            // complementing A/C/G/T is flipping both bits of its code
+            out[w] = reverseBases(wordAt((long) length - ((long) (w + 1) << 5))) ^ -1L;
+        }
+        clearTail(out, length);
+        int count = 0;
+        int[] starts = new int[runStarts.length];
+        int[] ends = new int[runStarts.length];
+        char[] chars = new char[runStarts.length];
+        for (int src = runStarts.length - 1; src >= 0; src--) {
+            int start = length - runEnds[src];
+            int end = length - runStarts[src];
+            char c = runChars[src];
+            c = c < 128 ? COMPLEMENTS[c] : c;
+            // a run that complements to A, C, G or T (U to A) is packed as
+            // of() packs it, and other run positions are kept zero, so equal
+            // sequences have equal words and runs
+            boolean packed = c < 128 && CODES[c] >= 0;
+            long code = packed ? CODES[c] : 0;
+            for (int i = start; i < end; i++) {
+                int shift = (i & 31) << 1;
+                out[i >>> 5] = (out[i >>> 5] & ~(3L << shift)) | (code << shift);
+            }
+            if (packed) {
+                continue;
+            }
+            if (count > 0 && ends[count - 1] == start && chars[count - 1] == c) {
+                // runs of t and u both complement to a run of a
+                ends[count - 1] = end;
+            } else {
+                starts[count] = start;
+                ends[count] = end;
+                chars[count] = c;
+                count++;
+            }
+        }
+        return new NucleotideSequence(length, out, Arrays.copyOf(starts, count), Arrays.copyOf(ends, count),
+                Arrays.copyOf(chars, count));
+    }
+
+    /** Reverses the order of the 32 2-bit bases in a word. */
+    private static long reverseBases(long x) {
+        x = ((x >>> 2) & 0x3333333333333333L) | ((x & 0x3333333333333333L) << 2);
+        x = ((x >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((x & 0x0F0F0F0F0F0F0F0FL) << 4);
+        return Long.reverseBytes(x);
+    }
+
+    /** Writes the sequence into a char array.
+     * @param dest the array.
+     * @param offset where to write the first base.
+     */
+    public void getChars(char[] dest, int offset) {
+        for (int i = 0; i < length; i++) {
+            dest[offset + i] = BASES[(int) (words[i >>> 5] >>> ((i & 31) << 1)) & 3];
+        }
+        for (int r = 0; r < runStarts.length; r++) {
+            Arrays.fill(dest, offset + runStarts[r], offset + runEnds[r], runChars[r]);
+        }
+    }
+
+    @Override
+    public String toString() {
+        char[] chars = new char[length];
+        getChars(chars, 0);
+        return new String(chars);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof NucleotideSequence)) {
+            return false;
+        }
+        NucleotideSequence s = (NucleotideSequence) o;
+        return length == s.length && Arrays.equals(words, s.words) && Arrays.equals(runStarts, s.runStarts) &&
+                Arrays.equals(runEnds, s.runEnds) && Arrays.equals(runChars, s.runChars);
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = 31 * Arrays.hashCode(words) + Arrays.hashCode(runChars);
+            h = 31 * h + Arrays.hashCode(runStarts);
+            hash = h;
+        }
+        return h;
+    }
+
+    /** Get the approximate number of heap bytes the packed sequence uses.
+     * @return the size in bytes.
+     */
+    public long getPackedBytes() {
+        return 8L * words.length + 10L * runStarts.length + 64;
+    }
+
+    static final class Serializer extends JsonSerializer<NucleotideSequence> {
+        @Override
+        public void serialize(NucleotideSequence value, JsonGenerator g, SerializerProvider provider)
+                throws IOException {
+            char[] chars = new char[value.length];
+            value.getChars(chars, 0);
+            g.writeString(chars, 0, chars.length);
+        }
+    }
+
+    static final class Deserializer extends JsonDeserializer<NucleotideSequence> {
+        @Override
+        public NucleotideSequence deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            if (jp.getCurrentToken() != JsonToken.VALUE_STRING) {
+                throw JsonMappingException.from(jp, "Expected a sequence string");
+            }
+            return of(jp.getTextCharacters(), jp.getTextOffset(), jp.getTextLength());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package us.kbase.dataapi2;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import us.kbase.common.service.JsonClientException;
+
+/**
+ * <p>Iterates over the items of a paged data_api2 method, such as
+ * get_features_page, following the continuation tokens from the first page
+ * to the last.</p>
+ * <pre>
+ * While the items of one page are being consumed the next page is already
+ * being fetched on the client's executor, so a consumer that spends about
+ * as long on a page as the server does seldom waits. At most two pages are
+ * held at a time. If the executor has not started a fetch by the time its
+ * page is needed, the consuming thread runs it itself.
+ *
+ * Each call to iterator() starts again from the first page. Errors raised
+ * while fetching are wrapped in a {@link ResultIterator.StreamException}.
+ * </pre>
+ */
+public class PageIterable<T> implements Iterable<T> {
+    /** Fetches the page after a continuation token. */
+    interface PageCall<T> {
+        Page<T> call(String continuationToken) throws IOException, JsonClientException;
+    }
+
+    /** The items of one page and the token for the next, null on the last
+     * page.
+     */
+    static final class Page<T> {
+        final List<T> items;
+        final String continuationToken;
+
+        Page(List<T> items, String continuationToken) {
+            this.items = items == null ? Collections.<T>emptyList() : items;
+            this.continuationToken = continuationToken;
+        }
+    }
+
+    private final PageCall<T> call;
+    private final Executor executor;
+
+    PageIterable(PageCall<T> call, Executor executor) {
+        this.call = call;
+        this.executor = executor;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new PageIterator();
+    }
+
+    private FutureTask<Page<T>> fetch(final String continuationToken) {
+        FutureTask<Page<T>> task = new FutureTask<Page<T>>(() -> call.call(continuationToken));
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // the consuming thread runs it when the page is needed
+        }
+        return task;
+    }
+
+    private static <T> Page<T> await(FutureTask<Page<T>> task) {
+        // a no-op if the executor has started the task already
+        task.run();
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResultIterator.StreamException(new InterruptedIOException("Interrupted waiting for a page"));
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException || cause instanceof JsonClientException) {
+                throw new ResultIterator.StreamException((Exception) cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new ResultIterator.StreamException(new IOException(cause));
+        }
+    }
+
+    private class PageIterator implements Iterator<T> {
+        private Iterator<T> current = Collections.<T>emptyList().iterator();
+        private FutureTask<Page<T>> next = fetch(null);
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext()) {
+                if (next == null) {
+                    return false;
+                }
+                Page<T> page = await(next);
+                next = page.continuationToken == null ? null : fetch(page.continuationToken);
+                current = page.items.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package us.kbase.dataapi2;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import us.kbase.common.service.JsonClientException;
+
+/**
+ * <p>Iterates over the records of a newline delimited JSON response, such
+ * as the data_api2 feature export, while the response is still being
+ * read.</p>
+ * <pre>
+ * Each record is parsed only when it is reached, so no more than one is
+ * held at a time. A server that fails part way through the response ends
+ * it with an error object in place of a record, which is raised as a
+ * ServerException.
+ *
+ * Errors raised while iterating are wrapped in a
+ * {@link ResultIterator.StreamException}. Close the iterator if it is not
+ * read to the end, to release the underlying connection.
+ * </pre>
+ */
+public class RecordIterator<T> implements Iterator<T>, Closeable {
+    private final ObjectMapper mapper;
+    private final Class<T> valueType;
+    private final InputStream is;
+    private final JsonParser jp;
+    private boolean ready = false;
+    private boolean done = false;
+    private T nextValue = null;
+
+    RecordIterator(ObjectMapper mapper, Class<T> valueType, InputStream is) throws IOException {
+        this.mapper = mapper;
+        this.valueType = valueType;
+        this.is = is;
+        this.jp = mapper.getFactory().createParser(is);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!ready && !done) {
+            try {
+                ready = advance();
+            } catch (IOException e) {
+                closeQuietly();
+                throw new ResultIterator.StreamException(e);
+            } catch (JsonClientException e) {
+                closeQuietly();
+                throw new ResultIterator.StreamException(e);
+            }
+        }
+        return ready;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        T value = nextValue;
+        nextValue = null;
+        return value;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private boolean advance() throws IOException, JsonClientException {
+        JsonToken t = jp.nextToken();
+        if (t == null) {
+            close();
+            return false;
+        }
+        if (t != JsonToken.START_OBJECT) {
+            throw new JsonClientException("Expected a record object but found " + t);
+        }
+        JsonNode record = mapper.readTree(jp);
+        RpcHttpChannel.checkError(record);
+        nextValue = mapper.treeToValue(record, valueType);
+        return true;
+    }
+
+    private void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            // already failing
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ready = false;
+        if (done) {
+            return;
+        }
+        done = true;
+        try {
+            jp.close();
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,716 @@
+package us.kbase.dataapi2;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>Columnar, immutable list of {@link Region}s, optionally grouped by
+ * feature.</p>
+ * <pre>
+ * Contig IDs are kept once each in a dictionary and referred to by an int
+ * code; strands are bytes and starts and lengths are long arrays, so a
+ * location costs a few bytes rather than a Region object with boxed
+ * fields and its own map.
+ *
+ * A RegionArray reads and writes the same JSON as list&lt;Region&gt; or, when
+ * grouped by feature, mapping&lt;string, list&lt;Region&gt;&gt;, so the
+ * location-returning client methods can parse straight into one
+ * (e.g. {@link DataApi2Client#getFeatureLocationArray}). The regions of
+ * feature f are the positions getFeatureFrom(f) to getFeatureTo(f) - 1.
+ *
+ * Iterate without allocating through a reusable {@link Cursor}:
+ *
+ *     RegionArray.Cursor c = locations.cursor();
+ *     while (c.next()) {
+ *         total += c.getLength();
+ *     }
+ *
+ * A strand is stored as the byte value of a one character strand string
+ * ('+', '-', '?', ...), or 0 for no strand. Any other strand string reads
+ * as '?' from getStrand, and a missing start or length reads as 0 from
+ * getStart and getLength; these, and any additional properties of a
+ * region, are kept aside, so get, toList, toMap and the JSON form return
+ * exactly the regions that were read. A feature whose list of regions was
+ * null has no regions and is written back as null.
+ * </pre>
+ */
+@JsonSerialize(using = RegionArray.Serializer.class)
+@JsonDeserialize(using = RegionArray.Deserializer.class)
+public final class RegionArray {
+    private static final String[] NO_FEATURES = new String[0];
+
+    private final String[] contigs;
+    private final int size;
+    private final int[] contigCodes;
+    private final byte[] strands;
+    private final long[] starts;
+    private final long[] lengths;
+    private final String[] featureIds;
+    private final int[] featureOffsets;
+    private final BitSet nullFeatures;
+    private final boolean grouped;
+    // rare values that the columns above cannot hold, by region position
+    private final Map<Integer, String> otherStrands;
+    private final BitSet noStarts;
+    private final BitSet noLengths;
+    private final Map<Integer, Map<String, Object>> additionalProperties;
+    private volatile Map<String, Integer> featureNumbers = null;
+
+    private RegionArray(Builder b) {
+        this.contigs = b.contigs.toArray(new String[b.contigs.size()]);
+        this.size = b.size;
+        this.contigCodes = Arrays.copyOf(b.contigCodes, size);
+        this.strands = Arrays.copyOf(b.strands, size);
+        this.starts = Arrays.copyOf(b.starts, size);
+        this.lengths = Arrays.copyOf(b.lengths, size);
+        this.grouped = b.grouped;
+        this.featureIds = grouped ? b.featureIds.toArray(new String[b.featureIds.size()]) : NO_FEATURES;
+        this.featureOffsets = new int[featureIds.length + 1];
+        System.arraycopy(b.featureOffsets, 0, featureOffsets, 0, featureIds.length);
+        featureOffsets[featureIds.length] = size;
+        this.nullFeatures = b.nullFeatures;
+        this.otherStrands = b.otherStrands;
+        this.noStarts = b.noStarts;
+        this.noLengths = b.noLengths;
+        this.additionalProperties = b.additionalProperties;
+    }
+
+    /** Get the number of regions.
+     * @return the region count.
+     */
+    public int size() {
+        return size;
+    }
+
+    /** Get the number of distinct contig IDs.
+     * @return the size of the contig dictionary.
+     */
+    public int getContigCount() {
+        return contigs.length;
+    }
+
+    /** Get a contig ID from the dictionary.
+     * @param code the contig code.
+     * @return the contig ID.
+     */
+    public String getContig(int code) {
+        return contigs[code];
+    }
+
+    /** Get the contig code of a region.
+     * @param i the region's position.
+     * @return the code of the region's contig ID.
+     */
+    public int getContigCode(int i) {
+        check(i);
+        return contigCodes[i];
+    }
+
+    /** Get the contig ID of a region.
+     * @param i the region's position.
+     * @return the contig ID.
+     */
+    public String getContigId(int i) {
+        check(i);
+        return contigs[contigCodes[i]];
+    }
+
+    /** Get the strand of a region.
+     * @param i the region's position.
+     * @return the strand byte, e.g. '+' or '-', or 0 for none.
+     */
+    public byte getStrand(int i) {
+        check(i);
+        return strands[i];
+    }
+
+    /** Get the strand of a region as the string that was read.
+     * @param i the region's position.
+     * @return the strand, or null for none.
+     */
+    public String getStrandString(int i) {
+        check(i);
+        return strandString(i);
+    }
+
+    private String strandString(int i) {
+        String other = otherStrands.isEmpty() ? null : otherStrands.get(i);
+        return other != null ? other : strandString(strands[i]);
+    }
+
+    /** Get the start of a region.
+     * @param i the region's position.
+     * @return the start, or 0 if it is missing.
+     */
+    public long getStart(int i) {
+        check(i);
+        return starts[i];
+    }
+
+    /** Get the length of a region.
+     * @param i the region's position.
+     * @return the length, or 0 if it is missing.
+     */
+    public long getLength(int i) {
+        check(i);
+        return lengths[i];
+    }
+
+    /** Get a region as a new Region object.
+     * @param i the region's position.
+     * @return the region.
+     */
+    public Region get(int i) {
+        check(i);
+        Region r = new Region().withContigId(contigs[contigCodes[i]]).withStrand(strandString(i))
+                .withStart(noStarts.get(i) ? null : starts[i]).withLength(noLengths.get(i) ? null : lengths[i]);
+        for (Map.Entry<String, Object> e : additionalProperties(i).entrySet()) {
+            r.setAdditionalProperties(e.getKey(), e.getValue());
+        }
+        return r;
+    }
+
+    private Map<String, Object> additionalProperties(int i) {
+        Map<String, Object> props = additionalProperties.isEmpty() ? null : additionalProperties.get(i);
+        return props == null ? Collections.<String, Object>emptyMap() : props;
+    }
+
+    private void check(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Region " + i + " of " + size);
+        }
+    }
+
+    /** Returns true if the regions are grouped by feature, as for a
+     * mapping from feature ID to locations.
+     * @return true if grouped.
+     */
+    public boolean isGrouped() {
+        return grouped;
+    }
+
+    /** Get the number of features the regions are grouped by.
+     * @return the feature count, 0 if not grouped.
+     */
+    public int getFeatureCount() {
+        return featureIds.length;
+    }
+
+    /** Get the ID of a feature.
+     * @param f the feature number.
+     * @return the feature ID.
+     */
+    public String getFeatureId(int f) {
+        return featureIds[f];
+    }
+
+    /** Get the position of the first region of a feature.
+     * @param f the feature number.
+     * @return the position.
+     */
+    public int getFeatureFrom(int f) {
+        if (f < 0 || f >= featureIds.length) {
+            throw new IndexOutOfBoundsException("Feature " + f + " of " + featureIds.length);
+        }
+        return featureOffsets[f];
+    }
+
+    /** Get the position after the last region of a feature.
+     * @param f the feature number.
+     * @return the position.
+     */
+    public int getFeatureTo(int f) {
+        if (f < 0 || f >= featureIds.length) {
+            throw new IndexOutOfBoundsException("Feature " + f + " of " + featureIds.length);
+        }
+        return featureOffsets[f + 1];
+    }
+
+    /** Returns true if a feature's list of regions was null rather than
+     * a list. Such a feature has no regions.
+     * @param f the feature number.
+     * @return true if the feature's regions are null.
+     */
+    public boolean isFeatureNull(int f) {
+        if (f < 0 || f >= featureIds.length) {
+            throw new IndexOutOfBoundsException("Feature " + f + " of " + featureIds.length);
+        }
+        return nullFeatures.get(f);
+    }
+
+    /** Get the number of a feature.
+     * @param featureId the feature ID.
+     * @return the feature number, or -1 if the feature is not present.
+     */
+    public int getFeatureNumber(String featureId) {
+        Map<String, Integer> numbers = featureNumbers;
+        if (numbers == null) {
+            // built on first use; racing threads build equal maps
+            numbers = new HashMap<String, Integer>();
+            for (int f = 0; f < featureIds.length; f++) {
+                numbers.put(featureIds[f], f);
+            }
+            featureNumbers = numbers;
+        }
+        Integer f = numbers.get(featureId);
+        return f == null ? -1 : f;
+    }
+
+    /** Get a cursor over all the regions, positioned before the first.
+     * @return a new cursor.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /** Copies the regions into a list of Region objects.
+     * @return the regions.
+     */
+    public List<Region> toList() {
+        List<Region> ret = new ArrayList<Region>(size);
+        for (int i = 0; i < size; i++) {
+            ret.add(get(i));
+        }
+        return ret;
+    }
+
+    /** Copies grouped regions into a mapping from feature ID to Region
+     * objects, as returned by getFeatureLocations.
+     * @return the regions of each feature, null for a feature whose
+     * regions were null.
+     */
+    public Map<String, List<Region>> toMap() {
+        Map<String, List<Region>> ret = new LinkedHashMap<String, List<Region>>();
+        for (int f = 0; f < featureIds.length; f++) {
+            if (nullFeatures.get(f)) {
+                ret.put(featureIds[f], null);
+                continue;
+            }
+            List<Region> regions = new ArrayList<Region>(featureOffsets[f + 1] - featureOffsets[f]);
+            for (int i = featureOffsets[f]; i < featureOffsets[f + 1]; i++) {
+                regions.add(get(i));
+            }
+            ret.put(featureIds[f], regions);
+        }
+        return ret;
+    }
+
+    static String strandString(byte strand) {
+        return strand == 0 ? null : String.valueOf((char) strand);
+    }
+
+    static byte strandByte(String strand) {
+        if (strand == null) {
+            return 0;
+        }
+        if (isByteStrand(strand)) {
+            return (byte) strand.charAt(0);
+        }
+        return '?';
+    }
+
+    /** Returns true if a strand is stored exactly as a byte. */
+    static boolean isByteStrand(String strand) {
+        return strand.length() == 1 && strand.charAt(0) > 0 && strand.charAt(0) < 128;
+    }
+
+    /** Concatenates grouped arrays, e.g. the results of several chunks of
+     * one call.
+     */
+    static RegionArray concat(List<RegionArray> parts) {
+        Builder b = new Builder();
+        b.grouped = true;
+        for (RegionArray part : parts) {
+            int[] codes = new int[part.contigs.length];
+            for (int c = 0; c < codes.length; c++) {
+                codes[c] = b.contigCode(part.contigs[c]);
+            }
+            for (int f = 0; f < part.featureIds.length; f++) {
+                if (part.nullFeatures.get(f)) {
+                    b.startNullFeature(part.featureIds[f]);
+                    continue;
+                }
+                b.startFeature(part.featureIds[f]);
+                for (int i = part.featureOffsets[f]; i < part.featureOffsets[f + 1]; i++) {
+                    b.add(codes[part.contigCodes[i]], part.strandString(i), part.noStarts.get(i) ? null : part.starts[i],
+                            part.noLengths.get(i) ? null : part.lengths[i], part.additionalProperties(i));
+                }
+            }
+        }
+        return b.build();
+    }
+
+    /**
+     * A reusable view of one region at a time. A cursor is not thread safe;
+     * give each thread its own.
+     */
+    public final class Cursor {
+        private int from = 0;
+        private int to = size;
+        private int i = -1;
+
+        private Cursor() {
+        }
+
+        /** Restricts the cursor to the regions of one feature and positions
+         * it before the first of them.
+         * @param f the feature number.
+         * @return this cursor.
+         */
+        public Cursor selectFeature(int f) {
+            from = getFeatureFrom(f);
+            to = getFeatureTo(f);
+            i = from - 1;
+            return this;
+        }
+
+        /** Lets the cursor range over all regions and positions it before
+         * the first.
+         * @return this cursor.
+         */
+        public Cursor selectAll() {
+            from = 0;
+            to = size;
+            i = -1;
+            return this;
+        }
+
+        /** Moves to the next region.
+         * @return false if there are no more regions.
+         */
+        public boolean next() {
+            if (i + 1 >= to) {
+                i = to;
+                return false;
+            }
+            i++;
+            return true;
+        }
+
+        /** Moves to a region.
+         * @param position the region's position in the array.
+         * @return this cursor.
+         */
+        public Cursor moveTo(int position) {
+            check(position);
+            i = position;
+            return this;
+        }
+
+        private int at() {
+            if (i < from || i >= to) {
+                throw new NoSuchElementException();
+            }
+            return i;
+        }
+
+        /** Get the position of the current region in the array.
+         * @return the position.
+         */
+        public int getPosition() {
+            return at();
+        }
+
+        /** Get the contig code of the current region.
+         * @return the contig code.
+         */
+        public int getContigCode() {
+            return contigCodes[at()];
+        }
+
+        /** Get the contig ID of the current region.
+         * @return the contig ID.
+         */
+        public String getContigId() {
+            return contigs[contigCodes[at()]];
+        }
+
+        /** Get the strand of the current region.
+         * @return the strand byte, or 0 for none.
+         */
+        public byte getStrand() {
+            return strands[at()];
+        }
+
+        /** Get the strand of the current region as the string that was
+         * read.
+         * @return the strand, or null for none.
+         */
+        public String getStrandString() {
+            return strandString(at());
+        }
+
+        /** Get the start of the current region.
+         * @return the start, or 0 if it is missing.
+         */
+        public long getStart() {
+            return starts[at()];
+        }
+
+        /** Get the length of the current region.
+         * @return the length, or 0 if it is missing.
+         */
+        public long getLength() {
+            return lengths[at()];
+        }
+    }
+
+    /**
+     * Builds a RegionArray. Regions added after {@link #startFeature} belong
+     * to that feature; an array built without starting any feature is not
+     * grouped.
+     */
+    public static final class Builder {
+        private final List<String> contigs = new ArrayList<String>();
+        private final Map<String, Integer> contigIndex = new HashMap<String, Integer>();
+        private final List<String> featureIds = new ArrayList<String>();
+        private int[] featureOffsets = new int[16];
+        private final BitSet nullFeatures = new BitSet();
+        private boolean grouped = false;
+        private int size = 0;
+        private int[] contigCodes = new int[16];
+        private byte[] strands = new byte[16];
+        private long[] starts = new long[16];
+        private long[] lengths = new long[16];
+        private final Map<Integer, String> otherStrands = new HashMap<Integer, String>();
+        private final BitSet noStarts = new BitSet();
+        private final BitSet noLengths = new BitSet();
+        private final Map<Integer, Map<String, Object>> additionalProperties =
+                new HashMap<Integer, Map<String, Object>>();
+
+        /** Starts the regions of a feature.
+         * @param featureId the feature ID.
+         * @return this builder.
+         */
+        public Builder startFeature(String featureId) {
+            if (!grouped && size > 0) {
+                throw new IllegalStateException("Regions were added before the first feature");
+            }
+            grouped = true;
+            int f = featureIds.size();
+            if (f == featureOffsets.length) {
+                featureOffsets = Arrays.copyOf(featureOffsets, f * 2);
+            }
+            featureOffsets[f] = size;
+            featureIds.add(featureId);
+            return this;
+        }
+
+        /** Adds a feature whose list of regions is null. */
+        Builder startNullFeature(String featureId) {
+            startFeature(featureId);
+            nullFeatures.set(featureIds.size() - 1);
+            return this;
+        }
+
+        /** Adds a region.
+         * @param contigId the contig ID.
+         * @param strand the strand, or null.
+         * @param start the start.
+         * @param length the length.
+         * @return this builder.
+         */
+        public Builder add(String contigId, String strand, long start, long length) {
+            return add(contigCode(contigId), strand, start, length, null);
+        }
+
+        /** Adds a region.
+         * @param region the region.
+         * @return this builder.
+         */
+        public Builder add(Region region) {
+            return add(contigCode(region.getContigId()), region.getStrand(), region.getStart(), region.getLength(),
+                    region.getAdditionalProperties());
+        }
+
+        Builder add(int contigCode, String strand, Long start, Long length, Map<String, Object> props) {
+            add(contigCode, strandByte(strand), start == null ? 0 : start, length == null ? 0 : length);
+            int i = size - 1;
+            if (strand != null && !isByteStrand(strand)) {
+                otherStrands.put(i, strand);
+            }
+            if (start == null) {
+                noStarts.set(i);
+            }
+            if (length == null) {
+                noLengths.set(i);
+            }
+            if (props != null && !props.isEmpty()) {
+                additionalProperties.put(i, new LinkedHashMap<String, Object>(props));
+            }
+            return this;
+        }
+
+        int contigCode(String contigId) {
+            Integer code = contigIndex.get(contigId);
+            if (code == null) {
+                code = contigs.size();
+                contigs.add(contigId);
+                contigIndex.put(contigId, code);
+            }
+            return code;
+        }
+
+        Builder add(int contigCode, byte strand, long start, long length) {
+            if (!featureIds.isEmpty() && nullFeatures.get(featureIds.size() - 1)) {
+                throw new IllegalStateException("Feature " + featureIds.get(featureIds.size() - 1) +
+                        " has null regions");
+            }
+            if (size == starts.length) {
+                int cap = size * 2;
+                contigCodes = Arrays.copyOf(contigCodes, cap);
+                strands = Arrays.copyOf(strands, cap);
+                starts = Arrays.copyOf(starts, cap);
+                lengths = Arrays.copyOf(lengths, cap);
+            }
+            contigCodes[size] = contigCode;
+            strands[size] = strand;
+            starts[size] = start;
+            lengths[size] = length;
+            size++;
+            return this;
+        }
+
+        /** Builds the array. The builder should not be used afterwards.
+         * @return the array.
+         */
+        public RegionArray build() {
+            return new RegionArray(this);
+        }
+    }
+
+    /** Writes list&lt;Region&gt;, or mapping&lt;string, list&lt;Region&gt;&gt;
+     * if grouped.
+     */
+    static final class Serializer extends JsonSerializer<RegionArray> {
+        @Override
+        public void serialize(RegionArray value, JsonGenerator g, SerializerProvider provider) throws IOException {
+            if (!value.grouped) {
+                writeRegions(value, 0, value.size, g);
+                return;
+            }
+            g.writeStartObject();
+            for (int f = 0; f < value.featureIds.length; f++) {
+                g.writeFieldName(value.featureIds[f]);
+                if (value.nullFeatures.get(f)) {
+                    g.writeNull();
+                } else {
+                    writeRegions(value, value.featureOffsets[f], value.featureOffsets[f + 1], g);
+                }
+            }
+            g.writeEndObject();
+        }
+
+        private static void writeRegions(RegionArray value, int from, int to, JsonGenerator g) throws IOException {
+            g.writeStartArray();
+            for (int i = from; i < to; i++) {
+                g.writeStartObject();
+                g.writeStringField("contig_id", value.contigs[value.contigCodes[i]]);
+                String strand = value.strandString(i);
+                if (strand != null) {
+                    g.writeStringField("strand", strand);
+                }
+                if (!value.noStarts.get(i)) {
+                    g.writeNumberField("start", value.starts[i]);
+                }
+                if (!value.noLengths.get(i)) {
+                    g.writeNumberField("length", value.lengths[i]);
+                }
+                for (Map.Entry<String, Object> e : value.additionalProperties(i).entrySet()) {
+                    g.writeObjectField(e.getKey(), e.getValue());
+                }
+                g.writeEndObject();
+            }
+            g.writeEndArray();
+        }
+    }
+
+    /** Reads list&lt;Region&gt; or mapping&lt;string, list&lt;Region&gt;&gt;
+     * without creating Region objects.
+     */
+    static final class Deserializer extends JsonDeserializer<RegionArray> {
+        @Override
+        public RegionArray deserialize(JsonParser jp, DeserializationContext ctxt) throws IOException {
+            Builder b = new Builder();
+            JsonToken t = jp.getCurrentToken();
+            if (t == JsonToken.START_OBJECT) {
+                while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                    String featureId = jp.getCurrentName();
+                    if (jp.nextToken() == JsonToken.VALUE_NULL) {
+                        b.startNullFeature(featureId);
+                    } else {
+                        b.startFeature(featureId);
+                        readRegions(jp, ctxt, b);
+                    }
+                }
+                // an empty mapping is still a grouped array
+                b.grouped = true;
+            } else {
+                readRegions(jp, ctxt, b);
+            }
+            return b.build();
+        }
+
+        private static void readRegions(JsonParser jp, DeserializationContext ctxt, Builder b) throws IOException {
+            if (jp.getCurrentToken() == JsonToken.VALUE_NULL) {
+                return;
+            }
+            if (jp.getCurrentToken() != JsonToken.START_ARRAY) {
+                throw JsonMappingException.from(jp, "Expected a list of regions");
+            }
+            while (jp.nextToken() == JsonToken.START_OBJECT) {
+                String contigId = null;
+                String strand = null;
+                Long start = null;
+                Long length = null;
+                Map<String, Object> props = null;
+                while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = jp.getCurrentName();
+                    JsonToken v = jp.nextToken();
+                    if (field.equals("contig_id") || field.equals("strand") || field.equals("start") ||
+                            field.equals("length")) {
+                        if (v == JsonToken.VALUE_NULL) {
+                            continue;
+                        }
+                        if (field.equals("contig_id")) {
+                            contigId = jp.getText();
+                        } else if (field.equals("strand")) {
+                            strand = jp.getText();
+                        } else if (field.equals("start")) {
+                            start = jp.getLongValue();
+                        } else {
+                            length = jp.getLongValue();
+                        }
+                    } else {
+                        if (props == null) {
+                            props = new LinkedHashMap<String, Object>();
+                        }
+                        props.put(field, v == JsonToken.VALUE_NULL ? null : ctxt.readValue(jp, Object.class));
+                    }
+                }
+                b.add(b.contigCode(contigId), strand, start, length, props);
+            }
+            if (jp.getCurrentToken() != JsonToken.END_ARRAY) {
+                throw JsonMappingException.from(jp, "Expected a region");
+            }
+        }
+    }
+}
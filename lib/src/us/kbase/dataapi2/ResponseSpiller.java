@@ -0,0 +1,144 @@
+package us.kbase.dataapi2;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import us.kbase.common.service.JsonClientException;
+import us.kbase.common.service.RpcContext;
+
+/**
+ * Reads the response of a mapping-valued data_api2 method, spilling it to
+ * a temporary file if it is larger than a threshold (judged by the
+ * Content-Length header, or by the bytes read when there is none). A
+ * spilled response is returned as a {@link SpilledResultMap}; a smaller
+ * one is parsed on the heap as usual. Responses are always requested as
+ * JSON, since a spilled result is indexed by the byte offsets of its values
+ * in the JSON text.
+ */
+final class ResponseSpiller {
+    /** Methods whose result is a mapping that may be large. */
+    static final Set<String> MAPPING_METHODS;
+    static {
+        Set<String> methods = new HashSet<String>(FeatureIdChunker.ID_LIST_METHODS);
+        methods.add("data_api2.get_proteins");
+        methods.add("data_api2.get_features_in_region");
+        MAPPING_METHODS = Collections.unmodifiableSet(methods);
+    }
+
+    private static final int COPY_BUFFER = 64 * 1024;
+
+    private ResponseSpiller() {
+    }
+
+    @SuppressWarnings("unchecked")
+    static <RET> List<RET> call(RpcHttpChannel channel, String method, List<Object> args,
+            TypeReference<List<RET>> retType, boolean authRequired, long threshold, File dir,
+            RpcContext... context) throws IOException, JsonClientException {
+        ObjectMapper mapper = RpcHttpChannel.mapper();
+        TransportResponse resp = channel.send(method, args, false, authRequired, context);
+        long length = contentLength(resp);
+        InputStream is = channel.responseStream(resp);
+        try {
+            byte[] head = new byte[0];
+            if (length < 0 || length <= threshold) {
+                head = readUpTo(is, threshold + 1);
+                if (head.length <= threshold) {
+                    return RpcHttpChannel.readResult(new ByteArrayInputStream(head), retType);
+                }
+            }
+            ByteBuffer mapped = spill(head, is, dir);
+            JsonParser jp = mapper.getFactory().createParser(MappedResponseStore.asInputStream(mapped.duplicate()));
+            try {
+                List<RET> ret = new ArrayList<RET>(1);
+                if (RpcHttpChannel.toResultMapping(jp)) {
+                    JavaType valueType = mapper.getTypeFactory().constructType(retType).getContentType()
+                            .getContentType();
+                    ret.add((RET) SpilledResultMap.index(mapper, valueType, mapped, jp));
+                } else {
+                    ret.add(null);
+                }
+                return ret;
+            } finally {
+                jp.close();
+            }
+        } finally {
+            is.close();
+        }
+    }
+
+    /** Returns the decoded length of a response body, or -1 if unknown. */
+    private static long contentLength(TransportResponse resp) {
+        String length = resp.getHeader("Content-Length");
+        if (length == null || resp.getHeader("Content-Encoding") != null) {
+            // a compressed body's length says little about its decoded size
+            return -1;
+        }
+        try {
+            return Long.parseLong(length.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static byte[] readUpTo(InputStream is, long max) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[COPY_BUFFER];
+        long total = 0;
+        int n;
+        while (total < max && (n = is.read(buf, 0, (int) Math.min(buf.length, max - total))) > 0) {
+            out.write(buf, 0, n);
+            total += n;
+        }
+        return out.toByteArray();
+    }
+
+    /** Writes the bytes read so far and the rest of the stream to a
+     * temporary file and maps it. The file is deleted once mapped, so its
+     * space is released when the mapping is garbage collected.
+     */
+    private static ByteBuffer spill(byte[] head, InputStream is, File dir) throws IOException {
+        File f = File.createTempFile("data_api2-", ".json", dir);
+        try {
+            OutputStream os = Files.newOutputStream(f.toPath());
+            try {
+                os.write(head);
+                byte[] buf = new byte[COPY_BUFFER];
+                int n;
+                while ((n = is.read(buf)) > 0) {
+                    os.write(buf, 0, n);
+                }
+            } finally {
+                os.close();
+            }
+            RandomAccessFile raf = new RandomAccessFile(f, "r");
+            try {
+                if (raf.length() > Integer.MAX_VALUE) {
+                    throw new IOException("Response of " + raf.length() + " bytes is too large to map");
+                }
+                return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length()).asReadOnlyBuffer();
+            } finally {
+                raf.close();
+            }
+        } finally {
+            if (!f.delete()) {
+                f.deleteOnExit();
+            }
+        }
+    }
+}
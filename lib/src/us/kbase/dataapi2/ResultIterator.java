@@ -0,0 +1,157 @@
+package us.kbase.dataapi2;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import us.kbase.common.service.JsonClientException;
+
+/**
+ * <p>Iterates over the values of a mapping returned by a data_api2 method
+ * while the response is still being read.</p>
+ * <pre>
+ * The response body is walked with a Jackson token stream and each value
+ * is deserialized only when it is reached, so no more than one value is
+ * held at a time. A long ID list is fetched as a sequence of requests of
+ * at most the client's feature ID chunk size, one after another.
+ *
+ * Errors raised while iterating are wrapped in a
+ * {@link ResultIterator.StreamException}. Close the iterator if it is not
+ * read to the end, to release the underlying connection.
+ * </pre>
+ */
+public class ResultIterator<T> implements Iterator<T>, Closeable {
+    /** Sends one call and returns its unparsed response body. */
+    interface Opener {
+        InputStream open(List<Object> args) throws IOException, JsonClientException;
+    }
+
+    /** An IOException or JsonClientException raised while iterating. */
+    public static class StreamException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        StreamException(Exception cause) {
+            super(cause.getMessage(), cause);
+        }
+    }
+
+    private final ObjectMapper mapper;
+    private final Class<T> valueType;
+    private final Opener opener;
+    private final Iterator<List<Object>> calls;
+    private InputStream is = null;
+    private JsonParser jp = null;
+    private boolean ready = false;
+    private String nextKey = null;
+    private T nextValue = null;
+    private String key = null;
+
+    ResultIterator(ObjectMapper mapper, Class<T> valueType, Opener opener, List<List<Object>> calls) {
+        this.mapper = mapper;
+        this.valueType = valueType;
+        this.opener = opener;
+        this.calls = calls.iterator();
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (!ready) {
+            try {
+                ready = advance();
+            } catch (IOException e) {
+                closeQuietly();
+                throw new StreamException(e);
+            } catch (JsonClientException e) {
+                closeQuietly();
+                throw new StreamException(e);
+            }
+        }
+        return ready;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ready = false;
+        key = nextKey;
+        T value = nextValue;
+        nextValue = null;
+        return value;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /** Get the mapping key of the value last returned by {@link #next()}.
+     * @return the key, e.g. the feature ID.
+     */
+    public String getKey() {
+        return key;
+    }
+
+    private boolean advance() throws IOException, JsonClientException {
+        while (true) {
+            if (jp == null) {
+                if (!calls.hasNext()) {
+                    return false;
+                }
+                is = opener.open(calls.next());
+                jp = mapper.getFactory().createParser(is);
+                if (!RpcHttpChannel.toResultMapping(jp)) {
+                    closeCurrent();
+                    continue;
+                }
+            }
+            JsonToken t = jp.nextToken();
+            if (t == JsonToken.FIELD_NAME) {
+                nextKey = jp.getCurrentName();
+                jp.nextToken();
+                nextValue = mapper.readValue(jp, valueType);
+                return true;
+            }
+            closeCurrent();
+        }
+    }
+
+    private void closeCurrent() throws IOException {
+        JsonParser p = jp;
+        InputStream s = is;
+        jp = null;
+        is = null;
+        try {
+            if (p != null) {
+                p.close();
+            }
+        } finally {
+            if (s != null) {
+                s.close();
+            }
+        }
+    }
+
+    private void closeQuietly() {
+        try {
+            closeCurrent();
+        } catch (IOException e) {
+            // already failing
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ready = false;
+        while (calls.hasNext()) {
+            calls.next();
+        }
+        closeCurrent();
+    }
+}
@@ -0,0 +1,112 @@
+package us.kbase.dataapi2;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import us.kbase.common.service.JsonClientCaller;
+import us.kbase.common.service.JsonClientException;
+import us.kbase.common.service.RpcContext;
+
+/**
+ * Routes the JSON-RPC calls of a {@link DataApi2Client}: through the
+ * response cache and store, the feature cache and the ID list chunker,
+ * and then to the response spiller, the {@link RpcHttpChannel} or
+ * JsonClientCaller, according to the client's settings. Kept apart from
+ * DataApi2Client, whose generated jsonrpcCall only delegates here.
+ * Settings are read from the owning client on every call.
+ */
+final class RpcCallRouter {
+    private final DataApi2Client client;
+    private final RpcHttpChannel channel;
+    private final FeatureIdChunker chunker;
+    private volatile boolean fileForNextRpcResponseSet = false;
+
+    RpcCallRouter(DataApi2Client client, RpcHttpChannel channel, FeatureIdChunker chunker) {
+        this.client = client;
+        this.channel = channel;
+        this.chunker = chunker;
+    }
+
+    /** Records that the next response must be written to the file given to
+     * JsonClientCaller, so the next call goes through it.
+     */
+    void setFileForNextRpcResponse(boolean set) {
+        fileForNextRpcResponseSet = set;
+    }
+
+    <RET> List<RET> call(final JsonClientCaller caller, final String method, List<Object> args,
+            final TypeReference<List<RET>> retType, final boolean ret, final boolean authRequired,
+            final RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        VersionedRefCache cache = client.getResponseCache();
+        MappedResponseStore store = client.getResponseStore();
+        String user = VersionedRefCache.userOf(client.getToken());
+        String key = cache == null && store == null ? null :
+                VersionedRefCache.keyFor(RpcHttpChannel.mapper(), user, method, args);
+        if (key != null && cache != null) {
+            byte[] cached = cache.get(key);
+            if (cached != null) {
+                return RpcHttpChannel.mapper().readValue(cached, retType);
+            }
+        }
+        if (key != null && store != null) {
+            ByteBuffer stored = store.get(key);
+            if (stored != null) {
+                return RpcHttpChannel.mapper().readValue(MappedResponseStore.asInputStream(stored), retType);
+            }
+        }
+        List<RET> res;
+        VersionedRefCache features = client.getFeatureCache();
+        String ref = features == null || !RpcHttpChannel.isMappingResult(retType) ? null :
+                FeatureCacheLookup.refFor(method, args);
+        if (ref != null) {
+            res = FeatureCacheLookup.call(features, RpcHttpChannel.mapper(), user, method, ref, args, retType,
+                    missingArgs -> fetch(caller, method, missingArgs, retType, ret, authRequired, jsonRpcContext));
+        } else {
+            res = fetch(caller, method, args, retType, ret, authRequired, jsonRpcContext);
+        }
+        // a spilled result would have to be decoded onto the heap to be cached
+        if (key != null && !(res != null && !res.isEmpty() && res.get(0) instanceof SpilledResultMap)) {
+            byte[] serialized = RpcHttpChannel.mapper().writeValueAsBytes(res);
+            if (cache != null) {
+                cache.put(key, serialized);
+            }
+            if (store != null) {
+                store.put(key, serialized);
+            }
+        }
+        return res;
+    }
+
+    private <RET> List<RET> fetch(final JsonClientCaller caller, final String method, List<Object> args,
+            final TypeReference<List<RET>> retType, final boolean ret, final boolean authRequired,
+            final RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        if (chunker.isChunked(method, args)) {
+            return chunker.call(args,
+                    chunkArgs -> fetchOne(caller, method, chunkArgs, retType, ret, authRequired, jsonRpcContext));
+        }
+        return fetchOne(caller, method, args, retType, ret, authRequired, jsonRpcContext);
+    }
+
+    private <RET> List<RET> fetchOne(JsonClientCaller caller, String method, List<Object> args,
+            TypeReference<List<RET>> retType, boolean ret, boolean authRequired,
+            RpcContext... jsonRpcContext) throws IOException, JsonClientException {
+        if (fileForNextRpcResponseSet) {
+            // only JsonClientCaller can write the response to that file
+            fileForNextRpcResponseSet = false;
+            return caller.jsonrpcCall(method, args, retType, ret, authRequired, jsonRpcContext);
+        }
+        long threshold = client.getResponseSpillThreshold();
+        if (threshold > 0 && ResponseSpiller.MAPPING_METHODS.contains(method) &&
+                RpcHttpChannel.isMappingResult(retType)) {
+            return ResponseSpiller.call(channel, method, args, retType, authRequired, threshold,
+                    client.getSpillDirectory(), jsonRpcContext);
+        }
+        if (client.isCompressionEnabled() ||
+                (client.isMessagePackEnabled() && WireFormat.isMessagePackAvailable()) ||
+                client.isTransportSet()) {
+            return channel.jsonrpcCall(method, args, retType, authRequired, jsonRpcContext);
+        }
+        return caller.jsonrpcCall(method, args, retType, ret, authRequired, jsonRpcContext);
+    }
+}
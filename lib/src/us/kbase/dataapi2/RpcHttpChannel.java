@@ -0,0 +1,316 @@
+package us.kbase.dataapi2;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import us.kbase.auth.AuthToken;
+import us.kbase.common.service.JsonClientException;
+import us.kbase.common.service.RpcContext;
+import us.kbase.common.service.ServerException;
+import us.kbase.common.service.UObject;
+import us.kbase.common.service.UnauthorizedException;
+
+/**
+ * Raw JSON-RPC over a {@link DataApi2Transport} for the parts of
+ * {@link DataApi2Client} that need more control over the request and
+ * response bodies than JsonClientCaller offers (batches, streamed,
+ * compressed and MessagePack encoded responses, pluggable transports).
+ * Connection settings are read from the owning client on every call.
+ */
+final class RpcHttpChannel {
+    private static final int HTTP_OK = 200;
+    private static final int HTTP_INTERNAL_ERROR = 500;
+
+    private final DataApi2Client client;
+    private volatile boolean serverAcceptsZstd = false;
+    private volatile boolean serverAcceptsMessagePack = false;
+
+    RpcHttpChannel(DataApi2Client client) {
+        this.client = client;
+    }
+
+    static ObjectMapper mapper() {
+        return UObject.getMapper();
+    }
+
+    /** Posts a request body to the service through the client's
+     * transport, with the headers and settings JsonClientCaller would use.
+     * If compression is enabled, a body of at least the client's request
+     * compression threshold is compressed. If binaryResponse is true and
+     * MessagePack is enabled, the response is requested as MessagePack;
+     * the server may still answer in JSON.
+     */
+    TransportResponse post(TransportRequest.BodyWriter body, String contentType, boolean binaryResponse,
+            boolean authRequired) throws IOException, JsonClientException {
+        return post(client.getURL(), body, contentType, binaryResponse, authRequired);
+    }
+
+    /** Posts a request body to a URL of the service; see
+     * {@link #post(TransportRequest.BodyWriter, String, boolean, boolean)}.
+     */
+    TransportResponse post(URL url, TransportRequest.BodyWriter body, String contentType,
+            boolean binaryResponse, boolean authRequired) throws IOException, JsonClientException {
+        Map<String, String> headers = new LinkedHashMap<String, String>();
+        headers.put("Content-Type", contentType);
+        if (binaryResponse && isMessagePackRequested()) {
+            headers.put("Accept", WireFormat.acceptMessagePack());
+        }
+        AuthToken token = client.getToken();
+        if (authRequired || token != null) {
+            if (!(url.getProtocol().equals("https") || client.isInsecureHttpConnectionAllowed())) {
+                throw new UnauthorizedException("RPC method requires authentication but credentials were " +
+                        "provided only over http");
+            }
+            if (token == null) {
+                throw new UnauthorizedException("RPC method requires authentication but credentials were " +
+                        "not provided");
+            }
+            headers.put("Authorization", token.toString());
+        }
+        boolean streaming = client.isStreamingModeOn();
+        if (client.isCompressionEnabled()) {
+            headers.put("Accept-Encoding", ContentCoding.acceptEncoding());
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            body.writeTo(buf);
+            byte[] bytes = buf.toByteArray();
+            if (bytes.length >= client.getRequestCompressionThreshold()) {
+                String coding = serverAcceptsZstd && ContentCoding.isZstdAvailable() ?
+                        ContentCoding.ZSTD : ContentCoding.GZIP;
+                bytes = ContentCoding.encode(bytes, coding);
+                headers.put("Content-Encoding", coding);
+            }
+            final byte[] encoded = bytes;
+            body = new TransportRequest.BodyWriter() {
+                @Override
+                public void writeTo(OutputStream os) throws IOException {
+                    os.write(encoded);
+                }
+            };
+            streaming = false;
+        }
+        return client.getTransport().send(new TransportRequest(url, headers, body,
+                client.getConnectionReadTimeOut(), client.isAllSSLCertificatesTrusted(), streaming));
+    }
+
+    private boolean isMessagePackRequested() {
+        return client.isMessagePackEnabled() && WireFormat.isMessagePackAvailable();
+    }
+
+    /** Sends a single call and returns the response. If binaryResponse is
+     * true the response may be MessagePack encoded, and once the server has
+     * answered in MessagePack the request is sent that way too.
+     */
+    TransportResponse send(final String method, final List<Object> args, boolean binaryResponse,
+            boolean authRequired, final RpcContext... context) throws IOException, JsonClientException {
+        String contentType = binaryResponse && serverAcceptsMessagePack && isMessagePackRequested() ?
+                WireFormat.MESSAGEPACK : WireFormat.JSON;
+        final ObjectMapper m = WireFormat.mapperFor(contentType);
+        return post(new TransportRequest.BodyWriter() {
+            @Override
+            public void writeTo(OutputStream os) throws IOException {
+                JsonGenerator g = m.getFactory().createGenerator(os);
+                writeCall(g, method, args, newCallId(), context);
+                g.flush();
+            }
+        }, contentType, binaryResponse, authRequired);
+    }
+
+    /** Posts a JSON object to an endpoint at a path below the service URL,
+     * such as the feature export, and returns the decoded response body.
+     */
+    InputStream postJson(String path, final Object body, boolean authRequired)
+            throws IOException, JsonClientException {
+        String base = client.getURL().toString();
+        URL url = new URL((base.endsWith("/") ? base.substring(0, base.length() - 1) : base) + path);
+        return responseStream(post(url, new TransportRequest.BodyWriter() {
+            @Override
+            public void writeTo(OutputStream os) throws IOException {
+                JsonGenerator g = mapper().getFactory().createGenerator(os);
+                mapper().writeValue(g, body);
+                g.flush();
+            }
+        }, WireFormat.JSON, false, authRequired));
+    }
+
+    /** Sends a single call and returns the unparsed response body. The
+     * request body is streamed if the client is in streaming mode and the
+     * transport supports it.
+     */
+    InputStream call(String method, List<Object> args, boolean authRequired, RpcContext... context)
+            throws IOException, JsonClientException {
+        return responseStream(send(method, args, false, authRequired, context));
+    }
+
+    /** Sends a single call and parses its result, which may come back in
+     * MessagePack if the client has it enabled.
+     */
+    <RET> List<RET> jsonrpcCall(String method, List<Object> args, TypeReference<List<RET>> retType,
+            boolean authRequired, RpcContext... context) throws IOException, JsonClientException {
+        TransportResponse resp = send(method, args, true, authRequired, context);
+        InputStream is = responseStream(resp);
+        try {
+            return readResult(responseMapper(resp), is, retType);
+        } finally {
+            is.close();
+        }
+    }
+
+    /** Returns the mapper that reads a response's body. */
+    static ObjectMapper responseMapper(TransportResponse resp) throws IOException {
+        return WireFormat.mapperFor(resp.getHeader("Content-Type"));
+    }
+
+    /** Returns the decoded response body stream, or throws the server's
+     * error if the call failed as a whole.
+     */
+    InputStream responseStream(TransportResponse resp) throws IOException, JsonClientException {
+        int code = resp.getStatusCode();
+        String coding = resp.getHeader("Content-Encoding");
+        if (ContentCoding.ZSTD.equalsIgnoreCase(coding)) {
+            // a server that sends zstd also accepts it
+            serverAcceptsZstd = true;
+        }
+        if (WireFormat.isMessagePack(resp.getHeader("Content-Type"))) {
+            // likewise for MessagePack
+            serverAcceptsMessagePack = true;
+        }
+        if (code == HTTP_OK) {
+            return ContentCoding.decode(resp.getBody(), coding);
+        }
+        try {
+            if (code == HTTP_INTERNAL_ERROR) {
+                JsonNode err;
+                try {
+                    err = responseMapper(resp).readTree(ContentCoding.decode(resp.getBody(), coding));
+                } catch (IOException e) {
+                    throw new ServerException(resp.getStatusMessage(), code, "Unknown", null);
+                }
+                checkError(err);
+                throw new ServerException(resp.getStatusMessage(), code, "Unknown", null);
+            }
+            throw new JsonClientException("Unexpected HTTP response " + code + " " +
+                    resp.getStatusMessage() + " from " + client.getURL());
+        } finally {
+            resp.close();
+        }
+    }
+
+    /** Parses the result list of a JSON-RPC response, throwing the error
+     * it carries if there is one.
+     */
+    static <RET> List<RET> readResult(InputStream is, TypeReference<List<RET>> retType)
+            throws IOException, JsonClientException {
+        return readResult(mapper(), is, retType);
+    }
+
+    /** Parses the result list of a response read by the given mapper. */
+    static <RET> List<RET> readResult(ObjectMapper mapper, InputStream is, TypeReference<List<RET>> retType)
+            throws IOException, JsonClientException {
+        JsonParser jp = mapper.getFactory().createParser(is);
+        try {
+            if (jp.nextToken() != JsonToken.START_OBJECT) {
+                throw new JsonClientException("Expected a JSON-RPC response object");
+            }
+            List<RET> result = null;
+            while (jp.nextToken() == JsonToken.FIELD_NAME) {
+                String field = jp.getCurrentName();
+                JsonToken t = jp.nextToken();
+                if (field.equals("result") && t != JsonToken.VALUE_NULL) {
+                    result = mapper.readValue(jp, retType);
+                } else if (field.equals("error") && t != JsonToken.VALUE_NULL) {
+                    ObjectNode resp = mapper.createObjectNode();
+                    resp.set("error", mapper.readTree(jp));
+                    checkError(resp);
+                } else {
+                    jp.skipChildren();
+                }
+            }
+            if (result == null) {
+                throw new JsonClientException("The response holds no result");
+            }
+            return result;
+        } finally {
+            jp.close();
+        }
+    }
+
+    /** Returns true if the result type is a list holding a mapping, as
+     * opposed to e.g. a {@link RegionArray} read from a mapping.
+     */
+    static boolean isMappingResult(TypeReference<?> retType) {
+        JavaType type = mapper().getTypeFactory().constructType(retType).getContentType();
+        return type != null && type.isMapLikeType();
+    }
+
+    /** Writes one JSON-RPC 1.1 call object. */
+    static void writeCall(JsonGenerator g, String method, List<Object> args, String id,
+            RpcContext... context) throws IOException {
+        g.writeStartObject();
+        g.writeObjectField("params", args);
+        g.writeStringField("method", method);
+        g.writeStringField("version", "1.1");
+        g.writeStringField("id", id);
+        if (context != null && context.length > 0 && context[0] != null) {
+            g.writeObjectField("context", context[0]);
+        }
+        g.writeEndObject();
+    }
+
+    /** Moves a parser at the start of a JSON-RPC response onto the start of
+     * the mapping that is the first element of the result list. Returns
+     * false if the result holds no mapping.
+     */
+    static boolean toResultMapping(JsonParser jp) throws IOException, JsonClientException {
+        if (jp.nextToken() != JsonToken.START_OBJECT) {
+            throw new JsonClientException("Expected a JSON-RPC response object");
+        }
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String field = jp.getCurrentName();
+            JsonToken t = jp.nextToken();
+            if (field.equals("result") && t == JsonToken.START_ARRAY) {
+                return jp.nextToken() == JsonToken.START_OBJECT;
+            } else if (field.equals("error") && t != JsonToken.VALUE_NULL) {
+                ObjectNode resp = mapper().createObjectNode();
+                resp.set("error", mapper().readTree(jp));
+                checkError(resp);
+            } else {
+                jp.skipChildren();
+            }
+        }
+        throw new JsonClientException("The response holds no result");
+    }
+
+    /** Throws the error carried by a single JSON-RPC response object, if
+     * there is one.
+     */
+    static void checkError(JsonNode resp) throws ServerException {
+        if (resp == null || !resp.hasNonNull("error")) {
+            return;
+        }
+        JsonNode err = resp.get("error");
+        String data = err.hasNonNull("error") ? text(err, "error") : text(err, "data");
+        throw new ServerException(text(err, "message"), err.path("code").asInt(0),
+                text(err, "name"), data);
+    }
+
+    private static String text(JsonNode node, String field) {
+        return node.hasNonNull(field) ? node.get(field).asText() : null;
+    }
+
+    static String newCallId() {
+        return ("" + Math.random()).replace(".", "");
+    }
+}
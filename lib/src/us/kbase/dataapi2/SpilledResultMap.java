@@ -0,0 +1,192 @@
+package us.kbase.dataapi2;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>A read-only mapping returned by a data_api2 method whose response was
+ * spilled to disk.</p>
+ * <pre>
+ * The response is kept in a memory-mapped temporary file and only the
+ * position of each value is held on the heap; a value is decoded from the
+ * mapped file every time it is accessed, and is not retained by the map.
+ * Iterate once and keep the values you need rather than calling get()
+ * repeatedly for the same key.
+ * Results fetched in several feature ID chunks are combined without
+ * decoding any values.
+ * The map is safe for concurrent readers.
+ * </pre>
+ * @see DataApi2Client#setResponseSpillThreshold(long)
+ */
+public class SpilledResultMap<V> extends AbstractMap<String, V> {
+    /** Bits of a packed position that hold the offset within a segment. */
+    private static final int OFFSET_BITS = 40;
+
+    private final ObjectMapper mapper;
+    private final JavaType valueType;
+    private final List<ByteBuffer> segments;
+    private final Map<String, Long> positions;
+    private final long spilledBytes;
+
+    private SpilledResultMap(ObjectMapper mapper, JavaType valueType, List<ByteBuffer> segments,
+            Map<String, Long> positions, long spilledBytes) {
+        this.mapper = mapper;
+        this.valueType = valueType;
+        this.segments = segments;
+        this.positions = positions;
+        this.spilledBytes = spilledBytes;
+    }
+
+    /** Indexes the result mapping of a mapped JSON-RPC response. The
+     * parser must be at the start of the mapping and reading the buffer
+     * from its beginning.
+     */
+    static <V> SpilledResultMap<V> index(ObjectMapper mapper, JavaType valueType, ByteBuffer response,
+            JsonParser jp) throws IOException {
+        Map<String, Long> positions = new LinkedHashMap<String, Long>();
+        while (jp.nextToken() == JsonToken.FIELD_NAME) {
+            String key = jp.getCurrentName();
+            jp.nextToken();
+            positions.put(key, jp.getTokenLocation().getByteOffset());
+            jp.skipChildren();
+        }
+        return new SpilledResultMap<V>(mapper, valueType, Collections.singletonList(response), positions,
+                response.capacity());
+    }
+
+    /** Combines the maps of several chunks of one call; later chunks win
+     * on duplicate keys, as for an ordinary merge.
+     */
+    static <V> SpilledResultMap<V> concat(List<SpilledResultMap<V>> parts) {
+        List<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+        Map<String, Long> positions = new LinkedHashMap<String, Long>();
+        long bytes = 0;
+        for (SpilledResultMap<V> part : parts) {
+            int base = segments.size();
+            segments.addAll(part.segments);
+            for (Map.Entry<String, Long> e : part.positions.entrySet()) {
+                long p = e.getValue();
+                long segment = (p >>> OFFSET_BITS) + base;
+                positions.put(e.getKey(), segment << OFFSET_BITS | p & ((1L << OFFSET_BITS) - 1));
+            }
+            bytes += part.spilledBytes;
+        }
+        SpilledResultMap<V> first = parts.get(0);
+        return new SpilledResultMap<V>(first.mapper, first.valueType, segments, positions, bytes);
+    }
+
+    /** Combines values already serialized as JSON by the same mapper, such
+     * as per-feature cache entries, with this map without decoding either.
+     * Keys come in the given order, taking the serialized value where
+     * there is one; keys of this map that are not in the order follow.
+     */
+    SpilledResultMap<V> withSerialized(Map<?, byte[]> serialized, List<?> order) {
+        List<ByteBuffer> merged = new ArrayList<ByteBuffer>(segments);
+        Map<String, Long> mergedPositions = new LinkedHashMap<String, Long>();
+        for (Object key : order) {
+            byte[] value = serialized.get(key);
+            if (value != null && key instanceof String) {
+                mergedPositions.put((String) key, (long) merged.size() << OFFSET_BITS);
+                merged.add(ByteBuffer.wrap(value));
+            } else if (positions.containsKey(key)) {
+                mergedPositions.put((String) key, positions.get(key));
+            }
+        }
+        for (Map.Entry<String, Long> e : positions.entrySet()) {
+            if (!mergedPositions.containsKey(e.getKey())) {
+                mergedPositions.put(e.getKey(), e.getValue());
+            }
+        }
+        return new SpilledResultMap<V>(mapper, valueType, merged, mergedPositions, spilledBytes);
+    }
+
+    /** Get the number of bytes of response held in mapped files.
+     * @return the spilled size.
+     */
+    public long getSpilledBytes() {
+        return spilledBytes;
+    }
+
+    private V decode(long position) {
+        ByteBuffer buf = segments.get((int) (position >>> OFFSET_BITS)).duplicate();
+        buf.position((int) (position & ((1L << OFFSET_BITS) - 1)));
+        try {
+            JsonParser jp = mapper.getFactory().createParser(MappedResponseStore.asInputStream(buf));
+            try {
+                jp.nextToken();
+                return mapper.readValue(jp, valueType);
+            } finally {
+                jp.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not decode a value of a spilled response", e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return positions.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return positions.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        Long p = positions.get(key);
+        return p == null ? null : decode(p);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return Collections.unmodifiableSet(positions.keySet());
+    }
+
+    @Override
+    public Set<Map.Entry<String, V>> entrySet() {
+        return new AbstractSet<Map.Entry<String, V>>() {
+            @Override
+            public int size() {
+                return positions.size();
+            }
+
+            @Override
+            public Iterator<Map.Entry<String, V>> iterator() {
+                final Iterator<Map.Entry<String, Long>> it = positions.entrySet().iterator();
+                return new Iterator<Map.Entry<String, V>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return it.hasNext();
+                    }
+
+                    @Override
+                    public Map.Entry<String, V> next() {
+                        Map.Entry<String, Long> e = it.next();
+                        return new SimpleImmutableEntry<String, V>(e.getKey(), decode(e.getValue()));
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+}
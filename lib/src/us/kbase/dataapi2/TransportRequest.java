@@ -0,0 +1,99 @@
+package us.kbase.dataapi2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A POST request to a data_api2 service, as handed to a
+ * {@link DataApi2Transport}.
+ */
+public final class TransportRequest {
+    /** Writes a request body. */
+    public interface BodyWriter {
+        void writeTo(OutputStream os) throws IOException;
+    }
+
+    private final URL url;
+    private final Map<String, String> headers;
+    private final BodyWriter body;
+    private final Integer readTimeout;
+    private final boolean allCertificatesTrusted;
+    private final boolean streaming;
+    private byte[] bodyBytes = null;
+
+    TransportRequest(URL url, Map<String, String> headers, BodyWriter body, Integer readTimeout,
+            boolean allCertificatesTrusted, boolean streaming) {
+        this.url = url;
+        this.headers = Collections.unmodifiableMap(new LinkedHashMap<String, String>(headers));
+        this.body = body;
+        this.readTimeout = readTimeout;
+        this.allCertificatesTrusted = allCertificatesTrusted;
+        this.streaming = streaming;
+    }
+
+    /** Get the service URL.
+     * @return the URL.
+     */
+    public URL getUrl() {
+        return url;
+    }
+
+    /** Get the request headers.
+     * @return an unmodifiable map of header names to values.
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /** Writes the request body to a stream.
+     * @param os the stream.
+     * @throws IOException if the body could not be written.
+     */
+    public void writeBody(OutputStream os) throws IOException {
+        if (bodyBytes != null) {
+            os.write(bodyBytes);
+        } else {
+            body.writeTo(os);
+        }
+    }
+
+    /** Get the request body, serializing it on first use.
+     * @return the body.
+     * @throws IOException if the body could not be written.
+     */
+    public synchronized byte[] getBody() throws IOException {
+        if (bodyBytes == null) {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            body.writeTo(buf);
+            bodyBytes = buf.toByteArray();
+        }
+        return bodyBytes;
+    }
+
+    /** Get the read timeout in milliseconds.
+     * @return the timeout, or null for the transport's default.
+     */
+    public Integer getReadTimeout() {
+        return readTimeout;
+    }
+
+    /** Returns true if the server certificate should not be checked.
+     * @return true if all certificates are trusted.
+     */
+    public boolean isAllCertificatesTrusted() {
+        return allCertificatesTrusted;
+    }
+
+    /** Returns true if the body should be streamed to the server as it is
+     * written rather than buffered, where the transport supports it.
+     * @return true in streaming mode.
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+}
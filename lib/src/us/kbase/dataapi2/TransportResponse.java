@@ -0,0 +1,33 @@
+package us.kbase.dataapi2;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A response from a data_api2 service, as returned by a
+ * {@link DataApi2Transport}. Closing it releases the connection.
+ */
+public interface TransportResponse extends Closeable {
+    /** Get the HTTP status code.
+     * @return the status code.
+     */
+    int getStatusCode();
+
+    /** Get the HTTP status message.
+     * @return the message, or null if there is none (e.g. over HTTP/2).
+     */
+    String getStatusMessage();
+
+    /** Get a response header.
+     * @param name the header name, matched case-insensitively.
+     * @return the first value of the header, or null if it is absent.
+     */
+    String getHeader(String name);
+
+    /** Get the response body, for any status code.
+     * @return the body, which may be empty.
+     * @throws IOException if the body could not be opened.
+     */
+    InputStream getBody() throws IOException;
+}
@@ -0,0 +1,193 @@
+package us.kbase.dataapi2;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import us.kbase.auth.AuthToken;
+
+/**
+ * <p>In-memory cache of data_api2 responses for versioned object references.</p>
+ * <pre>
+ * A reference of the form ws_id/obj_id/version names an object that can
+ * never change, so any response for it can be reused. Responses are keyed
+ * by the user the client is authenticated as, method, canonical reference
+ * and the remaining arguments, and are held in serialized form; a hit is
+ * deserialized again, so callers never share mutable result objects.
+ * The cache is bounded by the estimated number of bytes it retains rather
+ * than by entry count, and evicts the least recently used entries first.
+ * Responses larger than the whole budget are never stored.
+ * A cache may be shared by several clients and is safe for concurrent use.
+ * Since the user is part of every key, a client is only ever answered with
+ * responses fetched by clients of the same user, which could read the
+ * object, and never with another user's response for a private object.
+ * </pre>
+ */
+public class VersionedRefCache {
+    private static final Pattern VERSIONED_REF = Pattern.compile("^\\s*0*(\\d+)/0*(\\d+)/0*(\\d+)\\s*$");
+    /** Rough per-entry cost of the map entry, key and array headers. */
+    private static final long ENTRY_OVERHEAD = 96;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+    private long bytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /** Constructs a cache.
+     * @param maxBytes the maximum estimated number of bytes the cache may
+     * retain.
+     */
+    public VersionedRefCache(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /** Returns the canonical form of a versioned object reference
+     * (numeric ws_id/obj_id/version, without whitespace or leading zeros),
+     * or null if the reference is not versioned and so must not be cached.
+     * @param ref an object reference.
+     * @return the canonical reference or null.
+     */
+    public static String canonicalRef(String ref) {
+        if (ref == null) {
+            return null;
+        }
+        Matcher m = VERSIONED_REF.matcher(ref);
+        if (!m.matches()) {
+            return null;
+        }
+        return m.group(1) + "/" + m.group(2) + "/" + m.group(3);
+    }
+
+    /** Returns the user part of the cache keys of a client with the given
+     * token, the empty string for an anonymous client.
+     */
+    static String userOf(AuthToken token) {
+        return token == null ? "" : token.getUserName();
+    }
+
+    /** Builds the start of the cache keys of a user's calls to a method
+     * about a canonical reference.
+     */
+    static String keyPrefix(String user, String method, String ref) {
+        return user + '\u0000' + method + '\u0000' + ref + '\u0000';
+    }
+
+    /** Builds the cache key for a call by a user, or returns null if the
+     * call's response may not be cached. The first argument of every
+     * data_api2 method is the object reference.
+     */
+    static String keyFor(ObjectMapper mapper, String user, String method, List<Object> args) {
+        if (args.isEmpty() || !(args.get(0) instanceof String)) {
+            return null;
+        }
+        String ref = canonicalRef((String) args.get(0));
+        if (ref == null) {
+            return null;
+        }
+        try {
+            return keyPrefix(user, method, ref) + mapper.writeValueAsString(args.subList(1, args.size()));
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    /** Get a serialized response, or null on a miss. */
+    synchronized byte[] get(String key) {
+        byte[] value = entries.get(key);
+        if (value == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return value;
+    }
+
+    /** Store a serialized response, evicting least recently used entries
+     * until the cache fits its budget again.
+     */
+    synchronized void put(String key, byte[] value) {
+        long size = sizeOf(key, value);
+        if (size > maxBytes) {
+            return;
+        }
+        byte[] old = entries.put(key, value);
+        if (old != null) {
+            bytes -= sizeOf(key, old);
+        }
+        bytes += size;
+        Iterator<Map.Entry<String, byte[]>> it = entries.entrySet().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, byte[]> eldest = it.next();
+            bytes -= sizeOf(eldest.getKey(), eldest.getValue());
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static long sizeOf(String key, byte[] value) {
+        return ENTRY_OVERHEAD + 2L * key.length() + value.length;
+    }
+
+    /** Removes all entries. The hit, miss and eviction counters are kept. */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /** Get the maximum estimated number of bytes the cache may retain.
+     * @return the byte budget.
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /** Get the estimated number of bytes currently retained.
+     * @return the estimated retained bytes.
+     */
+    public synchronized long getEstimatedBytes() {
+        return bytes;
+    }
+
+    /** Get the number of cached responses.
+     * @return the number of entries.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /** Get the number of lookups that found a cached response.
+     * @return the hit count.
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /** Get the number of lookups for cacheable calls that found nothing.
+     * @return the miss count.
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** Get the number of entries evicted to stay within the byte budget.
+     * @return the eviction count.
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "VersionedRefCache [entries=" + entries.size() + ", bytes=" + bytes + ", maxBytes=" + maxBytes +
+                ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+    }
+}
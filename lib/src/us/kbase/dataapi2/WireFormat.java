@@ -0,0 +1,69 @@
+package us.kbase.dataapi2;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+
+/**
+ * Encodings of JSON-RPC messages understood by the client. JSON is always
+ * available; MessagePack is used when jackson-dataformat-msgpack
+ * (org.msgpack:jackson-dataformat-msgpack) is on the class path.
+ * Both encode the same JSON-RPC objects, so one set of Jackson bindings
+ * reads either.
+ */
+final class WireFormat {
+    static final String JSON = "application/json";
+    static final String MESSAGEPACK = "application/msgpack";
+
+    private static final ObjectMapper MESSAGEPACK_MAPPER;
+    static {
+        ObjectMapper m = null;
+        try {
+            JsonFactory f = Class.forName("org.msgpack.jackson.dataformat.MessagePackFactory")
+                    .asSubclass(JsonFactory.class).getConstructor().newInstance();
+            m = new ObjectMapper(f);
+        } catch (ReflectiveOperationException e) {
+            m = null;
+        } catch (LinkageError e) {
+            m = null;
+        }
+        MESSAGEPACK_MAPPER = m;
+    }
+
+    private WireFormat() {
+    }
+
+    static boolean isMessagePackAvailable() {
+        return MESSAGEPACK_MAPPER != null;
+    }
+
+    /** The Accept header value asking for MessagePack, with JSON as the
+     * fallback for servers that do not speak it.
+     */
+    static String acceptMessagePack() {
+        return MESSAGEPACK + ", " + JSON + ";q=0.5";
+    }
+
+    static boolean isMessagePack(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        int semi = contentType.indexOf(';');
+        String type = (semi < 0 ? contentType : contentType.substring(0, semi)).trim();
+        return type.equalsIgnoreCase(MESSAGEPACK) || type.equalsIgnoreCase("application/x-msgpack");
+    }
+
+    /** Returns the mapper that reads and writes bodies of a content type;
+     * anything that is not MessagePack is taken to be JSON.
+     */
+    static ObjectMapper mapperFor(String contentType) throws IOException {
+        if (!isMessagePack(contentType)) {
+            return RpcHttpChannel.mapper();
+        }
+        if (MESSAGEPACK_MAPPER == null) {
+            throw new IOException("Unsupported Content-Type " + contentType +
+                    ": jackson-dataformat-msgpack is not on the class path");
+        }
+        return MESSAGEPACK_MAPPER;
+    }
+}
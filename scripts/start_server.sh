@@ -2,4 +2,4 @@
 script_dir=$(dirname "$(readlink -f "$0")")
 export KB_DEPLOYMENT_CONFIG=$script_dir/../deploy.cfg
 export PYTHONPATH=$script_dir/../lib:$PATH:$PYTHONPATH
-uwsgi --master --processes 5 --threads 5 --http :5000 --wsgi-file $script_dir/../lib/data_api2/data_api2Server.py
+uwsgi --master --processes 5 --threads 5 --http :5000 --wsgi-file $script_dir/../lib/data_api2/wsgi.py
@@ -93,15 +93,72 @@ class data_api2Test(unittest.TestCase):
         #self.assertEqual(ret[0],{u'protein': 3533, u'rna': 53, u'CDS': 3533})
         self.assertEqual(ret[0], {u'protein': 4998, u'gene': 5106, u'mRNA': 5106, u'CDS': 4998})
 
+    # funcdef get_feature_type_counts_multi(list<ObjectReference> ref_list, list<string> feature_type_list) returns (mapping<ObjectReference, Feature_type_counts_multi_result> ) authentication required;
+    def test_get_feature_type_counts_multi(self):
+        bad = 'ReferenceGenomeAnnotations/no_such_genome'
+        ret = self.getImpl().get_feature_type_counts_multi(self.getContext(), [self.obj_name, bad], ['gene'])
+        expected = self.getImpl().get_feature_type_counts(self.getContext(), self.obj_name, ['gene'])
+        self.assertEqual(ret[0][self.obj_name], {'feature_type_counts': expected[0]})
+        assert ret[0][bad]['error']
+
     def test_get_feature_ids(self):
         ret = self.getImpl().get_feature_ids(self.getContext(), self.obj_name,{'type_list':['gene']},None)
         assert 'by_type' in ret[0]
 
+    # function_list filtering through the trigram index matches a scan
+    def test_get_feature_ids_function_list(self):
+        terms = ['kinase', 'ase', 'ATP']
+        ret = self.getImpl().get_feature_ids(self.getContext(), self.obj_name, {'function_list': terms}, 'type')
+        found = set(x for ids in ret[0]['by_type'].values() for x in ids)
+        functions = self.getImpl().get_feature_functions(self.getContext(), self.obj_name, None)[0]
+        expected = set(x for x in functions if any(functions[x].find(t) >= 0 for t in terms))
+        assert len(found) > 0
+        self.assertEqual(found, expected)
+
     def test_get_features(self):
         ret = self.getImpl().get_features(self.getContext(),self.obj_name,[self.feature])
         print ret
         assert self.feature in ret[0]
 
+    def test_get_features_field_list(self):
+        fields = ['feature_type', 'feature_locations']
+        ret = self.getImpl().get_features(self.getContext(),self.obj_name,[self.feature],fields)
+        print ret
+        self.assertEqual(sorted(ret[0][self.feature].keys()), fields)
+
+    # funcdef get_feature_ids_page(ObjectReference ref,Feature_id_filters filters,int page_size, string continuation_token) returns (Feature_id_page ) authentication required;
+    def test_get_feature_ids_page(self):
+        all_ids = list()
+        token = None
+        while True:
+            page = self.getImpl().get_feature_ids_page(self.getContext(),self.obj_name,{},100,token)[0]
+            assert len(page['feature_ids']) <= 100
+            all_ids.extend(page['feature_ids'])
+            token = page['continuation_token']
+            if token is None:
+                break
+        ret = self.getImpl().get_feature_ids(self.getContext(),self.obj_name,{},'type')
+        expected = [x for ids in ret[0]['by_type'].values() for x in ids]
+        self.assertEqual(sorted(all_ids), sorted(expected))
+        assert self.feature in all_ids
+
+    # funcdef get_features_page(ObjectReference ref,Feature_id_filters filters,list<string> field_list,int page_size, string continuation_token) returns (Feature_data_page ) authentication required;
+    def test_get_features_page(self):
+        filters = {'type_list': ['gene']}
+        ids = self.getImpl().get_feature_ids_page(self.getContext(),self.obj_name,filters,10,None)[0]
+        page = self.getImpl().get_features_page(self.getContext(),self.obj_name,filters,['feature_id'],10,None)[0]
+        self.assertEqual([f['feature_id'] for f in page['features']], ids['feature_ids'])
+        self.assertEqual(page['continuation_token'], ids['continuation_token'])
+
+    # funcdef get_features_multi(list<ObjectReference> ref_list, list<string> field_list) returns (mapping<ObjectReference, Features_multi_result> ) authentication required;
+    def test_get_features_multi(self):
+        bad = 'ReferenceGenomeAnnotations/no_such_genome'
+        ret = self.getImpl().get_features_multi(self.getContext(), [self.obj_name, bad, self.obj_name], ['feature_type'])
+        self.assertEqual(sorted(ret[0].keys()), sorted([self.obj_name, bad]))
+        features = ret[0][self.obj_name]['features']
+        self.assertEqual(features[self.feature], {'feature_type': 'CDS'})
+        assert ret[0][bad]['error']
+
     # funcdef get_proteins(ObjectReference ref) returns (mapping<string, Protein_data> ) authentication required;
     def test_get_proteins(self):
         ret = self.getImpl().get_proteins(self.getContext(),self.obj_name)
@@ -113,6 +170,18 @@ class data_api2Test(unittest.TestCase):
         print ret
         assert self.feature in ret[0]
 
+    # funcdef get_features_in_region(ObjectReference ref, Region region, list<string> feature_type_list) returns (mapping<string, list<Region>> ) authentication required;
+    def test_get_features_in_region(self):
+        locations = self.getImpl().get_feature_locations(self.getContext(),self.obj_name,[self.feature])[0]
+        region = dict(locations[self.feature][0])
+        region['strand'] = '?'
+        ret = self.getImpl().get_features_in_region(self.getContext(),self.obj_name,region,[])
+        print ret
+        assert self.feature in ret[0]
+        self.assertEqual(ret[0][self.feature], locations[self.feature])
+        ret = self.getImpl().get_features_in_region(self.getContext(),self.obj_name,region,['gene'])
+        assert self.feature not in ret[0]
+
     # funcdef get_feature_publications(ObjectReference ref,
     def test_get_feature_publications(self):
         ret = self.getImpl().get_feature_publications(self.getContext(),self.obj_name,[self.feature])
@@ -125,6 +194,15 @@ class data_api2Test(unittest.TestCase):
         print ret
         assert self.feature in ret[0]
 
+    # a few features of a KBaseGenomes.Genome are read by position
+    def test_get_features_genome_by_position(self):
+        genome = "OriginalReferenceGenomes/kb|g.166819"
+        ids = self.getImpl().get_feature_ids(self.getContext(), genome, {'type_list':['CDS']}, None)[0]['by_type']['CDS'][:3]
+        ret = self.getImpl().get_feature_dna(self.getContext(), genome, ids + ['no_such_feature'])
+        self.assertEqual(sorted(ret[0].keys()), sorted(ids))
+        features = self.getImpl().get_features(self.getContext(), genome, ids)
+        self.assertEqual(sorted(features[0].keys()), sorted(ids))
+
     # funcdef get_feature_functions(ObjectReference ref,list<string> feature_id_list) returns (mapping<string,string> ) authentication required;
     def test_get_feature_functions(self):
         ret = self.getImpl().get_feature_functions(self.getContext(),self.obj_name,[self.feature])
@@ -190,3 +268,91 @@ class data_api2Test(unittest.TestCase):
         ret = self.getImpl().get_mrna_by_gene(self.getContext(),self.obj_name,[self.gene])
         print ret
         assert self.gene in ret[0]
+
+    # funcdef get_feature_relationships(ObjectReference ref) returns (Feature_relationships) authentication required;
+    def test_get_feature_relationships(self):
+        ret = self.getImpl().get_feature_relationships(self.getContext(),self.obj_name)[0]
+        cds = ret['cds_ids'].index(self.feature)
+        gene = ret['cds_gene'][cds]
+        self.assertEqual(len(ret['cds_gene']), len(ret['cds_ids']))
+        self.assertEqual(len(ret['mrna_gene']), len(ret['mrna_ids']))
+        self.assertEqual(ret['gene_ids'][gene],
+                         self.getImpl().get_gene_by_cds(self.getContext(),self.obj_name,[self.feature])[0][self.feature])
+
+    # calls in a JSON-RPC batch share one GenomeAnnotationAPI per ref, so
+    # each feature container is read once for the whole batch
+    def test_batch_reads_feature_containers_once(self):
+        from data_api2.wsgi import Application
+        import doekbase.data_api.annotation.genome_annotation.api as genome_annotation_api
+        object_api = genome_annotation_api.ObjectAPI
+        reads = dict()
+
+        def counting_object_api(services, token, ref):
+            reads[ref] = reads.get(ref, 0) + 1
+            return object_api(services, token, ref)
+
+        methods = ['get_feature_locations', 'get_feature_functions',
+                   'get_feature_aliases', 'get_feature_dna']
+        reqs = [{'version': '1.1', 'id': str(i), 'method': 'data_api2.' + m,
+                 'params': [self.obj_name, [self.feature]]} for i, m in enumerate(methods)]
+        genome_annotation_api.ObjectAPI = counting_object_api
+        try:
+            resps = json.loads(Application().process_batch(
+                {'client_ip': '127.0.0.1'}, {'HTTP_AUTHORIZATION': self.getContext()['token']}, reqs))
+        finally:
+            genome_annotation_api.ObjectAPI = object_api
+        self.assertEqual([r['id'] for r in resps], ['0', '1', '2', '3'])
+        for r in resps:
+            assert 'error' not in r, r
+            self.assertEqual(r['result'][0].keys(), [self.feature])
+        # the genome itself and its CDS container
+        assert self.obj_name in reads and len(reads) > 1
+        self.assertEqual(set(reads.values()), set([1]))
+
+    # large responses are gzip compressed when the client accepts it
+    def test_compressed_response_round_trip(self):
+        import zlib
+        from data_api2.wsgi import encode_response_body, decode_request_body
+        ret = self.getImpl().get_features(self.getContext(), self.obj_name,
+                                          [self.feature, self.gene, self.mrna])
+        body = json.dumps({'version': '1.1', 'result': ret, 'id': '1'})
+        encoded, coding = encode_response_body(body, 'gzip;q=1.0, identity;q=0.5')
+        self.assertEqual(coding, 'gzip')
+        assert len(encoded) < len(body)
+        self.assertEqual(zlib.decompress(encoded, 16 + zlib.MAX_WBITS), body)
+        self.assertEqual(decode_request_body(encoded, 'gzip'), body)
+        self.assertEqual(encode_response_body(body, None), (body, None))
+
+    # responses are MessagePack encoded when the client asks for it
+    def test_msgpack_response_round_trip(self):
+        from data_api2.wsgi import response_format, loads_request_body
+        ret = self.getImpl().get_feature_locations(self.getContext(), self.obj_name,
+                                                   [self.feature, self.gene])
+        resp = {'version': '1.1', 'result': ret, 'id': '1'}
+        dumps, content_type = response_format('application/msgpack, application/json;q=0.5')
+        self.assertEqual(content_type, 'application/msgpack')
+        body = dumps(resp)
+        assert len(body) < len(json.dumps(resp))
+        self.assertEqual(loads_request_body(body, content_type), json.loads(json.dumps(resp)))
+        self.assertEqual(response_format(None)[1], 'application/json')
+        self.assertEqual(response_format('application/msgpack;q=0')[1], 'application/json')
+
+    # whole genomes are exported as newline delimited JSON, one feature a line
+    def test_export_features_stream(self):
+        from StringIO import StringIO
+        from data_api2.wsgi import application
+        body = json.dumps({'ref': self.obj_name, 'type_list': ['gene'],
+                           'field_list': ['feature_type']})
+        environ = {'REQUEST_METHOD': 'POST', 'PATH_INFO': '/export/features',
+                   'CONTENT_LENGTH': str(len(body)), 'wsgi.input': StringIO(body),
+                   'HTTP_AUTHORIZATION': self.getContext()['token'],
+                   'REMOTE_ADDR': '127.0.0.1'}
+        statuses = list()
+        chunks = application(environ, lambda status, headers: statuses.append(status))
+        records = [json.loads(x) for x in ''.join(chunks).splitlines()]
+        self.assertEqual(statuses, ['200 OK'])
+        ret = self.getImpl().get_feature_ids(self.getContext(), self.obj_name, {'type_list': ['gene']}, 'type')
+        self.assertEqual(sorted(r['feature_id'] for r in records), sorted(ret[0]['by_type']['gene']))
+        for r in records:
+            self.assertEqual(sorted(r.keys()), ['feature_id', 'feature_type'])
+            self.assertEqual(r['feature_type'], 'gene')
@@ -0,0 +1,144 @@
+package us.kbase.dataapi2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import us.kbase.common.service.JsonClientException;
+
+public class DataApi2BatchTest {
+    private static final String REF = "1/2/3";
+
+    @Test
+    public void batchIsSentInOneRequest() throws Exception {
+        InMemoryTransport transport = new InMemoryTransport()
+                .register("data_api2.get_taxon", params -> "4/5/6")
+                .register("data_api2.get_feature_types", params -> Arrays.asList("gene", "CDS"))
+                .register("data_api2.get_assembly", params -> {
+                    throw new IllegalStateException("no assembly for " + params.get(0).asText());
+                });
+        DataApi2Batch batch = TestClients.client(transport).newBatch();
+        DataApi2Batch.Result<String> taxon = batch.getTaxon(REF);
+        DataApi2Batch.Result<List<String>> types = batch.getFeatureTypes(REF);
+        DataApi2Batch.Result<String> assembly = batch.getAssembly(REF);
+        assertEquals(3, batch.size());
+        batch.execute();
+
+        assertEquals(1, transport.getRequestCount());
+        assertEquals(3, transport.getCallCount());
+        assertEquals("4/5/6", taxon.get());
+        assertEquals(Arrays.asList("gene", "CDS"), types.get());
+        // a failed call fails only its own result
+        assertTrue(assembly.isError());
+        assertFalse(taxon.isError());
+        try {
+            assembly.get();
+            fail("expected an error");
+        } catch (JsonClientException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("no assembly for 1/2/3"));
+        }
+    }
+
+    @Test
+    public void batchCanOnlyBeExecutedOnce() throws Exception {
+        DataApi2Batch batch = TestClients.client(new InMemoryTransport()
+                .register("data_api2.get_taxon", params -> "4/5/6")).newBatch();
+        batch.getTaxon(REF);
+        batch.execute();
+        try {
+            batch.execute();
+            fail("expected an error");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            batch.getTaxon(REF);
+            fail("expected an error");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void responseWithoutResultFailsOnlyItsCall() throws Exception {
+        // answers every call, but drops the result of get_assembly
+        final InMemoryTransport inner = new InMemoryTransport()
+                .register("data_api2.get_taxon", params -> "4/5/6")
+                .register("data_api2.get_assembly", params -> "7/8/9")
+                .register("data_api2.get_feature_locations", params -> Collections.singletonMap("f1",
+                        Arrays.asList(new Region().withContigId("c1").withStrand("+").withStart(1L).withLength(10L))));
+        DataApi2Transport transport = request -> {
+            TransportResponse resp = inner.send(request);
+            ArrayNode calls = (ArrayNode) RpcHttpChannel.mapper().readTree(request.getBody());
+            ArrayNode resps = (ArrayNode) RpcHttpChannel.mapper().readTree(resp.getBody());
+            for (int i = 0; i < calls.size(); i++) {
+                if (calls.get(i).path("method").asText().equals("data_api2.get_assembly")) {
+                    ((ObjectNode) resps.get(i)).remove("result");
+                }
+            }
+            return response(RpcHttpChannel.mapper().writeValueAsBytes(resps));
+        };
+        DataApi2Batch batch = TestClients.client(transport).newBatch();
+        DataApi2Batch.Result<String> assembly = batch.getAssembly(REF);
+        DataApi2Batch.Result<String> taxon = batch.getTaxon(REF);
+        DataApi2Batch.Result<Map<String, List<Region>>> locations = batch.getFeatureLocations(REF, Arrays.asList("f1"));
+        batch.execute();
+
+        assertTrue(assembly.isError());
+        try {
+            assembly.get();
+            fail("expected an error");
+        } catch (JsonClientException e) {
+            assertEquals("No result was returned for data_api2.get_assembly", e.getMessage());
+        }
+        assertEquals("4/5/6", taxon.get());
+        assertEquals(Long.valueOf(10), locations.get().get("f1").get(0).getLength());
+    }
+
+    @Test
+    public void missingResponseFailsItsCall() throws Exception {
+        DataApi2Batch batch = TestClients.client(request -> response("[]".getBytes("UTF-8"))).newBatch();
+        DataApi2Batch.Result<String> taxon = batch.getTaxon(REF);
+        batch.execute();
+        assertTrue(taxon.isError());
+    }
+
+    private static TransportResponse response(final byte[] body) {
+        return new TransportResponse() {
+            @Override
+            public int getStatusCode() {
+                return 200;
+            }
+
+            @Override
+            public String getStatusMessage() {
+                return "OK";
+            }
+
+            @Override
+            public String getHeader(String name) {
+                return name.equalsIgnoreCase("Content-Type") ? WireFormat.JSON : null;
+            }
+
+            @Override
+            public InputStream getBody() {
+                return new ByteArrayInputStream(body);
+            }
+
+            @Override
+            public void close() throws IOException {
+            }
+        };
+    }
+}
@@ -0,0 +1,306 @@
+package us.kbase.dataapi2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Test;
+
+public class FeatureFilterEngineTest {
+    private static final String[] TYPES = {"gene", "mRNA", "CDS", "tRNA"};
+    private static final String[] FUNCTIONS = {"protein kinase", "kinase", "hypothetical protein",
+            "DNA polymerase III", "ABC transporter, permease", null};
+    private static final String[] ALIASES = {"a1", "a2", "a3", "b1", "b2"};
+    private static final String[] STRANDS = {"+", "-", "?", null, "+-"};
+    private static final String[] CONTIGS = {"c1", "c2"};
+
+    private static final GeneModelGraph NO_RELATIONSHIPS = GeneModelGraph.from(new FeatureRelationships()
+            .withGeneIds(Collections.<String>emptyList()).withMrnaIds(Collections.<String>emptyList())
+            .withCdsIds(Collections.<String>emptyList()).withMrnaGene(Collections.<Long>emptyList())
+            .withCdsMrna(Collections.<Long>emptyList()).withCdsGene(Collections.<Long>emptyList()));
+
+    private static Region region(String contigId, String strand, long start, long length) {
+        return new Region().withContigId(contigId).withStrand(strand).withStart(start).withLength(length);
+    }
+
+    private static List<FeatureData> features(Random rnd, int n) {
+        List<FeatureData> ret = new ArrayList<FeatureData>();
+        for (int f = 0; f < n; f++) {
+            Map<String, List<String>> aliases = new LinkedHashMap<String, List<String>>();
+            for (int i = rnd.nextInt(3); i > 0; i--) {
+                aliases.put(ALIASES[rnd.nextInt(ALIASES.length)], Arrays.asList("source" + rnd.nextInt(2)));
+            }
+            List<Region> locations = new ArrayList<Region>();
+            for (int i = rnd.nextInt(3); i > 0; i--) {
+                locations.add(region(CONTIGS[rnd.nextInt(CONTIGS.length)], STRANDS[rnd.nextInt(STRANDS.length)],
+                        rnd.nextInt(1000), rnd.nextInt(10) == 0 ? 0 : rnd.nextInt(100)));
+            }
+            ret.add(new FeatureData().withFeatureId("f" + f).withFeatureType(TYPES[rnd.nextInt(TYPES.length)])
+                    .withFeatureFunction(FUNCTIONS[rnd.nextInt(FUNCTIONS.length)])
+                    .withFeatureAliases(aliases).withFeatureLocations(locations));
+        }
+        return ret;
+    }
+
+    private static FeatureFilterEngine engine(List<FeatureData> features) {
+        GenomeSnapshot.Builder b = new GenomeSnapshot.Builder("1/2/3");
+        for (FeatureData f : features) {
+            b.add(f);
+        }
+        return FeatureFilterEngine.of(b.build(NO_RELATIONSHIPS));
+    }
+
+    /** The server's get_feature_ids filters, applied to each feature in turn. */
+    private static boolean passes(FeatureData f, FeatureIdFilters filters) {
+        if (filters.getTypeList() != null && !filters.getTypeList().contains(f.getFeatureType())) {
+            return false;
+        }
+        if (filters.getRegionList() != null && !inRegions(f, filters.getRegionList())) {
+            return false;
+        }
+        if (filters.getFunctionList() != null) {
+            boolean found = false;
+            for (String term : filters.getFunctionList()) {
+                found |= f.getFeatureFunction() != null && f.getFeatureFunction().contains(term);
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        if (filters.getAliasList() != null) {
+            boolean found = false;
+            for (String alias : filters.getAliasList()) {
+                found |= f.getFeatureAliases().containsKey(alias);
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean inRegions(FeatureData f, List<Region> regions) {
+        for (Region loc : f.getFeatureLocations()) {
+            long start = loc.getStart();
+            long length = loc.getLength();
+            for (Region r : regions) {
+                if (r.getContigId().equals(loc.getContigId()) &&
+                        (Objects.equals(loc.getStrand(), r.getStrand()) || "?".equals(r.getStrand()))) {
+                    if ("+".equals(loc.getStrand()) &&
+                            Math.max(start, r.getStart()) <= Math.min(start + length, r.getStart() + r.getLength())) {
+                        return true;
+                    } else if ("-".equals(loc.getStrand()) &&
+                            Math.max(start + length, r.getStart()) <= Math.min(start, r.getStart())) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /** The server's get_feature_ids groups, with each list sorted since
+     * the server's order is a dict's.
+     */
+    private static Object scan(List<FeatureData> features, FeatureIdFilters filters, String groupType) {
+        Map<String, Object> ret = new TreeMap<String, Object>();
+        for (FeatureData f : features) {
+            if (!passes(f, filters)) {
+                continue;
+            }
+            if (groupType.equals("type")) {
+                add(ret, f.getFeatureId(), f.getFeatureType());
+            } else if (groupType.equals("region")) {
+                for (Region r : f.getFeatureLocations()) {
+                    // a missing strand is a None key, written as null
+                    add(ret, f.getFeatureId(), r.getContigId(), String.valueOf(r.getStrand()),
+                            r.getStart() + "-" + (r.getStart() + r.getLength()));
+                }
+            } else if (groupType.equals("function")) {
+                add(ret, f.getFeatureId(), String.valueOf(f.getFeatureFunction()));
+            } else if (groupType.equals("alias")) {
+                for (String alias : f.getFeatureAliases().keySet()) {
+                    add(ret, f.getFeatureId(), alias);
+                }
+            }
+        }
+        return ret;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void add(Map<String, Object> map, String featureId, String... keys) {
+        for (int i = 0; i < keys.length - 1; i++) {
+            if (!map.containsKey(keys[i])) {
+                map.put(keys[i], new TreeMap<String, Object>());
+            }
+            map = (Map<String, Object>) map.get(keys[i]);
+        }
+        if (!map.containsKey(keys[keys.length - 1])) {
+            map.put(keys[keys.length - 1], new ArrayList<String>());
+        }
+        List<String> ids = (List<String>) map.get(keys[keys.length - 1]);
+        ids.add(featureId);
+        Collections.sort(ids);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Object sorted(Object groups) {
+        if (groups instanceof List) {
+            List<String> ret = new ArrayList<String>((List<String>) groups);
+            Collections.sort(ret);
+            return ret;
+        }
+        Map<String, Object> ret = new TreeMap<String, Object>();
+        for (Map.Entry<String, Object> e : ((Map<String, Object>) groups).entrySet()) {
+            ret.put(e.getKey(), sorted(e.getValue()));
+        }
+        return ret;
+    }
+
+    private static Object groups(FeatureIdMapping m, String groupType) {
+        Object ret = groupType.equals("type") ? m.getByType() : groupType.equals("region") ? m.getByRegion() :
+                groupType.equals("function") ? m.getByFunction() : m.getByAlias();
+        return sorted(ret);
+    }
+
+    private static <T> List<T> some(Random rnd, T[] values) {
+        List<T> ret = new ArrayList<T>();
+        for (int i = rnd.nextInt(3) + 1; i > 0; i--) {
+            ret.add(values[rnd.nextInt(values.length)]);
+        }
+        return ret;
+    }
+
+    private static FeatureIdFilters filters(Random rnd) {
+        FeatureIdFilters ret = new FeatureIdFilters();
+        if (rnd.nextInt(3) == 0) {
+            ret.setTypeList(some(rnd, TYPES));
+        }
+        if (rnd.nextInt(3) == 0) {
+            List<Region> regions = new ArrayList<Region>();
+            for (int i = rnd.nextInt(2) + 1; i > 0; i--) {
+                regions.add(region(CONTIGS[rnd.nextInt(CONTIGS.length)], STRANDS[rnd.nextInt(STRANDS.length)],
+                        rnd.nextInt(1100) - 50, rnd.nextInt(200)));
+            }
+            ret.setRegionList(regions);
+        }
+        if (rnd.nextInt(3) == 0) {
+            ret.setFunctionList(some(rnd, new String[] {"kinase", "protein", "III", "ase,", "", "missing"}));
+        }
+        if (rnd.nextInt(3) == 0) {
+            ret.setAliasList(some(rnd, new String[] {"a1", "a3", "b2", "c1"}));
+        }
+        return ret;
+    }
+
+    @Test
+    public void groups() {
+        List<FeatureData> features = Arrays.asList(
+                new FeatureData().withFeatureId("g1").withFeatureType("gene").withFeatureFunction("kinase")
+                        .withFeatureAliases(Collections.singletonMap("A1", Arrays.asList("src")))
+                        .withFeatureLocations(Arrays.asList(region("c1", "+", 10, 90), region("c1", "+", 200, 5))),
+                new FeatureData().withFeatureId("g2").withFeatureType("gene")
+                        .withFeatureLocations(Arrays.asList(region("c1", "-", 150, 50))),
+                new FeatureData().withFeatureId("m1").withFeatureType("mRNA").withFeatureFunction("protein kinase")
+                        .withFeatureLocations(Arrays.asList(region("c2", null, 1, 2))));
+        FeatureFilterEngine engine = engine(features);
+        assertEquals(3, engine.size());
+        assertEquals("m1", engine.getFeatureId(2));
+
+        FeatureIdMapping m = engine.getFeatureIds(null, null);
+        assertEquals("{gene=[g1, g2], mRNA=[m1]}", m.getByType().toString());
+        m = engine.getFeatureIds(null, "region");
+        assertEquals("{c1={+={10-100=[g1], 200-205=[g1]}, -={150-200=[g2]}}, c2={null={1-3=[m1]}}}",
+                m.getByRegion().toString());
+        m = engine.getFeatureIds(new FeatureIdFilters().withFunctionList(Arrays.asList("kinase")), "function");
+        assertEquals("{kinase=[g1], protein kinase=[m1]}", m.getByFunction().toString());
+        m = engine.getFeatureIds(new FeatureIdFilters().withTypeList(Arrays.asList("gene")), "alias");
+        assertEquals("{A1=[g1]}", m.getByAlias().toString());
+        m = engine.getFeatureIds(null, "no such grouping");
+        assertEquals(null, m.getByType());
+        assertEquals(null, m.getByRegion());
+        assertEquals(null, m.getByFunction());
+        assertEquals(null, m.getByAlias());
+    }
+
+    @Test
+    public void regionEndsAreIncluded() {
+        FeatureFilterEngine engine = engine(Arrays.asList(
+                new FeatureData().withFeatureId("plus").withFeatureType("gene")
+                        .withFeatureLocations(Arrays.asList(region("c1", "+", 100, 50))),
+                new FeatureData().withFeatureId("minus").withFeatureType("gene")
+                        .withFeatureLocations(Arrays.asList(region("c1", "-", 100, 50))),
+                new FeatureData().withFeatureId("point").withFeatureType("gene")
+                        .withFeatureLocations(Arrays.asList(region("c1", "-", 300, 0)))));
+        assertEquals("{0}", select(engine, region("c1", "+", 150, 10)).toString());
+        assertEquals("{}", select(engine, region("c1", "+", 151, 10)).toString());
+        assertEquals("{0}", select(engine, region("c1", "?", 90, 10)).toString());
+        assertEquals("{}", select(engine, region("c1", "-", 90, 10)).toString());
+        // the server's test for minus strands, max(start + length, rs) <= min(start, rs),
+        // only passes locations of length 0 at the region's start
+        assertEquals("{}", select(engine, region("c1", "-", 100, 10)).toString());
+        assertEquals("{2}", select(engine, region("c1", "-", 300, 10)).toString());
+        assertEquals("{}", select(engine, region("c1", "-", 299, 10)).toString());
+        assertEquals("{}", select(engine, region("c1", "-", 301, 10)).toString());
+        assertEquals("{0}", select(engine, region("c1", "?", 0, 1000)).toString());
+        assertEquals("{}", select(engine, region("c2", "?", 0, 1000)).toString());
+    }
+
+    private static BitSet select(FeatureFilterEngine engine, Region region) {
+        return engine.select(new FeatureIdFilters().withRegionList(Arrays.asList(region)));
+    }
+
+    @Test
+    public void filtersMatchServer() {
+        Random rnd = new Random(24);
+        for (int n : new int[] {0, 1, 10, 200, FeatureFilterEngine.PARALLEL_THRESHOLD + 1}) {
+            List<FeatureData> features = features(rnd, n);
+            FeatureFilterEngine engine = engine(features);
+            int queries = n > 1000 ? 20 : 200;
+            for (int q = 0; q < queries; q++) {
+                FeatureIdFilters filters = filters(rnd);
+                for (String groupType : new String[] {"type", "region", "function", "alias"}) {
+                    assertEquals(filters + " " + groupType, scan(features, filters, groupType),
+                            groups(engine.getFeatureIds(filters, groupType), groupType));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rejectsEmptyFiltersAsServer() {
+        FeatureFilterEngine engine = engine(features(new Random(1), 10));
+        check(engine, new FeatureIdFilters().withTypeList(Collections.<String>emptyList()),
+                "A list of strings indicating feature types is required, received an empty list.");
+        check(engine, new FeatureIdFilters().withRegionList(Collections.<Region>emptyList()),
+                "A list of region dictionaries is required, received an empty list.");
+        check(engine, new FeatureIdFilters().withFunctionList(Collections.<String>emptyList()),
+                "A list of feature function strings is required, received an empty list.");
+        check(engine, new FeatureIdFilters().withAliasList(Collections.<String>emptyList()),
+                "A list of feature alias strings is required, received an empty list.");
+        // the server checks the type list first
+        check(engine, new FeatureIdFilters().withTypeList(Collections.<String>emptyList())
+                .withAliasList(Collections.<String>emptyList()),
+                "A list of strings indicating feature types is required, received an empty list.");
+        check(engine, new FeatureIdFilters().withRegionList(Arrays.asList(new Region().withContigId("c1"))),
+                "A region requires a contig_id, start and length.");
+    }
+
+    private static void check(FeatureFilterEngine engine, FeatureIdFilters filters, String message) {
+        try {
+            engine.getFeatureIds(filters, "type");
+            fail("expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals(message, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package us.kbase.dataapi2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import us.kbase.common.service.ServerException;
+
+public class FeatureIdChunkerTest {
+    private static final String REF = "1/2/3";
+    private static final List<String> IDS = Arrays.asList("f1", "f2", "f3", "f4", "f5");
+
+    /** Answers get_feature_locations with one region per feature, or a
+     * null result for a chunk holding a feature ID in nullFor.
+     */
+    private static InMemoryTransport locations(final List<String> nullFor, final List<Integer> chunkSizes) {
+        return new InMemoryTransport().register("data_api2.get_feature_locations", params -> {
+            Map<String, List<Region>> ret = new LinkedHashMap<String, List<Region>>();
+            synchronized (chunkSizes) {
+                chunkSizes.add(params.get(1).size());
+            }
+            for (JsonNode id : params.get(1)) {
+                if (nullFor.contains(id.asText())) {
+                    return null;
+                }
+                long n = Long.parseLong(id.asText().substring(1));
+                ret.put(id.asText(), Arrays.asList(new Region().withContigId("c1").withStrand("+")
+                        .withStart(n * 100).withLength(n)));
+            }
+            return ret;
+        });
+    }
+
+    @Test
+    public void split() {
+        List<Object> args = new ArrayList<Object>(Arrays.<Object>asList(REF, IDS, "x"));
+        List<List<Object>> chunks = FeatureIdChunker.split(args, 1, 2);
+        assertEquals(3, chunks.size());
+        assertEquals(Arrays.asList(REF, Arrays.asList("f1", "f2"), "x"), chunks.get(0));
+        assertEquals(Arrays.asList(REF, Arrays.asList("f3", "f4"), "x"), chunks.get(1));
+        assertEquals(Arrays.asList(REF, Arrays.asList("f5"), "x"), chunks.get(2));
+        // the caller's list is left alone
+        assertEquals(IDS, args.get(1));
+    }
+
+    @Test
+    public void isChunked() {
+        FeatureIdChunker chunker = new FeatureIdChunker();
+        chunker.setChunkSize(2);
+        List<Object> args = Arrays.<Object>asList(REF, IDS);
+        assertTrue(chunker.isChunked("data_api2.get_feature_locations", args));
+        assertFalse(chunker.isChunked("data_api2.get_feature_ids", args));
+        assertFalse(chunker.isChunked("data_api2.get_feature_locations", Arrays.<Object>asList(REF, null)));
+        chunker.setChunkSize(5);
+        assertFalse(chunker.isChunked("data_api2.get_feature_locations", args));
+        chunker.setChunkSize(0);
+        assertFalse(chunker.isChunked("data_api2.get_feature_locations", args));
+    }
+
+    @Test
+    public void chunksAreMergedInOrder() throws Exception {
+        List<Integer> chunkSizes = new ArrayList<Integer>();
+        InMemoryTransport transport = locations(Collections.<String>emptyList(), chunkSizes);
+        DataApi2Client client = TestClients.client(transport);
+        client.setFeatureIdChunkSize(2);
+        client.setMaxParallelChunks(3);
+        Map<String, List<Region>> locs = client.getFeatureLocations(REF, IDS);
+
+        assertEquals(3, transport.getRequestCount());
+        Collections.sort(chunkSizes);
+        assertEquals(Arrays.asList(1, 2, 2), chunkSizes);
+        assertEquals(IDS, new ArrayList<String>(locs.keySet()));
+        assertEquals(Long.valueOf(300), locs.get("f3").get(0).getStart());
+    }
+
+    @Test
+    public void nullChunksAreSkipped() throws Exception {
+        List<Integer> chunkSizes = new ArrayList<Integer>();
+        DataApi2Client client = TestClients.client(locations(Arrays.asList("f3"), chunkSizes));
+        client.setFeatureIdChunkSize(2);
+        assertEquals(Arrays.asList("f1", "f2", "f5"),
+                new ArrayList<String>(client.getFeatureLocations(REF, IDS).keySet()));
+
+        RegionArray array = client.getFeatureLocationArray(REF, IDS);
+        assertEquals(3, array.getFeatureCount());
+        assertEquals("f5", array.getFeatureId(2));
+        assertEquals(500, array.getStart(array.getFeatureFrom(2)));
+    }
+
+    @Test
+    public void regionArrayChunksAreConcatenated() throws Exception {
+        DataApi2Client client = TestClients.client(
+                locations(Collections.<String>emptyList(), new ArrayList<Integer>()));
+        client.setFeatureIdChunkSize(2);
+        RegionArray array = client.getFeatureLocationArray(REF, IDS);
+        assertEquals(IDS.size(), array.getFeatureCount());
+        assertEquals(IDS.size(), array.size());
+        for (int f = 0; f < IDS.size(); f++) {
+            assertEquals(IDS.get(f), array.getFeatureId(f));
+            assertEquals(f + 1, array.getLength(array.getFeatureFrom(f)));
+        }
+        // Region has no equals; compare the regions as strings
+        assertEquals(array.toMap().toString(), TestClients.client(
+                locations(Collections.<String>emptyList(), new ArrayList<Integer>()))
+                .getFeatureLocations(REF, IDS).toString());
+    }
+
+    @Test
+    public void spilledChunksAreConcatenated() throws Exception {
+        DataApi2Client client = TestClients.client(
+                locations(Collections.<String>emptyList(), new ArrayList<Integer>()));
+        client.setFeatureIdChunkSize(2);
+        client.setResponseSpillThreshold(1);
+        Map<String, List<Region>> locs = client.getFeatureLocations(REF, IDS);
+        assertTrue(locs instanceof SpilledResultMap);
+        assertEquals(IDS, new ArrayList<String>(locs.keySet()));
+        assertEquals(Long.valueOf(4), locs.get("f4").get(0).getLength());
+    }
+
+    @Test
+    public void failedChunkFailsTheCall() throws Exception {
+        InMemoryTransport transport = new InMemoryTransport().register("data_api2.get_feature_locations", params -> {
+            if (params.get(1).get(0).asText().equals("f3")) {
+                throw new IllegalArgumentException("bad chunk");
+            }
+            return Collections.emptyMap();
+        });
+        DataApi2Client client = TestClients.client(transport);
+        client.setFeatureIdChunkSize(2);
+        try {
+            client.getFeatureLocations(REF, IDS);
+            fail("expected an error");
+        } catch (ServerException e) {
+            assertEquals("bad chunk", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package us.kbase.dataapi2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class FeatureIntervalIndexTest {
+    private static final String[] STRANDS = {"+", "-", "?", null};
+
+    private static Region region(String contigId, String strand, long start, long length) {
+        return new Region().withContigId(contigId).withStrand(strand).withStart(start).withLength(length);
+    }
+
+    /** Runs a query the way the index documents it, by scanning every
+     * location: OVERLAPPING = 0, WITHIN = 1, ENCLOSING = 2.
+     */
+    private static List<Integer> scan(FeatureIntervalIndex index, String contigId, int start, int end,
+            byte strand, int mode) {
+        List<Integer> ret = new ArrayList<Integer>();
+        for (int loc = 0; loc < index.getLocationCount(); loc++) {
+            int s = index.getLocationStart(loc);
+            int e = index.getLocationEnd(loc);
+            boolean match = index.getLocationContigId(loc).equals(contigId) && start < end &&
+                    s < end && e > start &&
+                    (strand == FeatureIntervalIndex.ANY_STRAND || index.getLocationStrand(loc) == strand);
+            if (mode == 1) {
+                match &= s >= start && e <= end;
+            } else if (mode == 2) {
+                match &= s <= start && e >= end;
+            }
+            if (match) {
+                ret.add(loc);
+            }
+        }
+        return ret;
+    }
+
+    private static List<Integer> find(FeatureIntervalIndex index, String contigId, int start, int end,
+            byte strand, int mode) {
+        int[] out = new int[index.getLocationCount()];
+        int n = mode == 0 ? index.findOverlapping(contigId, start, end, strand, out) :
+                mode == 1 ? index.findWithin(contigId, start, end, strand, out) :
+                index.findEnclosing(contigId, start, end, strand, out);
+        List<Integer> ret = new ArrayList<Integer>();
+        for (int i = 0; i < n; i++) {
+            ret.add(out[i]);
+        }
+        return ret;
+    }
+
+    @Test
+    public void intervals() {
+        Map<String, List<Region>> locations = new LinkedHashMap<String, List<Region>>();
+        locations.put("gene1", Arrays.asList(region("c1", "+", 100, 100)));
+        locations.put("cds1", Arrays.asList(region("c1", "+", 120, 30), region("c1", "+", 170, 20)));
+        // starts at its rightmost base: [300, 400)
+        locations.put("gene2", Arrays.asList(region("c1", "-", 399, 100)));
+        locations.put("gene3", Arrays.asList(region("c2", "?", 1, 1000)));
+        locations.put("orphan", null);
+        locations.put("partial", Arrays.asList(new Region().withContigId("c1").withStart(5L)));
+        FeatureIntervalIndex index = FeatureIntervalIndex.build(locations);
+
+        assertEquals(6, index.getFeatureCount());
+        assertEquals(5, index.getLocationCount());
+        assertEquals(Arrays.asList("c1", "c2"), index.getContigIds());
+        int[] out = new int[8];
+        assertEquals(1, index.findAt("c1", 350, FeatureIntervalIndex.ANY_STRAND, out));
+        assertEquals("gene2", index.getFeatureId(index.getLocationFeature(out[0])));
+        assertEquals(300, index.getLocationStart(out[0]));
+        assertEquals(400, index.getLocationEnd(out[0]));
+        assertEquals(FeatureIntervalIndex.MINUS_STRAND, index.getLocationStrand(out[0]));
+
+        // half open: 200 is past gene1
+        assertEquals(0, index.findAt("c1", 200, FeatureIntervalIndex.ANY_STRAND, out));
+        assertEquals(1, index.findAt("c1", 199, FeatureIntervalIndex.ANY_STRAND, new int[0]));
+        assertEquals(4, index.findOverlapping("c1", 140, 340, FeatureIntervalIndex.ANY_STRAND, out));
+        assertEquals(3, index.findOverlapping("c1", 140, 340, FeatureIntervalIndex.PLUS_STRAND, out));
+        assertEquals(2, index.findWithin("c1", 110, 195, FeatureIntervalIndex.ANY_STRAND, out));
+        assertEquals(2, index.findEnclosing("c1", 125, 130, FeatureIntervalIndex.ANY_STRAND, out));
+        assertEquals(1, index.findAt("c2", 500, FeatureIntervalIndex.ANY_STRAND, out));
+        assertEquals("c2", index.getLocationContigId(out[0]));
+        assertEquals(0, index.findAt("c3", 500, FeatureIntervalIndex.ANY_STRAND, out));
+        assertEquals(0, index.findOverlapping("c1", 150, 150, FeatureIntervalIndex.ANY_STRAND, out));
+    }
+
+    @Test
+    public void countsMatchesPastTheEndOfOut() {
+        Map<String, List<Region>> locations = new LinkedHashMap<String, List<Region>>();
+        for (int i = 0; i < 100; i++) {
+            locations.put("f" + i, Collections.singletonList(region("c1", "+", i, 1000)));
+        }
+        FeatureIntervalIndex index = FeatureIntervalIndex.build(locations);
+        int[] out = new int[10];
+        assertEquals(100, index.findAt("c1", 500, FeatureIntervalIndex.ANY_STRAND, out));
+        // the first matches in order of start
+        for (int i = 0; i < out.length; i++) {
+            assertEquals(i, index.getLocationStart(out[i]));
+        }
+    }
+
+    @Test
+    public void queriesMatchScan() {
+        Random rnd = new Random(12);
+        // sizes around the tree's level and scan boundaries
+        for (int n : new int[] {0, 1, 2, 7, 15, 16, 17, 31, 32, 33, 100, 1000, 3000}) {
+            Map<String, List<Region>> locations = new LinkedHashMap<String, List<Region>>();
+            int total = 0;
+            for (int f = 0; total < n; f++) {
+                List<Region> regions = new ArrayList<Region>();
+                for (int k = rnd.nextInt(3) + 1; k > 0 && total < n; k--, total++) {
+                    // mostly short locations with a few long ones that enclose many
+                    int length = rnd.nextInt(10) < 9 ? rnd.nextInt(50) : rnd.nextInt(5000);
+                    regions.add(region(rnd.nextBoolean() ? "c1" : "c2", STRANDS[rnd.nextInt(STRANDS.length)],
+                            rnd.nextInt(10000), length));
+                }
+                locations.put("f" + f, regions);
+            }
+            FeatureIntervalIndex index = FeatureIntervalIndex.build(locations);
+            assertEquals(n, index.getLocationCount());
+            for (int q = 0; q < 200; q++) {
+                int start = rnd.nextInt(10200) - 100;
+                int end = start + rnd.nextInt(q % 2 == 0 ? 20 : 2000);
+                byte strand = FeatureIntervalIndex.strandCode(STRANDS[rnd.nextInt(STRANDS.length)]);
+                String contig = rnd.nextInt(10) == 0 ? "c3" : rnd.nextBoolean() ? "c1" : "c2";
+                for (int mode = 0; mode < 3; mode++) {
+                    List<Integer> got = find(index, contig, start, end, strand, mode);
+                    assertEquals(scan(index, contig, start, end, strand, mode), got);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void locationsAreStoredAsRead() {
+        Random rnd = new Random(5);
+        Map<String, List<Region>> locations = new LinkedHashMap<String, List<Region>>();
+        List<String> expected = new ArrayList<String>();
+        for (int f = 0; f < 300; f++) {
+            String strand = STRANDS[rnd.nextInt(STRANDS.length)];
+            int start = rnd.nextInt(1000);
+            int length = rnd.nextInt(100) + 1;
+            locations.put("f" + f, Collections.singletonList(region("c" + rnd.nextInt(3), strand, start, length)));
+            int s = "-".equals(strand) ? start - length + 1 : start;
+            expected.add("f" + f + " c" + locations.get("f" + f).get(0).getContigId().substring(1) + " " +
+                    s + " " + (s + length) + " " + (char) FeatureIntervalIndex.strandCode(strand));
+        }
+        FeatureIntervalIndex index = FeatureIntervalIndex.build(locations);
+        List<String> got = new ArrayList<String>();
+        for (int loc = 0; loc < index.getLocationCount(); loc++) {
+            got.add(index.getFeatureId(index.getLocationFeature(loc)) + " " + index.getLocationContigId(loc) +
+                    " " + index.getLocationStart(loc) + " " + index.getLocationEnd(loc) + " " +
+                    (char) index.getLocationStrand(loc));
+            assertTrue(loc == 0 || !index.getLocationContigId(loc).equals(index.getLocationContigId(loc - 1)) ||
+                    index.getLocationStart(loc - 1) <= index.getLocationStart(loc));
+        }
+        Collections.sort(expected);
+        Collections.sort(got);
+        assertEquals(expected, got);
+    }
+}
@@ -0,0 +1,183 @@
+package us.kbase.dataapi2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class GeneModelGraphTest {
+    private static final ObjectMapper MAPPER = RpcHttpChannel.mapper();
+
+    /** Two genes, three mRNAs and four CDSs: gene g1 has mRNAs m1 and m2,
+     * gene g2 has m3; c1 belongs to m1, c2 and c3 to m2 and c4 to no mRNA
+     * but to gene g2; m3 has no CDS.
+     */
+    private static final String RELATIONSHIPS = "{"
+            + "\"gene_ids\":[\"g1\",\"g2\"],"
+            + "\"mrna_ids\":[\"m1\",\"m2\",\"m3\"],"
+            + "\"cds_ids\":[\"c1\",\"c2\",\"c3\",\"c4\"],"
+            + "\"mrna_gene\":[0,0,1],"
+            + "\"cds_mrna\":[0,1,1,-1],"
+            + "\"cds_gene\":[0,0,0,1]}";
+
+    private static GeneModelGraph graph() throws Exception {
+        return MAPPER.readValue(RELATIONSHIPS, GeneModelGraph.class);
+    }
+
+    @Test
+    public void jsonRoundTrip() throws Exception {
+        GeneModelGraph graph = graph();
+        assertEquals(MAPPER.readTree(RELATIONSHIPS), MAPPER.readTree(MAPPER.writeValueAsString(graph)));
+        FeatureRelationships rels = MAPPER.readValue(RELATIONSHIPS, FeatureRelationships.class);
+        JsonNode fromObject = MAPPER.readTree(MAPPER.writeValueAsString(GeneModelGraph.from(rels)));
+        assertEquals(MAPPER.readTree(RELATIONSHIPS), fromObject);
+        assertEquals(MAPPER.readTree(RELATIONSHIPS),
+                MAPPER.readTree(MAPPER.writeValueAsString(graph.toFeatureRelationships())));
+    }
+
+    @Test
+    public void children() throws Exception {
+        GeneModelGraph graph = graph();
+        assertEquals(2, graph.getGeneCount());
+        assertEquals(3, graph.getMrnaCount());
+        assertEquals(4, graph.getCdsCount());
+        int g1 = graph.getGeneNumber("g1");
+        assertEquals(Arrays.asList("m1", "m2"), mrnas(graph, g1));
+        int m2 = graph.getMrnaNumber("m2");
+        assertEquals(2, graph.getMrnaCdsTo(m2) - graph.getMrnaCdsFrom(m2));
+        assertEquals("c3", graph.getCdsId(graph.getMrnaCds(graph.getMrnaCdsFrom(m2) + 1)));
+        int m3 = graph.getMrnaNumber("m3");
+        assertEquals(graph.getMrnaCdsFrom(m3), graph.getMrnaCdsTo(m3));
+        assertEquals(-1, graph.getMrnaOfCds(graph.getCdsNumber("c4")));
+        assertEquals(-1, graph.getGeneNumber("m1"));
+    }
+
+    private static List<String> mrnas(GeneModelGraph graph, int g) {
+        List<String> ret = new ArrayList<String>();
+        for (int i = graph.getGeneMrnaFrom(g); i < graph.getGeneMrnaTo(g); i++) {
+            ret.add(graph.getMrnaId(graph.getGeneMrna(i)));
+        }
+        return ret;
+    }
+
+    @Test
+    public void getXByY() throws Exception {
+        GeneModelGraph graph = graph();
+        Map<String, List<String>> mrnaByGene = new LinkedHashMap<String, List<String>>();
+        mrnaByGene.put("g2", Arrays.asList("m3"));
+        mrnaByGene.put("g1", Arrays.asList("m1", "m2"));
+        // IDs that are not genes are left out
+        assertEquals(mrnaByGene, graph.getMrnaByGene(Arrays.asList("g2", "g1", "m1")));
+
+        Map<String, List<String>> cdsByGene = new LinkedHashMap<String, List<String>>();
+        cdsByGene.put("g1", Arrays.asList("c1", "c2", "c3"));
+        cdsByGene.put("g2", Arrays.asList("c4"));
+        assertEquals(cdsByGene, graph.getCdsByGene(Arrays.asList("g1", "g2")));
+
+        Map<String, String> cdsByMrna = graph.getCdsByMrna(Arrays.asList("m1", "m2", "m3"));
+        assertEquals("c1", cdsByMrna.get("m1"));
+        // the first of several
+        assertEquals("c2", cdsByMrna.get("m2"));
+        assertTrue(cdsByMrna.containsKey("m3"));
+        assertNull(cdsByMrna.get("m3"));
+
+        assertEquals(Collections.singletonMap("c3", "g1"), graph.getGeneByCds(Arrays.asList("c3", "x")));
+        assertEquals(Collections.singletonMap("m3", "g2"), graph.getGeneByMrna(Arrays.asList("m3")));
+        Map<String, String> mrnaByCds = graph.getMrnaByCds(Arrays.asList("c2", "c4"));
+        assertEquals("m2", mrnaByCds.get("c2"));
+        assertNull(mrnaByCds.get("c4"));
+    }
+
+    @Test
+    public void missingListsMeanNoLinks() throws Exception {
+        GeneModelGraph graph = MAPPER.readValue(
+                "{\"gene_ids\":[\"g1\"],\"cds_ids\":[\"c1\"],\"cds_gene\":null}", GeneModelGraph.class);
+        assertEquals(0, graph.getMrnaCount());
+        assertEquals(-1, graph.getGeneOfCds(0));
+        assertEquals(Collections.singletonMap("g1", Collections.<String>emptyList()),
+                graph.getCdsByGene(Arrays.asList("g1")));
+    }
+
+    @Test
+    public void badLinksAreRejected() throws Exception {
+        for (String json : new String[] {
+                "{\"gene_ids\":[\"g1\"],\"mrna_ids\":[\"m1\"],\"mrna_gene\":[1]}",
+                "{\"gene_ids\":[\"g1\"],\"mrna_ids\":[\"m1\"],\"mrna_gene\":[0,0]}",
+                "{\"gene_ids\":[\"g1\"],\"mrna_ids\":[\"m1\"],\"mrna_gene\":[-2]}"}) {
+            try {
+                MAPPER.readValue(json, GeneModelGraph.class);
+                fail("expected an error for " + json);
+            } catch (JsonMappingException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void childrenMatchParentLinks() {
+        Random rnd = new Random(21);
+        for (int n : new int[] {0, 1, 10, 500}) {
+            List<String> genes = ids("g", n);
+            List<String> mrnas = ids("m", 2 * n);
+            List<String> cdss = ids("c", 3 * n);
+            List<Long> mrnaGene = links(rnd, mrnas.size(), genes.size());
+            List<Long> cdsMrna = links(rnd, cdss.size(), mrnas.size());
+            List<Long> cdsGene = links(rnd, cdss.size(), genes.size());
+            GeneModelGraph graph = GeneModelGraph.from(new FeatureRelationships().withGeneIds(genes)
+                    .withMrnaIds(mrnas).withCdsIds(cdss).withMrnaGene(mrnaGene).withCdsMrna(cdsMrna)
+                    .withCdsGene(cdsGene));
+            Map<String, List<String>> mrnaByGene = graph.getMrnaByGene(genes);
+            Map<String, List<String>> cdsByGene = graph.getCdsByGene(genes);
+            for (int g = 0; g < genes.size(); g++) {
+                assertEquals(children(mrnas, mrnaGene, g), mrnaByGene.get(genes.get(g)));
+                assertEquals(children(cdss, cdsGene, g), cdsByGene.get(genes.get(g)));
+            }
+            for (int m = 0; m < mrnas.size(); m++) {
+                List<String> expected = children(cdss, cdsMrna, m);
+                List<String> got = new ArrayList<String>();
+                for (int i = graph.getMrnaCdsFrom(m); i < graph.getMrnaCdsTo(m); i++) {
+                    got.add(graph.getCdsId(graph.getMrnaCds(i)));
+                }
+                assertEquals(expected, got);
+            }
+        }
+    }
+
+    private static List<String> ids(String prefix, int n) {
+        List<String> ret = new ArrayList<String>();
+        for (int i = 0; i < n; i++) {
+            ret.add(String.format("%s%05d", prefix, i));
+        }
+        return ret;
+    }
+
+    private static List<Long> links(Random rnd, int n, int parents) {
+        List<Long> ret = new ArrayList<Long>();
+        for (int i = 0; i < n; i++) {
+            ret.add(parents == 0 || rnd.nextInt(5) == 0 ? -1L : (long) rnd.nextInt(parents));
+        }
+        return ret;
+    }
+
+    private static List<String> children(List<String> childIds, List<Long> links, int parent) {
+        List<String> ret = new ArrayList<String>();
+        for (int i = 0; i < links.size(); i++) {
+            if (links.get(i) == parent) {
+                ret.add(childIds.get(i));
+            }
+        }
+        return ret;
+    }
+}
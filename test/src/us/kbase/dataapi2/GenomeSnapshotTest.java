@@ -0,0 +1,206 @@
+package us.kbase.dataapi2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class GenomeSnapshotTest {
+    private static final ObjectMapper MAPPER = RpcHttpChannel.mapper();
+    private static final String REF = "1/2/3";
+
+    private static final String RELATIONSHIPS = "{"
+            + "\"gene_ids\":[\"g1\"],"
+            + "\"mrna_ids\":[\"m1\"],"
+            + "\"cds_ids\":[\"c1\"],"
+            + "\"mrna_gene\":[0],"
+            + "\"cds_mrna\":[0],"
+            + "\"cds_gene\":[0]}";
+
+    private static Region region(String contigId, String strand, long start, long length) {
+        return new Region().withContigId(contigId).withStrand(strand).withStart(start).withLength(length);
+    }
+
+    private static Map<String, List<String>> aliases(String... aliasAndSources) {
+        Map<String, List<String>> ret = new LinkedHashMap<String, List<String>>();
+        for (int i = 0; i < aliasAndSources.length; i += 2) {
+            ret.put(aliasAndSources[i], Arrays.asList(aliasAndSources[i + 1].split(",")));
+        }
+        return ret;
+    }
+
+    private static List<FeatureData> features() {
+        return Arrays.asList(
+                new FeatureData().withFeatureId("g1").withFeatureType("gene").withFeatureFunction("kinase")
+                        .withFeatureAliases(aliases("K1", "RefSeq,UniProt", "kinA", "RefSeq"))
+                        .withFeatureLocations(Arrays.asList(region("c1", "+", 10, 300))),
+                new FeatureData().withFeatureId("m1").withFeatureType("mRNA").withFeatureFunction("kinase")
+                        .withFeatureAliases(aliases("K1", "RefSeq"))
+                        .withFeatureLocations(Arrays.asList(region("c1", "+", 10, 100), region("c1", "+", 200, 110))),
+                new FeatureData().withFeatureId("c1").withFeatureType("CDS")
+                        .withFeatureAliases(aliases())
+                        .withFeatureLocations(Arrays.asList(region("c1", "-", 309, 100))));
+    }
+
+    private static GenomeSnapshot snapshot(List<FeatureData> features) throws Exception {
+        GenomeSnapshot.Builder b = new GenomeSnapshot.Builder(REF);
+        for (FeatureData f : features) {
+            b.add(f);
+        }
+        return b.build(MAPPER.readValue(RELATIONSHIPS, GeneModelGraph.class));
+    }
+
+    private static JsonNode tree(Object value) throws Exception {
+        return MAPPER.readTree(MAPPER.writeValueAsString(value));
+    }
+
+    @Test
+    public void rowsAndColumns() throws Exception {
+        GenomeSnapshot genome = snapshot(features());
+        assertEquals(REF, genome.getRef());
+        assertEquals(3, genome.size());
+        assertEquals(0, genome.getRow("g1"));
+        assertEquals(2, genome.getRow("c1"));
+        assertEquals(-1, genome.getRow("c2"));
+        assertEquals("m1", genome.getFeatureId(1));
+
+        assertEquals(3, genome.getTypeCount());
+        assertEquals("CDS", genome.getType(2));
+        assertEquals("CDS", genome.getTypeName(genome.getTypeCode(2)));
+        assertEquals(1, genome.getFunctionCount());
+        assertEquals(genome.getFunctionCode(0), genome.getFunctionCode(1));
+        assertEquals("kinase", genome.getFunctionName(genome.getFunctionCode(1)));
+        assertEquals(-1, genome.getFunctionCode(2));
+        assertNull(genome.getFunction(2));
+
+        assertEquals(2, genome.getAliasCount(0));
+        assertEquals("kinA", genome.getAlias(0, 1));
+        assertEquals(Arrays.asList("RefSeq", "UniProt"), genome.getAliasSources(0, 0));
+        assertEquals(Arrays.asList("RefSeq"), genome.getAliasSources(1, 0));
+        assertEquals(0, genome.getAliasCount(2));
+
+        RegionArray locations = genome.getLocations();
+        assertEquals(1, locations.getFeatureFrom(1));
+        assertEquals(3, locations.getFeatureTo(1));
+        assertEquals(200, locations.getStart(2));
+        assertEquals("g1", genome.getRelationships().getGeneByCds(Arrays.asList("c1")).get("c1"));
+    }
+
+    @Test
+    public void featuresMatchInput() throws Exception {
+        List<FeatureData> features = features();
+        GenomeSnapshot genome = snapshot(features);
+        for (int row = 0; row < features.size(); row++) {
+            assertEquals(tree(features.get(row)), tree(genome.getFeature(row)));
+            assertEquals(tree(features.get(row)), tree(genome.getFeature(features.get(row).getFeatureId())));
+        }
+        assertNull(genome.getFeature("c2"));
+    }
+
+    @Test
+    public void missingFieldsReadAsEmpty() throws Exception {
+        GenomeSnapshot genome = snapshot(Arrays.asList(new FeatureData().withFeatureId("f1").withFeatureType("gene")));
+        FeatureData f = genome.getFeature("f1");
+        assertNull(f.getFeatureFunction());
+        assertEquals(Collections.emptyMap(), f.getFeatureAliases());
+        assertEquals(Collections.emptyList(), f.getFeatureLocations());
+    }
+
+    @Test
+    public void repeatedIdsKeepFirstRow() throws Exception {
+        List<FeatureData> features = new ArrayList<FeatureData>(features());
+        features.add(new FeatureData().withFeatureId("m1").withFeatureType("tRNA"));
+        GenomeSnapshot genome = snapshot(features);
+        assertEquals(4, genome.size());
+        assertEquals(1, genome.getRow("m1"));
+        assertEquals("mRNA", genome.getFeature("m1").getFeatureType());
+        assertEquals("tRNA", genome.getFeature(3).getFeatureType());
+    }
+
+    @Test
+    public void rowsAreChecked() throws Exception {
+        GenomeSnapshot genome = snapshot(features());
+        for (int row : new int[] {-1, 3}) {
+            try {
+                genome.getFeature(row);
+                fail("expected exception");
+            } catch (IndexOutOfBoundsException e) {
+                assertEquals("Row " + row + " of 3", e.getMessage());
+            }
+        }
+        try {
+            genome.getAlias(1, 1);
+            fail("expected exception");
+        } catch (IndexOutOfBoundsException e) {
+            assertEquals("Alias 1 of 1", e.getMessage());
+        }
+        try {
+            new GenomeSnapshot.Builder(REF).add(new FeatureData().withFeatureType("gene"));
+            fail("expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("A feature requires a feature_id", e.getMessage());
+        }
+    }
+
+    @Test
+    public void manyRows() throws Exception {
+        Random rnd = new Random(25);
+        List<FeatureData> features = new ArrayList<FeatureData>();
+        for (int f = 0; f < 5000; f++) {
+            features.add(new FeatureData().withFeatureId("kb|g.1.peg." + f).withFeatureType(f % 2 == 0 ? "gene" : "CDS")
+                    .withFeatureFunction(rnd.nextBoolean() ? null : "function " + rnd.nextInt(100))
+                    .withFeatureAliases(aliases("alias" + rnd.nextInt(50), "source" + rnd.nextInt(3)))
+                    .withFeatureLocations(Arrays.asList(region("c" + rnd.nextInt(4), rnd.nextBoolean() ? "+" : "-",
+                            rnd.nextInt(100000), rnd.nextInt(1000)))));
+        }
+        GenomeSnapshot genome = snapshot(features);
+        assertEquals(2, genome.getTypeCount());
+        for (int row = 0; row < features.size(); row++) {
+            assertEquals(row, genome.getRow(features.get(row).getFeatureId()));
+            assertEquals(tree(features.get(row)), tree(genome.getFeature(row)));
+        }
+        assertEquals(-1, genome.getRow("kb|g.1.peg.5000"));
+    }
+
+    @Test
+    public void loadsFromClient() throws Exception {
+        final List<FeatureData> features = features();
+        InMemoryTransport transport = new InMemoryTransport()
+                .register("data_api2.get_features", params -> {
+                    assertEquals(REF, params.get(0).asText());
+                    assertEquals(tree(GenomeSnapshot.FIELDS), params.get(2));
+                    Map<String, FeatureData> ret = new LinkedHashMap<String, FeatureData>();
+                    for (FeatureData f : features) {
+                        ret.put(f.getFeatureId(), f);
+                    }
+                    return ret;
+                })
+                .register("data_api2.get_feature_relationships", params -> MAPPER.readTree(RELATIONSHIPS));
+        DataApi2Client client = TestClients.client(transport);
+        GenomeSnapshot genome = client.getGenomeSnapshot(REF);
+        assertEquals(REF, genome.getRef());
+        assertEquals(3, genome.size());
+        for (FeatureData f : features) {
+            assertEquals(tree(f), tree(genome.getFeature(f.getFeatureId())));
+        }
+        assertEquals("m1", genome.getRelationships().getMrnaId(0));
+        assertEquals(3, FeatureFilterEngine.of(genome).size());
+        try {
+            client.getGenomeSnapshot("1/2");
+            fail("expected exception");
+        } catch (IllegalArgumentException e) {
+            assertEquals("A genome snapshot requires a versioned reference, ws_id/obj_id/version: 1/2",
+                    e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package us.kbase.dataapi2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+import us.kbase.common.service.ServerException;
+
+public class InMemoryTransportTest {
+    private static final String REF = "1/2/3";
+
+    @Test
+    public void handlersAnswerCalls() throws Exception {
+        InMemoryTransport transport = new InMemoryTransport()
+                .register("data_api2.get_taxon", params -> "taxon of " + params.get(0).asText())
+                .register("data_api2.get_feature_type_counts", params -> Collections.singletonMap(
+                        params.get(1).get(0).asText(), 12));
+        DataApi2Client client = TestClients.client(transport);
+        assertEquals("taxon of 1/2/3", client.getTaxon(REF));
+        Map<String, Long> counts = client.getFeatureTypeCounts(REF, Arrays.asList("gene"));
+        assertEquals(Long.valueOf(12), counts.get("gene"));
+        assertEquals(2, transport.getRequestCount());
+        assertEquals(2, transport.getCallCount());
+    }
+
+    @Test
+    public void handlerExceptionsAreServerErrors() throws Exception {
+        DataApi2Client client = TestClients.client(new InMemoryTransport()
+                .register("data_api2.get_taxon", params -> {
+                    throw new IllegalArgumentException("no such object");
+                }));
+        try {
+            client.getTaxon(REF);
+            fail("expected an error");
+        } catch (ServerException e) {
+            assertEquals("no such object", e.getMessage());
+        }
+    }
+
+    @Test
+    public void unregisteredMethodsAreServerErrors() throws Exception {
+        DataApi2Client client = TestClients.client(new InMemoryTransport());
+        try {
+            client.getTaxon(REF);
+            fail("expected an error");
+        } catch (ServerException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("data_api2.get_taxon"));
+        }
+    }
+
+    @Test
+    public void compressedRequestsAreDecoded() throws Exception {
+        InMemoryTransport transport = new InMemoryTransport()
+                .register("data_api2.get_feature_functions", params -> Collections.singletonMap(
+                        "f1", "length " + params.get(1).size()));
+        DataApi2Client client = TestClients.client(transport);
+        client.setCompressionEnabled(true);
+        client.setRequestCompressionThreshold(0);
+        List<String> ids = Collections.nCopies(1000, "a feature ID");
+        assertEquals("length 1000", client.getFeatureFunctions(REF, ids).get("f1"));
+    }
+}
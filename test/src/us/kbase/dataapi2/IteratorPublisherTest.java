@@ -0,0 +1,193 @@
+package us.kbase.dataapi2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class IteratorPublisherTest {
+    /** Runs signals on the thread that triggers them. */
+    private static final Executor DIRECT = Runnable::run;
+
+    /** Records the signals it receives. */
+    private static class Recorder<T> implements Flow.Subscriber<T> {
+        Flow.Subscription subscription;
+        final List<T> items = new ArrayList<T>();
+        Throwable error = null;
+        boolean complete = false;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            complete = true;
+        }
+    }
+
+    /** Counts the items taken from it and whether it was closed. */
+    private static class CountingIterator implements Iterator<Integer>, Closeable {
+        final int size;
+        int taken = 0;
+        boolean closed = false;
+
+        CountingIterator(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return taken < size;
+        }
+
+        @Override
+        public Integer next() {
+            return taken++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    public void itemsAreTakenOnlyOnDemand() {
+        final CountingIterator it = new CountingIterator(5);
+        Recorder<Integer> r = new Recorder<Integer>();
+        new IteratorPublisher<Integer>(() -> it, DIRECT).subscribe(r);
+        assertEquals(0, it.taken);
+
+        r.subscription.request(2);
+        assertEquals(Arrays.asList(0, 1), r.items);
+        assertEquals(2, it.taken);
+        r.subscription.request(2);
+        assertEquals(Arrays.asList(0, 1, 2, 3), r.items);
+        assertFalse(r.complete);
+        r.subscription.request(Long.MAX_VALUE);
+        assertEquals(Arrays.asList(0, 1, 2, 3, 4), r.items);
+        assertTrue(r.complete);
+        assertTrue(it.closed);
+        assertNull(r.error);
+    }
+
+    @Test
+    public void requestFromOnNextIsNotReentrant() {
+        final CountingIterator it = new CountingIterator(1000);
+        final AtomicInteger depth = new AtomicInteger();
+        final AtomicInteger maxDepth = new AtomicInteger();
+        Recorder<Integer> r = new Recorder<Integer>() {
+            @Override
+            public void onNext(Integer item) {
+                maxDepth.set(Math.max(maxDepth.get(), depth.incrementAndGet()));
+                super.onNext(item);
+                subscription.request(1);
+                depth.decrementAndGet();
+            }
+        };
+        new IteratorPublisher<Integer>(() -> it, DIRECT).subscribe(r);
+        r.subscription.request(1);
+        assertEquals(1000, r.items.size());
+        assertEquals(1, maxDepth.get());
+        assertTrue(r.complete);
+    }
+
+    @Test
+    public void cancelStopsAndClosesTheIterator() {
+        final CountingIterator it = new CountingIterator(5);
+        Recorder<Integer> r = new Recorder<Integer>();
+        new IteratorPublisher<Integer>(() -> it, DIRECT).subscribe(r);
+        r.subscription.request(2);
+        r.subscription.cancel();
+        assertTrue(it.closed);
+        r.subscription.request(3);
+        assertEquals(Arrays.asList(0, 1), r.items);
+        assertEquals(2, it.taken);
+        assertFalse(r.complete);
+        assertNull(r.error);
+    }
+
+    @Test
+    public void nonPositiveRequestIsAnError() {
+        final CountingIterator it = new CountingIterator(5);
+        Recorder<Integer> r = new Recorder<Integer>();
+        new IteratorPublisher<Integer>(() -> it, DIRECT).subscribe(r);
+        r.subscription.request(0);
+        assertTrue(r.error instanceof IllegalArgumentException);
+        r.subscription.request(1);
+        assertTrue(r.items.isEmpty());
+    }
+
+    @Test
+    public void iteratorErrorsAreSignalled() {
+        Recorder<Integer> r = new Recorder<Integer>();
+        new IteratorPublisher<Integer>(() -> {
+            throw new ResultIterator.StreamException(new IOException("connection lost"));
+        }, DIRECT).subscribe(r);
+        r.subscription.request(1);
+        assertTrue(r.error instanceof IOException);
+        assertEquals("connection lost", r.error.getMessage());
+    }
+
+    @Test
+    public void featurePagesAreFetchedOnDemand() throws Exception {
+        // five pages of two features; the token is the next page's number
+        InMemoryTransport transport = new InMemoryTransport().register("data_api2.get_features_page", params -> {
+            JsonNode token = params.get(4);
+            int page = token.isNull() ? 0 : token.asInt();
+            List<Map<String, Object>> features = new ArrayList<Map<String, Object>>();
+            for (int i = 0; i < 2; i++) {
+                Map<String, Object> f = new LinkedHashMap<String, Object>();
+                f.put("feature_id", "f" + (page * 2 + i));
+                features.add(f);
+            }
+            Map<String, Object> ret = new LinkedHashMap<String, Object>();
+            ret.put("features", features);
+            ret.put("continuation_token", page == 4 ? null : Integer.toString(page + 1));
+            return ret;
+        });
+        DataApi2Client client = TestClients.client(transport);
+        client.setExecutor(DIRECT);
+        Recorder<FeatureData> r = new Recorder<FeatureData>();
+        client.publishFeatures("1/2/3", null, null, 2).subscribe(r);
+        assertEquals(0, transport.getRequestCount());
+
+        r.subscription.request(3);
+        assertEquals(3, r.items.size());
+        assertEquals("f2", r.items.get(2).getFeatureId());
+        // the second page and the one after it, read ahead
+        assertEquals(3, transport.getRequestCount());
+
+        r.subscription.cancel();
+        r.subscription.request(10);
+        assertEquals(3, r.items.size());
+        assertEquals(3, transport.getRequestCount());
+        assertFalse(r.complete);
+    }
+}
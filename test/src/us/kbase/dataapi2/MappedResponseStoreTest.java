@@ -0,0 +1,151 @@
+package us.kbase.dataapi2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MappedResponseStoreTest {
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static byte[] bytes(String s) throws Exception {
+        return s.getBytes("UTF-8");
+    }
+
+    private static String string(ByteBuffer buf) throws Exception {
+        byte[] b = new byte[buf.remaining()];
+        buf.get(b);
+        return new String(b, "UTF-8");
+    }
+
+    private File index(File dir) {
+        return new File(dir, "responses.idx");
+    }
+
+    @Test
+    public void responsesSurviveReopening() throws Exception {
+        File dir = tmp.newFolder();
+        MappedResponseStore store = MappedResponseStore.open(dir, 1 << 20);
+        store.put("a", bytes("[\"one\"]"));
+        store.put("b", bytes("[\"two\"]"));
+        store.put("a", bytes("[\"ignored\"]"));
+        assertEquals(2, store.size());
+        store.close();
+
+        store = MappedResponseStore.open(dir, 1 << 20);
+        assertEquals("[\"one\"]", string(store.get("a")));
+        assertEquals("[\"two\"]", string(store.get("b")));
+        assertNull(store.get("c"));
+        assertEquals(2, store.getHits());
+        assertEquals(1, store.getMisses());
+        store.close();
+    }
+
+    @Test
+    public void tornIndexRecordIsDiscarded() throws Exception {
+        File dir = tmp.newFolder();
+        MappedResponseStore store = MappedResponseStore.open(dir, 1 << 20);
+        store.put("a", bytes("[\"one\"]"));
+        store.put("b", bytes("[\"two\"]"));
+        store.close();
+        // a writer crashed part way through the record for "b"
+        long whole = index(dir).length();
+        try (RandomAccessFile idx = new RandomAccessFile(index(dir), "rw")) {
+            idx.setLength(whole - 5);
+        }
+
+        store = MappedResponseStore.open(dir, 1 << 20);
+        assertEquals(1, store.size());
+        assertEquals("[\"one\"]", string(store.get("a")));
+        assertNull(store.get("b"));
+        // the next append replaces the torn record
+        store.put("c", bytes("[\"three\"]"));
+        store.close();
+
+        store = MappedResponseStore.open(dir, 1 << 20);
+        assertEquals(2, store.size());
+        assertEquals("[\"one\"]", string(store.get("a")));
+        assertEquals("[\"three\"]", string(store.get("c")));
+        store.close();
+    }
+
+    @Test
+    public void corruptIndexRecordIsDiscarded() throws Exception {
+        File dir = tmp.newFolder();
+        MappedResponseStore store = MappedResponseStore.open(dir, 1 << 20);
+        store.put("a", bytes("[\"one\"]"));
+        store.put("b", bytes("[\"two\"]"));
+        store.close();
+        // flip a bit of the last record's CRC
+        try (RandomAccessFile idx = new RandomAccessFile(index(dir), "rw")) {
+            idx.seek(idx.length() - 1);
+            int b = idx.read();
+            idx.seek(idx.length() - 1);
+            idx.write(b ^ 1);
+        }
+
+        store = MappedResponseStore.open(dir, 1 << 20);
+        assertEquals(1, store.size());
+        assertNull(store.get("b"));
+        store.put("b", bytes("[\"again\"]"));
+        store.close();
+
+        store = MappedResponseStore.open(dir, 1 << 20);
+        assertEquals("[\"again\"]", string(store.get("b")));
+        store.close();
+    }
+
+    @Test
+    public void readersSeeLaterAppends() throws Exception {
+        File dir = tmp.newFolder();
+        MappedResponseStore writer = MappedResponseStore.open(dir, 1 << 20);
+        MappedResponseStore reader = MappedResponseStore.openReadOnly(dir);
+        assertTrue(reader.isReadOnly());
+        assertNull(reader.get("a"));
+        writer.put("a", bytes("[\"one\"]"));
+        assertEquals("[\"one\"]", string(reader.get("a")));
+        reader.put("b", bytes("[\"two\"]"));
+        assertNull(writer.get("b"));
+        reader.close();
+        writer.close();
+    }
+
+    @Test
+    public void fullStoreStopsAppending() throws Exception {
+        File dir = tmp.newFolder();
+        MappedResponseStore store = MappedResponseStore.open(dir, 10);
+        store.put("a", bytes("[\"one\"]"));
+        store.put("b", bytes("[\"two\"]"));
+        assertEquals(1, store.size());
+        assertNull(store.get("b"));
+        store.close();
+    }
+
+    @Test
+    public void clientServesStoredResponses() throws Exception {
+        File dir = tmp.newFolder();
+        InMemoryTransport transport = new InMemoryTransport()
+                .register("data_api2.get_feature_types", params -> Arrays.asList("gene", "CDS"));
+        DataApi2Client client = TestClients.client(transport);
+        MappedResponseStore store = MappedResponseStore.open(dir, 1 << 20);
+        client.setResponseStore(store);
+        client.getFeatureTypes("1/2/3");
+        store.close();
+
+        // a new process reopens the store
+        client = TestClients.client(transport);
+        store = MappedResponseStore.open(dir, 1 << 20);
+        client.setResponseStore(store);
+        assertEquals(Arrays.asList("gene", "CDS"), client.getFeatureTypes("1/2/3"));
+        assertEquals(1, transport.getRequestCount());
+        store.close();
+    }
+}
@@ -0,0 +1,111 @@
+package us.kbase.dataapi2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+public class NucleotideSequenceTest {
+    /** Mostly A/C/G/T with runs of other characters, including U. */
+    private static String randomSequence(Random rnd, int length) {
+        String others = "NURYKMBVDHSWacgtun-";
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            if (rnd.nextInt(10) == 0) {
+                char c = others.charAt(rnd.nextInt(others.length()));
+                for (int i = rnd.nextInt(5); i >= 0 && sb.length() < length; i--) {
+                    sb.append(c);
+                }
+            } else {
+                sb.append("ACGT".charAt(rnd.nextInt(4)));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String reverseComplement(String s) {
+        String from = "ACGTURYKMBVDHacgturykmbvdh";
+        String to = "TGCAAYRMKVBHDtgcaayrmkvbhd";
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = s.length() - 1; i >= 0; i--) {
+            int k = from.indexOf(s.charAt(i));
+            sb.append(k < 0 ? s.charAt(i) : to.charAt(k));
+        }
+        return sb.toString();
+    }
+
+    /** Checks a sequence against its expected characters, including that
+     * it is equal to, and hashes as, the same characters packed afresh.
+     */
+    private static void check(String expected, NucleotideSequence s) {
+        assertEquals(expected, s.toString());
+        assertEquals(expected.length(), s.length());
+        for (int i = 0; i < expected.length(); i++) {
+            assertEquals(expected.charAt(i), s.charAt(i));
+        }
+        NucleotideSequence packed = NucleotideSequence.of(expected);
+        assertEquals(packed, s);
+        assertEquals(packed.hashCode(), s.hashCode());
+        assertEquals(packed.getExceptionRunCount(), s.getExceptionRunCount());
+    }
+
+    @Test
+    public void packing() {
+        NucleotideSequence s = NucleotideSequence.of("ACGTNNNNacgtACGT");
+        assertEquals("ACGTNNNNacgtACGT", s.toString());
+        assertEquals(5, s.getExceptionRunCount());
+        assertEquals('N', s.charAt(5));
+        assertEquals('T', s.charAt(15));
+        assertEquals(0, NucleotideSequence.of("").length());
+        char[] chars = "xxACGUx".toCharArray();
+        check("ACGU", NucleotideSequence.of(chars, 2, 4));
+    }
+
+    @Test
+    public void reverseComplementOfUracil() {
+        NucleotideSequence s = NucleotideSequence.of("ACGUUNu");
+        check("aNAACGT", s.reverseComplement());
+        check("ACGTTNt", s.reverseComplement().reverseComplement());
+    }
+
+    @Test
+    public void operationsMatchStrings() {
+        Random rnd = new Random(14);
+        for (int length : new int[] {0, 1, 31, 32, 33, 63, 64, 65, 100, 1000}) {
+            for (int k = 0; k < 20; k++) {
+                String str = randomSequence(rnd, length);
+                NucleotideSequence s = NucleotideSequence.of(str);
+                check(str, s);
+                check(reverseComplement(str), s.reverseComplement());
+                int start = rnd.nextInt(length + 1);
+                int end = start + rnd.nextInt(length - start + 1);
+                check(str.substring(start, end), s.subSequence(start, end));
+                check(reverseComplement(str.substring(start, end)), s.subSequence(start, end).reverseComplement());
+            }
+        }
+    }
+
+    @Test
+    public void differentSequencesAreNotEqual() {
+        assertNotEquals(NucleotideSequence.of("ACGT"), NucleotideSequence.of("ACGA"));
+        assertNotEquals(NucleotideSequence.of("ACGT"), NucleotideSequence.of("ACGTA"));
+        assertNotEquals(NucleotideSequence.of("ANGT"), NucleotideSequence.of("ARGT"));
+        // A packs to code 0, as do run positions
+        assertNotEquals(NucleotideSequence.of("AAAA"), NucleotideSequence.of("NNNN"));
+    }
+
+    @Test
+    public void jsonRoundTrip() throws Exception {
+        String str = randomSequence(new Random(3), 500);
+        String json = RpcHttpChannel.mapper().writeValueAsString(Collections.singletonMap("f1", NucleotideSequence.of(str)));
+        Map<String, NucleotideSequence> back = RpcHttpChannel.mapper().readValue(json,
+                new TypeReference<Map<String, NucleotideSequence>>() {});
+        check(str, back.get("f1"));
+        assertTrue(json.contains(str));
+    }
+}
@@ -0,0 +1,165 @@
+package us.kbase.dataapi2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+public class RegionArrayTest {
+    private static final ObjectMapper MAPPER = RpcHttpChannel.mapper();
+
+    /** get_feature_locations output with every kind of value a region may
+     * hold: ordinary and odd strands, a missing strand, null starts and
+     * lengths, extra properties, an empty and a null list of regions.
+     */
+    private static final String LOCATIONS = "{"
+            + "\"f1\":[{\"contig_id\":\"c1\",\"strand\":\"+\",\"start\":100,\"length\":10},"
+            + "{\"contig_id\":\"c1\",\"strand\":\"-\",\"start\":300,\"length\":20}],"
+            + "\"f2\":[{\"contig_id\":\"c2\",\"strand\":\"forward\",\"start\":5,\"length\":null},"
+            + "{\"contig_id\":\"c2\",\"strand\":\"\\u00e9\",\"start\":null,\"length\":7,"
+            + "\"phase\":2,\"note\":{\"partial\":[true,null]}},"
+            + "{\"contig_id\":\"c1\",\"start\":1,\"length\":1}],"
+            + "\"f3\":[],"
+            + "\"f4\":null}";
+
+    /** Writes a value and reads it back as a tree, so numbers compare
+     * equal whatever type they were written from.
+     */
+    private static JsonNode tree(Object value) throws Exception {
+        return MAPPER.readTree(MAPPER.writeValueAsString(value));
+    }
+
+    private static RegionArray read(String json) throws Exception {
+        return MAPPER.readValue(json, RegionArray.class);
+    }
+
+    @Test
+    public void columns() throws Exception {
+        RegionArray a = read(LOCATIONS);
+        assertTrue(a.isGrouped());
+        assertEquals(5, a.size());
+        assertEquals(2, a.getContigCount());
+        assertEquals(4, a.getFeatureCount());
+        assertEquals(Arrays.asList(0, 2, 5, 5), Arrays.asList(a.getFeatureFrom(0), a.getFeatureFrom(1),
+                a.getFeatureFrom(2), a.getFeatureFrom(3)));
+        assertEquals(5, a.getFeatureTo(3));
+        assertEquals(1, a.getFeatureNumber("f2"));
+        assertEquals(-1, a.getFeatureNumber("f5"));
+
+        assertEquals('-', a.getStrand(1));
+        assertEquals("-", a.getStrandString(1));
+        // strands other than one ASCII character read as '?'
+        assertEquals('?', a.getStrand(2));
+        assertEquals("forward", a.getStrandString(2));
+        assertEquals('?', a.getStrand(3));
+        assertEquals("\u00e9", a.getStrandString(3));
+        assertEquals(0, a.getStrand(4));
+        assertNull(a.getStrandString(4));
+        // missing starts and lengths read as 0
+        assertEquals(0, a.getLength(2));
+        assertEquals(0, a.getStart(3));
+        assertNull(a.get(2).getLength());
+        assertNull(a.get(3).getStart());
+        assertEquals(2, a.get(3).getAdditionalProperties().get("phase"));
+
+        assertFalse(a.isFeatureNull(2));
+        assertTrue(a.isFeatureNull(3));
+    }
+
+    @Test
+    public void jsonRoundTrip() throws Exception {
+        RegionArray a = read(LOCATIONS);
+        JsonNode expected = MAPPER.readTree(LOCATIONS);
+        // Region and RegionArray leave out null values the same way
+        JsonNode asRegions = tree(MAPPER.readValue(LOCATIONS,
+                new TypeReference<Map<String, List<Region>>>() {}));
+        assertEquals(asRegions, tree(a));
+        assertEquals(asRegions, tree(a.toMap()));
+        assertEquals(asRegions, tree(read(MAPPER.writeValueAsString(a))));
+        assertTrue(tree(a).get("f4").isNull());
+        assertNull(a.toMap().get("f4"));
+        assertTrue(a.toMap().containsKey("f4"));
+        // only the nulls are left out
+        assertEquals(expected.get("f1"), tree(a).get("f1"));
+        assertEquals(expected.get("f2").get(1).get("note"), tree(a).get("f2").get(1).get("note"));
+    }
+
+    @Test
+    public void ungrouped() throws Exception {
+        String json = "[{\"contig_id\":\"c1\",\"strand\":\"+\",\"start\":1,\"length\":2},"
+                + "{\"contig_id\":\"c2\",\"strand\":\"?\",\"start\":3,\"length\":4}]";
+        RegionArray a = read(json);
+        assertFalse(a.isGrouped());
+        assertEquals(0, a.getFeatureCount());
+        assertEquals(2, a.size());
+        assertEquals(MAPPER.readTree(json), tree(a));
+        assertEquals("c2", a.toList().get(1).getContigId());
+    }
+
+    @Test
+    public void concatKeepsEveryValue() throws Exception {
+        RegionArray a = read(LOCATIONS);
+        RegionArray b = read("{\"f5\":[{\"contig_id\":\"c3\",\"strand\":\"+\",\"start\":9,\"length\":9}],\"f6\":null}");
+        RegionArray c = RegionArray.concat(Arrays.asList(a, b));
+        assertEquals(6, c.getFeatureCount());
+        assertEquals(3, c.getContigCount());
+        assertTrue(c.isFeatureNull(3));
+        assertTrue(c.isFeatureNull(5));
+        JsonNode joined = tree(a);
+        ((ObjectNode) joined).setAll((ObjectNode) tree(b));
+        assertEquals(joined, tree(c));
+    }
+
+    @Test
+    public void cursor() throws Exception {
+        RegionArray a = read(LOCATIONS);
+        RegionArray.Cursor c = a.cursor();
+        long total = 0;
+        int n = 0;
+        while (c.next()) {
+            total += c.getLength();
+            n++;
+        }
+        assertEquals(5, n);
+        assertEquals(10 + 20 + 0 + 7 + 1, total);
+        c.selectFeature(1);
+        assertTrue(c.next());
+        assertEquals(2, c.getPosition());
+        assertEquals("forward", c.getStrandString());
+        assertTrue(c.next());
+        assertTrue(c.next());
+        assertEquals("c1", c.getContigId());
+        assertFalse(c.next());
+        assertFalse(c.selectFeature(3).next());
+    }
+
+    @Test
+    public void builder() {
+        RegionArray a = new RegionArray.Builder()
+                .startFeature("f1")
+                .add("c1", "+", 1, 2)
+                .add(new Region().withContigId("c2").withStrand("-").withStart(10L))
+                .startFeature("f2")
+                .build();
+        assertEquals(2, a.getFeatureCount());
+        assertEquals(2, a.size());
+        assertNull(a.get(1).getLength());
+        assertEquals(0, a.getFeatureTo(1) - a.getFeatureFrom(1));
+        try {
+            new RegionArray.Builder().add("c1", "+", 1, 2).startFeature("f1");
+            fail("expected an error");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package us.kbase.dataapi2;
+
+import java.net.URL;
+import us.kbase.auth.AuthToken;
+
+/** Builds clients that send their requests through a test transport. */
+final class TestClients {
+    static final String URL = "http://localhost/services/data_api2";
+
+    private TestClients() {
+    }
+
+    /** Builds a client for user1 that sends its requests to a transport. */
+    static DataApi2Client client(DataApi2Transport transport) throws Exception {
+        return client(transport, "user1");
+    }
+
+    /** Builds a client for a user that sends its requests to a transport. */
+    static DataApi2Client client(DataApi2Transport transport, String user) throws Exception {
+        DataApi2Client client = new DataApi2Client(new URL(URL), new AuthToken("token-" + user, user));
+        client.setIsInsecureHttpConnectionAllowed(true);
+        client.setTransport(transport);
+        return client;
+    }
+}
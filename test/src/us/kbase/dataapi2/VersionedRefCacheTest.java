@@ -0,0 +1,101 @@
+package us.kbase.dataapi2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+public class VersionedRefCacheTest {
+    private static final String REF = "1/2/3";
+
+    @Test
+    public void canonicalRef() {
+        assertEquals("1/2/3", VersionedRefCache.canonicalRef(" 01/2/03 "));
+        assertNull(VersionedRefCache.canonicalRef("1/2"));
+        assertNull(VersionedRefCache.canonicalRef("ws/obj/3"));
+        assertNull(VersionedRefCache.canonicalRef(null));
+    }
+
+    @Test
+    public void keysAreUnversionedRefsOnlyAndPerUser() {
+        List<Object> args = Arrays.<Object>asList(REF, Arrays.asList("f1"));
+        String key = VersionedRefCache.keyFor(RpcHttpChannel.mapper(), "user1", "m", args);
+        assertEquals(key, VersionedRefCache.keyFor(RpcHttpChannel.mapper(), "user1", "m",
+                Arrays.<Object>asList("1/02/3", Arrays.asList("f1"))));
+        assertNotEquals(key, VersionedRefCache.keyFor(RpcHttpChannel.mapper(), "user2", "m", args));
+        assertNotEquals(key, VersionedRefCache.keyFor(RpcHttpChannel.mapper(), "user1", "m2", args));
+        assertNull(VersionedRefCache.keyFor(RpcHttpChannel.mapper(), "user1", "m",
+                Arrays.<Object>asList("1/2", Arrays.asList("f1"))));
+        assertEquals("", VersionedRefCache.userOf(null));
+    }
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() {
+        // room for two entries of 400 bytes, but not three
+        VersionedRefCache cache = new VersionedRefCache(1000);
+        cache.put("a", new byte[400]);
+        cache.put("b", new byte[400]);
+        assertEquals(2, cache.size());
+        cache.get("a");
+        cache.put("c", new byte[400]);
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNull(cache.get("b"));
+        assertEquals(400, cache.get("a").length);
+        assertEquals(400, cache.get("c").length);
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertTrue(cache.getEstimatedBytes() <= cache.getMaxBytes());
+    }
+
+    @Test
+    public void oversizedEntriesAreNotCached() {
+        VersionedRefCache cache = new VersionedRefCache(200);
+        cache.put("a", new byte[10]);
+        cache.put("b", new byte[1000]);
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.size());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    @Test
+    public void replacedEntriesAreCountedOnce() {
+        VersionedRefCache cache = new VersionedRefCache(1000);
+        cache.put("a", new byte[400]);
+        long bytes = cache.getEstimatedBytes();
+        cache.put("a", new byte[400]);
+        assertEquals(bytes, cache.getEstimatedBytes());
+        assertArrayEquals(new byte[400], cache.get("a"));
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getEstimatedBytes());
+    }
+
+    @Test
+    public void clientServesCachedResponses() throws Exception {
+        InMemoryTransport transport = new InMemoryTransport()
+                .register("data_api2.get_feature_types", params -> Arrays.asList("gene", "CDS"));
+        VersionedRefCache cache = new VersionedRefCache(1 << 20);
+        DataApi2Client client = TestClients.client(transport);
+        client.setResponseCache(cache);
+        assertEquals(Arrays.asList("gene", "CDS"), client.getFeatureTypes(REF));
+        assertEquals(Arrays.asList("gene", "CDS"), client.getFeatureTypes("1/2/03"));
+        assertEquals(1, transport.getRequestCount());
+        // an unversioned reference may change, so it is always fetched
+        client.getFeatureTypes("1/2");
+        assertEquals(2, transport.getRequestCount());
+
+        // another user's client sharing the cache does not see the response
+        DataApi2Client other = TestClients.client(transport, "user2");
+        other.setResponseCache(cache);
+        other.getFeatureTypes(REF);
+        assertEquals(3, transport.getRequestCount());
+        assertEquals(2, cache.size());
+    }
+}